@@ -21,6 +21,8 @@ import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.maven.galley.model.Transfer;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -39,6 +41,18 @@ public interface ContentIndexManager
      */
     void indexPathInStores( String path, StoreKey originKey, StoreKey... topKeys );
 
+    /**
+     * Bulk form of {@link #indexPathInStores(String, StoreKey, StoreKey...)}, used to (re)build the index. Each given
+     * group is mapped to its ordered concrete members; a path is only indexed in a group if the group does not
+     * already resolve it to a member that comes earlier in that order.
+     */
+    void indexPathsInStores( Collection<String> paths, StoreKey originKey, Map<StoreKey, List<StoreKey>> groupMembers );
+
+    /**
+     * True if nothing has been indexed (or the index has been lost, e.g. non-persistent cache after a restart).
+     */
+    boolean isIndexEmpty();
+
     void clearAllIndexedPathInStore( ArtifactStore store );
 
     void clearAllIndexedPathWithOriginalStore( ArtifactStore originalStore );
@@ -297,6 +297,56 @@ public class DefaultContentIndexManager
         } );
     }
 
+    @Override
+    @Measure
+    public void indexPathsInStores( Collection<String> rawPaths, StoreKey originKey,
+                                    Map<StoreKey, List<StoreKey>> groupMembers )
+    {
+        if ( !config.isEnabled() )
+        {
+            logger.debug( "Content indexing is disabled." );
+            return;
+        }
+
+        // several raw paths may share one strategy path (e.g. files of the same maven version directory)
+        Map<IndexedStorePath, IndexedStorePath> selfIndex = new HashMap<>( rawPaths.size() );
+        rawPaths.forEach( rawPath -> {
+            IndexedStorePath origin = new IndexedStorePath( originKey, getStrategyPath( originKey, rawPath ) );
+            selfIndex.put( origin, origin );
+        } );
+
+        logger.trace( "Indexing {} paths in: {}", selfIndex.size(), originKey );
+        contentIndex.putAll( selfIndex );
+
+        groupMembers.forEach( ( groupKey, members ) -> contentIndex.execute( cache -> {
+            selfIndex.keySet().forEach( origin -> {
+                IndexedStorePath isp = new IndexedStorePath( groupKey, originKey, origin.getPath() );
+                cache.merge( isp, isp, ( existing, candidate ) -> earlierMember( members, existing, candidate ) );
+            } );
+            return null;
+        } ) );
+    }
+
+    private IndexedStorePath earlierMember( List<StoreKey> members, IndexedStorePath existing,
+                                            IndexedStorePath candidate )
+    {
+        StoreKey existingOrigin = existing.getOriginStoreKey();
+        int existingPos = members.indexOf( existingOrigin == null ? existing.getStoreKey() : existingOrigin );
+
+        // keep entries we can't rank, they were indexed by real traffic through the group
+        if ( existingPos < 0 || members.indexOf( candidate.getOriginStoreKey() ) >= existingPos )
+        {
+            return existing;
+        }
+        return candidate;
+    }
+
+    @Override
+    public boolean isIndexEmpty()
+    {
+        return contentIndex.isEmpty();
+    }
+
     @Override
     @Measure
     public void clearAllIndexedPathInStore( ArtifactStore store )
@@ -363,10 +413,8 @@ public class DefaultContentIndexManager
             query = queryFunction.get();
 
             List<IndexedStorePath> all = query.list();
-            all.forEach( ( key ) -> {
-                logger.debug("Removing from content index: {}", key);
-                contentIndex.remove( key );
-            } );
+            logger.debug( "Removing from content index: {}", all );
+            contentIndex.removeAll( all );
 
             last = all.size();
             total += last;
@@ -735,6 +735,32 @@ public abstract class IndexingContentManagerDecorator
         Logger logger = LoggerFactory.getLogger( getClass() );
         logger.trace( "Storing: {} in: {} from indexing level", path, store.getKey() );
         Transfer transfer = delegate.store( store, path, stream, op, eventMetadata );
+        indexStored( store, path, transfer, eventMetadata, "store" );
+        return transfer;
+    }
+
+    @Override
+    @Measure
+    public Transfer adopt( final ArtifactStore store, final String path, final Transfer source,
+                           final EventMetadata eventMetadata )
+            throws IndyWorkflowException
+    {
+        if ( !indexCfg.isEnabled() )
+        {
+            return delegate.adopt( store, path, source, eventMetadata );
+        }
+
+        Logger logger = LoggerFactory.getLogger( getClass() );
+        logger.trace( "Adopting: {} as: {} in: {} from indexing level", source, path, store.getKey() );
+        Transfer transfer = delegate.adopt( store, path, source, eventMetadata );
+        indexStored( store, path, transfer, eventMetadata, "adopt" );
+        return transfer;
+    }
+
+    private void indexStored( final ArtifactStore store, final String path, final Transfer transfer,
+                              final EventMetadata eventMetadata, final String method )
+    {
+        Logger logger = LoggerFactory.getLogger( getClass() );
         if ( transfer != null )
         {
             if ( indexCfg.isEnabled() )
@@ -751,7 +777,7 @@ public abstract class IndexingContentManagerDecorator
             {
                 final String name = String.format( "ContentIndexStoreDeIndex-store(%s)-path(%s)", store.getKey(), path );
                 final String context =
-                        String.format( "Class: %s, method: %s, store: %s, path: %s", this.getClass().getName(), "store",
+                        String.format( "Class: %s, method: %s, store: %s, path: %s", this.getClass().getName(), method,
                                        store.getKey(), path );
                 storeDataManager.asyncGroupAffectedBy( new StoreDataManager.ContextualTask(name, context, () -> {
                     try
@@ -775,7 +801,6 @@ public abstract class IndexingContentManagerDecorator
                 } ) );
             }
         }
-        return transfer;
     }
 
     @Override
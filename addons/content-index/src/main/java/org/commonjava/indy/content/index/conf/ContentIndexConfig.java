@@ -35,6 +35,8 @@ public class ContentIndexConfig
 
     public static final String ENABLE_INDEX_WARMER = "index.warmer.enabled";
 
+    public static final String INDEX_WARMER_MAX_PATHS_PER_SECOND = "index.warmer.max.paths.per.second";
+
     private static final String ENABLE = "enabled";
 
     private static final Boolean DEFAULT_AUTHORITATIVE_INDEXES = Boolean.FALSE;
@@ -43,10 +45,14 @@ public class ContentIndexConfig
 
     private static final Boolean DEFAULT_ENABLED = Boolean.FALSE;
 
+    private static final int DEFAULT_WARMER_MAX_PATHS_PER_SECOND = 0;
+
     private Boolean authoritativeIndex;
 
     private Boolean warmerEnabled;
 
+    private Integer warmerMaxPathsPerSecond;
+
     private Boolean enabled;
 
     public ContentIndexConfig()
@@ -80,6 +86,21 @@ public class ContentIndexConfig
         this.warmerEnabled = warmerEnabled;
     }
 
+    /**
+     * Upper bound on the files and directories the warmer visits per second across all its threads, to keep it from
+     * saturating storage I/O. 0 means unthrottled.
+     */
+    public int getWarmerMaxPathsPerSecond()
+    {
+        return warmerMaxPathsPerSecond == null ? DEFAULT_WARMER_MAX_PATHS_PER_SECOND : warmerMaxPathsPerSecond;
+    }
+
+    @ConfigName( ContentIndexConfig.INDEX_WARMER_MAX_PATHS_PER_SECOND )
+    public void setWarmerMaxPathsPerSecond( Integer warmerMaxPathsPerSecond )
+    {
+        this.warmerMaxPathsPerSecond = warmerMaxPathsPerSecond;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
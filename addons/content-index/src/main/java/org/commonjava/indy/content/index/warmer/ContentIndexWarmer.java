@@ -18,6 +18,7 @@ package org.commonjava.indy.content.index.warmer;
 import org.commonjava.cdi.util.weft.ExecutorConfig;
 import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.audit.ChangeSummary;
 import org.commonjava.indy.content.DownloadManager;
 import org.commonjava.indy.content.index.ContentIndexManager;
 import org.commonjava.indy.content.index.conf.ContentIndexConfig;
@@ -27,21 +28,48 @@ import org.commonjava.indy.model.core.ArtifactStore;
 import org.commonjava.indy.model.core.Group;
 import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.subsys.datafile.DataFile;
+import org.commonjava.indy.subsys.datafile.DataFileManager;
+import org.commonjava.maven.galley.model.SpecialPathInfo;
 import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.spi.io.SpecialPathManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+/**
+ * Rebuilds the content index from storage at startup. Each hosted / remote store is walked directory by directory,
+ * so only the pending directories and one batch of paths are held in memory; every batch is indexed in the store
+ * itself and in all groups containing it. Finished stores are recorded in a progress file so an interrupted warm-up
+ * picks up where it stopped, provided the index cache itself survived.
+ */
 @ApplicationScoped
 public class ContentIndexWarmer
 {
+    private static final String PROGRESS_DIR = "content-index";
+
+    private static final String PROGRESS_FILE = "warmer-progress";
+
+    private static final int BATCH_SIZE = 1000;
+
     @Inject
     private ContentIndexManager indexManager;
 
@@ -54,6 +82,12 @@ public class ContentIndexWarmer
     @Inject
     private DownloadManager downloadManager;
 
+    @Inject
+    private SpecialPathManager specialPathManager;
+
+    @Inject
+    private DataFileManager dataFileManager;
+
     @WeftManaged
     @ExecutorConfig( named = "content-index-warmer", priority = 6, threads = 12 )
     @Inject
@@ -61,6 +95,24 @@ public class ContentIndexWarmer
 
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
+    protected ContentIndexWarmer()
+    {
+    }
+
+    public ContentIndexWarmer( final ContentIndexManager indexManager, final ContentIndexConfig indexConfig,
+                               final StoreDataManager storeDataManager, final DownloadManager downloadManager,
+                               final SpecialPathManager specialPathManager, final DataFileManager dataFileManager,
+                               final ExecutorService executor )
+    {
+        this.indexManager = indexManager;
+        this.indexConfig = indexConfig;
+        this.storeDataManager = storeDataManager;
+        this.downloadManager = downloadManager;
+        this.specialPathManager = specialPathManager;
+        this.dataFileManager = dataFileManager;
+        this.executor = executor;
+    }
+
     public void warmCaches()
     {
         if ( indexConfig.isWarmerEnabled() )
@@ -71,102 +123,257 @@ public class ContentIndexWarmer
                 indexConfig.setAuthoritativeIndex( false );
                 try
                 {
-                    Map<StoreKey, List<Transfer>> transferMap = new ConcurrentHashMap<>();
+                    warm();
+                }
+                finally
+                {
+                    indexConfig.setAuthoritativeIndex( oldAuthIdx );
+                }
+            } );
+        }
+        else
+        {
+            logger.info( "Content index warmer is not enabled." );
+        }
+    }
 
-                    try
-                    {
-                        List<ArtifactStore> concreteStores =
-                                storeDataManager.query().storeTypes( StoreType.hosted, StoreType.remote ).getAll();
+    /**
+     * Index all stores not recorded as finished, returning once every store was attempted.
+     */
+    void warm()
+    {
+        final DataFile progress = dataFileManager.getDataFile( PROGRESS_DIR, PROGRESS_FILE );
+        final Set<StoreKey> finished = readProgress( progress );
+        final Throttle throttle = new Throttle( indexConfig.getWarmerMaxPathsPerSecond() );
+        final Map<StoreKey, List<StoreKey>> groupMembers = new ConcurrentHashMap<>();
 
-                        CountDownLatch latch = new CountDownLatch( concreteStores.size() );
+        try
+        {
+            List<ArtifactStore> concreteStores =
+                    storeDataManager.query().storeTypes( StoreType.hosted, StoreType.remote ).getAll();
 
-                        concreteStores.forEach( store -> executor.submit( () -> {
-                            try
-                            {
-                                List<Transfer> transfers =
-                                        downloadManager.listRecursively( store.getKey(), DownloadManager.ROOT_PATH );
-                                transferMap.put( store.getKey(), transfers );
-                                transfers.forEach( t -> indexManager.indexTransferIn( t, store.getKey() ) );
-                            }
-                            catch ( IndyWorkflowException e )
-                            {
-                                logger.warn( "Failed to retrieve root directory of storage for: " + store.getKey(), e );
-                            }
-                            finally
-                            {
-                                latch.countDown();
-                            }
-                        } ) );
+            if ( !finished.isEmpty() )
+            {
+                logger.info( "Resuming content index warm-up, {} of {} stores already indexed.", finished.size(),
+                             concreteStores.size() );
+            }
 
-                        try
-                        {
-                            latch.await();
-                        }
-                        catch ( InterruptedException e )
+            CountDownLatch latch = new CountDownLatch( concreteStores.size() );
+            concreteStores.forEach( store -> {
+                if ( finished.contains( store.getKey() ) )
+                {
+                    latch.countDown();
+                    return;
+                }
+
+                executor.submit( () -> {
+                    try
+                    {
+                        if ( warmStore( store.getKey(), groupMembers, throttle ) )
                         {
-                            logger.info(
-                                    "Manager thread interrupted while waiting for concrete store indexing to complete." );
-                            return;
+                            markFinished( progress, store.getKey() );
                         }
+                    }
+                    catch ( IndyWorkflowException | IndyDataException | RuntimeException e )
+                    {
+                        logger.warn( "Failed to index content of: " + store.getKey(), e );
+                    }
+                    finally
+                    {
+                        latch.countDown();
+                    }
+                } );
+            } );
 
-                        List<Group> groups = storeDataManager.query().storeType( Group.class ).getAll();
-                        CountDownLatch groupLatch = new CountDownLatch( groups.size() );
+            try
+            {
+                latch.await();
+            }
+            catch ( InterruptedException e )
+            {
+                logger.info( "Manager thread interrupted while waiting for store indexing to complete." );
+                return;
+            }
 
-                        groups.forEach( g -> executor.submit( () -> {
-                            StoreKey gkey = g.getKey();
+            progress.delete( new ChangeSummary( ChangeSummary.SYSTEM_USER, "Content index warm-up finished" ) );
+            logger.info( "Content index cache has been re-established." );
+        }
+        catch ( IndyDataException | IOException e )
+        {
+            logger.warn( "Content index warm-up failed: " + e.getMessage(), e );
+        }
+    }
 
-                            try
-                            {
-                                List<ArtifactStore> stores = storeDataManager.query().getOrderedConcreteStoresInGroup( g.getName() );
-
-                                stores.forEach( s -> {
-                                    List<Transfer> txfrs = transferMap.get( s.getKey() );
-                                    txfrs.forEach( t -> {
-                                        if ( indexManager.getIndexedStoreKey( gkey, t.getPath() ) == null )
-                                        {
-                                            indexManager.indexTransferIn( t, gkey );
-                                        }
-                                    } );
-                                } );
-                            }
-                            catch ( IndyDataException e )
-                            {
-                                logger.warn( "Failed to get ordered concrete stores for group: " + g.getName(), e );
-                            }
-                            finally
-                            {
-                                groupLatch.countDown();
-                            }
-                        } ) );
+    /**
+     * Walk the store's storage and index everything found in it, in batches.
+     * @return false if interrupted before the whole store was indexed
+     */
+    private boolean warmStore( final StoreKey key, final Map<StoreKey, List<StoreKey>> groupMembers,
+                               final Throttle throttle )
+            throws IndyWorkflowException, IndyDataException
+    {
+        // the store's own entries will be propagated to every group containing it, in its position of that group
+        Map<StoreKey, List<StoreKey>> groups = new HashMap<>();
+        for ( Group group : storeDataManager.affectedBy( Collections.singleton( key ) ) )
+        {
+            List<StoreKey> members = groupMembers.get( group.getKey() );
+            if ( members == null )
+            {
+                members = storeDataManager.query()
+                                          .packageType( group.getPackageType() )
+                                          .getOrderedConcreteStoresInGroup( group.getName() )
+                                          .stream()
+                                          .map( ArtifactStore::getKey )
+                                          .collect( Collectors.toList() );
+                groupMembers.putIfAbsent( group.getKey(), members );
+            }
+            groups.put( group.getKey(), members );
+        }
 
-                        try
-                        {
-                            groupLatch.await();
-                        }
-                        catch ( InterruptedException e )
-                        {
-                            logger.info( "Manager thread interrupted while waiting for group indexing to complete." );
-                            return;
-                        }
+        Transfer root = downloadManager.getStorageReference( key, DownloadManager.ROOT_PATH );
+        if ( root == null || !root.isDirectory() )
+        {
+            return true;
+        }
+
+        long count = 0;
+        List<String> batch = new ArrayList<>( BATCH_SIZE );
+        Deque<Transfer> directories = new ArrayDeque<>();
+        directories.push( root );
+        try
+        {
+            while ( !directories.isEmpty() )
+            {
+                Transfer dir = directories.pop();
+                String[] children;
+                try
+                {
+                    children = dir.list();
+                }
+                catch ( IOException e )
+                {
+                    logger.warn( "Failed to list: {}, skipping it. Reason: {}", dir, e.getMessage() );
+                    continue;
+                }
 
+                for ( String child : children )
+                {
+                    throttle.acquire();
+
+                    Transfer transfer = dir.getChild( child );
+                    if ( transfer.isDirectory() )
+                    {
+                        directories.push( transfer );
                     }
-                    catch ( IndyDataException e )
+                    else if ( transfer.exists() )
                     {
-                        logger.warn( "Content index warm-up failed: %s", e, e.getMessage() );
+                        SpecialPathInfo spi = specialPathManager.getSpecialPathInfo( transfer.getPath() );
+                        if ( spi == null || spi.isListable() )
+                        {
+                            batch.add( transfer.getPath() );
+                            if ( batch.size() >= BATCH_SIZE )
+                            {
+                                indexManager.indexPathsInStores( batch, key, groups );
+                                count += batch.size();
+                                batch.clear();
+                            }
+                        }
                     }
-
-                    logger.info( "Content index cache has been re-established." );
-                }
-                finally
-                {
-                    indexConfig.setAuthoritativeIndex( oldAuthIdx );
                 }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            logger.info( "Content index warm-up of: {} interrupted after {} paths.", key, count );
+            return false;
+        }
 
-            } );
+        if ( !batch.isEmpty() )
+        {
+            indexManager.indexPathsInStores( batch, key, groups );
+            count += batch.size();
         }
-        else
+
+        logger.debug( "Indexed {} paths of: {} in it and {} groups.", count, key, groups.size() );
+        return true;
+    }
+
+    private Set<StoreKey> readProgress( final DataFile progress )
+    {
+        Set<StoreKey> finished = new HashSet<>();
+        if ( !progress.exists() )
         {
-            logger.info( "Content index warmer is not enabled." );
+            return finished;
+        }
+
+        try
+        {
+            if ( indexManager.isIndexEmpty() )
+            {
+                // the index didn't survive the restart, so what was finished before has to be done again
+                progress.delete( new ChangeSummary( ChangeSummary.SYSTEM_USER, "Content index was lost" ) );
+                return finished;
+            }
+
+            progress.readLines()
+                    .stream()
+                    .filter( line -> !line.trim().isEmpty() )
+                    .forEach( line -> finished.add( StoreKey.fromString( line.trim() ) ) );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            logger.warn( "Cannot read content index warm-up progress from: " + progress + ", starting over.", e );
+            finished.clear();
+        }
+        return finished;
+    }
+
+    private void markFinished( final DataFile progress, final StoreKey key )
+    {
+        synchronized ( progress )
+        {
+            try
+            {
+                progress.getParent().mkdirs();
+                progress.appendString( key + "\n",
+                                       new ChangeSummary( ChangeSummary.SYSTEM_USER, "Content index warmed: " + key ) );
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Failed to record content index warm-up progress for: " + key, e );
+            }
+        }
+    }
+
+    /**
+     * Spaces out path visits evenly so all warmer threads together stay under the configured rate.
+     */
+    private static final class Throttle
+    {
+        private final long intervalNanos;
+
+        private final AtomicLong nextSlot = new AtomicLong( System.nanoTime() );
+
+        Throttle( int perSecond )
+        {
+            this.intervalNanos = perSecond > 0 ? TimeUnit.SECONDS.toNanos( 1 ) / perSecond : 0;
+        }
+
+        void acquire()
+                throws InterruptedException
+        {
+            if ( intervalNanos == 0 )
+            {
+                return;
+            }
+
+            long now = System.nanoTime();
+            long slot = Math.max( now, nextSlot.getAndAccumulate( now, ( next, n ) -> Math.max( next, n ) + intervalNanos ) );
+            if ( slot > now )
+            {
+                TimeUnit.NANOSECONDS.sleep( slot - now );
+            }
         }
     }
 }
@@ -0,0 +1,295 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.content.index.warmer;
+
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.content.DownloadManager;
+import org.commonjava.indy.content.IndyLocationExpander;
+import org.commonjava.indy.content.index.ContentIndexManager;
+import org.commonjava.indy.content.index.IndexedStorePath;
+import org.commonjava.indy.content.index.conf.ContentIndexConfig;
+import org.commonjava.indy.core.content.DefaultDownloadManager;
+import org.commonjava.indy.core.inject.ExpiringMemoryNotFoundCache;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.subsys.datafile.DataFile;
+import org.commonjava.indy.subsys.datafile.DataFileManager;
+import org.commonjava.indy.subsys.datafile.change.DataFileEventManager;
+import org.commonjava.maven.galley.GalleyCoreBuilder;
+import org.commonjava.maven.galley.cache.FileCacheProviderFactory;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.SpecialPathManagerImpl;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ContentIndexWarmerTest
+{
+    private static final Set<String> H1_PATHS = new HashSet<>(
+            Arrays.asList( "org/foo/a/1.0/a-1.0.pom", "org/foo/a/1.0/a-1.0.jar", "org/foo/b/2.0/b-2.0.pom" ) );
+
+    private static final Set<String> H2_PATHS = new HashSet<>( Arrays.asList( "org/bar/c/1.0/c-1.0.pom" ) );
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+
+    private StoreDataManager storeManager;
+
+    private DownloadManager downloadManager;
+
+    private DataFileManager dataFileManager;
+
+    private RecordingIndexManager indexManager;
+
+    private ContentIndexWarmer warmer;
+
+    private HostedRepository h1;
+
+    private HostedRepository h2;
+
+    private Group group;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        storeManager = new MemoryStoreDataManager( true );
+
+        DefaultIndyConfiguration indyConfig = new DefaultIndyConfiguration();
+        downloadManager = new DefaultDownloadManager( storeManager, new GalleyCoreBuilder(
+                new FileCacheProviderFactory( temp.newFolder( "storage" ) ) ).build().getTransferManager(),
+                                                      new IndyLocationExpander( storeManager ), null,
+                                                      new ExpiringMemoryNotFoundCache( indyConfig ),
+                                                      new PoolWeftExecutorService( "test-rescan-executor",
+                                                                                   (ThreadPoolExecutor) Executors.newCachedThreadPool(),
+                                                                                   2, 10f, false, null, null ) );
+
+        dataFileManager = new DataFileManager( temp.newFolder( "data" ), new DataFileEventManager() );
+        indexManager = new RecordingIndexManager();
+
+        warmer = new ContentIndexWarmer( indexManager, new ContentIndexConfig(), storeManager, downloadManager,
+                                         new SpecialPathManagerImpl(), dataFileManager, executor );
+
+        h1 = new HostedRepository( MAVEN_PKG_KEY, "h1" );
+        h2 = new HostedRepository( MAVEN_PKG_KEY, "h2" );
+        group = new Group( MAVEN_PKG_KEY, "g", h1.getKey(), h2.getKey() );
+        for ( ArtifactStore store : Arrays.asList( h1, h2, group,
+                                                   new HostedRepository( MAVEN_PKG_KEY, "empty" ) ) )
+        {
+            storeManager.storeArtifactStore( store, new ChangeSummary( ChangeSummary.SYSTEM_USER, "Test setup" ),
+                                             false, false, new EventMetadata() );
+        }
+
+        H1_PATHS.forEach( path -> write( h1, path ) );
+        H2_PATHS.forEach( path -> write( h2, path ) );
+    }
+
+    @After
+    public void teardown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void everyStoreIsIndexedInItselfAndItsGroups()
+    {
+        warmer.warm();
+
+        assertThat( indexManager.indexed.get( h1.getKey() ), equalTo( H1_PATHS ) );
+        assertThat( indexManager.indexed.get( h2.getKey() ), equalTo( H2_PATHS ) );
+        assertThat( indexManager.indexed.get( StoreKey.fromString( "maven:hosted:empty" ) ), nullValue() );
+        assertThat( indexManager.groups.get( h1.getKey() ),
+                    equalTo( group.getKey() + "=" + Arrays.asList( h1.getKey(), h2.getKey() ) ) );
+        assertThat( indexManager.groups.get( h2.getKey() ),
+                    equalTo( group.getKey() + "=" + Arrays.asList( h1.getKey(), h2.getKey() ) ) );
+        assertThat( progress().exists(), equalTo( false ) );
+    }
+
+    @Test
+    public void resumedWarmUpSkipsFinishedStores()
+            throws Exception
+    {
+        progress().getParent().mkdirs();
+        progress().writeString( h1.getKey() + "\n", new ChangeSummary( ChangeSummary.SYSTEM_USER, "Test setup" ) );
+        indexManager.empty = false;
+
+        warmer.warm();
+
+        assertThat( indexManager.indexed.get( h1.getKey() ), nullValue() );
+        assertThat( indexManager.indexed.get( h2.getKey() ), equalTo( H2_PATHS ) );
+    }
+
+    @Test
+    public void progressIsDiscardedWhenTheIndexWasLost()
+            throws Exception
+    {
+        progress().getParent().mkdirs();
+        progress().writeString( h1.getKey() + "\n", new ChangeSummary( ChangeSummary.SYSTEM_USER, "Test setup" ) );
+
+        warmer.warm();
+
+        assertThat( indexManager.indexed.get( h1.getKey() ), equalTo( H1_PATHS ) );
+        assertThat( indexManager.indexed.get( h2.getKey() ), equalTo( H2_PATHS ) );
+    }
+
+    @Test
+    public void failingStoreDoesNotStopTheOthers()
+    {
+        indexManager.failing = h1.getKey();
+
+        warmer.warm();
+
+        assertThat( indexManager.indexed.get( h1.getKey() ), nullValue() );
+        assertThat( indexManager.indexed.get( h2.getKey() ), equalTo( H2_PATHS ) );
+    }
+
+    private DataFile progress()
+    {
+        return dataFileManager.getDataFile( "content-index", "warmer-progress" );
+    }
+
+    private void write( final ArtifactStore store, final String path )
+    {
+        Transfer transfer = downloadManager.getStorageReference( store, path );
+        try (OutputStream out = transfer.openOutputStream( TransferOperation.UPLOAD, false ))
+        {
+            out.write( path.getBytes( UTF_8 ) );
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( "Cannot write test content: " + path, e );
+        }
+    }
+
+    private static final class RecordingIndexManager
+            implements ContentIndexManager
+    {
+        private final Map<StoreKey, Set<String>> indexed = new ConcurrentHashMap<>();
+
+        private final Map<StoreKey, String> groups = new ConcurrentHashMap<>();
+
+        private volatile boolean empty = true;
+
+        private volatile StoreKey failing;
+
+        @Override
+        public void indexPathsInStores( final Collection<String> paths, final StoreKey originKey,
+                                        final Map<StoreKey, List<StoreKey>> groupMembers )
+        {
+            if ( originKey.equals( failing ) )
+            {
+                throw new IllegalStateException( "Index unavailable for: " + originKey );
+            }
+
+            Set<String> stored = indexed.computeIfAbsent( originKey, k -> ConcurrentHashMap.newKeySet() );
+            paths.forEach( path -> stored.add( path.startsWith( "/" ) ? path.substring( 1 ) : path ) );
+            groupMembers.forEach( ( group, members ) -> groups.put( originKey, group + "=" + members ) );
+        }
+
+        @Override
+        public boolean isIndexEmpty()
+        {
+            return empty;
+        }
+
+        @Override
+        public boolean removeIndexedStorePath( final String path, final StoreKey key,
+                                               final Consumer<IndexedStorePath> pathConsumer )
+        {
+            return false;
+        }
+
+        @Override
+        public void deIndexStorePath( final StoreKey key, final String path )
+        {
+        }
+
+        @Override
+        public StoreKey getIndexedStoreKey( final StoreKey key, final String path )
+        {
+            return null;
+        }
+
+        @Override
+        public void indexTransferIn( final Transfer transfer, final StoreKey... topKeys )
+        {
+        }
+
+        @Override
+        public void indexPathInStores( final String path, final StoreKey originKey, final StoreKey... topKeys )
+        {
+        }
+
+        @Override
+        public void clearAllIndexedPathInStore( final ArtifactStore store )
+        {
+        }
+
+        @Override
+        public void clearAllIndexedPathWithOriginalStore( final ArtifactStore originalStore )
+        {
+        }
+
+        @Override
+        public void clearAllIndexedPathInStoreWithOriginal( final ArtifactStore store,
+                                                            final ArtifactStore originalStore )
+        {
+        }
+
+        @Override
+        public void clearIndexedPathFrom( final String path, final Set<Group> groups,
+                                          final Consumer<IndexedStorePath> pathConsumer )
+        {
+        }
+
+        @Override
+        public String getStrategyPath( final StoreKey key, final String rawPath )
+        {
+            return rawPath;
+        }
+    }
+}
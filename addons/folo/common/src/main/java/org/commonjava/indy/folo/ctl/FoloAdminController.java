@@ -15,6 +15,7 @@
  */
 package org.commonjava.indy.folo.ctl;
 
+import org.apache.commons.io.output.TeeOutputStream;
 import org.commonjava.cdi.util.weft.DrainingExecutorCompletionService;
 import org.commonjava.cdi.util.weft.ExecutorConfig;
 import org.commonjava.cdi.util.weft.SingleThreadedExecutorService;
@@ -36,24 +37,26 @@ import org.commonjava.indy.folo.model.TrackedContentEntry;
 import org.commonjava.indy.folo.model.TrackingKey;
 import org.commonjava.indy.model.core.AccessChannel;
 import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
 import org.commonjava.indy.util.ApplicationStatus;
 import org.commonjava.maven.galley.event.EventMetadata;
 import org.commonjava.maven.galley.io.checksum.ContentDigest;
 import org.commonjava.maven.galley.io.checksum.TransferMetadata;
 import org.commonjava.maven.galley.model.Transfer;
 import org.commonjava.maven.galley.model.TransferOperation;
-import org.commonjava.maven.galley.util.UrlUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -61,6 +64,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
@@ -97,6 +101,11 @@ public class FoloAdminController
     @Inject
     private ContentDigester contentDigester;
 
+    @Inject
+    private IndyObjectMapper objectMapper;
+
+    private final Map<String, Long> reportGenerations = new ConcurrentHashMap<>();
+
     @Inject
     @WeftManaged
     @ExecutorConfig( threads = 50, priority = 4, named = "folo-recalculator", maxLoadFactor = 100, loadSensitive = ExecutorConfig.BooleanLiteral.TRUE )
@@ -114,6 +123,7 @@ public class FoloAdminController
         this.filer = filer;
         this.contentManager = contentManager;
         this.contentDigester = contentDigester;
+        this.objectMapper = new IndyObjectMapper( true );
         this.recalculationExecutor = new SingleThreadedExecutorService( "folo-recalculator" );
     }
 
@@ -284,6 +294,7 @@ public class FoloAdminController
     {
         final TrackingKey tk = new TrackingKey( id );
         recordManager.delete( tk );
+        invalidateReportCache( tk );
     }
 
     private TrackedContentDTO constructContentDTO( final TrackedContent content, final String baseUrl )
@@ -292,50 +303,99 @@ public class FoloAdminController
         {
             return null;
         }
+
+        final FoloReportRenderer renderer = new FoloReportRenderer( objectMapper, baseUrl );
         final Set<TrackedContentEntryDTO> uploads = new TreeSet<>();
         for ( TrackedContentEntry entry : content.getUploads() )
         {
-            uploads.add( constructContentEntryDTO( entry, baseUrl ) );
+            uploads.add( renderer.toDTO( entry ) );
         }
 
         final Set<TrackedContentEntryDTO> downloads = new TreeSet<>();
         for ( TrackedContentEntry entry : content.getDownloads() )
         {
-            downloads.add( constructContentEntryDTO( entry, baseUrl ) );
+            downloads.add( renderer.toDTO( entry ) );
         }
         return new TrackedContentDTO( content.getKey(), uploads, downloads );
     }
 
-    private TrackedContentEntryDTO constructContentEntryDTO( final TrackedContentEntry entry, String apiBaseUrl )
+    /**
+     * Prepare a streamed rendering of the tracking report, optionally restricted to one effect and/or one store and
+     * paged by entry. Returns null if there is no (sealed) record for the given id.
+     *
+     * Sealed records don't change, so a full (unfiltered, unpaged) report is written through to a cache file on
+     * first render and served straight from disk after that. The cache is dropped whenever the record is modified
+     * or removed (see {@link #saveToSerialized(TrackingKey, TrackedContent)} and
+     * {@link #removeFromSerialized(TrackingKey)}).
+     */
+    public FoloReportStream streamReport( final String id, final String apiBaseUrl, final StoreEffect effect,
+                                          final StoreKey store, final int page, final int pageSize )
     {
-        if ( entry == null )
+        final TrackingKey tk = new TrackingKey( id );
+        final TrackedContent record = recordManager.get( tk );
+        if ( record == null )
         {
             return null;
         }
-        TrackedContentEntryDTO entryDTO =
-                new TrackedContentEntryDTO( entry.getStoreKey(), entry.getAccessChannel(), entry.getPath() );
 
+        if ( effect != null || store != null || pageSize > 0 )
+        {
+            final int offset = pageSize > 0 ? Math.max( 0, page ) * pageSize : 0;
+            return out -> new FoloReportRenderer( objectMapper, apiBaseUrl ).render( record, effect, store, offset,
+                                                                                     pageSize, out );
+        }
+
+        final File cached = filer.getReportCacheFile( tk, apiBaseUrl ).getDetachedFile();
+        if ( cached.exists() )
+        {
+            logger.debug( "Serving pre-rendered report for: {} from: {}", tk, cached );
+            return out -> Files.copy( cached.toPath(), out );
+        }
+
+        final long generation = reportGenerations.getOrDefault( id, 0L );
+        return out -> renderAndCacheReport( record, apiBaseUrl, cached, generation, out );
+    }
+
+    private void renderAndCacheReport( final TrackedContent record, final String apiBaseUrl, final File cached,
+                                       final long generation, final OutputStream out )
+            throws IOException
+    {
+        cached.getParentFile().mkdirs();
+        File tmp = File.createTempFile( cached.getName(), ".tmp", cached.getParentFile() );
         try
         {
-            entryDTO.setLocalUrl( UrlUtils.buildUrl( apiBaseUrl, "content", entryDTO.getStoreKey().getPackageType(),
-                                                     entryDTO.getStoreKey().getType().singularEndpointName(),
-                                                     entryDTO.getStoreKey().getName(), entryDTO.getPath() ) );
+            try (OutputStream fileOut = new BufferedOutputStream( new FileOutputStream( tmp ) ))
+            {
+                new FoloReportRenderer( objectMapper, apiBaseUrl ).render( record, null, null, 0, 0,
+                                                                           new TeeOutputStream( out, fileOut ) );
+            }
+
+            synchronized ( reportGenerations )
+            {
+                // the record may have been replaced while we were rendering; don't publish a stale report
+                if ( reportGenerations.getOrDefault( record.getKey().getId(), 0L ) == generation )
+                {
+                    Files.move( tmp.toPath(), cached.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.ATOMIC_MOVE );
+                }
+            }
         }
-        catch ( MalformedURLException e )
+        finally
         {
-            logger.warn( String.format( "Cannot formulate local URL!\n  Base URL: %s"
-                                                + "\n  Store: %s\n  Path: %s\n  Record: %s\n  Reason: %s", apiBaseUrl,
-                                        entry.getStoreKey(), entry.getPath(), entry.getTrackingKey(), e.getMessage() ),
-                         e );
+            if ( tmp.exists() )
+            {
+                tmp.delete();
+            }
         }
+    }
 
-        entryDTO.setOriginUrl( entry.getOriginUrl() );
-        entryDTO.setMd5( entry.getMd5() );
-        entryDTO.setSha1( entry.getSha1() );
-        entryDTO.setSha256( entry.getSha256() );
-        entryDTO.setSize( entry.getSize() );
-        entryDTO.setTimestamps( entry.getTimestamps() );
-        return entryDTO;
+    private void invalidateReportCache( final TrackingKey key )
+    {
+        synchronized ( reportGenerations )
+        {
+            reportGenerations.merge( key.getId(), 1L, Long::sum );
+            filer.deleteReportCache( key );
+        }
     }
 
     public boolean hasRecord( final String id )
@@ -472,6 +532,8 @@ public class FoloAdminController
 
     public void saveToSerialized( TrackingKey key, TrackedContent value ) throws IOException
     {
+        invalidateReportCache( key );
+
         File dir = filer.getBackupDir( SEALED.getValue() ).getDetachedFile();
         File file = new File( dir, key.getId() );
         try ( OutputStream fos = new FileOutputStream( file ) )
@@ -482,6 +544,8 @@ public class FoloAdminController
 
     public void removeFromSerialized( TrackingKey key )
     {
+        invalidateReportCache( key );
+
         File dir = filer.getBackupDir( SEALED.getValue() ).getDetachedFile();
         File file = new File( dir, key.getId() );
         if ( file.exists() )
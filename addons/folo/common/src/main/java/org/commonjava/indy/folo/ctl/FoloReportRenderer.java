@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.folo.ctl;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.commonjava.indy.folo.dto.TrackedContentEntryDTO;
+import org.commonjava.indy.folo.model.StoreEffect;
+import org.commonjava.indy.folo.model.TrackedContent;
+import org.commonjava.indy.folo.model.TrackedContentEntry;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.maven.galley.util.UrlUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders {@link TrackedContent} into the same JSON shape as {@link org.commonjava.indy.folo.dto.TrackedContentDTO},
+ * but writes entries one at a time through a {@link JsonGenerator} instead of materializing the whole DTO graph.
+ * Entries come out in the same order as the DTO's TreeSets (store, access channel, path), with the same
+ * de-duplication.
+ *
+ * Local content URLs are built from a per-store prefix that is computed once per renderer, since a large report
+ * usually references a handful of stores but many thousands of paths.
+ *
+ * Not thread-safe; create one per report.
+ */
+public final class FoloReportRenderer
+{
+    private static final Comparator<TrackedContentEntry> ENTRY_ORDER =
+            Comparator.comparing( TrackedContentEntry::getStoreKey )
+                      .thenComparing( TrackedContentEntry::getAccessChannel )
+                      .thenComparing( e -> normalizePath( e.getPath() ) );
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter entryWriter;
+
+    private final String apiBaseUrl;
+
+    private final Map<StoreKey, String> urlPrefixes = new HashMap<>();
+
+    public FoloReportRenderer( final ObjectMapper objectMapper, final String apiBaseUrl )
+    {
+        this.objectMapper = objectMapper;
+        this.entryWriter = objectMapper.writer().without( SerializationFeature.FLUSH_AFTER_WRITE_VALUE );
+        this.apiBaseUrl = apiBaseUrl;
+    }
+
+    /**
+     * Write the report.
+     *
+     * @param content the tracking record
+     * @param effect if non-null, only the uploads or downloads section is written
+     * @param store if non-null, only entries for this store are written
+     * @param offset number of (filtered, de-duplicated) entries to skip, counting uploads before downloads
+     * @param limit maximum number of entries to write; values below 1 mean no limit
+     * @param out target stream, which is flushed but not closed
+     */
+    public void render( final TrackedContent content, final StoreEffect effect, final StoreKey store,
+                        final int offset, final int limit, final OutputStream out )
+            throws IOException
+    {
+        final Window window = new Window( offset, limit );
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator( out, JsonEncoding.UTF8 );
+        generator.disable( JsonGenerator.Feature.AUTO_CLOSE_TARGET );
+        generator.useDefaultPrettyPrinter();
+
+        generator.writeStartObject();
+        if ( content.getKey() != null )
+        {
+            generator.writeFieldName( "key" );
+            entryWriter.writeValue( generator, content.getKey() );
+        }
+
+        if ( effect == null || effect == StoreEffect.UPLOAD )
+        {
+            writeEntries( generator, "uploads", content.getUploads(), store, window );
+        }
+
+        if ( effect == null || effect == StoreEffect.DOWNLOAD )
+        {
+            writeEntries( generator, "downloads", content.getDownloads(), store, window );
+        }
+
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    /**
+     * Build an entry DTO, including its local URL, for use by callers that still need the object form.
+     */
+    public TrackedContentEntryDTO toDTO( final TrackedContentEntry entry )
+    {
+        if ( entry == null )
+        {
+            return null;
+        }
+
+        TrackedContentEntryDTO entryDTO =
+                new TrackedContentEntryDTO( entry.getStoreKey(), entry.getAccessChannel(), entry.getPath() );
+
+        String prefix = urlPrefixes.computeIfAbsent( entry.getStoreKey(), this::buildUrlPrefix );
+        if ( prefix != null )
+        {
+            // DTO paths always carry a leading '/', and the prefix always ends with one
+            entryDTO.setLocalUrl( prefix + entryDTO.getPath().substring( 1 ) );
+        }
+
+        entryDTO.setOriginUrl( entry.getOriginUrl() );
+        entryDTO.setMd5( entry.getMd5() );
+        entryDTO.setSha1( entry.getSha1() );
+        entryDTO.setSha256( entry.getSha256() );
+        entryDTO.setSize( entry.getSize() );
+        entryDTO.setTimestamps( entry.getTimestamps() );
+        return entryDTO;
+    }
+
+    private void writeEntries( final JsonGenerator generator, final String field,
+                               final Set<TrackedContentEntry> entries, final StoreKey store, final Window window )
+            throws IOException
+    {
+        if ( entries == null || entries.isEmpty() || window.isFull() )
+        {
+            return;
+        }
+
+        List<TrackedContentEntry> sorted = new ArrayList<>( entries.size() );
+        for ( TrackedContentEntry entry : entries )
+        {
+            if ( entry != null && ( store == null || store.equals( entry.getStoreKey() ) ) )
+            {
+                sorted.add( entry );
+            }
+        }
+        sorted.sort( ENTRY_ORDER );
+
+        boolean started = false;
+        TrackedContentEntry last = null;
+        for ( TrackedContentEntry entry : sorted )
+        {
+            if ( last != null && ENTRY_ORDER.compare( last, entry ) == 0 )
+            {
+                continue;
+            }
+            last = entry;
+
+            if ( !window.accept() )
+            {
+                if ( window.isFull() )
+                {
+                    break;
+                }
+                continue;
+            }
+
+            if ( !started )
+            {
+                // empty arrays are omitted, the same as Include.NON_EMPTY does for the DTO
+                generator.writeArrayFieldStart( field );
+                started = true;
+            }
+            entryWriter.writeValue( generator, toDTO( entry ) );
+        }
+
+        if ( started )
+        {
+            generator.writeEndArray();
+        }
+    }
+
+    private String buildUrlPrefix( final StoreKey key )
+    {
+        try
+        {
+            String prefix = UrlUtils.buildUrl( apiBaseUrl, "content", key.getPackageType(),
+                                               key.getType().singularEndpointName(), key.getName() );
+            return prefix.endsWith( "/" ) ? prefix : prefix + "/";
+        }
+        catch ( MalformedURLException e )
+        {
+            logger.warn( String.format( "Cannot formulate local URL!\n  Base URL: %s\n  Store: %s\n  Reason: %s",
+                                        apiBaseUrl, key, e.getMessage() ), e );
+            return null;
+        }
+    }
+
+    private static String normalizePath( final String path )
+    {
+        return path == null || path.startsWith( "/" ) ? path : "/" + path;
+    }
+
+    private static final class Window
+    {
+        private int skip;
+
+        private int remaining;
+
+        Window( final int offset, final int limit )
+        {
+            this.skip = Math.max( 0, offset );
+            this.remaining = limit < 1 ? Integer.MAX_VALUE : limit;
+        }
+
+        boolean accept()
+        {
+            if ( remaining < 1 )
+            {
+                return false;
+            }
+            if ( skip > 0 )
+            {
+                skip--;
+                return false;
+            }
+            remaining--;
+            return true;
+        }
+
+        boolean isFull()
+        {
+            return remaining < 1;
+        }
+    }
+}
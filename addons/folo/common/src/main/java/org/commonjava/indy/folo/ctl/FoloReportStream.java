@@ -0,0 +1,30 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.folo.ctl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Deferred rendering of a tracking report. Returned by {@link FoloAdminController#streamReport} once the record is
+ * known to exist, so the REST layer can decide the response status before any content is written.
+ */
+@FunctionalInterface
+public interface FoloReportStream
+{
+    void writeTo( OutputStream out )
+            throws IOException;
+}
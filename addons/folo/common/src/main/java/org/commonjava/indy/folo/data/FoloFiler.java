@@ -22,6 +22,8 @@ import org.commonjava.indy.subsys.datafile.DataFileManager;
 import javax.inject.Inject;
 import java.io.File;
 
+import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
+
 /**
  * Created by jdcasey on 9/9/15.
  */
@@ -35,6 +37,8 @@ public class FoloFiler
 
     public static final String FOLO_SEALED_DAT = "folo-sealed.dat";
 
+    public static final String REPORT_DIR = "report";
+
     @Inject
     private DataFileManager dataFileManager;
 
@@ -83,6 +87,30 @@ public class FoloFiler
         }
     }
 
+    /**
+     * Pre-rendered report JSON for a sealed record. Local URLs in the report depend on the API base URL of the
+     * request, so each distinct base URL gets its own file under data/folo/report/&lt;id&gt;/.
+     */
+    public DataFile getReportCacheFile( final TrackingKey key, final String baseUrl )
+    {
+        return dataFileManager.getDataFile( FOLO_DIR, REPORT_DIR, key.getId(),
+                                            String.format( "%s.%s", md5Hex( baseUrl ), FoloFileTypes.RECORD_JSON ) );
+    }
+
+    public void deleteReportCache( final TrackingKey key )
+    {
+        File dir = dataFileManager.getDataFile( FOLO_DIR, REPORT_DIR, key.getId() ).getDetachedFile();
+        File[] files = dir.listFiles();
+        if ( files != null )
+        {
+            for ( File f : files )
+            {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
     public DataFile getBackupDir( String type )
     {
         return dataFileManager.getDataFile( FOLO_DIR, BAK_DIR, type ); // data/folo/bak/sealed
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.folo.ctl;
+
+import org.commonjava.indy.folo.dto.TrackedContentDTO;
+import org.commonjava.indy.folo.dto.TrackedContentEntryDTO;
+import org.commonjava.indy.folo.model.StoreEffect;
+import org.commonjava.indy.folo.model.TrackedContent;
+import org.commonjava.indy.folo.model.TrackedContentEntry;
+import org.commonjava.indy.folo.model.TrackingKey;
+import org.commonjava.indy.model.core.AccessChannel;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.commonjava.indy.folo.model.StoreEffect.DOWNLOAD;
+import static org.commonjava.indy.folo.model.StoreEffect.UPLOAD;
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class FoloReportRendererTest
+{
+    private static final String BASE_URL = "http://localhost:8080/api";
+
+    private final IndyObjectMapper mapper = new IndyObjectMapper( true );
+
+    private final TrackingKey key = new TrackingKey( "build-1" );
+
+    private final StoreKey central = new StoreKey( MAVEN_PKG_KEY, StoreType.remote, "central" );
+
+    private final StoreKey builds = new StoreKey( MAVEN_PKG_KEY, StoreType.hosted, "builds" );
+
+    @Test
+    public void fullReportMatchesDtoOrderAndUrls()
+            throws IOException
+    {
+        TrackedContent record = record();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FoloReportRenderer( mapper, BASE_URL ).render( record, null, null, 0, 0, out );
+
+        // entries must come out in TreeSet order: store key (remote sorts before hosted), channel, then path
+        List<String> paths = new ArrayList<>();
+        mapper.readTree( out.toByteArray() )
+              .get( "downloads" )
+              .forEach( e -> paths.add( e.get( "storeKey" ).asText() + e.get( "path" ).asText() ) );
+        assertThat( paths.toString(), equalTo( "[maven:remote:central/org/bar/bar/1/bar-1.jar, "
+                                                       + "maven:remote:central/org/bar/bar/1/bar-1.pom, "
+                                                       + "maven:hosted:builds/org/foo/foo/1/foo-1.pom]" ) );
+
+        TrackedContentDTO dto = mapper.readValue( out.toByteArray(), TrackedContentDTO.class );
+        assertThat( dto.getKey(), equalTo( key ) );
+        assertThat( dto.getUploads().size(), equalTo( 1 ) );
+        assertThat( dto.getDownloads().size(), equalTo( 3 ) );
+
+        TrackedContentEntryDTO upload = dto.getUploads().iterator().next();
+        assertThat( upload.getLocalUrl(), equalTo( BASE_URL + "/content/maven/hosted/builds/org/foo/foo/1/foo-1.jar" ) );
+        assertThat( upload.getMd5(), equalTo( "md5" ) );
+    }
+
+    @Test
+    public void filterByEffectAndStore()
+            throws IOException
+    {
+        TrackedContentDTO dto = render( record(), DOWNLOAD, central, 0, 0 );
+
+        assertThat( dto.getUploads(), nullValue() );
+        assertThat( dto.getDownloads().size(), equalTo( 2 ) );
+        dto.getDownloads().forEach( e -> assertThat( e.getStoreKey(), equalTo( central ) ) );
+    }
+
+    @Test
+    public void pagesSpanUploadsThenDownloads()
+            throws IOException
+    {
+        TrackedContent record = record();
+
+        TrackedContentDTO first = render( record, null, null, 0, 2 );
+        assertThat( first.getUploads().size(), equalTo( 1 ) );
+        assertThat( first.getDownloads().size(), equalTo( 1 ) );
+
+        TrackedContentDTO second = render( record, null, null, 2, 2 );
+        assertThat( second.getUploads(), nullValue() );
+        assertThat( second.getDownloads().size(), equalTo( 2 ) );
+
+        TrackedContentDTO past = render( record, null, null, 4, 2 );
+        assertThat( past.getUploads(), nullValue() );
+        assertThat( past.getDownloads(), nullValue() );
+    }
+
+    private TrackedContentDTO render( final TrackedContent record, final StoreEffect effect, final StoreKey store,
+                                      final int offset, final int limit )
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FoloReportRenderer( mapper, BASE_URL ).render( record, effect, store, offset, limit, out );
+        return mapper.readValue( out.toByteArray(), TrackedContentDTO.class );
+    }
+
+    private TrackedContent record()
+    {
+        Set<TrackedContentEntry> uploads = new HashSet<>();
+        uploads.add( entry( builds, "/org/foo/foo/1/foo-1.jar", UPLOAD ) );
+
+        Set<TrackedContentEntry> downloads = new HashSet<>();
+        downloads.add( entry( central, "/org/bar/bar/1/bar-1.pom", DOWNLOAD ) );
+        downloads.add( entry( central, "/org/bar/bar/1/bar-1.jar", DOWNLOAD ) );
+        downloads.add( entry( builds, "/org/foo/foo/1/foo-1.pom", DOWNLOAD ) );
+
+        return new TrackedContent( key, uploads, downloads );
+    }
+
+    private TrackedContentEntry entry( final StoreKey store, final String path, final StoreEffect effect )
+    {
+        return new TrackedContentEntry( key, store, AccessChannel.NATIVE, null, path, effect, 10L, "md5", "sha1",
+                                        "sha256" );
+    }
+}
@@ -29,11 +29,14 @@ import org.commonjava.indy.core.bind.jaxrs.ContentAccessHandler;
 import org.commonjava.indy.core.ctl.ContentController;
 import org.commonjava.indy.folo.ctl.FoloAdminController;
 import org.commonjava.indy.folo.ctl.FoloConstants;
+import org.commonjava.indy.folo.ctl.FoloReportStream;
 import org.commonjava.indy.folo.data.FoloContentException;
 import org.commonjava.indy.folo.dto.TrackedContentDTO;
 import org.commonjava.indy.folo.dto.TrackedContentEntryDTO;
 import org.commonjava.indy.folo.dto.TrackingIdsDTO;
+import org.commonjava.indy.folo.model.StoreEffect;
 import org.commonjava.indy.model.core.BatchDeleteRequest;
+import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.core.io.IndyObjectMapper;
 import org.commonjava.maven.galley.event.EventMetadata;
 import org.slf4j.Logger;
@@ -43,15 +46,18 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 import java.io.File;
 import java.io.IOException;
@@ -59,6 +65,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.commonjava.indy.folo.ctl.FoloConstants.ALL;
 import static org.commonjava.indy.folo.ctl.FoloConstants.TRACKING_TYPE.IN_PROGRESS;
 import static org.commonjava.indy.folo.ctl.FoloConstants.TRACKING_TYPE.SEALED;
@@ -186,6 +193,53 @@ public class FoloAdminResource
         return response;
     }
 
+    @ApiOperation( "Stream the tracking report for the specified key, optionally filtered by effect or store and paged by entry" )
+    @ApiResponses( { @ApiResponse( code = 404, message = "No such tracking record exists." ),
+                           @ApiResponse( code = 400, message = "Invalid effect or store filter." ),
+                           @ApiResponse( code = 200, message = "Tracking record",
+                                         response = TrackedContentDTO.class ), } )
+    @Path( "/{id}/report/stream" )
+    @GET
+    @Produces( application_json )
+    public Response streamReport( @ApiParam( "User-assigned tracking session key" ) final @PathParam( "id" ) String id,
+                                  @ApiParam( "Only include UPLOAD or DOWNLOAD entries" ) final @QueryParam( "effect" ) String effect,
+                                  @ApiParam( "Only include entries for this store, e.g. maven:remote:central" ) final @QueryParam( "store" ) String store,
+                                  @ApiParam( "Zero-based page number, used with pageSize" ) final @QueryParam( "page" ) @DefaultValue( "0" ) int page,
+                                  @ApiParam( "Entries per page; 0 means no paging" ) final @QueryParam( "pageSize" ) @DefaultValue( "0" ) int pageSize,
+                                  @Context final UriInfo uriInfo )
+    {
+        StoreEffect storeEffect = null;
+        StoreKey storeKey = null;
+        try
+        {
+            if ( isNotBlank( effect ) )
+            {
+                storeEffect = StoreEffect.valueOf( effect.trim().toUpperCase() );
+            }
+            if ( isNotBlank( store ) )
+            {
+                storeKey = StoreKey.fromString( store );
+                if ( storeKey == null )
+                {
+                    return responseHelper.formatBadRequestResponse( "Invalid store key: " + store );
+                }
+            }
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            return responseHelper.formatBadRequestResponse( e.getMessage() );
+        }
+
+        final String baseUrl = uriInfo.getBaseUriBuilder().path( "api" ).build().toString();
+        final FoloReportStream report = controller.streamReport( id, baseUrl, storeEffect, storeKey, page, pageSize );
+        if ( report == null )
+        {
+            return Response.status( Status.NOT_FOUND ).build();
+        }
+
+        return Response.ok( (StreamingOutput) report::writeTo, application_json ).build();
+    }
+
     @ApiOperation(
             "Explicitly setup a new tracking record for the specified key, to prevent 404 if the record is never used." )
     @ApiResponses( { @ApiResponse( code = 201, message = "Tracking record was created",
@@ -16,6 +16,10 @@
 package org.commonjava.indy.hostedbyarc;
 
 import org.apache.commons.lang.StringUtils;
+import org.commonjava.cdi.util.weft.DrainingExecutorCompletionService;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.audit.ChangeSummary;
 import org.commonjava.indy.content.ContentManager;
@@ -23,6 +27,7 @@ import org.commonjava.indy.data.IndyDataException;
 import org.commonjava.indy.data.StoreDataManager;
 import org.commonjava.indy.hostedbyarc.config.HostedByArchiveConfig;
 import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.pkg.maven.change.MetadataMergePomChangeListener;
 import org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor;
 import org.commonjava.indy.util.ApplicationStatus;
 import org.commonjava.maven.galley.event.EventMetadata;
@@ -32,10 +37,27 @@ import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
+
+import static org.commonjava.indy.content.ContentManager.DEFER_METADATA_REFRESH;
+import static org.commonjava.indy.data.StoreDataManager.TARGET_STORE;
 
 @ApplicationScoped
 public class HostedByArchiveManager
@@ -53,11 +75,29 @@ public class HostedByArchiveManager
     @Inject
     private HostedByArchiveConfig config;
 
-//    @Inject
-//    @WeftManaged
-//    @ExecutorConfig( named = "Hosted-by-arc-executor", priority = 1, threads = 8 )
-//    @Deprecated
-//    private ExecutorService executors;
+    @Inject
+    private MetadataMergePomChangeListener metadataListener;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "hosted-by-arc-importer", priority = 4, threads = 8 )
+    private WeftExecutorService importExecutor;
+
+    protected HostedByArchiveManager()
+    {
+    }
+
+    public HostedByArchiveManager( final StoreDataManager storeDataManager, final ContentManager contentManager,
+                                   final HostedByArchiveConfig config,
+                                   final MetadataMergePomChangeListener metadataListener,
+                                   final WeftExecutorService importExecutor )
+    {
+        this.storeDataManager = storeDataManager;
+        this.contentManager = contentManager;
+        this.config = config;
+        this.metadataListener = metadataListener;
+        this.importExecutor = importExecutor;
+    }
 
     public HostedRepository createStoreByArc( final InputStream fileInput, final String repoName, final String user,
                                               final String ignoredPrefix )
@@ -106,34 +146,129 @@ public class HostedByArchiveManager
         }
     }
 
+    /**
+     * Spool the upload to a temp file, then store its entries in parallel (bounded by
+     * {@link HostedByArchiveConfig#getImportConcurrency()}) using random access into the archive. Per-pom
+     * maven-metadata.xml clean-up is deferred and run once per GA after all entries are stored.
+     */
     private void storeZipContentInHosted( final InputStream zipStream, final String ignoredPrefix,
                                           final HostedRepository repo )
             throws IndyWorkflowException
     {
-
-        try (ZipInputStream zis = new ZipInputStream( zipStream ))
+        File spooled = null;
+        try
         {
-            ZipEntry zipEntry = zis.getNextEntry();
-            while ( zipEntry != null )
+            spooled = File.createTempFile( "hosted-by-arc-", ".zip" );
+            final long spoolStart = System.currentTimeMillis();
+            Files.copy( zipStream, spooled.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            logger.info( "Spooled archive for {} ({} bytes) in {}ms", repo.getKey(), spooled.length(),
+                         System.currentTimeMillis() - spoolStart );
+
+            try (ZipFile zipFile = new ZipFile( spooled ))
             {
-                String fileName = zipEntry.getName();
-                if ( !zipEntry.isDirectory() )
-                {
-                    storeStreamWithPath( fileName, ignoredPrefix, zis, repo );
-                }
-                zipEntry = zis.getNextEntry();
+                storeEntries( zipFile, ignoredPrefix, repo );
             }
-            zis.closeEntry();
         }
         catch ( IOException e )
         {
-            throw new IndyWorkflowException( "", e );
+            throw new IndyWorkflowException( "Failed to read archive for: %s. Reason: %s", e, repo.getKey(),
+                                             e.getMessage() );
+        }
+        finally
+        {
+            if ( spooled != null && !spooled.delete() )
+            {
+                logger.warn( "Failed to delete spooled archive: {}", spooled );
+            }
+        }
+    }
+
+    private void storeEntries( final ZipFile zipFile, final String ignoredPrefix, final HostedRepository repo )
+            throws IndyWorkflowException
+    {
+        final List<ZipEntry> entries = zipFile.stream()
+                                              .filter( entry -> !entry.isDirectory() )
+                                              .collect( Collectors.toList() );
+
+        final ImportProgress progress = new ImportProgress( repo, entries.size() );
+        final Map<String, String> pomsByGA = new ConcurrentHashMap<>();
+        final Queue<String> failures = new ConcurrentLinkedQueue<>();
+        final Semaphore permits = new Semaphore( config.getImportConcurrency() );
+
+        final DrainingExecutorCompletionService<Long> importService =
+                new DrainingExecutorCompletionService<>( importExecutor );
+        try
+        {
+            for ( final ZipEntry entry : entries )
+            {
+                permits.acquire();
+                importService.submit( () -> {
+                    // one metadata instance per entry, since downstream handlers may add to it
+                    final EventMetadata eventMetadata = new EventMetadata().set( DEFER_METADATA_REFRESH, Boolean.TRUE );
+                    try (InputStream in = zipFile.getInputStream( entry ))
+                    {
+                        final String path = storeStreamWithPath( entry.getName(), ignoredPrefix, in, repo,
+                                                                 eventMetadata );
+                        if ( path.endsWith( ".pom" ) )
+                        {
+                            pomsByGA.putIfAbsent( getGADir( path ), path );
+                        }
+                        progress.stored( entry.getSize() );
+                        return entry.getSize();
+                    }
+                    catch ( IOException | IndyWorkflowException e )
+                    {
+                        logger.error( String.format( "Failed to store archive entry: %s in: %s. Reason: %s",
+                                                     entry.getName(), repo.getKey(), e.getMessage() ), e );
+                        failures.add( entry.getName() );
+                        return null;
+                    }
+                    finally
+                    {
+                        permits.release();
+                    }
+                } );
+            }
+
+            importService.drain( size -> {} );
+        }
+        catch ( InterruptedException e )
+        {
+            throw new IndyWorkflowException( "Archive import into: %s was interrupted", e, repo.getKey() );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IndyWorkflowException( "Archive import into: %s failed. Reason: %s", e, repo.getKey(),
+                                             e.getMessage() );
         }
 
+        refreshMetadata( repo, pomsByGA.values() );
+        progress.done();
+
+        if ( !failures.isEmpty() )
+        {
+            throw new IndyWorkflowException( "Failed to store %s of %s archive entries in: %s, e.g. %s",
+                                             failures.size(), entries.size(), repo.getKey(), failures.peek() );
+        }
+    }
+
+    private void refreshMetadata( final HostedRepository repo, final Collection<String> poms )
+    {
+        final long start = System.currentTimeMillis();
+        final EventMetadata eventMetadata = new EventMetadata().set( TARGET_STORE, repo );
+        poms.forEach( pom -> metadataListener.clearPomMetadata( repo.getKey(), pom, eventMetadata, "imported" ) );
+        logger.info( "Refreshed metadata for {} GAs in {} in {}ms", poms.size(), repo.getKey(),
+                     System.currentTimeMillis() - start );
+    }
+
+    private static String getGADir( final String pomPath )
+    {
+        final String versionDir = pomPath.substring( 0, Math.max( 0, pomPath.lastIndexOf( '/' ) ) );
+        return versionDir.substring( 0, Math.max( 0, versionDir.lastIndexOf( '/' ) ) );
     }
 
-    private void storeStreamWithPath( final String rawPath, final String ignoredPrefix, final InputStream input,
-                                      final HostedRepository repo )
+    private String storeStreamWithPath( final String rawPath, final String ignoredPrefix, final InputStream input,
+                                        final HostedRepository repo, final EventMetadata eventMetadata )
             throws IndyWorkflowException
     {
         logger.trace( "Raw path is {}, ignored prefix is {}", rawPath, ignoredPrefix );
@@ -143,7 +278,56 @@ public class HostedByArchiveManager
         {
             path = path.replaceFirst( ignoredPrefix, "" );
         }
-        contentManager.store( repo, path, input, TransferOperation.UPLOAD );
+        contentManager.store( repo, path, input, TransferOperation.UPLOAD, eventMetadata );
+        return path;
+    }
+
+    private final class ImportProgress
+    {
+        private static final long REPORT_INTERVAL_MILLIS = 10000;
+
+        private final HostedRepository repo;
+
+        private final int total;
+
+        private final long start = System.currentTimeMillis();
+
+        private final AtomicInteger stored = new AtomicInteger();
+
+        private final AtomicLong bytes = new AtomicLong();
+
+        private final AtomicLong lastReport = new AtomicLong( start );
+
+        ImportProgress( final HostedRepository repo, final int total )
+        {
+            this.repo = repo;
+            this.total = total;
+        }
+
+        void stored( final long size )
+        {
+            final int count = stored.incrementAndGet();
+            bytes.addAndGet( Math.max( 0, size ) );
+
+            final long now = System.currentTimeMillis();
+            final long last = lastReport.get();
+            if ( now - last >= REPORT_INTERVAL_MILLIS && lastReport.compareAndSet( last, now ) )
+            {
+                report( "Importing", count, now );
+            }
+        }
+
+        void done()
+        {
+            report( "Imported", stored.get(), System.currentTimeMillis() );
+        }
+
+        private void report( final String verb, final int count, final long now )
+        {
+            final long elapsed = Math.max( 1, now - start );
+            logger.info( "{} {}: {}/{} entries, {} bytes in {}ms ({} entries/s, {} KB/s)", verb, repo.getKey(), count,
+                         total, bytes.get(), elapsed, count * 1000L / elapsed, bytes.get() / elapsed );
+        }
     }
 
 }
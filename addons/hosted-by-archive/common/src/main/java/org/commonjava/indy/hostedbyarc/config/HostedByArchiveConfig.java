@@ -33,14 +33,20 @@ public class HostedByArchiveConfig
 
     private static final String LOCK_TIMEOUT_MINS_PARAM = "lock.timeout.minutes";
 
+    private static final String IMPORT_CONCURRENCY_PARAM = "import.concurrency";
+
     public static final long DEFAULT_LOCK_TIMEOUT_MINS = 30;
 
+    public static final int DEFAULT_IMPORT_CONCURRENCY = 8;
+
     public static final boolean DEFAULT_ENABLED = false;
 
     private Boolean enabled;
 
     private Long lockTimeoutMins;
 
+    private Integer importConcurrency;
+
     public HostedByArchiveConfig()
     {
     }
@@ -73,6 +79,17 @@ public class HostedByArchiveConfig
         this.lockTimeoutMins = lockTimeoutMins;
     }
 
+    public int getImportConcurrency()
+    {
+        return importConcurrency == null || importConcurrency < 1 ? DEFAULT_IMPORT_CONCURRENCY : importConcurrency;
+    }
+
+    @ConfigName( IMPORT_CONCURRENCY_PARAM )
+    public void setImportConcurrency( Integer importConcurrency )
+    {
+        this.importConcurrency = importConcurrency;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
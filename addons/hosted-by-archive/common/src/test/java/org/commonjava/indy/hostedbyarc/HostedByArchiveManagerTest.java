@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.hostedbyarc;
+
+import org.apache.commons.io.IOUtils;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.content.ContentDigester;
+import org.commonjava.indy.content.ContentManager;
+import org.commonjava.indy.content.DownloadManager;
+import org.commonjava.indy.content.IndyLocationExpander;
+import org.commonjava.indy.core.content.ContentGeneratorManager;
+import org.commonjava.indy.core.content.DefaultContentDigester;
+import org.commonjava.indy.core.content.DefaultContentManager;
+import org.commonjava.indy.core.content.DefaultDirectContentAccess;
+import org.commonjava.indy.core.content.DefaultDownloadManager;
+import org.commonjava.indy.core.inject.ExpiringMemoryNotFoundCache;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.hostedbyarc.config.HostedByArchiveConfig;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.pkg.maven.change.MetadataMergePomChangeListener;
+import org.commonjava.indy.subsys.infinispan.CacheHandle;
+import org.commonjava.indy.test.fixture.core.MockContentAdvisor;
+import org.commonjava.indy.test.fixture.core.MockInstance;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.SpecialPathManagerImpl;
+import org.commonjava.maven.galley.io.checksum.TransferMetadata;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.nfc.MemoryNotFoundCache;
+import org.commonjava.maven.galley.testing.maven.GalleyMavenFixture;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class HostedByArchiveManagerTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static DefaultCacheManager cacheManager;
+
+    private static Cache<String, TransferMetadata> contentMetadata;
+
+    private StoreDataManager storeManager;
+
+    private DownloadManager downloadManager;
+
+    private RecordingPomChangeListener metadataListener;
+
+    private HostedByArchiveConfig config;
+
+    private HostedByArchiveManager manager;
+
+    @BeforeClass
+    public static void setupClass()
+    {
+        cacheManager = new DefaultCacheManager( new ConfigurationBuilder().simpleCache( true ).build() );
+        contentMetadata = cacheManager.getCache( "content-metadata", true );
+    }
+
+    @AfterClass
+    public static void teardownClass()
+    {
+        cacheManager.stop();
+    }
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        contentMetadata.clear();
+
+        GalleyMavenFixture galleyParts = new GalleyMavenFixture( true, temp );
+        galleyParts.initMissingComponents();
+
+        storeManager = new MemoryStoreDataManager( true );
+
+        final DefaultIndyConfiguration indyConfig = new DefaultIndyConfiguration();
+        indyConfig.setNotFoundCacheTimeoutSeconds( 1 );
+
+        downloadManager = new DefaultDownloadManager( storeManager, galleyParts.getTransferManager(),
+                                                      new IndyLocationExpander( storeManager ),
+                                                      new MockInstance<>( new MockContentAdvisor() ),
+                                                      new ExpiringMemoryNotFoundCache( indyConfig ),
+                                                      executor( "test-rescan-executor" ) );
+
+        ContentDigester contentDigester = new DefaultContentDigester(
+                new DefaultDirectContentAccess( downloadManager, executor( "test-content-access-executor" ) ),
+                new CacheHandle<String, TransferMetadata>( "content-metadata", contentMetadata ) );
+
+        ContentManager contentManager =
+                new DefaultContentManager( storeManager, downloadManager, new IndyObjectMapper( true ),
+                                           new SpecialPathManagerImpl(), new MemoryNotFoundCache(), contentDigester,
+                                           new ContentGeneratorManager() );
+
+        config = new HostedByArchiveConfig();
+        metadataListener = new RecordingPomChangeListener();
+        manager = new HostedByArchiveManager( storeManager, contentManager, config, metadataListener,
+                                              executor( "test-hosted-by-arc-importer" ) );
+    }
+
+    @Test
+    public void importStoresAllEntriesAndRefreshesMetadataOncePerGA()
+            throws Exception
+    {
+        config.setImportConcurrency( 4 );
+
+        List<String> paths = new ArrayList<>();
+        for ( String artifact : new String[] { "a", "b" } )
+        {
+            for ( String version : new String[] { "1.0", "1.1", "2.0" } )
+            {
+                String base = "org/foo/" + artifact + "/" + version + "/" + artifact + "-" + version;
+                paths.add( base + ".pom" );
+                paths.add( base + ".jar" );
+            }
+        }
+
+        HostedRepository repo =
+                manager.createStoreByArc( zip( "/maven-repository", paths ), "imported", "test", "/maven-repository" );
+
+        assertThat( storeManager.getArtifactStore( repo.getKey() ), equalTo( repo ) );
+        for ( String path : paths )
+        {
+            assertThat( read( repo, "/" + path ), equalTo( path ) );
+        }
+
+        assertThat( metadataListener.refreshed.size(), equalTo( 2 ) );
+        assertThat( metadataListener.refreshed.get( "/org/foo/a" ).get(), equalTo( 1 ) );
+        assertThat( metadataListener.refreshed.get( "/org/foo/b" ).get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void failedEntryIsReportedAfterTheRestAreStored()
+            throws Exception
+    {
+        // in archive order, so the file blocks the directory the second entry needs
+        config.setImportConcurrency( 1 );
+        List<String> paths = new ArrayList<>();
+        paths.add( "org/foo/a/1.0/a-1.0.pom" );
+        paths.add( "org/foo/a/1.0/a-1.0.pom/nested.txt" );
+        paths.add( "org/foo/b/1.0/b-1.0.pom" );
+
+        try
+        {
+            manager.createStoreByArc( zip( "", paths ), "broken", "test", null );
+            fail( "Import with an unstorable entry should fail" );
+        }
+        catch ( IndyWorkflowException e )
+        {
+            assertThat( e.getMessage(), containsString( "Failed to store 1 of 3 archive entries" ) );
+            assertThat( e.getMessage(), containsString( "org/foo/a/1.0/a-1.0.pom/nested.txt" ) );
+        }
+
+        HostedRepository repo = (HostedRepository) storeManager.getArtifactStore(
+                StoreKey.fromString( "maven:hosted:broken" ) );
+        assertThat( read( repo, "/org/foo/a/1.0/a-1.0.pom" ), equalTo( "org/foo/a/1.0/a-1.0.pom" ) );
+        assertThat( read( repo, "/org/foo/b/1.0/b-1.0.pom" ), equalTo( "org/foo/b/1.0/b-1.0.pom" ) );
+        assertThat( metadataListener.refreshed.keySet(),
+                    equalTo( new HashSet<>( Arrays.asList( "/org/foo/a", "/org/foo/b" ) ) ) );
+    }
+
+    private String read( final HostedRepository repo, final String path )
+            throws Exception
+    {
+        Transfer transfer = downloadManager.getStorageReference( repo, path );
+        assertThat( path + " exists", transfer.exists(), equalTo( true ) );
+        try (InputStream in = transfer.openInputStream())
+        {
+            return IOUtils.toString( in, UTF_8 );
+        }
+    }
+
+    /**
+     * Each entry's content is its own path, relative to the prefix.
+     */
+    private InputStream zip( final String prefix, final List<String> paths )
+            throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream( bytes ))
+        {
+            for ( String path : paths )
+            {
+                out.putNextEntry( new ZipEntry( prefix + "/" + path ) );
+                out.write( path.getBytes( UTF_8 ) );
+                out.closeEntry();
+            }
+        }
+
+        return new ByteArrayInputStream( bytes.toByteArray() );
+    }
+
+    private static WeftExecutorService executor( final String name )
+    {
+        return new PoolWeftExecutorService( name, (ThreadPoolExecutor) Executors.newCachedThreadPool(), 4, 10f, false,
+                                            null, null );
+    }
+
+    private static final class RecordingPomChangeListener
+            extends MetadataMergePomChangeListener
+    {
+        private final ConcurrentMap<String, AtomicInteger> refreshed = new ConcurrentHashMap<>();
+
+        @Override
+        public void clearPomMetadata( final StoreKey key, final String path, final EventMetadata eventMetadata,
+                                      final String eventOps )
+        {
+            String versionDir = path.substring( 0, path.lastIndexOf( '/' ) );
+            refreshed.computeIfAbsent( versionDir.substring( 0, versionDir.lastIndexOf( '/' ) ),
+                                       ga -> new AtomicInteger() ).incrementAndGet();
+        }
+    }
+}
@@ -17,12 +17,14 @@ package org.commonjava.indy.httprox.handler;
 
 import static org.commonjava.cdi.util.weft.ExecutorConfig.BooleanLiteral.FALSE;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
 import org.commonjava.cdi.util.weft.ExecutorConfig;
 import org.commonjava.cdi.util.weft.WeftExecutorService;
 import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.core.inject.BlockingTaskExecutors;
 
 /**
  * Provides a Weft managed Executor to allocate managed threads for each proxy request.
@@ -35,6 +37,9 @@ public class ProxyTransfersExecutor {
     @ExecutorConfig( named = "mitm-transfers", threads = 0, priority = 5, loadSensitive = FALSE )
     private WeftExecutorService executor;
 
+    @Inject
+    private BlockingTaskExecutors blockingExecutors;
+
     protected ProxyTransfersExecutor() 
     {
     }
@@ -44,6 +49,12 @@ public class ProxyTransfersExecutor {
         this.executor = exec;
     }
 
+    @PostConstruct
+    public void init()
+    {
+        executor = blockingExecutors.select( "mitm-transfers", executor );
+    }
+
     public WeftExecutorService getExecutor()
     {
         return executor;
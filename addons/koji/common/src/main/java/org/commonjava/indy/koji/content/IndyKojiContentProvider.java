@@ -32,16 +32,26 @@ import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static com.redhat.red.build.koji.model.xmlrpc.messages.Constants.GET_BUILD;
 
+/**
+ * Caching front-end for the Koji queries Indy makes. Identical queries that miss the cache at the same time share a
+ * single Koji call, and cached lists are stored unmodifiable so they can be handed out without a copy. Callers that
+ * need to reorder a result must copy it first.
+ */
 @ApplicationScoped
 public class IndyKojiContentProvider
 {
@@ -84,14 +94,17 @@ public class IndyKojiContentProvider
     @Inject
     private IndyKojiConfig kojiConfig;
 
+    private final Map<Map.Entry<String, Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
     public IndyKojiContentProvider()
     {
     }
 
-    public IndyKojiContentProvider( KojiClient kojiClient, CacheProducer cacheProducer )
+    public IndyKojiContentProvider( KojiClient kojiClient, CacheProducer cacheProducer, IndyKojiConfig kojiConfig )
     {
         this.kojiClient = kojiClient;
         this.cacheProducer = cacheProducer;
+        this.kojiConfig = kojiConfig;
     }
 
     /**
@@ -117,7 +130,7 @@ public class IndyKojiContentProvider
     {
         logger.debug( "listTags, buildIds: {}", buildIds );
 
-        if ( !kojiConfig.isQueryCacheEnabled() )
+        if ( !isQueryCacheEnabled() )
         {
             logger.trace( "Cache not enabled, run direct kojiClient.listTags" );
             return kojiClient.listTags( buildIds, session );
@@ -142,8 +155,14 @@ public class IndyKojiContentProvider
         if ( !missed.isEmpty() )
         {
             Map<Integer, List<KojiTagInfo>> retrieved = kojiClient.listTags( missed, session );
-            map.putAll( retrieved );
-            retrieved.forEach( ( k, v ) -> cache.put( k, v ) );
+            retrieved.forEach( ( k, v ) -> {
+                if ( v != null )
+                {
+                    List<KojiTagInfo> tags = Collections.unmodifiableList( v );
+                    map.put( k, tags );
+                    cache.put( k, tags );
+                }
+            } );
         }
         return map;
     }
@@ -165,7 +184,7 @@ public class IndyKojiContentProvider
     {
         logger.debug( "getBuildInfo, args: {}", args );
 
-        if ( !kojiConfig.isQueryCacheEnabled() )
+        if ( !isQueryCacheEnabled() )
         {
             logger.trace( "Cache not enabled, run direct kojiClient.multiCall" );
             return kojiClient.multiCall( GET_BUILD, args, KojiBuildInfo.class, session );
@@ -194,8 +213,11 @@ public class IndyKojiContentProvider
             {
                 Object obj = missed.get( i );
                 KojiBuildInfo kojiBuildInfo = retrieved.get( i );
-                m.put( obj, kojiBuildInfo );
-                cache.put( obj, kojiBuildInfo );
+                if ( kojiBuildInfo != null )
+                {
+                    m.put( obj, kojiBuildInfo );
+                    cache.put( obj, kojiBuildInfo );
+                }
             }
         }
 
@@ -252,34 +274,116 @@ public class IndyKojiContentProvider
     {
         logger.debug( "computeIfAbsent, cache: {}, key: {}", name, key );
 
-        if ( !kojiConfig.isQueryCacheEnabled() )
+        if ( !isQueryCacheEnabled() )
         {
             logger.trace( "Cache not enabled, run direct supplier.getKojiContent" );
-            return supplier.getKojiContent();
+            return singleFlight( name, key, () -> immutable( supplier.getKojiContent() ) );
         }
 
         CacheHandle<K, V> cache = cacheProducer.getCache( name );
         V ret = cache.get( key );
         if ( ret == null )
         {
-            logger.trace( "Entry not found, run supplier and put, expirationHours: {}", expirationHours );
-            ret = supplier.getKojiContent();
-            if ( expirationHours > 0 )
+            ret = singleFlight( name, key, () -> {
+                // the flight we would have joined may have completed between our cache miss and now
+                V value = cache.get( key );
+                if ( value != null )
+                {
+                    return value;
+                }
+
+                logger.trace( "Entry not found, run supplier and put, expirationHours: {}", expirationHours );
+                value = immutable( supplier.getKojiContent() );
+                if ( value == null )
+                {
+                    return null;
+                }
+
+                if ( expirationHours > 0 )
+                {
+                    cache.put( key, value, expirationHours, TimeUnit.HOURS );
+                }
+                else
+                {
+                    cache.put( key, value );
+                }
+                return value;
+            } );
+        }
+
+        logger.trace( "Return value, cache: {}, key: {}, ret: {}", name, key, ret );
+        return ret;
+    }
+
+    /**
+     * Run the supplier, unless the same query (cache name and key) is already running, in which case wait for and
+     * share its result.
+     */
+    @SuppressWarnings( "unchecked" )
+    private <V> V singleFlight( String name, Object key, KojiContentSupplier<V> supplier )
+                    throws KojiClientException
+    {
+        final Map.Entry<String, Object> flightKey = new SimpleImmutableEntry<>( name, key );
+        final CompletableFuture<Object> mine = new CompletableFuture<>();
+        final CompletableFuture<Object> existing = inFlight.putIfAbsent( flightKey, mine );
+        if ( existing != null )
+        {
+            logger.trace( "Joining in-flight Koji query, cache: {}, key: {}", name, key );
+            try
             {
-                cache.put( key, ret, expirationHours, TimeUnit.HOURS );
+                return (V) existing.get();
             }
-            else
+            catch ( InterruptedException e )
             {
-                cache.put( key, ret );
+                Thread.currentThread().interrupt();
+                throw new KojiClientException( "Interrupted while waiting for Koji query, cache: %s, key: %s", e,
+                                               name, key );
+            }
+            catch ( ExecutionException e )
+            {
+                Throwable cause = e.getCause();
+                if ( cause instanceof KojiClientException )
+                {
+                    throw (KojiClientException) cause;
+                }
+                if ( cause instanceof RuntimeException )
+                {
+                    throw (RuntimeException) cause;
+                }
+                throw new KojiClientException( "Koji query failed, cache: %s, key: %s", cause, name, key );
             }
         }
 
-        if ( ret instanceof List )
+        try
         {
-            ret = (V) new ArrayList( (List) ret ); // protective copy
+            V ret = supplier.getKojiContent();
+            mine.complete( ret );
+            return ret;
         }
-        logger.trace( "Return value, cache: {}, key: {}, ret: {}", name, key, ret );
-        return ret;
+        catch ( KojiClientException | RuntimeException e )
+        {
+            mine.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            inFlight.remove( flightKey, mine );
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <V> V immutable( V value )
+    {
+        if ( value instanceof List )
+        {
+            return (V) Collections.unmodifiableList( (List) value );
+        }
+        return value;
+    }
+
+    private boolean isQueryCacheEnabled()
+    {
+        return kojiConfig.isQueryCacheEnabled() && cacheProducer != null;
     }
 
 }
@@ -311,7 +311,9 @@ public abstract class KojiContentManagerDecorator
 //            return kojiClient.withKojiSession( ( session ) -> {
             KojiSessionInfo session = null;
 
-                List<KojiBuildInfo> builds = kojiContentProvider.listBuildsContaining( artifactRef, session );
+                // cached results are unmodifiable; copy before sorting
+                List<KojiBuildInfo> builds =
+                        new ArrayList<>( kojiContentProvider.listBuildsContaining( artifactRef, session ) );
 
                 Collections.sort( builds, ( build1, build2 ) -> build2.getCreationTime()
                                                                       .compareTo( build1.getCreationTime() ) );
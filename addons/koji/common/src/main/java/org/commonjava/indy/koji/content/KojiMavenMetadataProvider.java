@@ -38,6 +38,7 @@ import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.content.DirectContentAccess;
 import org.commonjava.indy.core.content.group.GroupMergeHelper;
+import org.commonjava.indy.core.inject.BlockingTaskExecutors;
 import org.commonjava.indy.data.IndyDataException;
 import org.commonjava.indy.data.StoreDataManager;
 import org.commonjava.indy.db.common.AbstractStoreDataManager;
@@ -80,6 +81,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -144,16 +146,21 @@ public class KojiMavenMetadataProvider
     @Inject
     private WeftExecutorService kojiMDService;
 
+    @Inject
+    private BlockingTaskExecutors blockingExecutors;
+
     protected KojiMavenMetadataProvider(){}
 
     public KojiMavenMetadataProvider( CacheHandle<ProjectRef, Metadata> versionMetadata, KojiClient kojiClient,
                                       KojiBuildAuthority buildAuthority, IndyKojiConfig kojiConfig, WeftExecutorService kojiMDService, DefaultCacheManager cacheManager )
     {
         this.versionMetadata = versionMetadata;
-        this.kojiContentProvider = new IndyKojiContentProvider( kojiClient, new CacheProducer( null, cacheManager, null ) );
+        this.kojiContentProvider = new IndyKojiContentProvider( kojiClient, new CacheProducer( null, cacheManager, null ),
+                                                               kojiConfig );
         this.buildAuthority = buildAuthority;
         this.kojiConfig = kojiConfig;
         this.kojiMDService = kojiMDService;
+        this.versionMetadataLocks = new Locker<>();
     }
 
     @PostConstruct
@@ -163,6 +170,11 @@ public class KojiMavenMetadataProvider
             c.addListener( KojiMavenMetadataProvider.this );
             return null;
         } );
+
+        if ( blockingExecutors != null )
+        {
+            kojiMDService = blockingExecutors.select( "koji-metadata", kojiMDService );
+        }
     }
 
     @CacheEntryExpired
@@ -366,13 +378,14 @@ public class KojiMavenMetadataProvider
 
         Map<Integer, KojiBuildArchiveCollection> seenBuildArchives = new ConcurrentHashMap<>();
         Set<Integer> seenBuilds = new ConcurrentHashSet<>();
+        BuildPrefetch prefetch = prefetchBuilds( ga, archives );
 
         DrainingExecutorCompletionService<SingleVersion> svc = new DrainingExecutorCompletionService<>( kojiMDService );
 
         detectOverloadVoid(()->{
             for ( KojiArchiveInfo archive : archives )
             {
-                svc.submit( archiveScanner( path, ga, archive, seenBuilds, seenBuildArchives) );
+                svc.submit( archiveScanner( path, ga, archive, seenBuilds, seenBuildArchives, prefetch ) );
             }
         });
 
@@ -419,16 +432,74 @@ public class KojiMavenMetadataProvider
             return md;
     }
 
+    /**
+     * Resolve the builds of all candidate archives for a GA with one getBuild multicall (and one listTags multicall
+     * when tag patterns are enabled), so the archive scanners don't each make their own round-trips to Koji. Anything
+     * that can't be resolved here is left for the scanners to look up individually.
+     */
+    private BuildPrefetch prefetchBuilds( final ProjectRef ga, final List<KojiArchiveInfo> archives )
+    {
+        Logger logger = LoggerFactory.getLogger( getClass() );
+        BuildPrefetch prefetch = new BuildPrefetch();
+
+        List<Object> buildIds = archives.stream()
+                                        .filter( a -> a.getFilename().endsWith( ".pom" ) && isVerSignedAllowed(
+                                                a.getVersion() ) )
+                                        .map( KojiArchiveInfo::getBuildId )
+                                        .distinct()
+                                        .collect( Collectors.toList() );
+        if ( buildIds.isEmpty() )
+        {
+            return prefetch;
+        }
+
+        try
+        {
+            List<KojiBuildInfo> builds = kojiContentProvider.getBuildInfo( buildIds, null );
+            for ( int i = 0; i < buildIds.size() && i < builds.size(); i++ )
+            {
+                if ( builds.get( i ) != null )
+                {
+                    prefetch.builds.put( (Integer) buildIds.get( i ), builds.get( i ) );
+                }
+            }
+
+            if ( kojiConfig.isTagPatternsEnabled() )
+            {
+                List<Integer> taggable = prefetch.builds.values()
+                                                        .stream()
+                                                        .filter( b -> b.getBuildState() == KojiBuildState.COMPLETE
+                                                                && b.getTaskId() != null )
+                                                        .map( KojiBuildInfo::getId )
+                                                        .collect( Collectors.toList() );
+                if ( !taggable.isEmpty() )
+                {
+                    prefetch.tags.putAll( kojiContentProvider.listTags( taggable, null ) );
+                }
+            }
+        }
+        catch ( KojiClientException e )
+        {
+            logger.warn( "Failed to prefetch Koji builds for: {}. Falling back to per-archive lookups. Reason: {}",
+                         ga, e.getMessage() );
+        }
+
+        logger.debug( "Prefetched {} builds and tags for {} builds from {} archives of: {}", prefetch.builds.size(),
+                      prefetch.tags.size(), archives.size(), ga );
+        return prefetch;
+    }
+
     private Callable<SingleVersion> archiveScanner( final String path, final ProjectRef ga, final KojiArchiveInfo archive,
                                                     final Set<Integer> seenBuilds,
-                                                    final Map<Integer, KojiBuildArchiveCollection> seenBuildArchives )
+                                                    final Map<Integer, KojiBuildArchiveCollection> seenBuildArchives,
+                                                    final BuildPrefetch prefetch )
     {
         Logger logger = LoggerFactory.getLogger( getClass() );
 
         return () -> {
             try
             {
-                ArchiveScan scan = scanArchive( archive, seenBuilds );
+                ArchiveScan scan = scanArchive( archive, seenBuilds, prefetch );
                 if ( scan.isDisqualified() )
                 {
                     return null;
@@ -446,7 +517,11 @@ public class KojiMavenMetadataProvider
                 {
                     logger.trace( "Checking for builds/tags of: {}", archive );
 
-                    List<KojiTagInfo> tags = kojiContentProvider.listTags( build.getId(), null );
+                    List<KojiTagInfo> tags = prefetch.tags.get( build.getId() );
+                    if ( tags == null )
+                    {
+                        tags = kojiContentProvider.listTags( build.getId(), null );
+                    }
                     for ( KojiTagInfo tag : tags )
                     {
                         if ( kojiConfig.isTagAllowed( tag.getName() ) )
@@ -492,7 +567,8 @@ public class KojiMavenMetadataProvider
         };
     }
 
-    private ArchiveScan scanArchive( final KojiArchiveInfo archive, final Set<Integer> seenBuilds )
+    private ArchiveScan scanArchive( final KojiArchiveInfo archive, final Set<Integer> seenBuilds,
+                                     final BuildPrefetch prefetch )
             throws KojiClientException
     {
         Logger logger = LoggerFactory.getLogger( getClass() );
@@ -535,7 +611,11 @@ public class KojiMavenMetadataProvider
         }
         else
         {
-            build = kojiContentProvider.getBuildInfo( archive.getBuildId(), null );
+            build = prefetch.builds.get( archive.getBuildId() );
+            if ( build == null )
+            {
+                build = kojiContentProvider.getBuildInfo( archive.getBuildId(), null );
+            }
             seenBuilds.add( archive.getBuildId() );
             scan.setBuild( build );
         }
@@ -566,6 +646,13 @@ public class KojiMavenMetadataProvider
         return scan;
     }
 
+    private static final class BuildPrefetch
+    {
+        private final Map<Integer, KojiBuildInfo> builds = new HashMap<>();
+
+        private final Map<Integer, List<KojiTagInfo>> tags = new HashMap<>();
+    }
+
     private static final class ArchiveScan
     {
         private boolean disqualified = false;
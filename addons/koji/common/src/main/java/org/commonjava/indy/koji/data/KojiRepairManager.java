@@ -108,7 +108,7 @@ public class KojiRepairManager
     {
         this.storeManager = storeManager;
         this.config = config;
-        this.kojiCachedClient = new IndyKojiContentProvider( kojiClient, null );
+        this.kojiCachedClient = new IndyKojiContentProvider( kojiClient, null, config );
         this.repairExecutor = new SingleThreadedExecutorService( "koji-repairs" );
     }
 
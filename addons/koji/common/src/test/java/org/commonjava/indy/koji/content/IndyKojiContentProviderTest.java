@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.koji.content;
+
+import com.redhat.red.build.koji.KojiClient;
+import com.redhat.red.build.koji.model.xmlrpc.KojiTagInfo;
+import org.commonjava.indy.koji.conf.IndyKojiConfig;
+import org.commonjava.indy.koji.content.testutil.KojiStubServer;
+import org.commonjava.indy.subsys.infinispan.CacheProducer;
+import org.commonjava.test.http.expect.ExpectationServer;
+import org.commonjava.util.jhttpc.auth.MemoryPasswordManager;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class IndyKojiContentProviderTest
+{
+    private static final String KOJI_BASEPATH = "koji";
+
+    private static final Integer BUILD_ID = 422953;
+
+    @Rule
+    public ExpectationServer server = new ExpectationServer();
+
+    private KojiStubServer koji;
+
+    private DefaultCacheManager cacheManager;
+
+    private KojiClient kojiClient;
+
+    private IndyKojiContentProvider provider;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        koji = new KojiStubServer( server, KOJI_BASEPATH ).respondFrom( "koji-metadata/simple-metadata-generate" )
+                                                          .withLatency( 500 )
+                                                          .start();
+
+        IndyKojiConfig kojiConfig = new IndyKojiConfig();
+        kojiConfig.setEnabled( true );
+        kojiConfig.setMaxConnections( 10 );
+        kojiConfig.setRequestTimeoutSeconds( 10 );
+        kojiConfig.setStorageRootUrl( server.formatUrl( "kojiroot" ) );
+        kojiConfig.setUrl( server.formatUrl( KOJI_BASEPATH ) );
+
+        kojiClient = new KojiClient( kojiConfig, new MemoryPasswordManager(), Executors.newCachedThreadPool() );
+        cacheManager = new DefaultCacheManager( new ConfigurationBuilder().simpleCache( true ).build() );
+        provider = new IndyKojiContentProvider( kojiClient, new CacheProducer( null, cacheManager, null ),
+                                                kojiConfig );
+    }
+
+    @After
+    public void teardown()
+    {
+        kojiClient.close();
+        cacheManager.stop();
+    }
+
+    @Test
+    public void concurrentMissesShareOneKojiCall()
+            throws Exception
+    {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        List<Future<List<KojiTagInfo>>> results = new ArrayList<>();
+        try
+        {
+            for ( int i = 0; i < threads; i++ )
+            {
+                results.add( executor.submit( () -> {
+                    start.await();
+                    return provider.listTags( BUILD_ID, null );
+                } ) );
+            }
+            start.countDown();
+
+            List<KojiTagInfo> first = results.get( 0 ).get();
+            for ( Future<List<KojiTagInfo>> result : results )
+            {
+                assertThat( result.get(), sameInstance( first ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertThat( koji.getCallCount( "listTags" ), equalTo( 1 ) );
+    }
+
+    @Test
+    public void cachedListIsSharedAndUnmodifiable()
+            throws Exception
+    {
+        List<KojiTagInfo> tags = provider.listTags( BUILD_ID, null );
+        assertThat( provider.listTags( BUILD_ID, null ), sameInstance( tags ) );
+        assertThat( koji.getCallCount( "listTags" ), equalTo( 1 ) );
+
+        try
+        {
+            tags.clear();
+            fail( "Cached Koji results should be unmodifiable" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.koji.content;
+
+import com.redhat.red.build.koji.KojiClient;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.commonjava.atlas.maven.ident.ref.ProjectRef;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.indy.koji.conf.IndyKojiConfig;
+import org.commonjava.indy.koji.content.testutil.KojiStubServer;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.subsys.infinispan.CacheHandle;
+import org.commonjava.test.http.expect.ExpectationServer;
+import org.commonjava.util.jhttpc.auth.MemoryPasswordManager;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.commonjava.indy.model.core.StoreType.group;
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Metadata generation resolves the builds and tags of all candidate archives with one multicall each, instead of a
+ * getBuild and a listTags round-trip per archive.
+ */
+public class KojiMavenMetadataPrefetchTest
+{
+    private static final String KOJI_BASEPATH = "koji";
+
+    private static final String RECORDED_EXCHANGE = "koji-metadata/whitelisted-tags-metadata-generate";
+
+    private static final String MULTICALL_RESPONSES = "koji-metadata/multicall-metadata-generate/";
+
+    private static final String METADATA_PATH = "commons-io/commons-io/maven-metadata.xml";
+
+    @Rule
+    public ExpectationServer server = new ExpectationServer();
+
+    private KojiStubServer koji;
+
+    private DefaultCacheManager cacheManager;
+
+    private KojiClient kojiClient;
+
+    private KojiMavenMetadataProvider provider;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        koji = new KojiStubServer( server, KOJI_BASEPATH ).respondFrom( RECORDED_EXCHANGE )
+                                                          .respond( "multiCall:getBuild",
+                                                                    MULTICALL_RESPONSES + "multiCall-getBuild-response.xml" )
+                                                          .respond( "multiCall:listTags",
+                                                                    MULTICALL_RESPONSES + "multiCall-listTags-response.xml" )
+                                                          .start();
+
+        IndyKojiConfig kojiConfig = new IndyKojiConfig();
+        kojiConfig.setEnabled( true );
+        kojiConfig.setLockTimeoutSeconds( 10 );
+        kojiConfig.setMaxConnections( 10 );
+        kojiConfig.setMetadataTimeoutSeconds( 10 );
+        kojiConfig.setRequestTimeoutSeconds( 10 );
+        kojiConfig.setStorageRootUrl( server.formatUrl( "kojiroot" ) );
+        kojiConfig.setUrl( server.formatUrl( KOJI_BASEPATH ) );
+        kojiConfig.setTargetGroups( Collections.singletonMap( "public", "public" ) );
+        kojiConfig.setTagPatternsEnabled( true );
+        kojiConfig.setTagPatterns( Collections.singletonList( "jb-.+" ) );
+
+        kojiClient = new KojiClient( kojiConfig, new MemoryPasswordManager(), Executors.newCachedThreadPool() );
+        cacheManager = new DefaultCacheManager( new ConfigurationBuilder().simpleCache( true ).build() );
+
+        String mdCacheName = "koji-maven-metadata";
+        CacheHandle<ProjectRef, Metadata> versionMetadata =
+                new CacheHandle<>( mdCacheName, cacheManager.getCache( mdCacheName, true ) );
+
+        KojiBuildAuthority buildAuthority =
+                new KojiBuildAuthority( kojiConfig, null, kojiClient, new MemoryStoreDataManager( true ), null, null,
+                                        cacheManager );
+
+        WeftExecutorService kojiMDService =
+                new PoolWeftExecutorService( "test-koji-metadata-executor",
+                                             (ThreadPoolExecutor) Executors.newCachedThreadPool(), 2, 10f, false, null,
+                                             null );
+
+        provider = new KojiMavenMetadataProvider( versionMetadata, kojiClient, buildAuthority, kojiConfig,
+                                                  kojiMDService, cacheManager );
+    }
+
+    @After
+    public void teardown()
+    {
+        kojiClient.close();
+        cacheManager.stop();
+    }
+
+    @Test
+    public void buildsAndTagsAreFetchedInOneMulticallEach()
+            throws Exception
+    {
+        Metadata metadata = provider.getMetadata( new StoreKey( MAVEN_PKG_KEY, group, "public" ), METADATA_PATH );
+
+        assertThat( metadata, notNullValue() );
+        assertThat( metadata.getVersioning().getVersions(),
+                    equalTo( Arrays.asList( "2.1-redhat-1", "2.4.0.redhat-1" ) ) );
+        assertThat( metadata.getVersioning().getLatest(), equalTo( "2.4.0.redhat-1" ) );
+
+        assertThat( koji.getCallCount( "multiCall:getBuild" ), equalTo( 1 ) );
+        assertThat( koji.getCallCount( "multiCall:listTags" ), equalTo( 1 ) );
+        assertThat( koji.getCallCount( "getBuild" ), equalTo( 0 ) );
+        assertThat( koji.getCallCount( "listTags" ), equalTo( 0 ) );
+    }
+}
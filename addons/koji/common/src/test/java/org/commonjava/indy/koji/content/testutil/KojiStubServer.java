@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.koji.content.testutil;
+
+import org.apache.commons.io.IOUtils;
+import org.commonjava.test.http.expect.ExpectationHandler;
+import org.commonjava.test.http.expect.ExpectationServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.fail;
+
+/**
+ * In-process Koji hub stand-in. Unlike {@link KojiMockHandlers}, which replays a fixed exchange script and verifies
+ * every request, this answers each XML-RPC call by its method name from recorded response files, counts the calls per
+ * method, and can add a fixed latency per call. That makes it usable from concurrent tests and benchmarks that need to
+ * assert how many round-trips Koji actually saw. A multicall is answered and counted as {@code multiCall:<method>},
+ * after the method of its first call.
+ */
+public final class KojiStubServer
+{
+    private static final Pattern METHOD_NAME = Pattern.compile( "<methodName>\\s*([^<\\s]+)\\s*</methodName>" );
+
+    private static final String MULTI_CALL = "multiCall";
+
+    private static final Pattern MULTI_CALL_METHOD_NAME = Pattern.compile(
+            "<name>\\s*methodName\\s*</name>\\s*<value>\\s*(?:<string>)?\\s*([^<\\s]+)" );
+
+    private final ExpectationServer server;
+
+    private final String urlBase;
+
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    private volatile long latencyMillis;
+
+    public KojiStubServer( ExpectationServer server, String urlBase )
+    {
+        this.server = server;
+        this.urlBase = urlBase;
+    }
+
+    /**
+     * Answer calls to methodName with the XML-RPC response in the given classpath resource.
+     */
+    public KojiStubServer respond( String methodName, String responseResource )
+    {
+        responses.put( methodName, responseResource );
+        return this;
+    }
+
+    /**
+     * Register the responses of a recorded exchange directory (NN-request.xml / NN-response.xml pairs, as used with
+     * {@link KojiMockHandlers}). The first recorded response for each method name wins.
+     */
+    public KojiStubServer respondFrom( String resourceBase )
+    {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        for ( int i = 0; ; i++ )
+        {
+            String requestPath = Paths.get( resourceBase, String.format( "%02d-request.xml", i ) ).toString();
+            try (InputStream in = cl.getResourceAsStream( requestPath ))
+            {
+                if ( in == null )
+                {
+                    break;
+                }
+
+                String methodName = methodName( IOUtils.toString( in ) );
+                if ( methodName != null )
+                {
+                    responses.putIfAbsent( methodName, Paths.get( resourceBase, String.format( "%02d-response.xml",
+                                                                                               i ) ).toString() );
+                }
+            }
+            catch ( Exception e )
+            {
+                fail( "Failed to read recorded Koji request: " + requestPath + ". " + e.getMessage() );
+            }
+        }
+        return this;
+    }
+
+    public KojiStubServer withLatency( long latencyMillis )
+    {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    public KojiStubServer start()
+    {
+        try
+        {
+            server.expect( "POST", server.formatUrl( urlBase ), handler() );
+            server.expect( "POST", server.formatUrl( urlBase, "ssllogin" ), handler() );
+        }
+        catch ( Exception e )
+        {
+            fail( "Failed to register Koji stub handlers. " + e.getMessage() );
+        }
+        return this;
+    }
+
+    public int getCallCount( String methodName )
+    {
+        AtomicInteger count = calls.get( methodName );
+        return count == null ? 0 : count.get();
+    }
+
+    public void resetCallCounts()
+    {
+        calls.clear();
+    }
+
+    private ExpectationHandler handler()
+    {
+        return ( request, response ) -> {
+            String methodName = methodName( IOUtils.toString( request.getInputStream() ) );
+            calls.computeIfAbsent( String.valueOf( methodName ), k -> new AtomicInteger() ).incrementAndGet();
+
+            String responsePath = methodName == null ? null : responses.get( methodName );
+            Logger logger = LoggerFactory.getLogger( KojiStubServer.class );
+            logger.debug( "Koji stub call: {}, responding with: {}", methodName, responsePath );
+
+            InputStream in = responsePath == null ?
+                    null :
+                    Thread.currentThread().getContextClassLoader().getResourceAsStream( responsePath );
+            if ( in == null )
+            {
+                response.setStatus( 500 );
+                return;
+            }
+
+            if ( latencyMillis > 0 )
+            {
+                try
+                {
+                    Thread.sleep( latencyMillis );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            response.setStatus( 200 );
+            try (InputStream body = in)
+            {
+                OutputStream out = response.getOutputStream();
+                IOUtils.copy( body, out );
+            }
+        };
+    }
+
+    private static String methodName( String xml )
+    {
+        Matcher m = METHOD_NAME.matcher( xml );
+        if ( !m.find() )
+        {
+            return null;
+        }
+
+        String methodName = m.group( 1 );
+        if ( MULTI_CALL.equals( methodName ) )
+        {
+            Matcher call = MULTI_CALL_METHOD_NAME.matcher( xml );
+            if ( call.find( m.end() ) )
+            {
+                methodName = MULTI_CALL + ":" + call.group( 1 );
+            }
+        }
+        return methodName;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.pathmapped.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size Bloom filter over strings which can be added to and queried concurrently without locking. It answers
+ * "definitely not added" or "maybe added"; entries can't be removed.
+ */
+public final class DirectoryBloomFilter
+{
+    private final AtomicLongArray words;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    private final int capacity;
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * @param capacity number of distinct entries the filter is sized for
+     * @param fpp false positive probability expected once capacity entries were added
+     */
+    public DirectoryBloomFilter( int capacity, double fpp )
+    {
+        this.capacity = Math.max( capacity, 1 );
+        long bits = (long) Math.ceil( -this.capacity * Math.log( fpp ) / ( Math.log( 2 ) * Math.log( 2 ) ) );
+        int wordCount = (int) Math.max( 1, ( bits + 63 ) / 64 );
+        this.words = new AtomicLongArray( wordCount );
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max( 1, (int) Math.round( (double) bitCount / this.capacity * Math.log( 2 ) ) );
+    }
+
+    /**
+     * @return true if this changed the filter, i.e. the entry was definitely not there before
+     */
+    public boolean put( String entry )
+    {
+        long h1 = hash( entry );
+        long h2 = mix( h1 ^ 0x9e3779b97f4a7c15L ) | 1;
+        boolean changed = false;
+        for ( int i = 0; i < hashCount; i++ )
+        {
+            changed |= setBit( index( h1 + i * h2 ) );
+        }
+
+        if ( changed )
+        {
+            count.incrementAndGet();
+        }
+        return changed;
+    }
+
+    public boolean mightContain( String entry )
+    {
+        long h1 = hash( entry );
+        long h2 = mix( h1 ^ 0x9e3779b97f4a7c15L ) | 1;
+        for ( int i = 0; i < hashCount; i++ )
+        {
+            long bit = index( h1 + i * h2 );
+            if ( ( words.get( (int) ( bit >>> 6 ) ) & ( 1L << bit ) ) == 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Approximate number of distinct entries added (entries which happened to collide fully aren't counted).
+     */
+    public int getCount()
+    {
+        return count.get();
+    }
+
+    private long index( long combined )
+    {
+        return ( combined & Long.MAX_VALUE ) % bitCount;
+    }
+
+    private boolean setBit( long bit )
+    {
+        int word = (int) ( bit >>> 6 );
+        long mask = 1L << bit;
+        long current;
+        do
+        {
+            current = words.get( word );
+            if ( ( current & mask ) != 0 )
+            {
+                return false;
+            }
+        }
+        while ( !words.compareAndSet( word, current, current | mask ) );
+        return true;
+    }
+
+    private static long hash( String entry )
+    {
+        // FNV-1a over the chars, then a final avalanche since FNV's low bits are weak for short strings
+        long h = 0xcbf29ce484222325L;
+        for ( int i = 0; i < entry.length(); i++ )
+        {
+            h ^= entry.charAt( i );
+            h *= 0x100000001b3L;
+        }
+        return mix( h );
+    }
+
+    private static long mix( long h )
+    {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,402 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.pathmapped.cache;
+
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.action.IndyLifecycleException;
+import org.commonjava.indy.action.StartupAction;
+import org.commonjava.indy.change.event.ArtifactStoreDeletePostEvent;
+import org.commonjava.indy.conf.IndyConfiguration;
+import org.commonjava.indy.data.IndyDataException;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.model.galley.KeyedLocation;
+import org.commonjava.maven.galley.cache.pathmapped.PathMappedCacheProvider;
+import org.commonjava.maven.galley.event.FileDeletionEvent;
+import org.commonjava.maven.galley.event.FileStorageEvent;
+import org.commonjava.maven.galley.model.Location;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.spi.cache.CacheProvider;
+import org.commonjava.storage.pathmapped.core.PathMappedFileManager;
+import org.commonjava.storage.pathmapped.spi.PathDB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.commonjava.storage.pathmapped.util.PathMapUtils.ROOT_DIR;
+
+/**
+ * In-memory index of the directories of each hosted repository in path-mapped storage, one Bloom filter per
+ * repository. It lets group repository filtering drop hosted members which certainly don't contain a directory without
+ * querying the path DB. Filters are built from the path DB in the background (at startup, and on first use for
+ * repositories created later), kept up to date from file storage events, and rebuilt once they fill up or enough
+ * files have been deleted from under them. Since only this node's events reach it, the index is used only on a node
+ * configured as the single writer of the path-mapped storage.
+ */
+@ApplicationScoped
+public class PathMappedDirectoryIndex
+                implements StartupAction
+{
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private static final int MIN_CAPACITY = 256;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    private IndyConfiguration config;
+
+    @Inject
+    private StoreDataManager storeDataManager;
+
+    @Inject
+    private CacheProvider cacheProvider;
+
+    @WeftManaged
+    @ExecutorConfig( named = "path-mapped-directory-index", threads = 4, priority = 3 )
+    @Inject
+    private ExecutorService executor;
+
+    private PathMappedFileManager pathMappedFileManager;
+
+    private final Map<String, StoreDirectories> indexes = new ConcurrentHashMap<>();
+
+    public PathMappedDirectoryIndex()
+    {
+    }
+
+    public PathMappedDirectoryIndex( final IndyConfiguration config, final PathMappedFileManager pathMappedFileManager,
+                                     final ExecutorService executor )
+    {
+        this.config = config;
+        this.pathMappedFileManager = pathMappedFileManager;
+        this.executor = executor;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        if ( cacheProvider instanceof PathMappedCacheProvider )
+        {
+            pathMappedFileManager = ( (PathMappedCacheProvider) cacheProvider ).getPathMappedFileManager();
+        }
+    }
+
+    /**
+     * The filters only learn about files stored through this node, so they are used only when this node is the sole
+     * writer to the path-mapped storage; files stored by other nodes would otherwise be ruled out.
+     */
+    public boolean isEnabled()
+    {
+        return pathMappedFileManager != null && config.isRepositoryFilterDirectoryIndexEnabled()
+                        && config.isRepositoryFilterDirectoryIndexSingleNode();
+    }
+
+    @Override
+    public void start()
+            throws IndyLifecycleException
+    {
+        if ( !isEnabled() )
+        {
+            if ( config.isRepositoryFilterDirectoryIndexEnabled() )
+            {
+                logger.warn( "Directory index is enabled but not marked single-node "
+                                             + "(repository.filter.directory.index.single.node), it will not be used" );
+            }
+            logger.info( "Skip directory index start" );
+            return;
+        }
+
+        try
+        {
+            storeDataManager.streamArtifactStores()
+                            .filter( store -> store.getType() == StoreType.hosted )
+                            .forEach( store -> getOrBuild( store.getKey().toString() ) );
+        }
+        catch ( IndyDataException e )
+        {
+            // indexes of the stores not scheduled here are built on first use
+            logger.warn( "Failed to list hosted stores for directory index", e );
+        }
+    }
+
+    @Override
+    public int getStartupPriority()
+    {
+        return 0;
+    }
+
+    @Override
+    public String getId()
+    {
+        return "PathMappedDirectoryIndex";
+    }
+
+    /**
+     * @param fileSystem hosted store key, as used for the path-mapped file system name
+     * @return false only if the directory is certainly not in the store; true if it may be, or the store's index
+     * isn't ready yet
+     */
+    public boolean mightContain( final String fileSystem, final String dir )
+    {
+        DirectoryBloomFilter filter = getOrBuild( fileSystem ).current;
+        return filter == null || filter.mightContain( normalize( dir ) );
+    }
+
+    public void onFileStorage( @Observes final FileStorageEvent event )
+    {
+        String fileSystem = getHostedFileSystem( event.getTransfer() );
+        if ( fileSystem == null )
+        {
+            return;
+        }
+
+        StoreDirectories dirs = indexes.get( fileSystem );
+        if ( dirs != null )
+        {
+            dirs.addParents( event.getTransfer().getPath() );
+        }
+    }
+
+    public void onFileDeletion( @Observes final FileDeletionEvent event )
+    {
+        String fileSystem = getHostedFileSystem( event.getTransfer() );
+        if ( fileSystem == null )
+        {
+            return;
+        }
+
+        StoreDirectories dirs = indexes.get( fileSystem );
+        if ( dirs != null )
+        {
+            // bloom filters can't forget, so stale directories only cost extra path DB checks until the next rebuild
+            DirectoryBloomFilter filter = dirs.current;
+            if ( filter != null && dirs.deletions.incrementAndGet() > filter.getCapacity() / 4 )
+            {
+                scheduleBuild( dirs );
+            }
+        }
+    }
+
+    public void onStoreDeletion( @Observes final ArtifactStoreDeletePostEvent event )
+    {
+        for ( ArtifactStore store : event )
+        {
+            indexes.remove( store.getKey().toString() );
+        }
+    }
+
+    private String getHostedFileSystem( final Transfer transfer )
+    {
+        if ( !isEnabled() || transfer == null )
+        {
+            return null;
+        }
+
+        Location location = transfer.getLocation();
+        if ( !( location instanceof KeyedLocation ) )
+        {
+            return null;
+        }
+
+        StoreKey key = ( (KeyedLocation) location ).getKey();
+        return key.getType() == StoreType.hosted ? key.toString() : null;
+    }
+
+    private StoreDirectories getOrBuild( final String fileSystem )
+    {
+        StoreDirectories dirs = indexes.get( fileSystem );
+        if ( dirs == null )
+        {
+            StoreDirectories created = new StoreDirectories( fileSystem );
+            dirs = indexes.putIfAbsent( fileSystem, created );
+            if ( dirs == null )
+            {
+                dirs = created;
+                scheduleBuild( dirs );
+            }
+        }
+        return dirs;
+    }
+
+    private void scheduleBuild( final StoreDirectories dirs )
+    {
+        if ( !dirs.building.compareAndSet( false, true ) )
+        {
+            return;
+        }
+
+        executor.execute( () -> {
+            try
+            {
+                build( dirs );
+            }
+            catch ( RuntimeException e )
+            {
+                logger.warn( "Failed to build directory index of: " + dirs.fileSystem, e );
+                dirs.abortCollecting();
+            }
+            finally
+            {
+                dirs.building.set( false );
+            }
+        } );
+    }
+
+    private void build( final StoreDirectories dirs )
+    {
+        final String fileSystem = dirs.fileSystem;
+        logger.debug( "Building directory index of: {}", fileSystem );
+
+        Set<String> collected = ConcurrentHashMap.newKeySet();
+        dirs.startCollecting( collected );
+
+        PathDB pathDB = pathMappedFileManager.getPathDB();
+        pathDB.traverse( fileSystem, ROOT_DIR, pathMap -> addWithAncestors( collected, pathMap.getParentPath() ), 0,
+                         PathDB.FileType.file );
+
+        // twice the current size, so the filter keeps its false positive rate while the store grows
+        DirectoryBloomFilter filter =
+                new DirectoryBloomFilter( Math.max( MIN_CAPACITY, collected.size() * 2 ), FALSE_POSITIVE_RATE );
+        dirs.finishCollecting( filter );
+
+        logger.debug( "Directory index of: {} ready, directories: {}", fileSystem, filter.getCount() );
+    }
+
+    static String normalize( final String dir )
+    {
+        if ( dir == null )
+        {
+            return "";
+        }
+
+        int start = 0;
+        int end = dir.length();
+        while ( start < end && dir.charAt( start ) == '/' )
+        {
+            start++;
+        }
+        while ( end > start && dir.charAt( end - 1 ) == '/' )
+        {
+            end--;
+        }
+        return dir.substring( start, end );
+    }
+
+    private static void addWithAncestors( final Set<String> target, final String dir )
+    {
+        String d = normalize( dir );
+        while ( !d.isEmpty() && target.add( d ) )
+        {
+            int idx = d.lastIndexOf( '/' );
+            d = idx < 0 ? "" : d.substring( 0, idx );
+        }
+    }
+
+    private static void addWithAncestors( final DirectoryBloomFilter target, final String dir )
+    {
+        // no early exit here: put() returning false may be a false positive, its ancestors still have to be added
+        String d = normalize( dir );
+        while ( !d.isEmpty() )
+        {
+            target.put( d );
+            int idx = d.lastIndexOf( '/' );
+            d = idx < 0 ? "" : d.substring( 0, idx );
+        }
+    }
+
+    private static String parentOf( final String path )
+    {
+        String p = normalize( path );
+        int idx = p.lastIndexOf( '/' );
+        return idx < 0 ? "" : p.substring( 0, idx );
+    }
+
+    /**
+     * Directory filter of one store. While a (re)build traverses the path DB, directories of newly stored files are
+     * collected alongside it, and the previous filter (if any) keeps answering queries.
+     */
+    private final class StoreDirectories
+    {
+        private final String fileSystem;
+
+        private volatile DirectoryBloomFilter current;
+
+        private Set<String> collecting;
+
+        private final AtomicBoolean building = new AtomicBoolean();
+
+        private final AtomicInteger deletions = new AtomicInteger();
+
+        StoreDirectories( final String fileSystem )
+        {
+            this.fileSystem = fileSystem;
+        }
+
+        synchronized void startCollecting( final Set<String> collected )
+        {
+            this.collecting = collected;
+        }
+
+        synchronized void finishCollecting( final DirectoryBloomFilter filter )
+        {
+            collecting.forEach( filter::put );
+            collecting = null;
+            deletions.set( 0 );
+            current = filter;
+        }
+
+        synchronized void abortCollecting()
+        {
+            collecting = null;
+        }
+
+        void addParents( final String path )
+        {
+            String parent = parentOf( path );
+            synchronized ( this )
+            {
+                if ( collecting != null )
+                {
+                    addWithAncestors( collecting, parent );
+                }
+            }
+
+            DirectoryBloomFilter filter = current;
+            if ( filter != null )
+            {
+                addWithAncestors( filter, parent );
+                if ( filter.getCount() > filter.getCapacity() )
+                {
+                    scheduleBuild( this );
+                }
+            }
+        }
+    }
+}
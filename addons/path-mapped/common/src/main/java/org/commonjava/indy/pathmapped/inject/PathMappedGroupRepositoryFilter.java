@@ -16,12 +16,15 @@
 package org.commonjava.indy.pathmapped.inject;
 
 import com.google.common.collect.Lists;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.conf.IndyConfiguration;
 import org.commonjava.indy.core.content.group.AbstractGroupRepositoryFilter;
 import org.commonjava.indy.model.core.ArtifactStore;
 import org.commonjava.indy.model.core.Group;
 import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.pathmapped.cache.PathMappedDirectoryIndex;
 import org.commonjava.indy.pathmapped.cache.PathMappedMavenGACache;
 import org.commonjava.maven.galley.cache.pathmapped.PathMappedCacheProvider;
 import org.commonjava.maven.galley.model.SpecialPathInfo;
@@ -36,9 +39,14 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -65,6 +73,14 @@ public class PathMappedGroupRepositoryFilter
     @Inject
     private SpecialPathManager specialPathManager;
 
+    @Inject
+    private PathMappedDirectoryIndex directoryIndex;
+
+    @WeftManaged
+    @ExecutorConfig( named = "path-mapped-group-filter", threads = 8, priority = 7 )
+    @Inject
+    private ExecutorService containingExecutor;
+
     private PathMappedFileManager pathMappedFileManager;
 
     @PostConstruct
@@ -119,29 +135,74 @@ public class PathMappedGroupRepositoryFilter
             return concreteStores;
         }
 
+        if ( directoryIndex.isEnabled() && !strategyPath.equals( path ) )
+        {
+            // hosted members whose directory index rules the path out need no path DB check
+            candidates = candidates.stream()
+                                   .filter( c -> directoryIndex.mightContain( c, strategyPath ) )
+                                   .collect( Collectors.toList() );
+            logger.debug( "Candidates after directory index check: {}", candidates );
+        }
+
+        Set<String> ret = getFileSystemContaining( candidates, strategyPath );
+
+        return concreteStores.stream()
+                             .filter( store -> store.getType() == StoreType.remote || ret.contains(
+                                             store.getKey().toString() ) )
+                             .collect( Collectors.toList() );
+    }
+
+    private Set<String> getFileSystemContaining( List<String> candidates, String strategyPath )
+    {
         // batch it to avoid huge 'IN' query
-        Set<String> ret = new HashSet<>();
         int batchSize = indyConfig.getFileSystemContainingBatchSize();
         List<List<String>> subSets = Lists.partition( candidates, batchSize );
-        subSets.forEach( subSet -> {
-            logger.debug( "Get file system containing, strategyPath: {}, subSet: {}", strategyPath, subSet );
-            Set<String> st = pathMappedFileManager.getFileSystemContainingDirectory( subSet, strategyPath );
-            if ( st == null )
+        if ( subSets.size() < 2 )
+        {
+            Set<String> ret = new HashSet<>();
+            subSets.forEach( subSet -> ret.addAll( querySubSet( subSet, strategyPath ) ) );
+            return ret;
+        }
+
+        // query the batches in parallel
+        Set<String> ret = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>( subSets.size() );
+        subSets.forEach( subSet -> futures.add(
+                        containingExecutor.submit( () -> ret.addAll( querySubSet( subSet, strategyPath ) ) ) ) );
+
+        for ( int i = 0; i < futures.size(); i++ )
+        {
+            try
             {
-                // query failed but those candidates may contain the target path so we add all subSet candidates
-                logger.warn( "Get fileSystems query failed, add subSet candidates" );
-                ret.addAll( subSet );
+                futures.get( i ).get();
             }
-            else
+            catch ( InterruptedException e )
             {
-                ret.addAll( st );
+                Thread.currentThread().interrupt();
+                logger.warn( "Interrupted while getting file systems, add remaining candidates" );
+                subSets.subList( i, subSets.size() ).forEach( ret::addAll );
+                break;
             }
-        } );
+            catch ( ExecutionException e )
+            {
+                logger.warn( "Get fileSystems query failed, add subSet candidates", e );
+                ret.addAll( subSets.get( i ) );
+            }
+        }
+        return ret;
+    }
 
-        return concreteStores.stream()
-                             .filter( store -> store.getType() == StoreType.remote || ret.contains(
-                                             store.getKey().toString() ) )
-                             .collect( Collectors.toList() );
+    private Set<String> querySubSet( List<String> subSet, String strategyPath )
+    {
+        logger.debug( "Get file system containing, strategyPath: {}, subSet: {}", strategyPath, subSet );
+        Set<String> st = pathMappedFileManager.getFileSystemContainingDirectory( subSet, strategyPath );
+        if ( st == null )
+        {
+            // query failed but those candidates may contain the target path so we add all subSet candidates
+            logger.warn( "Get fileSystems query failed, add subSet candidates" );
+            return new HashSet<>( subSet );
+        }
+        return st;
     }
 
     private boolean isMavenMetadataNonSnapshotPath( Group group, String path )
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.pathmapped.cache;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DirectoryBloomFilterTest
+{
+    @Test
+    public void addedEntriesAreAlwaysFound()
+    {
+        DirectoryBloomFilter filter = new DirectoryBloomFilter( 10000, 0.01 );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            filter.put( "org/foo/artifact-" + i + "/1.0" );
+        }
+
+        for ( int i = 0; i < 10000; i++ )
+        {
+            assertThat( filter.mightContain( "org/foo/artifact-" + i + "/1.0" ), equalTo( true ) );
+        }
+    }
+
+    @Test
+    public void falsePositiveRateStaysNearConfiguredRate()
+    {
+        DirectoryBloomFilter filter = new DirectoryBloomFilter( 10000, 0.01 );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            filter.put( "org/foo/artifact-" + i + "/1.0" );
+        }
+
+        int falsePositives = 0;
+        for ( int i = 0; i < 10000; i++ )
+        {
+            if ( filter.mightContain( "org/bar/other-" + i + "/2.0" ) )
+            {
+                falsePositives++;
+            }
+        }
+
+        assertTrue( "Too many false positives: " + falsePositives, falsePositives < 300 );
+    }
+
+    @Test
+    public void countsDistinctEntries()
+    {
+        DirectoryBloomFilter filter = new DirectoryBloomFilter( 100, 0.01 );
+        assertThat( filter.put( "org/foo" ), equalTo( true ) );
+        assertThat( filter.put( "org/foo" ), equalTo( false ) );
+        assertThat( filter.put( "org" ), equalTo( true ) );
+        assertThat( filter.getCount(), equalTo( 2 ) );
+    }
+}
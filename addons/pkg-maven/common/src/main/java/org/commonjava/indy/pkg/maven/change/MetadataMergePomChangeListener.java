@@ -40,6 +40,7 @@ import javax.inject.Inject;
 import java.util.Arrays;
 import java.util.Set;
 
+import static org.commonjava.indy.content.ContentManager.DEFER_METADATA_REFRESH;
 import static org.commonjava.indy.data.StoreDataManager.AFFECTED_GROUPS;
 import static org.commonjava.indy.data.StoreDataManager.TARGET_STORE;
 import static org.commonjava.indy.model.core.StoreType.hosted;
@@ -94,8 +95,23 @@ public class MetadataMergePomChangeListener
         }
 
         EventMetadata eventMetadata = event.getEventMetadata();
+        if ( eventMetadata != null && Boolean.TRUE.equals( eventMetadata.get( DEFER_METADATA_REFRESH ) ) )
+        {
+            logger.trace( "Metadata clean-up for {} deferred by the caller", path );
+            return;
+        }
+
+        clearPomMetadata( getKey( event ), path, eventMetadata, eventOps );
+    }
 
-        final StoreKey key = getKey( event );
+    /**
+     * Clear maven-metadata.xml for the GA of the given pom in a hosted store and all groups affected by it. This is
+     * what happens on every pom storage/deletion event; bulk importers that set
+     * {@link org.commonjava.indy.content.ContentManager#DEFER_METADATA_REFRESH} call it once per GA instead.
+     */
+    public void clearPomMetadata( final StoreKey key, final String path, final EventMetadata eventMetadata,
+                                  final String eventOps )
+    {
         final String clearPath = getMetadataPath( path );
         logger.info( "Pom file {} {}, will clean matched metadata file {}, store: {}", path, eventOps, clearPath, key );
 
@@ -120,7 +136,7 @@ public class MetadataMergePomChangeListener
                     logger.info( "Metadata file {} in store {} cleared.", clearPath, key );
                 }
 
-                final Set<Group> groups = dataManager.affectedBy( Arrays.asList( key ), event.getEventMetadata() );
+                final Set<Group> groups = dataManager.affectedBy( Arrays.asList( key ), eventMetadata );
 
                 if ( groups != null )
                 {
@@ -19,11 +19,14 @@ import org.commonjava.indy.content.StoreContentAction;
 import org.commonjava.indy.model.core.ArtifactStore;
 import org.commonjava.indy.model.core.Group;
 import org.commonjava.indy.pkg.maven.content.MetadataCacheManager;
+import org.commonjava.indy.pkg.maven.content.MetadataKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 @ApplicationScoped
@@ -44,7 +47,9 @@ public class MetadataStoreContentAction
                                    boolean clearOriginPath )
     {
         logger.debug( "Clearing metadata cache, path: {}, store: {}, affected: {}", path, store.getKey(), affectedGroups );
-        cacheManager.remove( store.getKey(), path );
-        affectedGroups.forEach( group -> cacheManager.remove( group.getKey(), path ) );
+        List<MetadataKey> keys = new ArrayList<>( affectedGroups.size() + 1 );
+        keys.add( new MetadataKey( store.getKey(), path ) );
+        affectedGroups.forEach( group -> keys.add( new MetadataKey( group.getKey(), path ) ) );
+        cacheManager.remove( keys );
     }
 }
@@ -38,6 +38,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.commonjava.atlas.maven.ident.util.SnapshotUtils;
 import org.commonjava.atlas.maven.ident.version.part.SnapshotPart;
+import org.commonjava.indy.content.SelectiveTransferDecorator;
 import org.commonjava.indy.metrics.IndyMetricsManager;
 import org.commonjava.maven.galley.event.EventMetadata;
 import org.commonjava.maven.galley.io.AbstractTransferDecorator;
@@ -66,6 +67,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 @ApplicationScoped
 public class MavenContentsFilteringTransferDecorator
                 extends AbstractTransferDecorator
+                implements SelectiveTransferDecorator
 {
     private final Logger logger = LoggerFactory.getLogger( this.getClass() );
 
@@ -85,17 +87,32 @@ public class MavenContentsFilteringTransferDecorator
         return OverriddenBooleanValue.DEFER;
     }
 
+    @Override
+    public boolean decoratesRead( final Transfer transfer )
+    {
+        return false;
+    }
+
+    /**
+     * Only metadata proxied from a remote that excludes snapshots or releases is filtered.
+     */
+    @Override
+    public boolean decoratesWrite( final Transfer transfer, final TransferOperation op )
+    {
+        final Location loc = transfer.getLocation();
+        return loc instanceof HttpLocation && ( !loc.allowsSnapshots() || !loc.allowsReleases() )
+                        && transfer.getFullPath().endsWith( "maven-metadata.xml" );
+    }
+
     @Override
     public OutputStream decorateWrite( final OutputStream stream, final Transfer transfer, final TransferOperation op,
                                        final EventMetadata metadata )
     {
-        final Location loc = transfer.getLocation();
-        final boolean allowsSnapshots = loc.allowsSnapshots();
-        final boolean allowsReleases = loc.allowsReleases();
-        if ( loc instanceof HttpLocation && ( !allowsSnapshots || !allowsReleases ) && transfer.getFullPath()
-                                                                                               .endsWith( "maven-metadata.xml" ) )
+        if ( decoratesWrite( transfer, op ) )
         {
-            return new MetadataFilteringOutputStream( stream, allowsSnapshots, allowsReleases, transfer, metricsManager );
+            final Location loc = transfer.getLocation();
+            return new MetadataFilteringOutputStream( stream, loc.allowsSnapshots(), loc.allowsReleases(), transfer,
+                                                      metricsManager );
         }
         else
         {
@@ -41,6 +41,7 @@ import org.commonjava.indy.content.MergedContentAction;
 import org.commonjava.indy.content.StoreResource;
 import org.commonjava.indy.core.content.AbstractMergedContentGenerator;
 import org.commonjava.indy.core.content.group.GroupMergeHelper;
+import org.commonjava.indy.core.inject.BlockingTaskExecutors;
 import org.commonjava.indy.data.StoreDataManager;
 import org.commonjava.indy.measure.annotation.Measure;
 import org.commonjava.indy.model.core.ArtifactStore;
@@ -161,6 +162,9 @@ public class MavenMetadataGenerator
     @ExecutorConfig( named="maven-metadata-generator", threads=50, loadSensitive = ExecutorConfig.BooleanLiteral.TRUE, maxLoadFactor = 10000 )
     private WeftExecutorService mavenMDGeneratorService;
 
+    @Inject
+    private BlockingTaskExecutors blockingExecutors;
+
     // don't need to inject since it's only used internally
     private final Locker<String> mergerLocks = new Locker<>();
 
@@ -192,6 +196,11 @@ public class MavenMetadataGenerator
         {
             metadataProviderInstances.forEach( provider -> metadataProviders.add( provider ) );
         }
+
+        if ( blockingExecutors != null )
+        {
+            mavenMDGeneratorService = blockingExecutors.select( "maven-metadata-generator", mavenMDGeneratorService );
+        }
     }
 
     public void clearAllMerged( ArtifactStore store, String...paths )
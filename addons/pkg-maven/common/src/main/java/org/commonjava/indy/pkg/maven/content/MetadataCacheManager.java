@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -83,7 +84,13 @@ public class MetadataCacheManager
 
     public void remove( StoreKey key, Set<String> paths )
     {
-        paths.forEach( p -> remove( new MetadataKey( key, p ) ) );
+        remove( paths.stream().map( p -> new MetadataKey( key, p ) ).collect( Collectors.toList() ) );
+    }
+
+    public void remove( Collection<MetadataKey> metadataKeys )
+    {
+        metadataKeyCache.removeAll( metadataKeys );
+        metadataCache.removeAll( metadataKeys );
     }
 
     public void remove( MetadataKey metadataKey )
@@ -94,7 +101,7 @@ public class MetadataCacheManager
 
     public void removeAll( StoreKey key )
     {
-        getMatches( key ).forEach( k -> remove( k ) );
+        remove( getMatches( key ) );
     }
 
     public Set<String> getAllPaths( StoreKey key )
@@ -25,6 +25,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -54,10 +56,10 @@ public class MetadataMergeListener
     public void clearMergedPath( ArtifactStore originatingStore, Set<Group> affectedGroups, String path )
     {
         logger.debug( "Clear merged path {}, origin: {}, affected: {}", path, originatingStore, affectedGroups );
-        cacheManager.remove( new MetadataKey( originatingStore.getKey(), path ) );
-        affectedGroups.forEach( group -> {
-            cacheManager.remove( new MetadataKey( group.getKey(), path ) );
-        } );
+        List<MetadataKey> keys = new ArrayList<>( affectedGroups.size() + 1 );
+        keys.add( new MetadataKey( originatingStore.getKey(), path ) );
+        affectedGroups.forEach( group -> keys.add( new MetadataKey( group.getKey(), path ) ) );
+        cacheManager.remove( keys );
     }
 
 }
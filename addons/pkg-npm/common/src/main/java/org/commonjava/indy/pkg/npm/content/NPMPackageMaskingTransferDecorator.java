@@ -17,6 +17,7 @@ package org.commonjava.indy.pkg.npm.content;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import org.commonjava.indy.content.SelectiveTransferDecorator;
 import org.commonjava.indy.metrics.IndyMetricsManager;
 import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.galley.KeyedLocation;
@@ -24,6 +25,7 @@ import org.commonjava.maven.galley.event.EventMetadata;
 import org.commonjava.maven.galley.io.AbstractTransferDecorator;
 import org.commonjava.maven.galley.model.Location;
 import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
 import org.commonjava.maven.galley.util.IdempotentCloseInputStream;
 import org.commonjava.maven.galley.util.UrlUtils;
 import org.slf4j.Logger;
@@ -45,6 +47,7 @@ import static org.jsoup.helper.StringUtil.isBlank;
 @ApplicationScoped
 public class NPMPackageMaskingTransferDecorator
                 extends AbstractTransferDecorator
+                implements SelectiveTransferDecorator
 {
     private final Logger logger = LoggerFactory.getLogger( this.getClass() );
 
@@ -55,28 +58,41 @@ public class NPMPackageMaskingTransferDecorator
     {
     }
 
+    /**
+     * Only npm package.json documents are masked.
+     */
     @Override
-    public InputStream decorateRead( final InputStream stream, final Transfer transfer, EventMetadata metadata )
-                    throws IOException
+    public boolean decoratesRead( final Transfer transfer )
     {
         Location loc = transfer.getLocation();
         if ( !( loc instanceof KeyedLocation ) )
         {
-            return stream;
+            return false;
         }
 
         KeyedLocation keyedLocation = (KeyedLocation) loc;
-        if ( !( PKG_TYPE_NPM.equals( keyedLocation.getKey().getPackageType() ) ) )
+        return PKG_TYPE_NPM.equals( keyedLocation.getKey().getPackageType() ) && transfer.getFullPath()
+                                                                                         .endsWith( "package.json" );
+    }
+
+    @Override
+    public boolean decoratesWrite( final Transfer transfer, final TransferOperation op )
+    {
+        return false;
+    }
+
+    @Override
+    public InputStream decorateRead( final InputStream stream, final Transfer transfer, EventMetadata metadata )
+                    throws IOException
+    {
+        if ( !decoratesRead( transfer ) )
         {
             return stream;
         }
 
         logger.debug( "Masking decorator decorateRead, transfer: {}", transfer );
 
-        if ( !( transfer.getFullPath().endsWith( "package.json" ) ) )
-        {
-            return stream;
-        }
+        KeyedLocation keyedLocation = (KeyedLocation) transfer.getLocation();
 
         String baseURI = (String) metadata.get( ENTRY_POINT_BASE_URI );
         if ( isBlank( baseURI ) )
@@ -39,8 +39,12 @@ public class PromoteConfig
 
     private static final String AUTOLOCK_HOSTED_REPOS = "autolock.hosted.repos";
 
+    private static final String PATHS_CONFLICT_WAIT_SECONDS_PARAM = "paths.conflict.wait.seconds";
+
     public static final long DEFAULT_LOCK_TIMEOUT_SECONDS = 30;
 
+    public static final long DEFAULT_PATHS_CONFLICT_WAIT_SECONDS = 0;
+
     public static final boolean DEFAULT_AUTOLOCK = true;
 
     public static final boolean DEFAULT_ENABLED = true;
@@ -53,6 +57,8 @@ public class PromoteConfig
 
     private Long lockTimeoutSeconds;
 
+    private Long pathsConflictWaitSeconds;
+
     public PromoteConfig()
     {
     }
@@ -117,6 +123,17 @@ public class PromoteConfig
         this.lockTimeoutSeconds = lockTimeoutSeconds;
     }
 
+    public Long getPathsConflictWaitSeconds()
+    {
+        return pathsConflictWaitSeconds == null ? DEFAULT_PATHS_CONFLICT_WAIT_SECONDS : pathsConflictWaitSeconds;
+    }
+
+    @ConfigName( PromoteConfig.PATHS_CONFLICT_WAIT_SECONDS_PARAM )
+    public void setPathsConflictWaitSeconds( Long pathsConflictWaitSeconds )
+    {
+        this.pathsConflictWaitSeconds = pathsConflictWaitSeconds;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
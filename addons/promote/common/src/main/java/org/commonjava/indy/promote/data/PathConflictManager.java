@@ -21,83 +21,176 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
-import static java.util.Collections.disjoint;
-
+/**
+ * Path-granular lock table for by-path promotions. Each promotion locks every (target, path) it will write, in sorted
+ * path order so that two overlapping promotions can never deadlock. Promotions touching disjoint paths never contend;
+ * an overlapping one either waits (up to the given time) for the current holder to finish, or is reported as
+ * conflicted right away.
+ */
 @ApplicationScoped
 public class PathConflictManager
 {
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
-    private final Map<StoreKey, Set<StoreKeyPaths>> inUseMap = new HashMap<>();
+    private final ConcurrentHashMap<String, PathsHolder> locks = new ConcurrentHashMap<>();
+
+    private final AtomicLong contended = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong waitMillis = new AtomicLong();
+
+    private final AtomicInteger waiting = new AtomicInteger();
 
     public PathsPromoteResult checkAnd( StoreKeyPaths k, Function<StoreKeyPaths, PathsPromoteResult> function,
                                         Function<StoreKeyPaths, PathsPromoteResult> conflictedFunction )
     {
-        Set<StoreKeyPaths> inUse = null;
-        boolean conflicted = false;
+        return checkAnd( k, 0, function, conflictedFunction );
+    }
+
+    /**
+     * Lock all paths of the given key, then run function; if some path stays locked by another promotion for longer
+     * than waitMillis (0 means don't wait at all), run conflictedFunction instead.
+     */
+    public PathsPromoteResult checkAnd( StoreKeyPaths k, long waitMillis,
+                                        Function<StoreKeyPaths, PathsPromoteResult> function,
+                                        Function<StoreKeyPaths, PathsPromoteResult> conflictedFunction )
+    {
+        logger.debug( "Check paths conflict for {}", k );
+        PathsHolder holder = new PathsHolder( k );
+        boolean locked = lockAll( holder, waitMillis );
+
+        logger.debug( "Check done, conflicted: {}", !locked );
+        if ( !locked )
+        {
+            return conflictedFunction.apply( k );
+        }
+
         try
         {
-            logger.debug( "Check paths conflict for {}", k );
-            synchronized ( inUseMap )
+            return function.apply( k );
+        }
+        finally
+        {
+            unlockAll( holder );
+        }
+    }
+
+    private boolean lockAll( PathsHolder holder, long waitMillis )
+    {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( waitMillis );
+        for ( String key : holder.keys )
+        {
+            PathsHolder current;
+            while ( ( current = locks.putIfAbsent( key, holder ) ) != null )
             {
-                inUse = inUseMap.get( k.getTarget() );
-                if ( inUse == null )
-                {
-                    inUse = new HashSet<>();
-                    inUse.add( k );
-                    inUseMap.put( k.getTarget(), inUse );
-                }
-                else
+                contended.incrementAndGet();
+                long remaining = deadline - System.nanoTime();
+                if ( remaining <= 0 || !awaitRelease( current, remaining ) )
                 {
-                    conflicted = hasConflict( k.getPaths(), inUse );
-                    if ( !conflicted )
-                    {
-                        inUse.add( k );
-                    }
+                    rejected.incrementAndGet();
+                    logger.warn( "Conflict detected, key: {}, paths: {}, inUse: {}", holder.keyPaths.getTarget(),
+                                 holder.keyPaths.getPaths(), current.keyPaths.getPaths() );
+                    unlockAll( holder );
+                    return false;
                 }
             }
+            holder.acquired++;
+        }
+        return true;
+    }
 
-            logger.debug( "Check done, conflicted: {}", conflicted );
-            if ( conflicted )
-            {
-                return conflictedFunction.apply( k );
-            }
-            else
-            {
-                return function.apply( k );
-            }
+    private boolean awaitRelease( PathsHolder current, long remainingNanos )
+    {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try
+        {
+            return current.released.await( remainingNanos, TimeUnit.NANOSECONDS );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return false;
         }
         finally
         {
-            // clean up
-            synchronized ( inUseMap )
-            {
-                inUse.remove( k );
-                if ( inUse.isEmpty() )
-                {
-                    inUseMap.remove( k.getTarget() );
-                }
-            }
+            waiting.decrementAndGet();
+            waitMillis.addAndGet( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) );
         }
     }
 
-    private boolean hasConflict( Set<String> paths, Set<StoreKeyPaths> inUse )
+    private void unlockAll( PathsHolder holder )
     {
-        for ( StoreKeyPaths keyPaths : inUse )
+        for ( int i = 0; i < holder.acquired; i++ )
         {
-            Set<String> s = keyPaths.getPaths();
-            if ( !disjoint( paths, s ) )
-            {
-                logger.warn( "Conflict detected, key: {}, paths: {}, inUse: {}", keyPaths.getTarget(), paths, s );
-                return true;
-            }
+            locks.remove( holder.keys.get( i ), holder );
+        }
+        holder.acquired = 0;
+        holder.released.countDown();
+    }
+
+    /**
+     * Number of times a promotion found one of its paths already locked by another one.
+     */
+    public long getContendedCount()
+    {
+        return contended.get();
+    }
+
+    /**
+     * Number of promotions reported as conflicted, after waiting or not.
+     */
+    public long getRejectedCount()
+    {
+        return rejected.get();
+    }
+
+    /**
+     * Total time promotions have spent waiting for overlapping ones to finish.
+     */
+    public long getWaitMillis()
+    {
+        return waitMillis.get();
+    }
+
+    public int getWaitingCount()
+    {
+        return waiting.get();
+    }
+
+    public int getLockedPathCount()
+    {
+        return locks.size();
+    }
+
+    private static final class PathsHolder
+    {
+        private final StoreKeyPaths keyPaths;
+
+        private final List<String> keys;
+
+        private final CountDownLatch released = new CountDownLatch( 1 );
+
+        private int acquired;
+
+        PathsHolder( StoreKeyPaths keyPaths )
+        {
+            this.keyPaths = keyPaths;
+
+            StoreKey target = keyPaths.getTarget();
+            List<String> keys = new ArrayList<>( keyPaths.getPaths().size() );
+            keyPaths.getPaths().stream().sorted().forEach( p -> keys.add( target + "#" + p ) );
+            this.keys = keys;
         }
-        return false;
     }
 }
@@ -18,6 +18,7 @@ package org.commonjava.indy.promote.data;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.content.ContentManager;
 import org.commonjava.indy.content.DownloadManager;
+import org.commonjava.indy.core.inject.AbstractNotFoundCache;
 import org.commonjava.indy.data.IndyDataException;
 import org.commonjava.indy.data.StoreDataManager;
 import org.commonjava.indy.model.core.ArtifactStore;
@@ -92,11 +93,11 @@ public class PromotionHelper
                                .map( sp -> sp.startsWith( "/" ) && sp.length() > 1 ? sp.substring( 1 ) : sp )
                                .collect( Collectors.toSet() );
 
-        paths.forEach( path -> {
-            ConcreteResource resource = new ConcreteResource( LocationUtils.toLocation( store ), path );
-            logger.trace( "Clearing NFC path: {} from: {}\n\tResource: {}", path, store.getKey(), resource );
-            nfc.clearMissing( resource );
-        } );
+        KeyedLocation sl = LocationUtils.toLocation( store );
+        List<ConcreteResource> resources =
+                paths.stream().map( path -> new ConcreteResource( sl, path ) ).collect( Collectors.toList() );
+        logger.trace( "Clearing NFC paths: {} from: {}", paths, store.getKey() );
+        AbstractNotFoundCache.clearMissing( nfc, resources );
 
         Set<Group> groups;
 
@@ -120,11 +121,10 @@ public class PromotionHelper
         {
             groups.forEach( group -> {
                 KeyedLocation gl = LocationUtils.toLocation( group );
-                paths.forEach( path -> {
-                    ConcreteResource resource = new ConcreteResource( gl, path );
-                    logger.trace( "Clearing NFC path: {} from: {}\n\tResource: {}", path, group.getKey(), resource );
-                    nfc.clearMissing( resource );
-                } );
+                logger.trace( "Clearing NFC paths: {} from: {}", paths, group.getKey() );
+                AbstractNotFoundCache.clearMissing( nfc, paths.stream()
+                                                              .map( path -> new ConcreteResource( gl, path ) )
+                                                              .collect( Collectors.toList() ) );
             } );
         }
     }
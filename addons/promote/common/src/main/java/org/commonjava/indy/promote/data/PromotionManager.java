@@ -26,6 +26,7 @@ import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.audit.ChangeSummary;
 import org.commonjava.indy.content.ContentManager;
 import org.commonjava.indy.content.DownloadManager;
+import org.commonjava.indy.core.inject.BlockingTaskExecutors;
 import org.commonjava.indy.core.inject.GroupMembershipLocks;
 import org.commonjava.indy.data.IndyDataException;
 import org.commonjava.indy.data.StoreDataManager;
@@ -57,11 +58,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.commonjava.indy.metrics.RequestContextHelper;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -72,6 +73,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
@@ -157,6 +159,9 @@ public class PromotionManager
                      maxLoadFactor = 100 )
     private WeftExecutorService transferService;
 
+    @Inject
+    private BlockingTaskExecutors blockingExecutors;
+
     @Inject
     private PromotionCallbackHelper callbackHelper;
 
@@ -187,6 +192,12 @@ public class PromotionManager
         this.specialPathManager = specialPathManager;
     }
 
+    @PostConstruct
+    public void init()
+    {
+        transferService = blockingExecutors.select( "promotion-transfers", transferService );
+    }
+
     @Measure
     public GroupPromoteResult promoteToGroup( GroupPromoteRequest request, String user, String baseUrl )
             throws PromotionException, IndyWorkflowException
@@ -686,7 +697,8 @@ public class PromotionManager
 
         if ( request.isFailWhenExists() )
         {
-            promoteResult = conflictManager.checkAnd( plk, pathsLockKey -> runValidationAndPathPromotions( skipValidation, request, baseUrl, ex, pending, contents ), pathsLockKey -> {
+            long waitMillis = TimeUnit.SECONDS.toMillis( config.getPathsConflictWaitSeconds() );
+            promoteResult = conflictManager.checkAnd( plk, waitMillis, pathsLockKey -> runValidationAndPathPromotions( skipValidation, request, baseUrl, ex, pending, contents ), pathsLockKey -> {
                 String msg = String.format( "Conflict detected, store: %s, paths: %s", pathsLockKey.getTarget(), pending );
                 logger.warn( msg );
                 return new PathsPromoteResult( request, pending, emptySet(), emptySet(), msg, null );
@@ -989,11 +1001,12 @@ public class PromotionManager
         eventMetadata.set( AFFECTED_GROUPS, new ValuePipe<Set>( affectedGroups ) );
         eventMetadata.set( TARGET_STORE, tgt );
 
-        try (InputStream stream = transfer.openInputStream( true ))
+        // hosted-to-hosted promotion shares (or links) the stored bytes instead of streaming them through
+        try
         {
-            contentManager.store( tgt, path, stream, UPLOAD, eventMetadata );
+            contentManager.adopt( tgt, path, transfer, eventMetadata );
         }
-        catch ( final IOException e )
+        catch ( final IndyWorkflowException e )
         {
             String msg = String.format( "Failed to promote: %s. Error: %s", transfer, e.getMessage() );
             result.error = msg;
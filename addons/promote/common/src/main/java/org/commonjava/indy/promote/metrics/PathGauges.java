@@ -17,6 +17,7 @@ package org.commonjava.indy.promote.metrics;
 
 import com.codahale.metrics.Gauge;
 import org.commonjava.indy.metrics.IndyMetricsManager;
+import org.commonjava.indy.promote.data.PathConflictManager;
 import org.commonjava.indy.promote.model.PathsPromoteResult;
 
 import javax.annotation.PostConstruct;
@@ -32,6 +33,9 @@ public class PathGauges
     @Inject
     private IndyMetricsManager metricsManager;
 
+    @Inject
+    private PathConflictManager conflictManager;
+
     private AtomicInteger total = new AtomicInteger();
 
     private AtomicInteger completed = new AtomicInteger();
@@ -55,6 +59,14 @@ public class PathGauges
         gauges.put( "completed", () -> getCompleted() );
         gauges.put( "skipped", () -> getSkipped() );
         metricsManager.addGauges( this.getClass(), "last", gauges );
+
+        Map<String, Gauge<Long>> conflictGauges = new HashMap<>();
+        conflictGauges.put( "contended", () -> conflictManager.getContendedCount() );
+        conflictGauges.put( "rejected", () -> conflictManager.getRejectedCount() );
+        conflictGauges.put( "waitMillis", () -> conflictManager.getWaitMillis() );
+        conflictGauges.put( "waiting", () -> (long) conflictManager.getWaitingCount() );
+        conflictGauges.put( "lockedPaths", () -> (long) conflictManager.getLockedPathCount() );
+        metricsManager.addGauges( this.getClass(), "conflict", conflictGauges );
     }
 
     public int getTotal()
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.promote.data;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.promote.model.PathsPromoteResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.commonjava.indy.model.core.StoreType.hosted;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class PathConflictManagerTest
+{
+    private static final StoreKey TARGET = new StoreKey( "maven", hosted, "target" );
+
+    private final PathConflictManager manager = new PathConflictManager();
+
+    private final PathsPromoteResult ok = new PathsPromoteResult();
+
+    private final PathsPromoteResult conflicted = new PathsPromoteResult();
+
+    @Test( timeout = 10000 )
+    public void disjointPathsDoNotBlock()
+            throws Exception
+    {
+        CountDownLatch firstRunning = new CountDownLatch( 1 );
+        CountDownLatch releaseFirst = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<PathsPromoteResult> first = executor.submit( () -> manager.checkAnd( keyPaths( "/a", "/b" ), k -> {
+                firstRunning.countDown();
+                await( releaseFirst );
+                return ok;
+            }, k -> conflicted ) );
+
+            firstRunning.await();
+            assertThat( manager.checkAnd( keyPaths( "/c" ), k -> ok, k -> conflicted ), sameInstance( ok ) );
+            assertThat( manager.getContendedCount(), equalTo( 0L ) );
+
+            releaseFirst.countDown();
+            assertThat( first.get(), sameInstance( ok ) );
+            assertThat( manager.getLockedPathCount(), equalTo( 0 ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test( timeout = 10000 )
+    public void overlappingPathsConflictWithoutWait()
+            throws Exception
+    {
+        CountDownLatch firstRunning = new CountDownLatch( 1 );
+        CountDownLatch releaseFirst = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<PathsPromoteResult> first = executor.submit( () -> manager.checkAnd( keyPaths( "/a", "/b" ), k -> {
+                firstRunning.countDown();
+                await( releaseFirst );
+                return ok;
+            }, k -> conflicted ) );
+
+            firstRunning.await();
+            assertThat( manager.checkAnd( keyPaths( "/b", "/c" ), k -> ok, k -> conflicted ), sameInstance( conflicted ) );
+            assertThat( manager.getRejectedCount(), equalTo( 1L ) );
+
+            releaseFirst.countDown();
+            assertThat( first.get(), sameInstance( ok ) );
+            assertThat( manager.checkAnd( keyPaths( "/b", "/c" ), k -> ok, k -> conflicted ), sameInstance( ok ) );
+            assertThat( manager.getLockedPathCount(), equalTo( 0 ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test( timeout = 10000 )
+    public void overlappingPathsWaitForRunningPromotion()
+            throws Exception
+    {
+        CountDownLatch firstRunning = new CountDownLatch( 1 );
+        AtomicBoolean firstDone = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<PathsPromoteResult> first = executor.submit( () -> manager.checkAnd( keyPaths( "/a", "/b" ), k -> {
+                firstRunning.countDown();
+                sleep( 200 );
+                firstDone.set( true );
+                return ok;
+            }, k -> conflicted ) );
+
+            firstRunning.await();
+            PathsPromoteResult result = manager.checkAnd( keyPaths( "/b", "/c" ), TimeUnit.SECONDS.toMillis( 5 ), k -> {
+                assertThat( firstDone.get(), equalTo( true ) );
+                return ok;
+            }, k -> conflicted );
+
+            assertThat( result, sameInstance( ok ) );
+            assertThat( first.get(), sameInstance( ok ) );
+            assertThat( manager.getContendedCount(), equalTo( 1L ) );
+            assertThat( manager.getRejectedCount(), equalTo( 0L ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static StoreKeyPaths keyPaths( String... paths )
+    {
+        return new StoreKeyPaths( TARGET, new HashSet<>( Arrays.asList( paths ) ) );
+    }
+
+    private static void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep( long millis )
+    {
+        try
+        {
+            Thread.sleep( millis );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
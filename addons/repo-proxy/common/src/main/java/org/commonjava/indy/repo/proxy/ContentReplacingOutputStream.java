@@ -21,63 +21,147 @@ import org.slf4j.LoggerFactory;
 
 import javax.servlet.ServletOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 
 /**
- * This output stream will cache the original stream and do replacing based on the passed
- * in candidates in content of original stream during flushing
+ * This output stream replaces the passed in candidates in the content of the original stream as it is written. All
+ * candidates are matched in a single pass over the raw bytes (see {@link ReplacementAutomaton}); only the trailing bytes
+ * that might still be the start of a match are held back, so memory use is bounded by the buffer size regardless of
+ * the response size. Matches are replaced as soon as they complete, and replaced text is never re-scanned, so a
+ * replacement containing its own original string is safe.
  */
 class ContentReplacingOutputStream
         extends ServletOutputStream
 {
     private static final Logger logger = LoggerFactory.getLogger( ContentReplacingOutputStream.class );
 
-    private StringBuffer buffer = new StringBuffer();
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
 
-    private final ServletOutputStream originalStream;
+    private final OutputStream originalStream;
 
-    private final Map<String, String> reposReplacing;
+    private final ReplacementAutomaton automaton;
 
-    ContentReplacingOutputStream( final ServletOutputStream originalStream, final Map<String, String> reposReplacing )
+    private final byte[] buffer;
+
+    private int count;
+
+    private int state;
+
+    ContentReplacingOutputStream( final OutputStream originalStream, final Map<String, String> reposReplacing )
+    {
+        this( originalStream, ReplacementAutomaton.build( reposReplacing ) );
+        if ( logger.isTraceEnabled() )
+        {
+            reposReplacing.forEach( ( replaceTo, origin ) -> logger.trace(
+                    "Repository Proxy: Content rewriting: Replacing {} to {}", origin, replaceTo ) );
+        }
+    }
+
+    ContentReplacingOutputStream( final OutputStream originalStream, final ReplacementAutomaton automaton )
     {
         this.originalStream = originalStream;
-        this.reposReplacing = reposReplacing;
+        this.automaton = automaton;
+        this.buffer = new byte[Math.max( DEFAULT_BUFFER_SIZE, 2 * ( automaton.getMaxPatternLength()
+                + automaton.getMaxReplacementLength() ) )];
     }
 
     @Override
-    public void write( int b )
+    public void write( final int b )
+            throws IOException
     {
-        buffer.append( (char) b );
+        if ( count == buffer.length )
+        {
+            drain( false );
+        }
+        buffer[count++] = (byte) b;
+        advance( (byte) b );
     }
 
     @Override
-    public void flush()
+    public void write( final byte[] b, final int off, final int len )
             throws IOException
     {
-        try
+        if ( automaton.isEmpty() )
+        {
+            drain( true );
+            originalStream.write( b, off, len );
+            return;
+        }
+
+        final int end = off + len;
+        for ( int i = off; i < end; i++ )
         {
-            String content = buffer.toString();
-            for ( Map.Entry<String, String> repoReplacing : reposReplacing.entrySet() )
+            if ( count == buffer.length )
             {
-                final String replaceTo = repoReplacing.getKey();
-                final String origin = repoReplacing.getValue();
-                logger.trace( "Repository Proxy: Content rewriting: Replacing {} to {}", origin, replaceTo );
-                content = RepoProxyUtils.replaceAllWithNoRegex( content, origin, replaceTo );
+                drain( false );
             }
-            originalStream.write( content.getBytes() );
-            originalStream.flush();
+            buffer[count++] = b[i];
+            advance( b[i] );
         }
-        finally
+    }
+
+    private void advance( final byte b )
+            throws IOException
+    {
+        state = automaton.next( state, b );
+        final int matched = automaton.matchLength( state );
+        if ( matched > 0 )
         {
-            buffer = new StringBuffer();
+            // the match is always the last bytes written, and was held back since it started
+            count -= matched;
+            final byte[] replacement = automaton.replacement( state );
+            if ( count + replacement.length > buffer.length )
+            {
+                drain( true );
+            }
+            System.arraycopy( replacement, 0, buffer, count, replacement.length );
+            count += replacement.length;
+            state = 0;
+        }
+    }
+
+    /**
+     * Write out buffered bytes. Unless {@code all} is set, bytes that may still be the start of a match are kept.
+     */
+    private void drain( final boolean all )
+            throws IOException
+    {
+        final int held = all ? 0 : Math.min( count, automaton.depth( state ) );
+        final int ready = count - held;
+        if ( ready > 0 )
+        {
+            originalStream.write( buffer, 0, ready );
+            System.arraycopy( buffer, ready, buffer, 0, held );
+            count = held;
         }
     }
 
+    /**
+     * Writes out everything, including a partial match at the end. The response may never be closed through this
+     * wrapper after a forward, so flush has to leave nothing behind; as before, a match split by an explicit flush
+     * is not replaced.
+     */
+    @Override
+    public void flush()
+            throws IOException
+    {
+        drain( true );
+        state = 0;
+        originalStream.flush();
+    }
+
     @Override
     public void close()
             throws IOException
     {
-        flush();
-        IOUtils.closeQuietly( originalStream );
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            IOUtils.closeQuietly( originalStream );
+        }
     }
 }
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.repo.proxy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Aho-Corasick automaton over UTF-8 bytes for replacing several literal strings in one pass. The goto/failure
+ * functions are compiled into a dense transition table, so matching costs one array lookup per input byte no matter
+ * how many patterns there are.
+ *
+ * Immutable once built, so one instance can be shared by every stream that applies the same replacements.
+ */
+final class ReplacementAutomaton
+{
+    private static final int ALPHABET = 256;
+
+    private final int[] transitions;
+
+    private final int[] depths;
+
+    /** Length of the longest pattern ending at each state, or 0 if none does. */
+    private final int[] matchLengths;
+
+    /** Replacement bytes for the pattern recorded in {@link #matchLengths}. */
+    private final byte[][] replacements;
+
+    private final int maxPatternLength;
+
+    private final int maxReplacementLength;
+
+    /**
+     * @param reposReplacing replacement to original mapping, the same orientation used by the repo-proxy decorators
+     */
+    static ReplacementAutomaton build( final Map<String, String> reposReplacing )
+    {
+        final List<byte[]> patterns = new ArrayList<>();
+        final List<byte[]> targets = new ArrayList<>();
+        for ( Map.Entry<String, String> entry : reposReplacing.entrySet() )
+        {
+            final String origin = entry.getValue();
+            if ( origin != null && !origin.isEmpty() )
+            {
+                patterns.add( origin.getBytes( UTF_8 ) );
+                targets.add( entry.getKey() == null ? new byte[0] : entry.getKey().getBytes( UTF_8 ) );
+            }
+        }
+        return new ReplacementAutomaton( patterns, targets );
+    }
+
+    private ReplacementAutomaton( final List<byte[]> patterns, final List<byte[]> targets )
+    {
+        int capacity = 1;
+        int maxPattern = 0;
+        int maxReplacement = 0;
+        for ( int i = 0; i < patterns.size(); i++ )
+        {
+            capacity += patterns.get( i ).length;
+            maxPattern = Math.max( maxPattern, patterns.get( i ).length );
+            maxReplacement = Math.max( maxReplacement, targets.get( i ).length );
+        }
+
+        int[] trie = new int[capacity * ALPHABET];
+        Arrays.fill( trie, -1 );
+        int[] depth = new int[capacity];
+        int[] matchLength = new int[capacity];
+        byte[][] replacement = new byte[capacity][];
+
+        int states = 1;
+        for ( int i = 0; i < patterns.size(); i++ )
+        {
+            int state = 0;
+            for ( byte b : patterns.get( i ) )
+            {
+                int idx = state * ALPHABET + ( b & 0xff );
+                if ( trie[idx] < 0 )
+                {
+                    depth[states] = depth[state] + 1;
+                    trie[idx] = states++;
+                }
+                state = trie[idx];
+            }
+            // a later mapping for the same original string wins, as it would with a Map
+            matchLength[state] = depth[state];
+            replacement[state] = targets.get( i );
+        }
+
+        // breadth-first pass fills in failure transitions, so the table becomes a complete DFA
+        final int[] failure = new int[states];
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for ( int c = 0; c < ALPHABET; c++ )
+        {
+            int next = trie[c];
+            if ( next < 0 )
+            {
+                trie[c] = 0;
+            }
+            else
+            {
+                failure[next] = 0;
+                queue.add( next );
+            }
+        }
+
+        while ( !queue.isEmpty() )
+        {
+            final int state = queue.poll();
+
+            // inherit the longest match from the failure chain if this state doesn't complete a pattern itself
+            if ( matchLength[state] == 0 && matchLength[failure[state]] > 0 )
+            {
+                matchLength[state] = matchLength[failure[state]];
+                replacement[state] = replacement[failure[state]];
+            }
+
+            for ( int c = 0; c < ALPHABET; c++ )
+            {
+                int idx = state * ALPHABET + c;
+                int next = trie[idx];
+                if ( next < 0 )
+                {
+                    trie[idx] = trie[failure[state] * ALPHABET + c];
+                }
+                else
+                {
+                    failure[next] = trie[failure[state] * ALPHABET + c];
+                    queue.add( next );
+                }
+            }
+        }
+
+        this.transitions = states == capacity ? trie : Arrays.copyOf( trie, states * ALPHABET );
+        this.depths = Arrays.copyOf( depth, states );
+        this.matchLengths = Arrays.copyOf( matchLength, states );
+        this.replacements = Arrays.copyOf( replacement, states );
+        this.maxPatternLength = maxPattern;
+        this.maxReplacementLength = maxReplacement;
+    }
+
+    boolean isEmpty()
+    {
+        return maxPatternLength == 0;
+    }
+
+    int next( final int state, final byte b )
+    {
+        return transitions[state * ALPHABET + ( b & 0xff )];
+    }
+
+    /**
+     * Number of trailing input bytes that could still turn out to be the start of a match when in this state.
+     */
+    int depth( final int state )
+    {
+        return depths[state];
+    }
+
+    int matchLength( final int state )
+    {
+        return matchLengths[state];
+    }
+
+    byte[] replacement( final int state )
+    {
+        return replacements[state];
+    }
+
+    int getMaxPatternLength()
+    {
+        return maxPatternLength;
+    }
+
+    int getMaxReplacementLength()
+    {
+        return maxReplacementLength;
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.repo.proxy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ContentReplacingOutputStreamTest
+{
+    private static final String ORIGIN = "/api/content/npm/remote/npmjs";
+
+    private static final String PROXY_TO = "/api/content/npm/group/build-1";
+
+    @Test
+    public void replaceAcrossWriteBoundaries()
+            throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 5000; i++ )
+        {
+            sb.append( "{\"tarball\":\"http://localhost" ).append( ORIGIN ).append( "/pkg-" ).append( i )
+              .append( ".tgz\"}," );
+        }
+        String content = sb.toString();
+        String expected = content.replace( ORIGIN, PROXY_TO );
+
+        Map<String, String> replacing = singletonMap( PROXY_TO, ORIGIN );
+        assertThat( rewrite( content, replacing, 1 ), equalTo( expected ) );
+        assertThat( rewrite( content, replacing, 7 ), equalTo( expected ) );
+        assertThat( rewrite( content, replacing, 8192 ), equalTo( expected ) );
+        assertThat( rewrite( content, replacing, -1 ), equalTo( expected ) );
+    }
+
+    @Test
+    public void multiByteContentIsPreserved()
+            throws IOException
+    {
+        String content = "{\"description\":\"\u017Elu\u0165ou\u010Dk\u00FD k\u016F\u0148 \u65E5\u672C\u8A9E \uD83D\uDE00\",\"url\":\"" + ORIGIN + "/\u00FC\"}";
+        String expected = content.replace( ORIGIN, PROXY_TO );
+
+        assertThat( rewrite( content, singletonMap( PROXY_TO, ORIGIN ), 3 ), equalTo( expected ) );
+    }
+
+    @Test
+    public void replaceSeveralPatternsInOnePass()
+            throws IOException
+    {
+        Map<String, String> replacing = new HashMap<>();
+        replacing.put( "B", "aa" );
+        replacing.put( "C", "ab" );
+
+        assertThat( rewrite( "aaab-aab-ba", replacing, 1 ), equalTo( "BC-Bb-ba" ) );
+    }
+
+    @Test
+    public void replacementContainingOriginIsNotRescanned()
+            throws IOException
+    {
+        assertThat( rewrite( "/a/b /a", singletonMap( "/a/a", "/a" ), 2 ), equalTo( "/a/a/b /a/a" ) );
+    }
+
+    @Test
+    public void partialMatchAtEndIsWrittenOnClose()
+            throws IOException
+    {
+        assertThat( rewrite( "abc /api/content/npm/rem", singletonMap( PROXY_TO, ORIGIN ), 4 ),
+                    equalTo( "abc /api/content/npm/rem" ) );
+    }
+
+    private String rewrite( final String content, final Map<String, String> replacing, final int chunk )
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = content.getBytes( UTF_8 );
+        Random random = new Random( 42 );
+        try (ContentReplacingOutputStream stream = new ContentReplacingOutputStream( out, replacing ))
+        {
+            int i = 0;
+            while ( i < bytes.length )
+            {
+                if ( chunk == 1 )
+                {
+                    stream.write( bytes[i++] );
+                    continue;
+                }
+                int len = Math.min( bytes.length - i, chunk > 0 ? chunk : 1 + random.nextInt( 300 ) );
+                stream.write( bytes, i, len );
+                i += len;
+            }
+        }
+        return new String( out.toByteArray(), UTF_8 );
+    }
+}
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
@@ -139,11 +140,17 @@ public class IndyLifecycleManager
                      versioning.getVersion(), versioning.getBuilder(), versioning.getCommitId(),
                      versioning.getTimestamp() );
 
+        long start = System.nanoTime();
         runBootupActions();
+        long booted = System.nanoTime();
         runMigrationActions();
+        long migrated = System.nanoTime();
         runStartupActions();
+        long started = System.nanoTime();
 
-        logger.info( "...done. Indy is ready to run." );
+        logger.info( "...done. Indy is ready to run. Startup took {}ms (bootup: {}ms, migration: {}ms, startup: {}ms)",
+                     elapsedMillis( start, started ), elapsedMillis( start, booted ),
+                     elapsedMillis( booted, migrated ), elapsedMillis( migrated, started ) );
 
         if ( lifecycleEvents == null )
         {
@@ -192,7 +199,10 @@ public class IndyLifecycleManager
             for ( final BootupAction action : bootupActions )
             {
                 logger.info( "Running bootup action: '{}'", action.getId() );
+                long actionStart = System.nanoTime();
                 action.init();
+                logger.info( "Finished bootup action: '{}' in {}ms", action.getId(),
+                             elapsedMillis( actionStart, System.nanoTime() ) );
             }
         }
     }
@@ -216,7 +226,10 @@ public class IndyLifecycleManager
             for ( final MigrationAction action : migrationActions )
             {
                 logger.info( "Running migration action: '{}'", action.getId() );
+                long actionStart = System.nanoTime();
                 changed = action.migrate() || changed;
+                logger.info( "Finished migration action: '{}' in {}ms", action.getId(),
+                             elapsedMillis( actionStart, System.nanoTime() ) );
             }
         }
     }
@@ -239,7 +252,10 @@ public class IndyLifecycleManager
             for ( final StartupAction action : startupActions )
             {
                 logger.info( "Running startup action: '{}'", action.getId() );
+                long actionStart = System.nanoTime();
                 action.start();
+                logger.info( "Finished startup action: '{}' in {}ms", action.getId(),
+                             elapsedMillis( actionStart, System.nanoTime() ) );
             }
         }
     }
@@ -262,11 +278,19 @@ public class IndyLifecycleManager
             for ( final ShutdownAction action : shutdownActions )
             {
                 logger.info( "Running shutdown action: '{}'", action.getId() );
+                long actionStart = System.nanoTime();
                 action.stop();
+                logger.info( "Finished shutdown action: '{}' in {}ms", action.getId(),
+                             elapsedMillis( actionStart, System.nanoTime() ) );
             }
         }
     }
 
+    private static long elapsedMillis( final long startNanos, final long endNanos )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( endNanos - startNanos );
+    }
+
     /**
      * Create a Runnable that can be used in {@link Runtime#addShutdownHook(Thread)}.
      */
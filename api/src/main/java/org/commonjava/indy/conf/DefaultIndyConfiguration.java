@@ -56,12 +56,24 @@ public class DefaultIndyConfiguration
 
     public static final String CASSANDRA_NFC_PROVIDER = "cassandra";
 
+    public static final String MEMORY_NFC_PROVIDER = "memory";
+
     public static final String DEFAULT_NFC_PROVIDER = ISPN_NFC_PROVIDER;
 
+    public static final int DEFAULT_NFC_MEMORY_MAX_ENTRIES = 2000000;
+
+    public static final int DEFAULT_NFC_CASSANDRA_MAX_INFLIGHT = 64;
+
+    public static final int DEFAULT_NFC_CASSANDRA_BATCH_SIZE = 50;
+
     public static final Boolean DEFAULT_STANDALONE = false;
 
     public static final String DEFAULT_DISPOSABLE_STORE_PATTERN = ".*test.*";
 
+    public static final boolean DEFAULT_CONTENT_RETRIEVE_COALESCE_ENABLED = true;
+
+    public static final int DEFAULT_CONTENT_RETRIEVE_COALESCE_WAIT_SECONDS = 30;
+
     private Integer passthroughTimeoutSeconds;
 
     private Integer notFoundCacheTimeoutSeconds;
@@ -76,6 +88,12 @@ public class DefaultIndyConfiguration
 
     private Integer nfcMaxResultSetSize;
 
+    private Integer nfcMemoryMaxEntries;
+
+    private Integer nfcCassandraMaxInflight;
+
+    private Integer nfcCassandraBatchSize;
+
     private Integer remoteMetadataTimeoutSeconds;
 
     private String mdcHeaders;
@@ -96,8 +114,20 @@ public class DefaultIndyConfiguration
 
     private Boolean standalone;
 
+    private Boolean contentAdoptHardLinkEnabled;
+
     private boolean repositoryFilterEnabled;
 
+    private Boolean repositoryFilterDirectoryIndexEnabled;
+
+    private Boolean repositoryFilterDirectoryIndexSingleNode;
+
+    private Boolean contentRetrieveCoalesceEnabled;
+
+    private Integer contentRetrieveCoalesceWaitSeconds;
+
+    private Boolean storeSnapshotEnabled;
+
     private String gaCacheStorePattern;
 
     private String disposableStorePattern;
@@ -233,6 +263,42 @@ public class DefaultIndyConfiguration
         return nfcMaxResultSetSize == null ? DEFAULT_NFC_MAX_RESULT_SET_SIZE : nfcMaxResultSetSize;
     }
 
+    @ConfigName( "nfc.memory.max.entries" )
+    public void setNfcMemoryMaxEntries( final int maxEntries )
+    {
+        this.nfcMemoryMaxEntries = maxEntries;
+    }
+
+    @Override
+    public int getNfcMemoryMaxEntries()
+    {
+        return nfcMemoryMaxEntries == null ? DEFAULT_NFC_MEMORY_MAX_ENTRIES : nfcMemoryMaxEntries;
+    }
+
+    @ConfigName( "nfc.cassandra.max.inflight" )
+    public void setNfcCassandraMaxInflight( final int maxInflight )
+    {
+        this.nfcCassandraMaxInflight = maxInflight;
+    }
+
+    @Override
+    public int getNfcCassandraMaxInflight()
+    {
+        return nfcCassandraMaxInflight == null ? DEFAULT_NFC_CASSANDRA_MAX_INFLIGHT : nfcCassandraMaxInflight;
+    }
+
+    @ConfigName( "nfc.cassandra.batch.size" )
+    public void setNfcCassandraBatchSize( final int batchSize )
+    {
+        this.nfcCassandraBatchSize = batchSize;
+    }
+
+    @Override
+    public int getNfcCassandraBatchSize()
+    {
+        return nfcCassandraBatchSize == null ? DEFAULT_NFC_CASSANDRA_BATCH_SIZE : nfcCassandraBatchSize;
+    }
+
     @Override
     public File getIndyHomeDir()
     {
@@ -373,6 +439,70 @@ public class DefaultIndyConfiguration
         return repositoryFilterEnabled;
     }
 
+    @ConfigName( "repository.filter.directory.index.enabled" )
+    public void setRepositoryFilterDirectoryIndexEnabled( Boolean repositoryFilterDirectoryIndexEnabled )
+    {
+        this.repositoryFilterDirectoryIndexEnabled = repositoryFilterDirectoryIndexEnabled;
+    }
+
+    @Override
+    public boolean isRepositoryFilterDirectoryIndexEnabled()
+    {
+        return repositoryFilterDirectoryIndexEnabled == null ? false : repositoryFilterDirectoryIndexEnabled;
+    }
+
+    @ConfigName( "repository.filter.directory.index.single.node" )
+    public void setRepositoryFilterDirectoryIndexSingleNode( Boolean repositoryFilterDirectoryIndexSingleNode )
+    {
+        this.repositoryFilterDirectoryIndexSingleNode = repositoryFilterDirectoryIndexSingleNode;
+    }
+
+    @Override
+    public boolean isRepositoryFilterDirectoryIndexSingleNode()
+    {
+        return repositoryFilterDirectoryIndexSingleNode == null ? false : repositoryFilterDirectoryIndexSingleNode;
+    }
+
+    @ConfigName( "content.retrieve.coalesce.enabled" )
+    public void setContentRetrieveCoalesceEnabled( Boolean contentRetrieveCoalesceEnabled )
+    {
+        this.contentRetrieveCoalesceEnabled = contentRetrieveCoalesceEnabled;
+    }
+
+    @Override
+    public boolean isContentRetrieveCoalesceEnabled()
+    {
+        return contentRetrieveCoalesceEnabled == null ?
+                DEFAULT_CONTENT_RETRIEVE_COALESCE_ENABLED :
+                contentRetrieveCoalesceEnabled;
+    }
+
+    @ConfigName( "content.retrieve.coalesce.wait.seconds" )
+    public void setContentRetrieveCoalesceWaitSeconds( Integer contentRetrieveCoalesceWaitSeconds )
+    {
+        this.contentRetrieveCoalesceWaitSeconds = contentRetrieveCoalesceWaitSeconds;
+    }
+
+    @Override
+    public int getContentRetrieveCoalesceWaitSeconds()
+    {
+        return contentRetrieveCoalesceWaitSeconds == null ?
+                DEFAULT_CONTENT_RETRIEVE_COALESCE_WAIT_SECONDS :
+                contentRetrieveCoalesceWaitSeconds;
+    }
+
+    @ConfigName( "store.snapshot.enabled" )
+    public void setStoreSnapshotEnabled( Boolean storeSnapshotEnabled )
+    {
+        this.storeSnapshotEnabled = storeSnapshotEnabled;
+    }
+
+    @Override
+    public boolean isStoreSnapshotEnabled()
+    {
+        return storeSnapshotEnabled == null ? false : storeSnapshotEnabled;
+    }
+
     @ConfigName( "ga-cache.store.pattern" )
     public void getGACacheStorePattern( String gaCacheStorePattern )
     {
@@ -391,6 +521,18 @@ public class DefaultIndyConfiguration
         this.standalone = standalone;
     }
 
+    @Override
+    public boolean isContentAdoptHardLinkEnabled()
+    {
+        return contentAdoptHardLinkEnabled == null ? false : contentAdoptHardLinkEnabled;
+    }
+
+    @ConfigName( "content.adopt.hardlink.enabled" )
+    public void setContentAdoptHardLinkEnabled( Boolean contentAdoptHardLinkEnabled )
+    {
+        this.contentAdoptHardLinkEnabled = contentAdoptHardLinkEnabled;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
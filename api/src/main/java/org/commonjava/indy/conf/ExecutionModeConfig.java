@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.conf;
+
+import org.commonjava.indy.util.VirtualThreads;
+import org.commonjava.propulsor.config.annotation.ConfigName;
+import org.commonjava.propulsor.config.annotation.SectionName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.io.File;
+import java.io.InputStream;
+
+/**
+ * Selects how blocking work is run. In the default 'platform' mode REST requests run on the Undertow worker threads
+ * and blocking tasks on their Weft pools, as configured in [rest] and [threadpools]. In 'virtual' mode (JDK 21+) REST
+ * requests and the blocking Weft pools that opt in run on virtual threads, so their thread counts no longer bound
+ * concurrency; the per-upstream limit below does that instead.
+ */
+@ApplicationScoped
+@SectionName( ExecutionModeConfig.SECTION_NAME )
+public class ExecutionModeConfig
+        implements IndyConfigInfo
+{
+    public static final String SECTION_NAME = "execution";
+
+    public static final String PLATFORM_MODE = "platform";
+
+    public static final String VIRTUAL_MODE = "virtual";
+
+    public static final int DEFAULT_UPSTREAM_MAX_CONCURRENT = 0;
+
+    public static final int DEFAULT_UPSTREAM_ACQUIRE_TIMEOUT_SECONDS = 60;
+
+    public static final long DEFAULT_PINNING_THRESHOLD_MILLIS = 20;
+
+    public static final int DEFAULT_ADAPTIVE_MAX_CONCURRENT = 200;
+
+    public static final int DEFAULT_UPSTREAM_LIMIT_INITIAL = 20;
+
+    public static final int DEFAULT_UPSTREAM_LIMIT_MIN = 2;
+
+    public static final int DEFAULT_UPSTREAM_LATENCY_TOLERANCE_PERCENT = 200;
+
+    public static final int DEFAULT_UPSTREAM_LIMIT_BACKOFF_PERCENT = 90;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private String mode;
+
+    private Integer upstreamMaxConcurrent;
+
+    private Integer upstreamAcquireTimeoutSeconds;
+
+    private Long pinningThresholdMillis;
+
+    private Boolean upstreamLimitAdaptive;
+
+    private Integer upstreamLimitInitial;
+
+    private Integer upstreamLimitMin;
+
+    private Integer upstreamLatencyTolerancePercent;
+
+    private Integer upstreamLimitBackoffPercent;
+
+    private volatile boolean unsupportedWarned;
+
+    public ExecutionModeConfig()
+    {
+    }
+
+    public String getMode()
+    {
+        return mode == null ? PLATFORM_MODE : mode;
+    }
+
+    @ConfigName( "mode" )
+    public void setMode( final String mode )
+    {
+        this.mode = mode == null ? null : mode.trim().toLowerCase();
+    }
+
+    /**
+     * @return true if 'virtual' mode is configured and the JVM supports virtual threads. If it doesn't, this logs a
+     * warning once and Indy keeps running on platform threads.
+     */
+    public boolean isVirtualThreads()
+    {
+        if ( !VIRTUAL_MODE.equals( getMode() ) )
+        {
+            return false;
+        }
+
+        if ( !VirtualThreads.isSupported() )
+        {
+            if ( !unsupportedWarned )
+            {
+                unsupportedWarned = true;
+                logger.warn( "[{}] mode={} needs a JVM with virtual threads (Java 21+), running on {}. Using platform "
+                                     + "threads.", SECTION_NAME, VIRTUAL_MODE, System.getProperty( "java.version" ) );
+            }
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return maximum concurrent remote requests per upstream host; 0 means unlimited (static limit) or
+     * {@link #DEFAULT_ADAPTIVE_MAX_CONCURRENT} (adaptive limit)
+     */
+    public int getUpstreamMaxConcurrent()
+    {
+        if ( upstreamMaxConcurrent == null || upstreamMaxConcurrent < 1 )
+        {
+            return isUpstreamLimitAdaptive() ? DEFAULT_ADAPTIVE_MAX_CONCURRENT : DEFAULT_UPSTREAM_MAX_CONCURRENT;
+        }
+
+        return upstreamMaxConcurrent;
+    }
+
+    @ConfigName( "upstream.max.concurrent" )
+    public void setUpstreamMaxConcurrent( final Integer upstreamMaxConcurrent )
+    {
+        this.upstreamMaxConcurrent = upstreamMaxConcurrent;
+    }
+
+    public int getUpstreamAcquireTimeoutSeconds()
+    {
+        return upstreamAcquireTimeoutSeconds == null ?
+                DEFAULT_UPSTREAM_ACQUIRE_TIMEOUT_SECONDS :
+                upstreamAcquireTimeoutSeconds;
+    }
+
+    @ConfigName( "upstream.acquire.timeout.seconds" )
+    public void setUpstreamAcquireTimeoutSeconds( final Integer upstreamAcquireTimeoutSeconds )
+    {
+        this.upstreamAcquireTimeoutSeconds = upstreamAcquireTimeoutSeconds;
+    }
+
+    /**
+     * @return true if each upstream's limit moves between {@link #getUpstreamLimitMin()} and
+     * {@link #getUpstreamMaxConcurrent()} with the observed latency, and requests over it are rejected at once
+     * instead of waiting
+     */
+    public boolean isUpstreamLimitAdaptive()
+    {
+        return upstreamLimitAdaptive == null ? false : upstreamLimitAdaptive;
+    }
+
+    @ConfigName( "upstream.limit.adaptive" )
+    public void setUpstreamLimitAdaptive( final Boolean upstreamLimitAdaptive )
+    {
+        this.upstreamLimitAdaptive = upstreamLimitAdaptive;
+    }
+
+    public int getUpstreamLimitInitial()
+    {
+        final int initial = upstreamLimitInitial == null ? DEFAULT_UPSTREAM_LIMIT_INITIAL : upstreamLimitInitial;
+        return Math.max( getUpstreamLimitMin(), Math.min( initial, getUpstreamMaxConcurrent() ) );
+    }
+
+    @ConfigName( "upstream.limit.initial" )
+    public void setUpstreamLimitInitial( final Integer upstreamLimitInitial )
+    {
+        this.upstreamLimitInitial = upstreamLimitInitial;
+    }
+
+    public int getUpstreamLimitMin()
+    {
+        final int min = upstreamLimitMin == null ? DEFAULT_UPSTREAM_LIMIT_MIN : upstreamLimitMin;
+        return Math.max( 1, Math.min( min, getUpstreamMaxConcurrent() ) );
+    }
+
+    @ConfigName( "upstream.limit.min" )
+    public void setUpstreamLimitMin( final Integer upstreamLimitMin )
+    {
+        this.upstreamLimitMin = upstreamLimitMin;
+    }
+
+    /**
+     * @return how many times its usual latency a response may take before the upstream counts as congested
+     */
+    public double getUpstreamLatencyTolerance()
+    {
+        return ( upstreamLatencyTolerancePercent == null ?
+                DEFAULT_UPSTREAM_LATENCY_TOLERANCE_PERCENT :
+                upstreamLatencyTolerancePercent ) / 100.0;
+    }
+
+    @ConfigName( "upstream.limit.latency.tolerance.percent" )
+    public void setUpstreamLatencyTolerancePercent( final Integer upstreamLatencyTolerancePercent )
+    {
+        this.upstreamLatencyTolerancePercent = upstreamLatencyTolerancePercent;
+    }
+
+    /**
+     * @return factor the limit is multiplied by when the upstream is congested
+     */
+    public double getUpstreamLimitBackoff()
+    {
+        return ( upstreamLimitBackoffPercent == null ?
+                DEFAULT_UPSTREAM_LIMIT_BACKOFF_PERCENT :
+                upstreamLimitBackoffPercent ) / 100.0;
+    }
+
+    @ConfigName( "upstream.limit.backoff.percent" )
+    public void setUpstreamLimitBackoffPercent( final Integer upstreamLimitBackoffPercent )
+    {
+        this.upstreamLimitBackoffPercent = upstreamLimitBackoffPercent;
+    }
+
+    public long getPinningThresholdMillis()
+    {
+        return pinningThresholdMillis == null ? DEFAULT_PINNING_THRESHOLD_MILLIS : pinningThresholdMillis;
+    }
+
+    @ConfigName( "pinning.threshold.millis" )
+    public void setPinningThresholdMillis( final Long pinningThresholdMillis )
+    {
+        this.pinningThresholdMillis = pinningThresholdMillis;
+    }
+
+    @Override
+    public String getDefaultConfigFileName()
+    {
+        return new File( IndyConfigInfo.CONF_INCLUDES_DIR, "execution.conf" ).getPath();
+    }
+
+    @Override
+    public InputStream getDefaultConfig()
+    {
+        return Thread.currentThread().getContextClassLoader().getResourceAsStream( "default-execution.conf" );
+    }
+}
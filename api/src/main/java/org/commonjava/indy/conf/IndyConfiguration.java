@@ -69,6 +69,25 @@ public interface IndyConfiguration
      */
     int getNfcMaxResultSetSize();
 
+    /**
+     * Hard cap on the number of entries held by the in-memory NFC (nfc.provider = memory). When the cap is reached,
+     * new entries must win a frequency-based admission check against the least-recently-used entry.
+     * @since 2.5.0
+     */
+    int getNfcMemoryMaxEntries();
+
+    /**
+     * Max number of asynchronous statements the Cassandra NFC keeps in flight at once.
+     * @since 2.5.0
+     */
+    int getNfcCassandraMaxInflight();
+
+    /**
+     * Max number of statements grouped into one unlogged batch (per storekey partition) by bulk Cassandra NFC operations.
+     * @since 2.5.0
+     */
+    int getNfcCassandraBatchSize();
+
     File getIndyHomeDir();
 
     File getIndyConfDir();
@@ -91,7 +110,7 @@ public interface IndyConfiguration
 
     String getAffectedGroupsExcludeFilter();
 
-    String getNfcProvider(); // ispn or cassandra (default)
+    String getNfcProvider(); // ispn (default), cassandra or memory
 
     /**
      * Let indy run standalone local mode, which will not enable cassandra path mapped storage
@@ -100,8 +119,51 @@ public interface IndyConfiguration
      */
     Boolean isStandalone();
 
+    /**
+     * In standalone (filesystem storage) mode, let adopted content (e.g. promoted paths) be hard-linked from the
+     * source store instead of copied. Only safe if neither copy is later overwritten in place. Path-mapped storage
+     * shares physical files on its own and ignores this.
+     * @since 2.5.0
+     */
+    boolean isContentAdoptHardLinkEnabled();
+
+    /**
+     * Let concurrent retrievals of the same path from the same group share one member walk / remote fetch, instead of
+     * each request thread repeating it.
+     * @since 2.5.0
+     */
+    boolean isContentRetrieveCoalesceEnabled();
+
+    /**
+     * Max time a coalesced retrieval waits for the in-flight one before retrieving on its own.
+     * @since 2.5.0
+     */
+    int getContentRetrieveCoalesceWaitSeconds();
+
+    /**
+     * Keep a binary snapshot of all store definitions next to the flat-file definitions, so a restart can skip parsing
+     * every definition file while the snapshot still matches their checksum.
+     * @since 2.5.0
+     */
+    boolean isStoreSnapshotEnabled();
+
     boolean isRepositoryFilterEnabled();
 
+    /**
+     * With path-mapped storage, keep an in-memory Bloom filter of the directories of each hosted repository, so group
+     * repository filtering can skip hosted members which certainly don't contain a path without querying the path DB.
+     * @since 2.5.0
+     */
+    boolean isRepositoryFilterDirectoryIndexEnabled();
+
+    /**
+     * The directory index only learns about new files from this node's file storage events, so it can only rule
+     * directories out when this node is the only one writing to the path-mapped storage. Without this, the index is
+     * not used.
+     * @since 2.5.0
+     */
+    boolean isRepositoryFilterDirectoryIndexSingleNode();
+
     String getGACacheStorePattern();
 
     /**
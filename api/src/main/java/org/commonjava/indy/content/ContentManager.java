@@ -43,6 +43,12 @@ public interface ContentManager
 
     String SUPPRESS_EVENTS = "suppress-events";
 
+    /**
+     * Set to {@link Boolean#TRUE} by bulk importers to skip per-file metadata clean-up when storing; the importer is
+     * then responsible for triggering it once per affected GA when the import finishes.
+     */
+    String DEFER_METADATA_REFRESH = "defer-metadata-refresh";
+
     /**
      * Retrieve the content at the given path from the first store possible, then return then return the transfer that references the content without 
      * iterating any farther.
@@ -151,6 +157,16 @@ public interface ContentManager
     Transfer store( final ArtifactStore store , final String path , final InputStream stream , TransferOperation op , EventMetadata eventMetadata  )
         throws IndyWorkflowException;
 
+    /**
+     * Store the content of an existing {@link Transfer} (usually in another hosted store) under the given path in the
+     * given {@link ArtifactStore}, letting the storage layer share or link the content instead of re-reading and
+     * re-writing it. Content metadata (size, checksums) already known for the source is carried over rather than
+     * recalculated, and the same storage events and maintenance actions as
+     * {@link #store(ArtifactStore, String, InputStream, TransferOperation, EventMetadata)} take place.
+     */
+    Transfer adopt( final ArtifactStore store, final String path, final Transfer source, EventMetadata eventMetadata )
+        throws IndyWorkflowException;
+
 //    /**
 //     * Store the content contained in the {@link InputStream} under the given path within the storage directory for first appropriate instance among
 //     * the given {@link ArtifactStore}'s. Use the given {@link TransferOperation} to trigger the appropriate tangential maintenance, etc. actions.
@@ -140,6 +140,16 @@ public interface DownloadManager
                     TransferOperation op , EventMetadata eventMetadata  )
         throws IndyWorkflowException;
 
+    /**
+     * Store the content of an existing {@link Transfer} under the given path within the storage for the given
+     * {@link HostedRepository}, without streaming it through the transfer decorators. The storage layer shares or
+     * links the underlying content where it can, and falls back to a plain copy otherwise. A storage event is still
+     * fired for the new path. The same deployment rules as {@link #store(ArtifactStore, String, InputStream, TransferOperation, EventMetadata)}
+     * apply.
+     */
+    Transfer adopt( final ArtifactStore store, final String path, final Transfer source, EventMetadata eventMetadata )
+        throws IndyWorkflowException;
+
     boolean delete( final ArtifactStore store, String path )
     throws IndyWorkflowException;
 
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.content;
+
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
+import org.commonjava.maven.galley.spi.io.TransferDecorator;
+
+/**
+ * A {@link TransferDecorator} that only wraps the streams of some transfers, and can tell which ones before a stream
+ * is opened. The storage provider's decorator pipeline uses this to leave it out of reads / writes it would pass
+ * through untouched; other operations (exists, listing, ...) are always offered to it.
+ * <p>
+ * Implementations must answer from the transfer alone (location, path), and {@link #decorateRead} /
+ * {@link #decorateWrite} must return the stream unchanged whenever the matching method here returns false.
+ */
+public interface SelectiveTransferDecorator
+        extends TransferDecorator
+{
+    boolean decoratesRead( Transfer transfer );
+
+    boolean decoratesWrite( Transfer transfer, TransferOperation op );
+}
@@ -100,6 +100,15 @@ public interface StoreDataManager
                                 boolean fireEvents, EventMetadata eventMetadata )
             throws IndyDataException;
 
+    /**
+     * Store a batch of modified or new {@link ArtifactStore} instances as one change. Store-update events are fired once
+     * for the whole batch (per update type) rather than once per store.
+     * @return the keys of the stores that were written
+     */
+    Set<StoreKey> storeArtifactStores( Collection<? extends ArtifactStore> stores, final ChangeSummary summary,
+                                       EventMetadata eventMetadata )
+            throws IndyDataException;
+
     /**
      * Delete the {@link ArtifactStore} corresponding to the given {@link StoreKey}. If the store doesn't exist, simply return (don't fail).
      * @param eventMetadata TODO
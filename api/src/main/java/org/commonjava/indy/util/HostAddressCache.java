@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Host name to IP address resolution with a TTL, for code matching URLs by address (e.g. finding remote repositories
+ * by URL) that would otherwise resolve the same few hosts over and over. Failed lookups are remembered for a shorter
+ * time. The cache holds a bounded number of hosts; once full, the entries closest to expiring make room.
+ */
+public class HostAddressCache
+{
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.SECONDS.toMillis( 60 );
+
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = TimeUnit.SECONDS.toMillis( 10 );
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private static final HostAddressCache INSTANCE =
+            new HostAddressCache( DEFAULT_TTL_MILLIS, DEFAULT_NEGATIVE_TTL_MILLIS );
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final long ttlMillis;
+
+    private final long negativeTtlMillis;
+
+    private final int maxEntries;
+
+    public HostAddressCache( final long ttlMillis, final long negativeTtlMillis )
+    {
+        this( ttlMillis, negativeTtlMillis, DEFAULT_MAX_ENTRIES );
+    }
+
+    public HostAddressCache( final long ttlMillis, final long negativeTtlMillis, final int maxEntries )
+    {
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    public static HostAddressCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the IP address of host, as given by {@link InetAddress#getHostAddress()}
+     * @throws UnknownHostException if the host can't be resolved (now, or when last tried within the negative TTL)
+     */
+    public String resolve( final String host )
+            throws UnknownHostException
+    {
+        final long now = System.currentTimeMillis();
+        Entry entry = entries.get( host );
+        if ( entry == null || entry.expires < now )
+        {
+            entry = lookup( host, now );
+            entries.put( host, entry );
+            if ( entries.size() > maxEntries )
+            {
+                evict( now );
+            }
+        }
+
+        if ( entry.address == null )
+        {
+            throw new UnknownHostException( host );
+        }
+
+        return entry.address;
+    }
+
+    public void clear()
+    {
+        entries.clear();
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    protected String lookupAddress( final String host )
+            throws UnknownHostException
+    {
+        InetAddress address = InetAddress.getByName( host );
+        return address == null ? null : address.getHostAddress();
+    }
+
+    private synchronized void evict( final long now )
+    {
+        entries.values().removeIf( e -> e.expires < now );
+
+        // still over with live entries: drop the ones expiring soonest, making some headroom so this doesn't sort the
+        // whole cache again on the next miss
+        final int excess = entries.size() - ( maxEntries - maxEntries / 10 );
+        if ( entries.size() > maxEntries && excess > 0 )
+        {
+            final List<String> evicted = entries.entrySet()
+                                                .stream()
+                                                .sorted( Comparator.comparingLong( e -> e.getValue().expires ) )
+                                                .limit( excess )
+                                                .map( Map.Entry::getKey )
+                                                .collect( Collectors.toList() );
+            evicted.forEach( entries::remove );
+        }
+    }
+
+    private Entry lookup( final String host, final long now )
+    {
+        try
+        {
+            return new Entry( lookupAddress( host ), now + ttlMillis );
+        }
+        catch ( UnknownHostException e )
+        {
+            return new Entry( null, now + negativeTtlMillis );
+        }
+    }
+
+    private static final class Entry
+    {
+        private final String address;
+
+        private final long expires;
+
+        private Entry( final String address, final long expires )
+        {
+            this.address = address;
+            this.expires = expires;
+        }
+    }
+}
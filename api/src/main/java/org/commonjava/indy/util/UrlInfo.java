@@ -15,7 +15,6 @@
  */
 package org.commonjava.indy.util;
 
-import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
@@ -157,15 +156,11 @@ public final class UrlInfo
         return fileWithNoLastSlash;
     }
 
+    /**
+     * Resolved through {@link HostAddressCache}, so repeated calls for the same host don't each hit DNS.
+     */
     public String getIpForUrl() throws UnknownHostException{
-        InetAddress address = InetAddress.getByName( getHost() );
-
-        String ip = null;
-        if ( address != null )
-        {
-            ip = address.getHostAddress();
-        }
-        return ip;
+        return HostAddressCache.getInstance().resolve( getHost() );
     }
 
 
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads from code compiled for an older JDK. Everything goes through reflection; on a JDK without
+ * virtual threads {@link #isSupported()} is false and the factory methods throw {@link IllegalStateException}, so
+ * callers check first and keep their platform-thread pools.
+ */
+public final class VirtualThreads
+{
+    private static final Method OF_VIRTUAL;
+
+    private static final Method BUILDER_NAME;
+
+    private static final Method BUILDER_FACTORY;
+
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    private static final Method IS_VIRTUAL;
+
+    static
+    {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        Method isVirtual = null;
+        try
+        {
+            final Class<?> builder = Class.forName( "java.lang.Thread$Builder" );
+            ofVirtual = Thread.class.getMethod( "ofVirtual" );
+            builderName = builder.getMethod( "name", String.class, long.class );
+            builderFactory = builder.getMethod( "factory" );
+            newThreadPerTaskExecutor = Executors.class.getMethod( "newThreadPerTaskExecutor", ThreadFactory.class );
+            isVirtual = Thread.class.getMethod( "isVirtual" );
+
+            // preview builds (JDK 19/20) have the methods but refuse to run them unless --enable-preview is set
+            ofVirtual.invoke( null );
+        }
+        catch ( ReflectiveOperationException | RuntimeException | LinkageError e )
+        {
+            ofVirtual = null;
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+        IS_VIRTUAL = isVirtual;
+    }
+
+    private VirtualThreads()
+    {
+    }
+
+    public static boolean isSupported()
+    {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @return a factory for virtual threads named prefix + counter (prefix0, prefix1, ...)
+     */
+    public static ThreadFactory newThreadFactory( final String prefix )
+    {
+        checkSupported();
+        try
+        {
+            final Object builder = BUILDER_NAME.invoke( OF_VIRTUAL.invoke( null ), prefix, 0L );
+            return (ThreadFactory) BUILDER_FACTORY.invoke( builder );
+        }
+        catch ( IllegalAccessException | InvocationTargetException e )
+        {
+            throw new IllegalStateException( "Cannot create virtual thread factory: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * @return an executor starting a new virtual thread, named prefix + counter, for each task
+     */
+    public static ExecutorService newExecutor( final String prefix )
+    {
+        final ThreadFactory factory = newThreadFactory( prefix );
+        try
+        {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke( null, factory );
+        }
+        catch ( IllegalAccessException | InvocationTargetException e )
+        {
+            throw new IllegalStateException( "Cannot create virtual thread executor: " + e.getMessage(), e );
+        }
+    }
+
+    public static boolean isVirtual( final Thread thread )
+    {
+        if ( !isSupported() )
+        {
+            return false;
+        }
+
+        try
+        {
+            return (Boolean) IS_VIRTUAL.invoke( thread );
+        }
+        catch ( IllegalAccessException | InvocationTargetException e )
+        {
+            return false;
+        }
+    }
+
+    private static void checkSupported()
+    {
+        if ( !isSupported() )
+        {
+            throw new IllegalStateException(
+                    "Virtual threads are not available in this JVM (" + System.getProperty( "java.version" ) + ")" );
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.util;
+
+import org.junit.Test;
+
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class HostAddressCacheTest
+{
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Test
+    public void resolvesEachHostOnceWithinTtl()
+            throws Exception
+    {
+        HostAddressCache cache = new CountingCache( 60000, 60000 );
+
+        assertThat( cache.resolve( "repo.example.com" ), equalTo( "10.0.0.1" ) );
+        assertThat( cache.resolve( "repo.example.com" ), equalTo( "10.0.0.1" ) );
+        assertThat( lookups.get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void resolvesAgainOnceExpired()
+            throws Exception
+    {
+        HostAddressCache cache = new CountingCache( -1, -1 );
+
+        cache.resolve( "repo.example.com" );
+        cache.resolve( "repo.example.com" );
+        assertThat( lookups.get(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void remembersFailedLookups()
+    {
+        HostAddressCache cache = new CountingCache( 60000, 60000 );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            try
+            {
+                cache.resolve( "missing.example.com" );
+                assertTrue( "Expected UnknownHostException", false );
+            }
+            catch ( UnknownHostException e )
+            {
+                assertThat( e.getMessage(), equalTo( "missing.example.com" ) );
+            }
+        }
+        assertThat( lookups.get(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void staysBoundedWhileEntriesAreLive()
+            throws Exception
+    {
+        HostAddressCache cache = new CountingCache( 60000, 60000, 10 );
+
+        for ( int i = 0; i < 50; i++ )
+        {
+            cache.resolve( "repo" + i + ".example.com" );
+            Thread.sleep( 1 );
+        }
+        assertTrue( "Cache grew to: " + cache.size(), cache.size() <= 10 );
+
+        // the newest hosts are the last to go
+        cache.resolve( "repo49.example.com" );
+        assertThat( lookups.get(), equalTo( 50 ) );
+    }
+
+    private final class CountingCache
+            extends HostAddressCache
+    {
+        private CountingCache( final long ttlMillis, final long negativeTtlMillis )
+        {
+            super( ttlMillis, negativeTtlMillis );
+        }
+
+        private CountingCache( final long ttlMillis, final long negativeTtlMillis, final int maxEntries )
+        {
+            super( ttlMillis, negativeTtlMillis, maxEntries );
+        }
+
+        @Override
+        protected String lookupAddress( final String host )
+                throws UnknownHostException
+        {
+            lookups.incrementAndGet();
+            if ( host.startsWith( "missing" ) )
+            {
+                throw new UnknownHostException( host );
+            }
+            return "10.0.0.1";
+        }
+    }
+}
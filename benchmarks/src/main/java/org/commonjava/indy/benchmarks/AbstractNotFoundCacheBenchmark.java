@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.benchmarks;
+
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.core.inject.AbstractNotFoundCache;
+import org.commonjava.indy.core.inject.BoundedMemoryNotFoundCache;
+import org.commonjava.indy.core.inject.ExpiringMemoryNotFoundCache;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Location;
+import org.commonjava.maven.galley.model.SimpleLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the bounded in-memory NFC against the older expiring one for lookups (hits and misses), inserts and the
+ * location-scoped queries / clears, from several threads at once as the content path does. Entries are spread over a
+ * handful of locations; the location-scoped operations work on small locations of their own, so they show what it
+ * costs to find a few entries among all the others. Subclasses set the entry counts.
+ */
+@State( Scope.Benchmark )
+public abstract class AbstractNotFoundCacheBenchmark
+{
+    private static final int LOCATIONS = 16;
+
+    private static final int LOCATION_ENTRIES = 32;
+
+    private static final AtomicInteger THREAD_LOCATIONS = new AtomicInteger();
+
+    @Param( { "bounded", "expiring" } )
+    public String impl;
+
+    private AbstractNotFoundCache nfc;
+
+    private ConcreteResource[] present;
+
+    private ConcreteResource[] absent;
+
+    private Location queried;
+
+    protected abstract int entries();
+
+    @State( Scope.Thread )
+    public static class Cursor
+    {
+        private final Location location =
+                new SimpleLocation( "http://cleared-" + THREAD_LOCATIONS.incrementAndGet() + ".example.com/" );
+
+        private final ConcreteResource[] resources = resources( location, "cleared" );
+
+        private int idx;
+
+        private long inserted;
+
+        int next( final int size )
+        {
+            idx = ( idx + 1 ) % size;
+            return idx;
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        final int entries = entries();
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setNfcMemoryMaxEntries( entries * 2 );
+
+        nfc = "bounded".equals( impl ) ?
+                new BoundedMemoryNotFoundCache( config ) :
+                new ExpiringMemoryNotFoundCache( config );
+
+        final Location[] locations = new Location[LOCATIONS];
+        for ( int i = 0; i < LOCATIONS; i++ )
+        {
+            locations[i] = new SimpleLocation( "http://repo-" + i + ".example.com/" );
+        }
+
+        present = new ConcreteResource[entries];
+        absent = new ConcreteResource[entries];
+        for ( int i = 0; i < entries; i++ )
+        {
+            final Location location = locations[i % LOCATIONS];
+            present[i] = new ConcreteResource( location, "org/foo/bar-" + i + "/1.0/bar-" + i + "-1.0.pom" );
+            absent[i] = new ConcreteResource( location, "org/foo/baz-" + i + "/1.0/baz-" + i + "-1.0.pom" );
+            nfc.addMissing( present[i] );
+        }
+
+        queried = new SimpleLocation( "http://queried.example.com/" );
+        for ( final ConcreteResource resource : resources( queried, "queried" ) )
+        {
+            nfc.addMissing( resource );
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if ( nfc instanceof BoundedMemoryNotFoundCache )
+        {
+            ( (BoundedMemoryNotFoundCache) nfc ).stop();
+        }
+    }
+
+    @Benchmark
+    public boolean isMissingHit( final Cursor cursor )
+    {
+        return nfc.isMissing( present[cursor.next( entries() )] );
+    }
+
+    @Benchmark
+    public boolean isMissingMiss( final Cursor cursor )
+    {
+        return nfc.isMissing( absent[cursor.next( entries() )] );
+    }
+
+    @Benchmark
+    public void addMissing( final Cursor cursor )
+    {
+        final ConcreteResource resource = present[cursor.next( entries() )];
+        nfc.addMissing( new ConcreteResource( resource.getLocation(),
+                                              resource.getPath() + "." + Thread.currentThread().getId() + "."
+                                                      + cursor.inserted++ ) );
+    }
+
+    /**
+     * The paths of one small location, as the NFC admin endpoint lists them.
+     */
+    @Benchmark
+    public Set<String> getMissingForLocation()
+    {
+        return nfc.getMissing( queried );
+    }
+
+    /**
+     * Clears a small location (as happens when a store changes) and fills it again, so every invocation has something
+     * to clear. Each thread uses its own location.
+     */
+    @Benchmark
+    public void clearMissingForLocation( final Cursor cursor )
+    {
+        nfc.clearMissing( cursor.location );
+        for ( final ConcreteResource resource : cursor.resources )
+        {
+            nfc.addMissing( resource );
+        }
+    }
+
+    private static ConcreteResource[] resources( final Location location, final String name )
+    {
+        final ConcreteResource[] resources = new ConcreteResource[LOCATION_ENTRIES];
+        for ( int i = 0; i < LOCATION_ENTRIES; i++ )
+        {
+            resources[i] = new ConcreteResource( location, "org/" + name + "/lib-" + i + "/1.0/lib-" + i + "-1.0.pom" );
+        }
+
+        return resources;
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the normal JMH command line, but defaults to writing JSON results to
+ * target/jmh-result.json so that runs can be diffed against a stored baseline (e.g. with jmh.morethan.io or any
+ * JSON diff). Pass -rf / -rff explicitly to override.
+ * <p>
+ * Benchmarks whose class name starts with 'Large' need a big heap and long setup, so they only run when one of the
+ * include patterns names them (e.g. <tt>java -jar benchmarks.jar LargeNotFoundCacheBenchmark</tt>).
+ */
+public final class BenchmarkRunner
+{
+    public static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+    public static final String LARGE_PREFIX = "Large";
+
+    private BenchmarkRunner()
+    {
+    }
+
+    public static void main( final String[] args )
+            throws Exception
+    {
+        final CommandLineOptions cmdOptions = new CommandLineOptions( args );
+        if ( cmdOptions.shouldHelp() )
+        {
+            cmdOptions.showHelp();
+            return;
+        }
+
+        if ( cmdOptions.shouldList() )
+        {
+            new Runner( cmdOptions ).list();
+            return;
+        }
+
+        final ChainedOptionsBuilder builder = new OptionsBuilder().parent( cmdOptions );
+
+        if ( cmdOptions.getIncludes().stream().noneMatch( include -> include.contains( LARGE_PREFIX ) ) )
+        {
+            builder.exclude( "\\." + LARGE_PREFIX + "\\w*\\." );
+        }
+
+        if ( !cmdOptions.getResultFormat().hasValue() )
+        {
+            builder.resultFormat( ResultFormatType.JSON );
+        }
+
+        if ( !cmdOptions.getResult().hasValue() )
+        {
+            final File result = new File( DEFAULT_RESULT_FILE );
+            result.getAbsoluteFile().getParentFile().mkdirs();
+            builder.result( result.getPath() );
+        }
+
+        new Runner( builder.build() ).run();
+    }
+}
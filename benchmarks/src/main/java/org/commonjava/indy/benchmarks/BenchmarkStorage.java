@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.commonjava.indy.content.IndyPathGenerator;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.cache.FileCacheProvider;
+import org.commonjava.maven.galley.event.NoOpFileEventManager;
+import org.commonjava.maven.galley.io.TransferDecoratorManager;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
+import org.commonjava.maven.galley.spi.io.TransferDecorator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+/**
+ * Galley storage for the benchmarks. Galley has no heap-backed cache provider, so this is a {@link FileCacheProvider}
+ * rooted in a scratch directory; /dev/shm is used when it exists, keeping the content in memory and the numbers free
+ * of disk latency.
+ */
+public final class BenchmarkStorage
+{
+    private static final Path SHM = Paths.get( "/dev/shm" );
+
+    private final File root;
+
+    private final FileCacheProvider cacheProvider;
+
+    public BenchmarkStorage( final TransferDecorator... decorators )
+            throws IOException
+    {
+        this( new TransferDecoratorManager( decorators ) );
+    }
+
+    public BenchmarkStorage( final TransferDecoratorManager decoratorManager )
+            throws IOException
+    {
+        root = Files.isDirectory( SHM ) && Files.isWritable( SHM ) ?
+                Files.createTempDirectory( SHM, "indy-bench-" ).toFile() :
+                Files.createTempDirectory( "indy-bench-" ).toFile();
+
+        cacheProvider = new FileCacheProvider( root, new IndyPathGenerator( Collections.emptySet() ),
+                                               new NoOpFileEventManager(), decoratorManager );
+    }
+
+    public FileCacheProvider getCacheProvider()
+    {
+        return cacheProvider;
+    }
+
+    public Transfer getTransfer( final ArtifactStore store, final String path )
+    {
+        return cacheProvider.getTransfer( new ConcreteResource( LocationUtils.toLocation( store ), path ) );
+    }
+
+    public Transfer write( final ArtifactStore store, final String path, final byte[] content )
+            throws IOException
+    {
+        final Transfer transfer = getTransfer( store, path );
+        try (OutputStream out = transfer.openOutputStream( TransferOperation.UPLOAD, false ))
+        {
+            out.write( content );
+        }
+
+        return transfer;
+    }
+
+    public void delete()
+            throws IOException
+    {
+        FileUtils.deleteDirectory( root );
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.benchmarks;
+
+import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.content.DirectContentAccess;
+import org.commonjava.indy.content.StoreResource;
+import org.commonjava.indy.core.content.DefaultContentDigester;
+import org.commonjava.indy.data.IndyDataException;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.subsys.infinispan.BasicCacheHandle;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.ChecksummingTransferDecorator;
+import org.commonjava.maven.galley.io.SpecialPathManagerImpl;
+import org.commonjava.maven.galley.io.checksum.ChecksummingDecoratorAdvisor;
+import org.commonjava.maven.galley.io.checksum.Md5GeneratorFactory;
+import org.commonjava.maven.galley.io.checksum.Sha1GeneratorFactory;
+import org.commonjava.maven.galley.io.checksum.Sha256GeneratorFactory;
+import org.commonjava.maven.galley.io.checksum.TransferMetadata;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.spi.metrics.TimingProvider;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.commonjava.maven.galley.io.checksum.ChecksummingDecoratorAdvisor.ChecksumAdvice.NO_DECORATE;
+
+/**
+ * {@link DefaultContentDigester#digest(StoreKey, String, EventMetadata)} on stored files of several sizes, with the
+ * same checksumming decorator setup as the default storage provider. 'uncached' drops the cached metadata before
+ * each call, so it measures the forced re-read and MD5 / SHA-1 / SHA-256 calculation; 'cached' is the lookup path.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ContentDigestBenchmark
+{
+    private static final String PATH = "org/commonjava/indy/indy-bench/1.0/indy-bench-1.0.jar";
+
+    @Param( { "16384", "1048576", "16777216" } )
+    public int size;
+
+    private DefaultCacheManager cacheManager;
+
+    private BenchmarkStorage storage;
+
+    private DefaultContentDigester digester;
+
+    private StoreKey key;
+
+    private Transfer transfer;
+
+    @Setup
+    public void setup()
+            throws IOException, IndyDataException, IndyWorkflowException
+    {
+        final StoreDataManager storeDataManager = new MemoryStoreDataManager( true );
+        final HostedRepository hosted = new HostedRepository( MAVEN_PKG_KEY, "local-deployments" );
+        storeDataManager.storeArtifactStore( hosted, new ChangeSummary( ChangeSummary.SYSTEM_USER, "benchmark setup" ),
+                                             false, false, new EventMetadata() );
+        key = hosted.getKey();
+
+        cacheManager = new DefaultCacheManager( new ConfigurationBuilder().build() );
+        final StorageContentAccess contentAccess = new StorageContentAccess( storeDataManager );
+        digester = new DefaultContentDigester( contentAccess,
+                                               new BasicCacheHandle<String, TransferMetadata>( "content-metadata",
+                                                                                               cacheManager.getCache(
+                                                                                                       "content-metadata" ) ) );
+
+        // checksums are only calculated when forced, which is what digest() does on a cache miss
+        final ChecksummingDecoratorAdvisor noAdvice = ( txfr, op, eventMetadata ) -> NO_DECORATE;
+        final Function<String, TimingProvider> timers = name -> new TimingProvider()
+        {
+            @Override
+            public void start( final String name )
+            {
+            }
+
+            @Override
+            public long stop()
+            {
+                return 0;
+            }
+        };
+
+        storage = new BenchmarkStorage(
+                new ChecksummingTransferDecorator( noAdvice, noAdvice, new SpecialPathManagerImpl(), timers, digester,
+                                                   new Md5GeneratorFactory(), new Sha1GeneratorFactory(),
+                                                   new Sha256GeneratorFactory() ) );
+        contentAccess.storage = storage;
+
+        final byte[] content = new byte[size];
+        new Random( 42 ).nextBytes( content );
+        transfer = storage.write( hosted, PATH, content );
+
+        digester.digest( key, PATH, new EventMetadata() );
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        storage.delete();
+        cacheManager.stop();
+    }
+
+    @Benchmark
+    public TransferMetadata cached()
+            throws IndyWorkflowException
+    {
+        return digester.digest( key, PATH, new EventMetadata() );
+    }
+
+    @Benchmark
+    public TransferMetadata uncached()
+            throws IndyWorkflowException
+    {
+        digester.removeMetadata( transfer );
+        return digester.digest( key, PATH, new EventMetadata() );
+    }
+
+    /**
+     * Resolves stores through the data manager and content through {@link BenchmarkStorage}, which is all
+     * {@link DefaultContentDigester} needs.
+     */
+    private static final class StorageContentAccess
+            implements DirectContentAccess
+    {
+        private final StoreDataManager storeDataManager;
+
+        private BenchmarkStorage storage;
+
+        private StorageContentAccess( final StoreDataManager storeDataManager )
+        {
+            this.storeDataManager = storeDataManager;
+        }
+
+        @Override
+        public Transfer retrieveRaw( final ArtifactStore store, final String path, final EventMetadata eventMetadata )
+        {
+            final Transfer transfer = getTransfer( store, path );
+            return transfer.exists() ? transfer : null;
+        }
+
+        @Override
+        public List<Transfer> retrieveAllRaw( final List<? extends ArtifactStore> stores, final String path,
+                                              final EventMetadata eventMetadata )
+        {
+            final List<Transfer> result = new ArrayList<>();
+            for ( final ArtifactStore store : stores )
+            {
+                final Transfer transfer = retrieveRaw( store, path, eventMetadata );
+                if ( transfer != null )
+                {
+                    result.add( transfer );
+                }
+            }
+
+            return result;
+        }
+
+        @Override
+        public Transfer getTransfer( final ArtifactStore store, final String path )
+        {
+            return storage.getTransfer( store, path );
+        }
+
+        @Override
+        public Transfer getTransfer( final StoreKey storeKey, final String path )
+                throws IndyWorkflowException
+        {
+            try
+            {
+                final ArtifactStore store = storeDataManager.getArtifactStore( storeKey );
+                return store == null ? null : getTransfer( store, path );
+            }
+            catch ( final IndyDataException e )
+            {
+                throw new IndyWorkflowException( "Failed to lookup store: %s. Reason: %s", e, storeKey,
+                                                 e.getMessage() );
+            }
+        }
+
+        @Override
+        public boolean exists( final ArtifactStore store, final String path )
+        {
+            return getTransfer( store, path ).exists();
+        }
+
+        @Override
+        public List<StoreResource> listRaw( final ArtifactStore store, final String parentPath )
+        {
+            return emptyList();
+        }
+
+        @Override
+        public List<StoreResource> listRaw( final ArtifactStore store, final String parentPath,
+                                            final EventMetadata eventMetadata )
+        {
+            return emptyList();
+        }
+
+        @Override
+        public Map<String, List<StoreResource>> listRaw( final ArtifactStore store, final List<String> parentPathList )
+        {
+            return emptyMap();
+        }
+
+        @Override
+        public Map<String, List<StoreResource>> listRaw( final ArtifactStore store, final List<String> parentPathList,
+                                                         final EventMetadata eventMetadata )
+        {
+            return emptyMap();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.benchmarks;
+
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.data.IndyDataException;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+
+/**
+ * Group membership resolution and store queries on synthetic deep groups: a chain of nested groups, each holding a
+ * number of hosted and remote members, with every level also re-including a shared remote to exercise the
+ * de-duplication. Runs against {@link MemoryStoreDataManager}, with queries served from the store snapshot or, with
+ * {@code snapshot=false}, by the query code scanning the stores as other managers do.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class GroupOrderingBenchmark
+{
+    private static final String TOP_GROUP = "level-0";
+
+    @Param( { "4", "16" } )
+    public int depth;
+
+    @Param( { "8", "64" } )
+    public int width;
+
+    @Param( { "true", "false" } )
+    public boolean snapshot;
+
+    private StoreDataManager storeDataManager;
+
+    private StoreKey sharedKey;
+
+    private String deepRemoteUrl;
+
+    @Setup
+    public void setup()
+            throws IndyDataException
+    {
+        storeDataManager = snapshot ? new MemoryStoreDataManager( true ) : new NoSnapshotStoreDataManager();
+
+        final ChangeSummary summary = new ChangeSummary( ChangeSummary.SYSTEM_USER, "benchmark setup" );
+        final RemoteRepository shared = new RemoteRepository( MAVEN_PKG_KEY, "shared", "http://repo.example.com/" );
+        store( shared, summary );
+        sharedKey = shared.getKey();
+        deepRemoteUrl = "http://repo-" + ( depth - 1 ) + "-1.example.com/";
+
+        StoreKey child = null;
+        for ( int level = depth - 1; level >= 0; level-- )
+        {
+            final List<StoreKey> members = new ArrayList<>();
+            for ( int i = 0; i < width; i++ )
+            {
+                final ArtifactStore member = i % 2 == 0 ?
+                        new HostedRepository( MAVEN_PKG_KEY, "hosted-" + level + "-" + i ) :
+                        new RemoteRepository( MAVEN_PKG_KEY, "remote-" + level + "-" + i,
+                                              "http://repo-" + level + "-" + i + ".example.com/" );
+                store( member, summary );
+                members.add( member.getKey() );
+            }
+
+            members.add( shared.getKey() );
+            if ( child != null )
+            {
+                members.add( child );
+            }
+
+            final Group group = new Group( MAVEN_PKG_KEY, "level-" + level, members );
+            store( group, summary );
+            child = group.getKey();
+        }
+    }
+
+    private void store( final ArtifactStore store, final ChangeSummary summary )
+            throws IndyDataException
+    {
+        storeDataManager.storeArtifactStore( store, summary, false, false, new EventMetadata() );
+    }
+
+    @Benchmark
+    public List<ArtifactStore> orderedConcreteStores()
+            throws IndyDataException
+    {
+        return storeDataManager.query().packageType( MAVEN_PKG_KEY ).getOrderedConcreteStoresInGroup( TOP_GROUP );
+    }
+
+    @Benchmark
+    public List<ArtifactStore> orderedStores()
+            throws IndyDataException
+    {
+        return storeDataManager.query().packageType( MAVEN_PKG_KEY ).getOrderedStoresInGroup( TOP_GROUP );
+    }
+
+    @Benchmark
+    public long streamHosted()
+            throws IndyDataException
+    {
+        return storeDataManager.query().packageType( MAVEN_PKG_KEY ).storeTypes( StoreType.hosted ).stream().count();
+    }
+
+    @Benchmark
+    public List<RemoteRepository> remoteRepositoryByUrl()
+            throws IndyDataException
+    {
+        return storeDataManager.query().getRemoteRepositoryByUrl( deepRemoteUrl );
+    }
+
+    @Benchmark
+    public Set<Group> groupsContaining()
+            throws IndyDataException
+    {
+        // the shared remote is a member of every level
+        return storeDataManager.query().packageType( MAVEN_PKG_KEY ).getGroupsContaining( sharedKey );
+    }
+
+    /**
+     * The memory manager with its store snapshot turned off, so reads go through the generic query code.
+     */
+    public static final class NoSnapshotStoreDataManager
+            extends MemoryStoreDataManager
+    {
+        public NoSnapshotStoreDataManager()
+        {
+            super( true );
+        }
+
+        @Override
+        protected boolean isStoreSnapshotSupported()
+        {
+            return false;
+        }
+    }
+}
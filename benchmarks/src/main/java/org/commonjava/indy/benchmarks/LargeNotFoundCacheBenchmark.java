@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.benchmarks;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AbstractNotFoundCacheBenchmark} with 10M entries, the size the bounded NFC is meant for. The fork gets a
+ * 16 GiB heap and setup takes minutes, so {@link BenchmarkRunner} only runs it when asked for by name:
+ * <tt>java -jar benchmarks.jar LargeNotFoundCacheBenchmark</tt>.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 2, time = 5 )
+@Measurement( iterations = 3, time = 5 )
+@Threads( 4 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms16g", "-Xmx16g" } )
+public class LargeNotFoundCacheBenchmark
+        extends AbstractNotFoundCacheBenchmark
+{
+    @Param( { "10000000" } )
+    public int entries;
+
+    @Override
+    protected int entries()
+    {
+        return entries;
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.benchmarks;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.pkg.maven.content.group.MavenMetadataMerger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.commonjava.indy.model.core.StoreType.hosted;
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+
+/**
+ * Group-level maven-metadata.xml merging, as done for every metadata request on a group: each member document is
+ * parsed, merged into the result and the versions are sorted. Members carry overlapping version ranges.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class MavenMetadataMergeBenchmark
+{
+    private static final String PATH = "org/commonjava/indy/indy-api/maven-metadata.xml";
+
+    @Param( { "4", "16" } )
+    public int members;
+
+    @Param( { "50", "500" } )
+    public int versions;
+
+    private final MavenMetadataMerger merger = new MavenMetadataMerger();
+
+    private List<byte[]> documents;
+
+    private Group group;
+
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        documents = new ArrayList<>( members );
+        final List<StoreKey> keys = new ArrayList<>( members );
+        for ( int m = 0; m < members; m++ )
+        {
+            final Versioning versioning = new Versioning();
+            // each member overlaps half of its versions with the previous one
+            final int first = m * versions / 2;
+            for ( int v = first; v < first + versions; v++ )
+            {
+                versioning.addVersion( ( v / 100 ) + "." + ( v / 10 % 10 ) + "." + ( v % 10 ) );
+            }
+            versioning.setLatest( versioning.getVersions().get( versioning.getVersions().size() - 1 ) );
+            versioning.setRelease( versioning.getLatest() );
+            versioning.setLastUpdated( "20200101101010" );
+
+            final Metadata metadata = new Metadata();
+            metadata.setGroupId( "org.commonjava.indy" );
+            metadata.setArtifactId( "indy-api" );
+            metadata.setVersioning( versioning );
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new MetadataXpp3Writer().write( out, metadata );
+            documents.add( out.toByteArray() );
+            keys.add( new StoreKey( MAVEN_PKG_KEY, hosted, "hosted-" + m ) );
+        }
+
+        group = new Group( MAVEN_PKG_KEY, "public", keys );
+    }
+
+    @Benchmark
+    public Metadata parseAndMerge()
+            throws Exception
+    {
+        final MetadataXpp3Reader reader = new MetadataXpp3Reader();
+        final Metadata master = new Metadata();
+        master.setVersioning( new Versioning() );
+
+        for ( final byte[] document : documents )
+        {
+            final Metadata src = reader.read( new ByteArrayInputStream( document ), false );
+            merger.merge( master, src, group, PATH );
+        }
+
+        merger.sortVersions( master );
+        return master;
+    }
+}
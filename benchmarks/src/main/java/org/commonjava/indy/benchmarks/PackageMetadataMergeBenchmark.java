@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.benchmarks;
+
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.pkg.npm.content.group.PackageMetadataMerger;
+import org.commonjava.indy.pkg.npm.model.io.PackageSerializerModule;
+import org.commonjava.maven.galley.model.Transfer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.commonjava.indy.pkg.npm.model.NPMPackageTypeDescriptor.NPM_PKG_KEY;
+
+/**
+ * Group-level package.json merging for npm. Member documents are generated with overlapping versions and written to
+ * Galley storage once; each invocation reads, merges and re-serializes them like a group metadata request does.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class PackageMetadataMergeBenchmark
+{
+    private static final String PATH = "indy-bench/package.json";
+
+    @Param( { "4", "16" } )
+    public int members;
+
+    @Param( { "50", "500" } )
+    public int versions;
+
+    private BenchmarkStorage storage;
+
+    private PackageMetadataMerger merger;
+
+    private List<Transfer> sources;
+
+    private Group group;
+
+    @Setup
+    public void setup()
+            throws IOException
+    {
+        storage = new BenchmarkStorage();
+
+        final IndyObjectMapper mapper = new IndyObjectMapper( true );
+        mapper.registerModule( new PackageSerializerModule() );
+        merger = new PackageMetadataMerger( Collections.emptyList(), mapper );
+
+        sources = new ArrayList<>( members );
+        final List<StoreKey> keys = new ArrayList<>( members );
+        for ( int m = 0; m < members; m++ )
+        {
+            final HostedRepository hosted = new HostedRepository( NPM_PKG_KEY, "hosted-" + m );
+            sources.add( storage.write( hosted, PATH, generate( m ).getBytes( StandardCharsets.UTF_8 ) ) );
+            keys.add( hosted.getKey() );
+        }
+
+        group = new Group( NPM_PKG_KEY, "public", keys );
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        storage.delete();
+    }
+
+    private String generate( final int member )
+    {
+        // each member overlaps half of its versions with the previous one
+        final int first = member * versions / 2;
+        final StringBuilder sb = new StringBuilder( versions * 256 );
+        sb.append( "{\"name\":\"indy-bench\",\"description\":\"member " ).append( member ).append( "\"," );
+        sb.append( "\"maintainers\":[{\"name\":\"maintainer-" ).append( member ).append( "\"}]," );
+        sb.append( "\"versions\":{" );
+        String last = null;
+        for ( int v = first; v < first + versions; v++ )
+        {
+            last = ( v / 100 ) + "." + ( v / 10 % 10 ) + "." + ( v % 10 );
+            if ( v > first )
+            {
+                sb.append( ',' );
+            }
+            sb.append( '"' ).append( last ).append( "\":{\"name\":\"indy-bench\",\"version\":\"" ).append( last );
+            sb.append( "\",\"main\":\"index.js\",\"license\":\"Apache-2.0\",\"dependencies\":{\"left-pad\":\"^1.3.0\"}," );
+            sb.append( "\"dist\":{\"tarball\":\"https://registry.example.com/indy-bench/-/indy-bench-" ).append( last );
+            sb.append( ".tgz\",\"shasum\":\"0123456789abcdef0123456789abcdef01234567\"}}" );
+        }
+        sb.append( "},\"dist-tags\":{\"latest\":\"" ).append( last ).append( "\"}}" );
+        return sb.toString();
+    }
+
+    @Benchmark
+    public byte[] merge()
+    {
+        return merger.merge( sources, group, PATH );
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.benchmarks;
+
+import org.commonjava.indy.pkg.npm.data.NPMSpecialPathProducer;
+import org.commonjava.indy.util.PathUtils;
+import org.commonjava.maven.galley.io.SpecialPathManagerImpl;
+import org.commonjava.maven.galley.model.SpecialPathInfo;
+import org.commonjava.maven.galley.spi.io.SpecialPathManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.commonjava.indy.pkg.npm.model.NPMPackageTypeDescriptor.NPM_PKG_KEY;
+
+/**
+ * Every retrieval and store consults the special-path rules (metadata, checksums, listings) and normalizes the
+ * request path, so both are measured against a realistic mix of paths.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class PathMatchingBenchmark
+{
+    private static final String[] MAVEN_PATHS =
+            { "org/commonjava/indy/indy-api/2.5.0/indy-api-2.5.0.jar",
+                    "org/commonjava/indy/indy-api/2.5.0/indy-api-2.5.0.pom",
+                    "org/commonjava/indy/indy-api/2.5.0/indy-api-2.5.0.pom.sha1",
+                    "org/commonjava/indy/indy-api/maven-metadata.xml",
+                    "org/commonjava/indy/indy-api/maven-metadata.xml.md5", "org/commonjava/indy/indy-api/",
+                    "org/commonjava/indy/indy-api/2.5.0-SNAPSHOT/indy-api-2.5.0-20200101.101010-3-sources.jar",
+                    "org/commonjava/indy/indy-api/2.5.0/indy-api-2.5.0.jar.http-metadata.json" };
+
+    private static final String[] NPM_PATHS =
+            { "jquery", "jquery/package.json", "jquery/-/jquery-3.5.1.tgz", "@types/node/-/node-14.0.1.tgz",
+                    "@types/node/package.json", "jquery/-/jquery-3.5.1.tgz.sha1" };
+
+    private static final String[] RAW_PATHS =
+            { "/org/commonjava//indy/indy-api/2.5.0/indy-api-2.5.0.jar", "org\\commonjava\\indy\\maven-metadata.xml",
+                    "  /api/content/maven/remote/central/org/foo/1.0/foo-1.0.pom  ", "/jquery/-/jquery-3.5.1.tgz" };
+
+    private SpecialPathManager specialPathManager;
+
+    private int mavenIdx;
+
+    private int npmIdx;
+
+    private int rawIdx;
+
+    @Setup
+    public void setup()
+    {
+        SpecialPathManagerImpl manager = new SpecialPathManagerImpl();
+        manager.registerSpecialPathSet( new NPMSpecialPathProducer().getSpecialPathSet() );
+        specialPathManager = manager;
+    }
+
+    @Benchmark
+    public SpecialPathInfo mavenSpecialPathInfo()
+    {
+        mavenIdx = ( mavenIdx + 1 ) % MAVEN_PATHS.length;
+        return specialPathManager.getSpecialPathInfo( MAVEN_PATHS[mavenIdx], MAVEN_PKG_KEY );
+    }
+
+    @Benchmark
+    public SpecialPathInfo npmSpecialPathInfo()
+    {
+        npmIdx = ( npmIdx + 1 ) % NPM_PATHS.length;
+        return specialPathManager.getSpecialPathInfo( NPM_PATHS[npmIdx], NPM_PKG_KEY );
+    }
+
+    @Benchmark
+    public String joinPath()
+    {
+        rawIdx = ( rawIdx + 1 ) % RAW_PATHS.length;
+        return PathUtils.join( "/var/lib/indy/storage", RAW_PATHS[rawIdx] );
+    }
+
+    @Benchmark
+    public String normalizePathPart()
+    {
+        rawIdx = ( rawIdx + 1 ) % RAW_PATHS.length;
+        return PathUtils.normalizePathPart( RAW_PATHS[rawIdx] );
+    }
+}
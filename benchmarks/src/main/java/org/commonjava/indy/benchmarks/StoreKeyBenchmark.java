@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.benchmarks;
+
+import org.commonjava.indy.model.core.StoreKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store keys are parsed from request paths and deduplicated on nearly every content request.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class StoreKeyBenchmark
+{
+    private static final String[] KEY_STRINGS =
+            { "maven:hosted:local-deployments", "maven:remote:central", "maven:group:public", "npm:remote:npmjs",
+                    "remote:koji-org.foo-bar-1.2.3", "group:builds-untested", "hosted:shared-imports",
+                    "maven:group:build_org-commonjava-indy-2.5.0-SNAPSHOT" };
+
+    private String[] keyStrings;
+
+    private StoreKey[] keys;
+
+    private int idx;
+
+    @Setup
+    public void setup()
+    {
+        keyStrings = KEY_STRINGS.clone();
+        keys = new StoreKey[keyStrings.length];
+        for ( int i = 0; i < keyStrings.length; i++ )
+        {
+            keys[i] = StoreKey.fromString( keyStrings[i] );
+        }
+    }
+
+    private int next()
+    {
+        idx = ( idx + 1 ) % keyStrings.length;
+        return idx;
+    }
+
+    @Benchmark
+    public StoreKey fromString()
+    {
+        return StoreKey.fromString( keyStrings[next()] );
+    }
+
+    @Benchmark
+    public StoreKey dedupe()
+    {
+        return StoreKey.dedupe( keys[next()] );
+    }
+
+    @Benchmark
+    public StoreKey fromStringAndDedupe()
+    {
+        return StoreKey.dedupe( StoreKey.fromString( keyStrings[next()] ) );
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.benchmarks;
+
+import com.codahale.metrics.Meter;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.commonjava.indy.filer.def.IOLatencyDecorator;
+import org.commonjava.indy.filer.def.SelectiveTransferDecoratorManager;
+import org.commonjava.indy.filer.def.TimingInputStream;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.pkg.maven.content.MavenContentsFilteringTransferDecorator;
+import org.commonjava.indy.pkg.npm.content.NPMPackageMaskingTransferDecorator;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.AbstractTransferDecorator;
+import org.commonjava.maven.galley.io.ChecksummingTransferDecorator;
+import org.commonjava.maven.galley.io.NoCacheTransferDecorator;
+import org.commonjava.maven.galley.io.SpecialPathManagerImpl;
+import org.commonjava.maven.galley.io.TransferDecoratorManager;
+import org.commonjava.maven.galley.io.checksum.ChecksummingDecoratorAdvisor;
+import org.commonjava.maven.galley.io.checksum.Md5GeneratorFactory;
+import org.commonjava.maven.galley.io.checksum.Sha1GeneratorFactory;
+import org.commonjava.maven.galley.io.checksum.Sha256GeneratorFactory;
+import org.commonjava.maven.galley.io.checksum.TransferMetadata;
+import org.commonjava.maven.galley.io.checksum.TransferMetadataConsumer;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
+import org.commonjava.maven.galley.spi.io.TransferDecorator;
+import org.commonjava.maven.galley.spi.metrics.TimingProvider;
+import org.commonjava.maven.galley.transport.htcli.UploadMetadataGenTransferDecorator;
+import org.commonjava.maven.galley.util.IdempotentCloseOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.commonjava.maven.galley.io.checksum.ChecksummingDecoratorAdvisor.ChecksumAdvice.CALCULATE_NO_WRITE;
+import static org.commonjava.maven.galley.io.checksum.ChecksummingDecoratorAdvisor.ChecksumAdvice.NO_DECORATE;
+
+/**
+ * Streams a 64 MiB artifact through the storage provider's decorator chain (latency metering, no-cache, upload
+ * metadata, npm masking, Maven metadata filtering, checksumming), so the score is the cost per MiB; multiply by 1024
+ * for the cost per GiB.
+ * <p>
+ * 'layered' is the chain as it was: Galley's {@link TransferDecoratorManager} offering every stream to every decorator,
+ * and the latency metering stacked on a separate counting stream, with writes passed on through the inherited
+ * {@link java.io.FilterOutputStream} write path. 'selective' is the current
+ * {@link SelectiveTransferDecoratorManager} with the single-layer metering streams. 'checksums' switches MD5 / SHA-1 /
+ * SHA-256 calculation on, to show how much of the per-byte cost they account for.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class TransferDecoratorBenchmark
+{
+    private static final int MIB = 1024 * 1024;
+
+    private static final int SIZE_MIB = 64;
+
+    private static final String PATH = "org/commonjava/indy/indy-bench/1.0/indy-bench-1.0.jar";
+
+    @Param( { "layered", "selective" } )
+    public String pipeline;
+
+    @Param( { "false", "true" } )
+    public boolean checksums;
+
+    private BenchmarkStorage storage;
+
+    private Transfer transfer;
+
+    private final byte[] buffer = new byte[64 * 1024];
+
+    @Setup
+    public void setup()
+            throws IOException
+    {
+        final SpecialPathManagerImpl specialPathManager = new SpecialPathManagerImpl();
+        final Function<String, TimingProvider> timers = name -> new TimingProvider()
+        {
+            @Override
+            public void start( final String name )
+            {
+            }
+
+            @Override
+            public long stop()
+            {
+                return 0;
+            }
+        };
+        final Function<String, Meter> meters = name -> new Meter();
+        final BiConsumer<String, Double> cumulative = ( name, elapsed ) -> {
+        };
+
+        final boolean layered = "layered".equals( pipeline );
+
+        final List<TransferDecorator> decorators = new ArrayList<>();
+        decorators.add( layered ?
+                                new LayeredLatencyDecorator( timers, meters, cumulative ) :
+                                new IOLatencyDecorator( timers, meters, cumulative ) );
+        decorators.add( new NoCacheTransferDecorator( specialPathManager ) );
+        decorators.add( new UploadMetadataGenTransferDecorator( specialPathManager, timers ) );
+        decorators.add( new NPMPackageMaskingTransferDecorator() );
+        decorators.add( new MavenContentsFilteringTransferDecorator() );
+
+        final ChecksummingDecoratorAdvisor advisor =
+                ( txfr, op, eventMetadata ) -> checksums ? CALCULATE_NO_WRITE : NO_DECORATE;
+        decorators.add( new ChecksummingTransferDecorator( advisor, advisor, specialPathManager, timers,
+                                                           new NoOpMetadataConsumer(), new Md5GeneratorFactory(),
+                                                           new Sha1GeneratorFactory(),
+                                                           new Sha256GeneratorFactory() ) );
+
+        storage = new BenchmarkStorage( layered ?
+                                                new TransferDecoratorManager( decorators ) :
+                                                new SelectiveTransferDecoratorManager( decorators ) );
+
+        new Random( 42 ).nextBytes( buffer );
+        transfer = storage.getTransfer( new HostedRepository( MAVEN_PKG_KEY, "local-deployments" ), PATH );
+        write();
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        storage.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( SIZE_MIB )
+    public long read()
+            throws IOException
+    {
+        long total = 0;
+        try (InputStream in = transfer.openInputStream( false, new EventMetadata() ))
+        {
+            int read;
+            while ( ( read = in.read( buffer ) ) > 0 )
+            {
+                total += read;
+            }
+        }
+
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( SIZE_MIB )
+    public long write()
+            throws IOException
+    {
+        long total = 0;
+        try (OutputStream out = transfer.openOutputStream( TransferOperation.UPLOAD, false ))
+        {
+            while ( total < (long) SIZE_MIB * MIB )
+            {
+                out.write( buffer );
+                total += buffer.length;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * The stream layering {@link IOLatencyDecorator} used before its metering streams counted bytes themselves.
+     */
+    private static final class LayeredLatencyDecorator
+            extends AbstractTransferDecorator
+    {
+        private final Function<String, TimingProvider> timers;
+
+        private final Function<String, Meter> meters;
+
+        private final BiConsumer<String, Double> cumulative;
+
+        private LayeredLatencyDecorator( final Function<String, TimingProvider> timers,
+                                         final Function<String, Meter> meters,
+                                         final BiConsumer<String, Double> cumulative )
+        {
+            this.timers = timers;
+            this.meters = meters;
+            this.cumulative = cumulative;
+        }
+
+        @Override
+        public InputStream decorateRead( final InputStream stream, final Transfer transfer,
+                                         final EventMetadata metadata )
+        {
+            return new TimingInputStream( new CountingInputStream( stream ), timers, meters, cumulative );
+        }
+
+        @Override
+        public OutputStream decorateWrite( final OutputStream stream, final Transfer transfer,
+                                           final TransferOperation op, final EventMetadata metadata )
+        {
+            if ( op == TransferOperation.UPLOAD )
+            {
+                return new IdempotentCloseOutputStream( new CountingOutputStream( stream ) );
+            }
+
+            return stream;
+        }
+    }
+
+    private static final class NoOpMetadataConsumer
+            implements TransferMetadataConsumer
+    {
+        @Override
+        public void addMetadata( final Transfer transfer, final TransferMetadata transferMetadata )
+        {
+        }
+
+        @Override
+        public void removeMetadata( final Transfer transfer )
+        {
+        }
+
+        public boolean needsMetadataFor( final Transfer transfer )
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.repo.proxy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository-proxy content rewriting of a large generated directory listing, written in servlet-sized chunks. Lives
+ * in the repo-proxy package because {@link ContentReplacingOutputStream} is package-private.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ContentReplacingOutputStreamBenchmark
+{
+    private static final int CHUNK = 8192;
+
+    @Param( { "1", "8" } )
+    public int patterns;
+
+    @Param( { "1048576", "16777216" } )
+    public int size;
+
+    private ReplacementAutomaton automaton;
+
+    private byte[] content;
+
+    @Setup
+    public void setup()
+    {
+        final Map<String, String> reposReplacing = new HashMap<>();
+        for ( int i = 0; i < patterns; i++ )
+        {
+            reposReplacing.put( "/api/content/maven/group/proxy-" + i + "/", "/api/content/maven/remote/origin-" + i + "/" );
+        }
+        automaton = ReplacementAutomaton.build( reposReplacing );
+
+        final StringBuilder sb = new StringBuilder( size + 256 );
+        int line = 0;
+        while ( sb.length() < size )
+        {
+            sb.append( "<li><a href=\"http://indy.example.com/api/content/maven/remote/origin-" )
+              .append( line % ( patterns * 2 ) )
+              .append( "/org/foo/bar-" )
+              .append( line )
+              .append( "/\">bar-" )
+              .append( line )
+              .append( "/</a></li>\n" );
+            line++;
+        }
+        content = sb.toString().getBytes( StandardCharsets.UTF_8 );
+    }
+
+    @Benchmark
+    public void rewrite( final Blackhole blackhole )
+            throws IOException
+    {
+        final OutputStream sink = new BlackholeOutputStream( blackhole );
+        try (ContentReplacingOutputStream out = new ContentReplacingOutputStream( sink, automaton ))
+        {
+            for ( int off = 0; off < content.length; off += CHUNK )
+            {
+                out.write( content, off, Math.min( CHUNK, content.length - off ) );
+            }
+        }
+    }
+
+    private static final class BlackholeOutputStream
+            extends OutputStream
+    {
+        private final Blackhole blackhole;
+
+        private BlackholeOutputStream( final Blackhole blackhole )
+        {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write( final int b )
+        {
+            blackhole.consume( b );
+        }
+
+        @Override
+        public void write( final byte[] b, final int off, final int len )
+        {
+            blackhole.consume( b );
+            blackhole.consume( len );
+        }
+    }
+}
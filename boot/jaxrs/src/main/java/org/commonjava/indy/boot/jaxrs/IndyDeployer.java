@@ -27,8 +27,10 @@ import io.undertow.servlet.Servlets;
 import io.undertow.servlet.api.DeploymentInfo;
 import io.undertow.servlet.api.DeploymentManager;
 import org.commonjava.indy.bind.jaxrs.IndyDeployment;
+import org.commonjava.indy.conf.ExecutionModeConfig;
 import org.commonjava.indy.util.ApplicationContent;
 import org.commonjava.indy.util.MimeTyper;
+import org.commonjava.indy.util.VirtualThreads;
 import org.commonjava.propulsor.boot.BootOptions;
 import org.commonjava.propulsor.boot.PortFinder;
 import org.commonjava.propulsor.deploy.DeployException;
@@ -42,6 +44,7 @@ import javax.servlet.ServletException;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 
 @ApplicationScoped
@@ -53,6 +56,8 @@ public class IndyDeployer
 
     private Undertow server;
 
+    private ExecutorService requestExecutor;
+
     public IndyDeployer()
     {
     }
@@ -66,6 +71,9 @@ public class IndyDeployer
     @Inject
     private MimeTyper mimeTyper;
 
+    @Inject
+    private ExecutionModeConfig executionConfig;
+
     @Override
     public void stop()
     {
@@ -73,6 +81,11 @@ public class IndyDeployer
         {
             server.stop();
         }
+
+        if ( requestExecutor != null )
+        {
+            requestExecutor.shutdown();
+        }
     }
 
     @Override
@@ -81,6 +94,14 @@ public class IndyDeployer
     {
         final DeploymentInfo di = indyDeployment.getDeployment( bootOptions.getContextPath() ).setContextPath( "/" );
 
+        if ( executionConfig.isVirtualThreads() )
+        {
+            // blocking servlet work leaves the XNIO I/O threads for a virtual thread instead of an Undertow worker
+            logger.info( "Dispatching REST requests to virtual threads" );
+            requestExecutor = VirtualThreads.newExecutor( "indy-rest-" );
+            di.setExecutor( requestExecutor ).setAsyncExecutor( requestExecutor );
+        }
+
         final DeploymentManager dm = Servlets.defaultContainer().addDeployment( di );
 
         Collection<String> list = Servlets.defaultContainer().listDeployments();
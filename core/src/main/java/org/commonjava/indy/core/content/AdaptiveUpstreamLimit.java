@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+/**
+ * AIMD concurrency limit for one upstream, driven by latency. Every completed remote request is a sample:
+ * <ul>
+ *     <li>if it timed out / failed at the gateway, or the recent latency has risen above tolerance x the upstream's
+ *     baseline latency, the limit is cut to limit x backoff (at most once per congestion episode: only requests
+ *     started after the last cut can cause another one)</li>
+ *     <li>otherwise, if at least half the limit was in use, the limit grows by one</li>
+ * </ul>
+ * Both the recent latency and the baseline are moving averages, over the last few and the last few dozen responses,
+ * so a single large download among small ones doesn't read as congestion, while a sustained slowdown does; a
+ * permanently slower upstream is eventually accepted as its new normal. The baseline starts from the fastest of a
+ * host's first few responses, so a slowdown early in its life is caught rather than averaged in. Responses without content (existence checks,
+ * not found) take about one round trip whatever the artifact, so they are averaged separately from the ones that
+ * carry content; otherwise they would make every real download look slow.
+ */
+final class AdaptiveUpstreamLimit
+{
+    /**
+     * Weight of each sample in the recent average: about the last three responses.
+     */
+    private static final double RECENT_WEIGHT = 0.3;
+
+    /**
+     * Weight of each sample in the baseline: about the last fifty responses.
+     */
+    private static final double BASELINE_WEIGHT = 0.02;
+
+    /**
+     * Responses the baseline starts from; a slowdown right after them has to stand out against their fastest.
+     */
+    private static final int WARMUP_SAMPLES = 3;
+
+    private final int min;
+
+    private final int max;
+
+    private final double tolerance;
+
+    private final double backoff;
+
+    private volatile int limit;
+
+    private final Latency content = new Latency();
+
+    private final Latency noContent = new Latency();
+
+    private long lastDecreaseNanos;
+
+    private boolean decreased;
+
+    AdaptiveUpstreamLimit( final int initial, final int min, final int max, final double tolerance,
+                           final double backoff )
+    {
+        this.min = min;
+        this.max = max;
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.limit = Math.max( min, Math.min( initial, max ) );
+    }
+
+    int getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the request was sent
+     * @param endNanos {@link System#nanoTime()} when it completed
+     * @param inFlight requests in flight to the upstream when it completed, including this one
+     * @param dropped true if the upstream timed out or failed
+     * @param hasContent false if the response carried no content (existence check, not found)
+     */
+    synchronized void onSample( final long startNanos, final long endNanos, final int inFlight,
+                                final boolean dropped, final boolean hasContent )
+    {
+        final boolean slow = !dropped && ( hasContent ? content : noContent ).add( endNanos - startNanos );
+        if ( dropped || slow )
+        {
+            if ( !decreased || startNanos - lastDecreaseNanos > 0 )
+            {
+                limit = Math.max( min, (int) ( limit * backoff ) );
+                lastDecreaseNanos = endNanos;
+                decreased = true;
+            }
+        }
+        else if ( inFlight * 2 >= limit )
+        {
+            limit = Math.min( max, limit + 1 );
+        }
+    }
+
+    synchronized long getBaselineNanos( final boolean hasContent )
+    {
+        return (long) ( hasContent ? content : noContent ).baselineNanos;
+    }
+
+    private final class Latency
+    {
+        private long samples;
+
+        private double recentNanos;
+
+        private double baselineNanos;
+
+        /**
+         * @return true if the recent latency, including this sample, is beyond tolerance of the baseline
+         */
+        private boolean add( final long latency )
+        {
+            samples++;
+            if ( samples <= WARMUP_SAMPLES )
+            {
+                // the first responses of a host pay for connection setup, so start from the fastest of them
+                baselineNanos = samples == 1 ? latency : Math.min( baselineNanos, latency );
+                recentNanos = baselineNanos;
+                return false;
+            }
+
+            recentNanos += RECENT_WEIGHT * ( latency - recentNanos );
+            baselineNanos += BASELINE_WEIGHT * ( latency - baselineNanos );
+            return recentNanos > tolerance * baselineNanos;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import com.codahale.metrics.Gauge;
+import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.conf.IndyConfiguration;
+import org.commonjava.indy.metrics.IndyMetricsManager;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.model.Transfer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.commonjava.indy.util.ApplicationStatus.SERVER_ERROR;
+import static org.commonjava.maven.galley.spi.cache.CacheProvider.STORE_HTTP_HEADERS;
+
+/**
+ * Collapses concurrent identical retrievals (same store, same path) into a single flight. The first caller (leader)
+ * runs the retrieval; callers arriving while it is in progress (followers) wait for its outcome, a {@link Transfer},
+ * a miss (null) or a failure, instead of repeating the member walk, NFC checks and remote fetches. A follower waits at
+ * most the configured time and then falls back to retrieving on its own. Retrievals whose {@link EventMetadata}
+ * differs are not collapsed, since the metadata can change what a retrieval returns or records.
+ */
+@ApplicationScoped
+public class ContentRequestCoalescer
+{
+    @FunctionalInterface
+    public interface Retrieval
+    {
+        Transfer retrieve()
+                throws IndyWorkflowException;
+    }
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    private IndyConfiguration config;
+
+    @Inject
+    private IndyMetricsManager metricsManager;
+
+    private final Map<String, CompletableFuture<Transfer>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaders = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private final AtomicLong timedOut = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private boolean enabled;
+
+    private long waitMillis;
+
+    protected ContentRequestCoalescer()
+    {
+    }
+
+    public ContentRequestCoalescer( final long waitMillis )
+    {
+        this.enabled = true;
+        this.waitMillis = waitMillis;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        enabled = config.isContentRetrieveCoalesceEnabled();
+        waitMillis = TimeUnit.SECONDS.toMillis( config.getContentRetrieveCoalesceWaitSeconds() );
+
+        if ( metricsManager != null )
+        {
+            Map<String, Gauge<Long>> gauges = new HashMap<>();
+            gauges.put( "leaders", leaders::get );
+            gauges.put( "coalesced", coalesced::get );
+            gauges.put( "timedOut", timedOut::get );
+            gauges.put( "failed", failed::get );
+            gauges.put( "waiting", () -> (long) waiting.get() );
+            gauges.put( "inFlight", () -> (long) inFlight.size() );
+            metricsManager.addGauges( getClass(), "retrieve", gauges );
+        }
+    }
+
+    /**
+     * Run the retrieval of path from store, or join the identical one already in progress.
+     */
+    public Transfer retrieve( final StoreKey key, final String path, final Retrieval retrieval )
+            throws IndyWorkflowException
+    {
+        return retrieve( key, path, null, retrieval );
+    }
+
+    /**
+     * Run the retrieval of path from store, or join one in progress that carries the same event metadata. Only the
+     * request headers kept for storing uploads are left out of the comparison; everything else (the package type, an
+     * entry-point base URI that generated metadata is rewritten against, a tracking key, a cache-only flag) has to
+     * match. Values without a meaningful toString() never match, so such requests simply aren't collapsed.
+     */
+    public Transfer retrieve( final StoreKey key, final String path, final EventMetadata eventMetadata,
+                              final Retrieval retrieval )
+            throws IndyWorkflowException
+    {
+        if ( !enabled )
+        {
+            return retrieval.retrieve();
+        }
+
+        final String flightKey = key.toString() + "#" + path + variantOf( eventMetadata );
+        final CompletableFuture<Transfer> mine = new CompletableFuture<>();
+        final CompletableFuture<Transfer> existing = inFlight.putIfAbsent( flightKey, mine );
+        if ( existing == null )
+        {
+            leaders.incrementAndGet();
+            try
+            {
+                Transfer result = retrieval.retrieve();
+                mine.complete( result );
+                return result;
+            }
+            catch ( IndyWorkflowException | RuntimeException | Error e )
+            {
+                mine.completeExceptionally( e );
+                throw e;
+            }
+            finally
+            {
+                inFlight.remove( flightKey, mine );
+            }
+        }
+
+        coalesced.incrementAndGet();
+        waiting.incrementAndGet();
+        logger.debug( "Joining in-flight retrieval of {} from {}", path, key );
+        try
+        {
+            return existing.get( waitMillis, TimeUnit.MILLISECONDS );
+        }
+        catch ( TimeoutException e )
+        {
+            timedOut.incrementAndGet();
+            logger.debug( "In-flight retrieval of {} from {} took longer than {}ms, retrieving independently", path,
+                          key, waitMillis );
+        }
+        catch ( ExecutionException e )
+        {
+            failed.incrementAndGet();
+            Throwable cause = e.getCause();
+            if ( cause instanceof IndyWorkflowException )
+            {
+                IndyWorkflowException iwe = (IndyWorkflowException) cause;
+                throw new IndyWorkflowException( iwe.getStatus(), "Coalesced retrieval of %s from %s failed: %s", iwe,
+                                                 path, key, iwe.getMessage() );
+            }
+            throw new IndyWorkflowException( SERVER_ERROR.code(), "Coalesced retrieval of %s from %s failed: %s",
+                                             cause, path, key, cause.getMessage() );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IndyWorkflowException( "Interrupted while waiting for retrieval of %s from %s", e, path, key );
+        }
+        finally
+        {
+            waiting.decrementAndGet();
+        }
+
+        return retrieval.retrieve();
+    }
+
+    private static String variantOf( final EventMetadata eventMetadata )
+    {
+        if ( eventMetadata == null )
+        {
+            return "";
+        }
+
+        final StringBuilder variant = new StringBuilder( "?" ).append( eventMetadata.getPackageType() );
+        eventMetadata.getMetadata()
+                     .entrySet()
+                     .stream()
+                     .filter( e -> !STORE_HTTP_HEADERS.equals( e.getKey() ) )
+                     .map( e -> e.getKey() + "=" + e.getValue() )
+                     .sorted()
+                     .forEach( e -> variant.append( '&' ).append( e ) );
+
+        return variant.toString();
+    }
+
+    public long getLeaderCount()
+    {
+        return leaders.get();
+    }
+
+    public long getCoalescedCount()
+    {
+        return coalesced.get();
+    }
+
+    public long getTimedOutCount()
+    {
+        return timedOut.get();
+    }
+
+    public long getFailedCount()
+    {
+        return failed.get();
+    }
+}
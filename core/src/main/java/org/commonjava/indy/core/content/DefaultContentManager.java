@@ -24,6 +24,7 @@ import org.commonjava.indy.content.ContentManager;
 import org.commonjava.indy.content.DownloadManager;
 import org.commonjava.indy.content.StoreResource;
 import org.commonjava.indy.core.content.group.GroupRepositoryFilterManager;
+import org.commonjava.indy.core.inject.AbstractNotFoundCache;
 import org.commonjava.indy.data.IndyDataException;
 import org.commonjava.indy.data.StoreDataManager;
 import org.commonjava.indy.measure.annotation.Measure;
@@ -36,6 +37,7 @@ import org.commonjava.indy.util.ApplicationStatus;
 import org.commonjava.indy.util.LocationUtils;
 import org.commonjava.maven.galley.TransferManager;
 import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.checksum.TransferMetadata;
 import org.commonjava.maven.galley.model.ConcreteResource;
 import org.commonjava.maven.galley.model.SpecialPathInfo;
 import org.commonjava.maven.galley.model.Transfer;
@@ -96,6 +98,9 @@ public class DefaultContentManager
     @Inject
     private GroupRepositoryFilterManager repositoryFilterManager;
 
+    @Inject
+    private ContentRequestCoalescer requestCoalescer;
+
     protected DefaultContentManager()
     {
     }
@@ -210,38 +215,14 @@ public class DefaultContentManager
         Transfer item;
         if ( group == store.getKey().getType() )
         {
-            List<ArtifactStore> members = getOrderedConcreteStoresAndFilter( (Group) store, path );
-            if ( logger.isDebugEnabled() )
+            if ( requestCoalescer != null )
             {
-                logger.debug( "{} is a group. Attempting downloads from (in order):\n  {}", store.getKey(),
-                              StringUtils.join( members, "\n  " ) );
+                item = requestCoalescer.retrieve( store.getKey(), path, eventMetadata,
+                                                  () -> retrieveFromGroup( (Group) store, path, eventMetadata ) );
             }
-
-            item = contentGeneratorManager.generateGroupFileContent( (Group) store, members, path, eventMetadata );
-            boolean generated = ( item != null );
-
-            if ( !generated )
+            else
             {
-                if ( PathMaskChecker.checkMask( store, path ) )
-                {
-                    for ( final ArtifactStore member : members )
-                    {
-                        try
-                        {
-                            item = doRetrieve( member, path, eventMetadata );
-                        }
-                        catch ( IndyWorkflowException e )
-                        {
-                            logger.error( "Failed to retrieve artifact from for path {} from {} in group {}, error is: {}",
-                                          path, member, store, e.getMessage() );
-                        }
-                        if ( item != null )
-                        {
-                            // get the item from the first member store
-                            break;
-                        }
-                    }
-                }
+                item = retrieveFromGroup( (Group) store, path, eventMetadata );
             }
         }
         else
@@ -261,6 +242,41 @@ public class DefaultContentManager
         return item;
     }
 
+    private Transfer retrieveFromGroup( final Group group, final String path, final EventMetadata eventMetadata )
+            throws IndyWorkflowException
+    {
+        List<ArtifactStore> members = getOrderedConcreteStoresAndFilter( group, path );
+        if ( logger.isDebugEnabled() )
+        {
+            logger.debug( "{} is a group. Attempting downloads from (in order):\n  {}", group.getKey(),
+                          StringUtils.join( members, "\n  " ) );
+        }
+
+        Transfer item = contentGeneratorManager.generateGroupFileContent( group, members, path, eventMetadata );
+        if ( item == null && PathMaskChecker.checkMask( group, path ) )
+        {
+            for ( final ArtifactStore member : members )
+            {
+                try
+                {
+                    item = doRetrieve( member, path, eventMetadata );
+                }
+                catch ( IndyWorkflowException e )
+                {
+                    logger.error( "Failed to retrieve artifact from for path {} from {} in group {}, error is: {}",
+                                  path, member, group, e.getMessage() );
+                }
+                if ( item != null )
+                {
+                    // get the item from the first member store
+                    break;
+                }
+            }
+        }
+
+        return item;
+    }
+
     private List<ArtifactStore> getOrderedConcreteStoresAndFilter( Group group, String path ) throws IndyWorkflowException
     {
         List<ArtifactStore> members;
@@ -387,17 +403,63 @@ public class DefaultContentManager
         return txfr;
     }
 
+    @Override
+    @Measure
+    public Transfer adopt( final ArtifactStore store, final String path, final Transfer source,
+                           final EventMetadata eventMetadata )
+            throws IndyWorkflowException
+    {
+        if ( hosted != store.getKey().getType() )
+        {
+            try (InputStream stream = source.openInputStream( false ))
+            {
+                return store( store, path, stream, TransferOperation.UPLOAD, eventMetadata );
+            }
+            catch ( final IOException e )
+            {
+                throw new IndyWorkflowException( "Failed to read: %s for storage in: %s. Reason: %s", e, source,
+                                                 store.getKey(), e.getMessage() );
+            }
+        }
+
+        logger.debug( "Adopting: {} as: {} in: {} with event metadata: {}", source, path, store.getKey(),
+                      eventMetadata );
+        final Transfer txfr = downloadManager.adopt( store, path, source, eventMetadata );
+        if ( txfr != null )
+        {
+            // same bytes, so the digests carry over instead of being recomputed from the new copy
+            final TransferMetadata metadata = contentDigester.getContentMetadata( source );
+            if ( metadata != null )
+            {
+                contentDigester.addMetadata( txfr, metadata );
+            }
+
+            final KeyedLocation kl = (KeyedLocation) txfr.getLocation();
+            contentGeneratorManager.handleContentStorage( store, path, txfr, eventMetadata );
+
+            final String name = String.format( "ContentNFCClean-StoreSingle-adopt(%s)-path(%s)", store.getKey(), path );
+            final String context =
+                    String.format( "Class: %s, method: %s, store: %s, path: %s", this.getClass().getName(), "adopt",
+                                   store.getKey(), path );
+            storeManager.asyncGroupAffectedBy(
+                    new StoreDataManager.ContextualTask( name, context, () -> clearNFCEntries( kl, path, eventMetadata ) ) );
+        }
+
+        return txfr;
+    }
+
     @Measure
     protected void clearNFCEntries( final KeyedLocation kl, final String path, EventMetadata eventMetadata )
     {
         try
         {
             Set<Group> groups = storeManager.affectedBy( Arrays.asList( kl.getKey() ), eventMetadata );
-            groups.stream()
-                  .map( ( g ) -> new ConcreteResource( LocationUtils.toLocation( g ), path ) )
-                  .forEach( ( cr ) -> nfc.clearMissing( cr ) );
+            List<ConcreteResource> resources = groups.stream()
+                                                     .map( ( g ) -> new ConcreteResource( LocationUtils.toLocation( g ), path ) )
+                                                     .collect( Collectors.toCollection( ArrayList::new ) );
 
-            nfc.clearMissing( new ConcreteResource( kl, path ) );
+            resources.add( new ConcreteResource( kl, path ) );
+            AbstractNotFoundCache.clearMissing( nfc, resources );
         }
         catch ( IndyDataException e )
         {
@@ -23,6 +23,7 @@ import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.content.DirectContentAccess;
 import org.commonjava.indy.content.DownloadManager;
 import org.commonjava.indy.content.StoreResource;
+import org.commonjava.indy.core.inject.BlockingTaskExecutors;
 import org.commonjava.indy.measure.annotation.Measure;
 import org.commonjava.indy.model.core.ArtifactStore;
 import org.commonjava.indy.model.core.StoreKey;
@@ -31,6 +32,7 @@ import org.commonjava.maven.galley.model.Transfer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -58,6 +60,8 @@ public class DefaultDirectContentAccess
     @ExecutorConfig( named = "direct-content-access", threads = 8, priority = 8, maxLoadFactor = 100, loadSensitive = ExecutorConfig.BooleanLiteral.TRUE )
     private WeftExecutorService contentAccessService;
 
+    @Inject
+    private BlockingTaskExecutors blockingExecutors;
 
     public DefaultDirectContentAccess(){}
 
@@ -67,6 +71,12 @@ public class DefaultDirectContentAccess
         this.contentAccessService = executorService;
     }
 
+    @PostConstruct
+    public void init()
+    {
+        contentAccessService = blockingExecutors.select( "direct-content-access", contentAccessService );
+    }
+
 
     @Override
     public List<Transfer> retrieveAllRaw( final List<? extends ArtifactStore> stores, final String path,
@@ -23,6 +23,7 @@ import org.commonjava.indy.change.event.ArtifactStorePostRescanEvent;
 import org.commonjava.indy.change.event.ArtifactStorePreRescanEvent;
 import org.commonjava.indy.change.event.ArtifactStoreRescanEvent;
 import org.commonjava.indy.change.event.IndyStoreErrorEvent;
+import org.commonjava.indy.conf.IndyConfiguration;
 import org.commonjava.indy.content.DownloadManager;
 import org.commonjava.indy.content.StoreResource;
 import org.commonjava.indy.core.change.event.IndyFileEventManager;
@@ -51,6 +52,7 @@ import org.commonjava.maven.galley.TransferManager;
 import org.commonjava.maven.galley.TransferTimeoutException;
 import org.commonjava.maven.galley.event.EventMetadata;
 import org.commonjava.maven.galley.event.FileAccessEvent;
+import org.commonjava.maven.galley.event.FileStorageEvent;
 import org.commonjava.maven.galley.io.SpecialPathManagerImpl;
 import org.commonjava.maven.galley.model.ConcreteResource;
 import org.commonjava.maven.galley.model.ListingResult;
@@ -69,8 +71,10 @@ import javax.enterprise.event.Event;
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -127,6 +131,12 @@ public class DefaultDownloadManager
     @Inject
     private SpecialPathManager specialPathManager;
 
+    @Inject
+    private IndyConfiguration indyConfig;
+
+    @Inject
+    private UpstreamConcurrencyLimiter upstreamLimiter;
+
     @Inject
     @Any
     private Instance<ContentAdvisor> contentAdvisors;
@@ -161,6 +171,26 @@ public class DefaultDownloadManager
         this(storeManager, transfers, locationExpander, contentAdvisors, rescanService);
         this.nfc = nfc;
     }
+
+    public DefaultDownloadManager( final StoreDataManager storeManager, final TransferManager transfers,
+                                   final LocationExpander locationExpander, Instance<ContentAdvisor> contentAdvisors,
+                                   final NotFoundCache nfc, WeftExecutorService rescanService,
+                                   final UpstreamConcurrencyLimiter upstreamLimiter )
+    {
+        this( storeManager, transfers, locationExpander, contentAdvisors, nfc, rescanService );
+        this.upstreamLimiter = upstreamLimiter;
+    }
+
+    public DefaultDownloadManager( final StoreDataManager storeManager, final TransferManager transfers,
+                                   final LocationExpander locationExpander, Instance<ContentAdvisor> contentAdvisors,
+                                   final NotFoundCache nfc, WeftExecutorService rescanService,
+                                   final IndyFileEventManager fileEventManager, final IndyConfiguration indyConfig )
+    {
+        this( storeManager, transfers, locationExpander, contentAdvisors, nfc, rescanService );
+        this.fileEventManager = fileEventManager;
+        this.indyConfig = indyConfig;
+    }
+
     @Override
     public List<StoreResource> list( final ArtifactStore store, final String path )
             throws IndyWorkflowException
@@ -479,7 +509,7 @@ public class DefaultDownloadManager
         {
             if ( store instanceof RemoteRepository )
             {
-                target = transfers.retrieve( res, suppressFailures, eventMetadata );
+                target = retrieveRemote( (RemoteRepository) store, res, suppressFailures, eventMetadata );
             }
             else
             {
@@ -525,8 +555,17 @@ public class DefaultDownloadManager
         final ConcreteResource res = new ConcreteResource( LocationUtils.toLocation( store ), path );
         if ( store instanceof RemoteRepository )
         {
-            try {
-                return transfers.exists( res );
+            try (UpstreamConcurrencyLimiter.Permit permit = acquireUpstream( (RemoteRepository) store )) {
+                permit.noContent();
+                try
+                {
+                    return transfers.exists( res );
+                }
+                catch ( final TransferLocationException e )
+                {
+                    permit.dropped();
+                    throw e;
+                }
             } catch (TransferException e) {
                 logger.warn( "Existence check: " + e.getMessage(), e );
                 return false;
@@ -543,6 +582,69 @@ public class DefaultDownloadManager
         return false;
     }
 
+    /**
+     * Retrieves from a remote under its upstream's concurrency limit. Content that is already cached doesn't reach
+     * the upstream, so it neither needs a permit nor skews the latency an adaptive limit is based on; if there is no
+     * permit left, content cached in the meantime (e.g. by the request holding the permit) is still served.
+     */
+    private Transfer retrieveRemote( final RemoteRepository remote, final ConcreteResource res,
+                                     final boolean suppressFailures, final EventMetadata eventMetadata )
+            throws TransferException, IndyWorkflowException
+    {
+        final Transfer cached = transfers.getCacheReference( res );
+        if ( cached != null && cached.exists() )
+        {
+            return transfers.retrieve( res, suppressFailures, eventMetadata );
+        }
+
+        final UpstreamConcurrencyLimiter.Permit permit;
+        try
+        {
+            permit = acquireUpstream( remote );
+        }
+        catch ( final IndyWorkflowException e )
+        {
+            if ( cached != null && cached.exists() )
+            {
+                logger.debug( "Upstream of {} at its limit; serving the now cached: {}", remote.getKey(), res );
+                return cached;
+            }
+
+            throw e;
+        }
+
+        try
+        {
+            final Transfer retrieved = transfers.retrieve( res, suppressFailures, eventMetadata );
+            if ( retrieved == null || !retrieved.exists() )
+            {
+                permit.noContent();
+            }
+            return retrieved;
+        }
+        catch ( final TransferLocationException e )
+        {
+            permit.dropped();
+            throw e;
+        }
+        finally
+        {
+            permit.close();
+        }
+    }
+
+    private UpstreamConcurrencyLimiter.Permit acquireUpstream( final RemoteRepository remote )
+            throws IndyWorkflowException
+    {
+        if ( upstreamLimiter == null )
+        {
+            return () -> {
+            };
+        }
+
+        return upstreamLimiter.acquire( remote );
+    }
+
     /*
      * (non-Javadoc)
      * @see org.commonjava.indy.core.rest.util.FileManager#upload(org.commonjava.indy.core.model.DeployPoint,
@@ -573,47 +675,7 @@ public class DefaultDownloadManager
             return null;
         }
 
-        if ( store.getKey().getType() != hosted )
-        {
-            throw new IndyWorkflowException( ApplicationStatus.BAD_REQUEST.code(),
-                                             "Cannot deploy to non-deploy point artifact store: {}.", store.getKey() );
-        }
-
-        if ( !isIgnoreReadonly( eventMetadata ) && storeManager.isReadonly( store ) )
-        {
-            throw new IndyWorkflowException( ApplicationStatus.METHOD_NOT_ALLOWED.code(),
-                                             "The store {} is readonly. If you want to store any content to this store, please modify it to non-readonly",
-                                             store.getKey() );
-        }
-
-
-        if ( store instanceof HostedRepository )
-        {
-            final HostedRepository deploy = (HostedRepository) store;
-
-//            final ArtifactPathInfo pathInfo = ArtifactPathInfo.parse( path );
-            final ContentQuality quality = getQuality( path );
-            if ( quality != ContentQuality.METADATA )
-            {
-                if ( quality == ContentQuality.SNAPSHOT )
-                {
-                    if ( !deploy.isAllowSnapshots() )
-                    {
-                        logger.error( "Cannot store snapshot in non-snapshot deploy point: {}", deploy.getName() );
-                        throw new IndyWorkflowException( ApplicationStatus.BAD_REQUEST.code(),
-                                                         "Cannot store snapshot in non-snapshot deploy point: {}",
-                                                         deploy.getName() );
-                    }
-                }
-                else if ( !deploy.isAllowReleases() )
-                {
-                    logger.error( "Cannot store release in snapshot-only deploy point: {}", deploy.getName() );
-                    throw new IndyWorkflowException( ApplicationStatus.BAD_REQUEST.code(),
-                                                     "Cannot store release in snapshot-only deploy point: {}",
-                                                     deploy.getName() );
-                }
-            }
-        }
+        checkDeployable( store, path, eventMetadata );
 
         //        final Transfer target = getStorageReference( deploy, path );
 
@@ -680,6 +742,124 @@ public class DefaultDownloadManager
         }
     }
 
+    private void checkDeployable( final ArtifactStore store, final String path, final EventMetadata eventMetadata )
+            throws IndyWorkflowException
+    {
+        if ( store.getKey().getType() != hosted )
+        {
+            throw new IndyWorkflowException( ApplicationStatus.BAD_REQUEST.code(),
+                                             "Cannot deploy to non-deploy point artifact store: {}.", store.getKey() );
+        }
+
+        if ( !isIgnoreReadonly( eventMetadata ) && storeManager.isReadonly( store ) )
+        {
+            throw new IndyWorkflowException( ApplicationStatus.METHOD_NOT_ALLOWED.code(),
+                                             "The store {} is readonly. If you want to store any content to this store, please modify it to non-readonly",
+                                             store.getKey() );
+        }
+
+
+        if ( store instanceof HostedRepository )
+        {
+            final HostedRepository deploy = (HostedRepository) store;
+
+//            final ArtifactPathInfo pathInfo = ArtifactPathInfo.parse( path );
+            final ContentQuality quality = getQuality( path );
+            if ( quality != ContentQuality.METADATA )
+            {
+                if ( quality == ContentQuality.SNAPSHOT )
+                {
+                    if ( !deploy.isAllowSnapshots() )
+                    {
+                        logger.error( "Cannot store snapshot in non-snapshot deploy point: {}", deploy.getName() );
+                        throw new IndyWorkflowException( ApplicationStatus.BAD_REQUEST.code(),
+                                                         "Cannot store snapshot in non-snapshot deploy point: {}",
+                                                         deploy.getName() );
+                    }
+                }
+                else if ( !deploy.isAllowReleases() )
+                {
+                    logger.error( "Cannot store release in snapshot-only deploy point: {}", deploy.getName() );
+                    throw new IndyWorkflowException( ApplicationStatus.BAD_REQUEST.code(),
+                                                     "Cannot store release in snapshot-only deploy point: {}",
+                                                     deploy.getName() );
+                }
+            }
+        }
+    }
+
+    @Override
+    @Measure
+    public Transfer adopt( final ArtifactStore store, final String path, final Transfer source,
+                           final EventMetadata eventMetadata )
+            throws IndyWorkflowException
+    {
+        checkDeployable( store, path, eventMetadata );
+
+        KeyedLocation loc = LocationUtils.toLocation( store );
+        boolean resetReadonly = ( !loc.allowsStoring() && isIgnoreReadonly( eventMetadata ) && loc instanceof CacheOnlyLocation );
+        try
+        {
+            if ( resetReadonly )
+            {
+                ( (CacheOnlyLocation) loc ).setReadonly( false );
+            }
+
+            final ConcreteResource resource = new ConcreteResource( loc, path );
+            final Transfer target = transfers.getCacheReference( resource );
+            if ( !hardLink( source, target ) )
+            {
+                // the cache provider's own copy; path-mapped storage only records a new path for the same file
+                target.copyFrom( source );
+            }
+
+            nfc.clearMissing( resource );
+            fileEventManager.fire( new FileStorageEvent( TransferOperation.UPLOAD, target, eventMetadata ) );
+            return target;
+        }
+        catch ( final IOException e )
+        {
+            throw new IndyWorkflowException( "Failed to adopt: %s as: %s in: %s. Reason: %s", e, source, path,
+                                             store.getKey(), e.getMessage() );
+        }
+        finally
+        {
+            if ( resetReadonly )
+            {
+                ( (CacheOnlyLocation) loc ).setReadonly( true );
+            }
+        }
+    }
+
+    private boolean hardLink( final Transfer source, final Transfer target )
+    {
+        if ( indyConfig == null || !indyConfig.isStandalone() || !indyConfig.isContentAdoptHardLinkEnabled() )
+        {
+            return false;
+        }
+
+        final File src = source.getDetachedFile();
+        final File dest = target.getDetachedFile();
+        if ( src == null || !src.isFile() || dest == null || dest.exists() )
+        {
+            return false;
+        }
+
+        try
+        {
+            dest.getParentFile().mkdirs();
+            Files.createLink( dest.toPath(), src.toPath() );
+            logger.debug( "Hard-linked {} to {}", source, target );
+            return true;
+        }
+        catch ( final IOException | UnsupportedOperationException e )
+        {
+            // e.g. different volumes; copying is always possible
+            logger.debug( "Cannot hard-link {} to {}, will copy. Reason: {}", source, target, e.getMessage() );
+            return false;
+        }
+    }
+
     private boolean isIgnoreReadonly( EventMetadata eventMetadata )
     {
         return Boolean.TRUE.equals( eventMetadata.get( IGNORE_READONLY ) );
@@ -0,0 +1,309 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import com.codahale.metrics.Gauge;
+import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.conf.ExecutionModeConfig;
+import org.commonjava.indy.metrics.IndyMetricsManager;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.util.ApplicationStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps concurrent remote requests per upstream host, whatever threads they run on, so one slow upstream can't tie up
+ * the threads (or, with virtual threads, the connections and memory) that requests to other upstreams need. Remote
+ * repositories on the same host and port share one limit.
+ * <p>
+ * With a static limit ([execution] upstream.max.concurrent), requests over it wait for a permit, up to
+ * upstream.acquire.timeout.seconds. With upstream.limit.adaptive=true each host gets an {@link AdaptiveUpstreamLimit}
+ * that follows the latency it observes, and requests over it are rejected at once: a slow upstream then costs a fast
+ * 503 for content it would have served slowly, while its cached content and NFC entries are still served.
+ * <p>
+ * Per host, the in-flight count, current limit and rejections are exported as gauges.
+ */
+@ApplicationScoped
+public class UpstreamConcurrencyLimiter
+{
+    /**
+     * Held while a remote request runs; closing it returns the permit.
+     */
+    public interface Permit
+            extends AutoCloseable
+    {
+        /**
+         * Marks the request as failed by the upstream (timeout, bad gateway), which an adaptive limit backs off on.
+         */
+        default void dropped()
+        {
+        }
+
+        /**
+         * Marks the response as carrying no content (existence check, not found). An adaptive limit judges those
+         * against their own latency baseline, since they take about one round trip whatever the artifact's size.
+         */
+        default void noContent()
+        {
+        }
+
+        @Override
+        void close();
+    }
+
+    private static final Permit UNLIMITED = () -> {
+    };
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Map<String, Upstream> upstreams = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Inject
+    private ExecutionModeConfig config;
+
+    @Inject
+    private IndyMetricsManager metricsManager;
+
+    protected UpstreamConcurrencyLimiter()
+    {
+    }
+
+    public UpstreamConcurrencyLimiter( final ExecutionModeConfig config )
+    {
+        this.config = config;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        if ( metricsManager != null )
+        {
+            metricsManager.addGauges( getClass(), "upstream",
+                                      Collections.singletonMap( "rejected", (Gauge<Long>) rejected::get ) );
+        }
+    }
+
+    /**
+     * Takes a permit for the remote's host. With a static limit this waits up to the configured timeout; with an
+     * adaptive limit it doesn't wait.
+     *
+     * @throws IndyWorkflowException (503) if no permit is available, or if interrupted while waiting
+     */
+    public Permit acquire( final RemoteRepository remote )
+            throws IndyWorkflowException
+    {
+        if ( config.getUpstreamMaxConcurrent() < 1 )
+        {
+            return UNLIMITED;
+        }
+
+        final Upstream upstream = upstreams.computeIfAbsent( getHost( remote ), this::newUpstream );
+        return upstream.adaptiveLimit == null ? upstream.await( remote ) : upstream.tryAcquire( remote );
+    }
+
+    /**
+     * @return requests currently holding a permit for host (as host:port)
+     */
+    public int getInFlight( final String host )
+    {
+        final Upstream upstream = upstreams.get( host );
+        return upstream == null ? 0 : upstream.inFlight.get();
+    }
+
+    /**
+     * @return the current limit for host (as host:port), or 0 if nothing was requested from it yet
+     */
+    public int getLimit( final String host )
+    {
+        final Upstream upstream = upstreams.get( host );
+        return upstream == null ? 0 : upstream.getLimit();
+    }
+
+    /**
+     * @return requests to host (as host:port) turned away because it was at its limit
+     */
+    public long getRejected( final String host )
+    {
+        final Upstream upstream = upstreams.get( host );
+        return upstream == null ? 0 : upstream.rejected.get();
+    }
+
+    private Upstream newUpstream( final String host )
+    {
+        final Upstream upstream;
+        if ( config.isUpstreamLimitAdaptive() )
+        {
+            upstream = new Upstream( host, null,
+                                     new AdaptiveUpstreamLimit( config.getUpstreamLimitInitial(),
+                                                                config.getUpstreamLimitMin(),
+                                                                config.getUpstreamMaxConcurrent(),
+                                                                config.getUpstreamLatencyTolerance(),
+                                                                config.getUpstreamLimitBackoff() ) );
+        }
+        else
+        {
+            upstream = new Upstream( host, new Semaphore( config.getUpstreamMaxConcurrent(), true ), null );
+        }
+
+        if ( metricsManager != null )
+        {
+            final String name = host.replaceAll( "[^A-Za-z0-9-]", "_" );
+            final Map<String, Gauge<Long>> gauges = new HashMap<>();
+            gauges.put( name + ".inFlight", () -> (long) upstream.inFlight.get() );
+            gauges.put( name + ".limit", () -> (long) upstream.getLimit() );
+            gauges.put( name + ".rejected", upstream.rejected::get );
+            metricsManager.addGauges( getClass(), "upstream", gauges );
+        }
+
+        return upstream;
+    }
+
+    private IndyWorkflowException rejection( final Upstream upstream, final RemoteRepository remote,
+                                             final Throwable cause )
+    {
+        upstream.rejected.incrementAndGet();
+        rejected.incrementAndGet();
+        return new IndyWorkflowException( ApplicationStatus.SERVICE_UNAVAILABLE.code(),
+                                          "Too many concurrent requests to upstream: {} ({}); limit: {}", cause,
+                                          upstream.host, remote.getKey(), upstream.getLimit() );
+    }
+
+    static String getHost( final RemoteRepository remote )
+    {
+        final String url = remote.getUrl();
+        try
+        {
+            final URL u = new URL( url );
+            final int port = u.getPort() < 0 ? u.getDefaultPort() : u.getPort();
+            return u.getHost().toLowerCase() + ":" + port;
+        }
+        catch ( MalformedURLException e )
+        {
+            return url;
+        }
+    }
+
+    private final class Upstream
+    {
+        private final String host;
+
+        private final Semaphore permits;
+
+        private final AdaptiveUpstreamLimit adaptiveLimit;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicLong rejected = new AtomicLong();
+
+        private Upstream( final String host, final Semaphore permits, final AdaptiveUpstreamLimit adaptiveLimit )
+        {
+            this.host = host;
+            this.permits = permits;
+            this.adaptiveLimit = adaptiveLimit;
+        }
+
+        private int getLimit()
+        {
+            return adaptiveLimit == null ? config.getUpstreamMaxConcurrent() : adaptiveLimit.getLimit();
+        }
+
+        private Permit await( final RemoteRepository remote )
+                throws IndyWorkflowException
+        {
+            final int timeout = config.getUpstreamAcquireTimeoutSeconds();
+            try
+            {
+                if ( !permits.tryAcquire( timeout, TimeUnit.SECONDS ) )
+                {
+                    logger.warn( "No request permit for upstream: {} ({}) within {}s; {} requests in flight.", host,
+                                 remote.getKey(), timeout, inFlight.get() );
+                    throw rejection( this, remote, null );
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw rejection( this, remote, e );
+            }
+
+            inFlight.incrementAndGet();
+            return () -> {
+                inFlight.decrementAndGet();
+                permits.release();
+            };
+        }
+
+        private Permit tryAcquire( final RemoteRepository remote )
+                throws IndyWorkflowException
+        {
+            int current;
+            do
+            {
+                current = inFlight.get();
+                if ( current >= adaptiveLimit.getLimit() )
+                {
+                    logger.debug( "Rejecting request to upstream: {} ({}); {} requests in flight, limit: {}", host,
+                                  remote.getKey(), current, adaptiveLimit.getLimit() );
+                    throw rejection( this, remote, null );
+                }
+            }
+            while ( !inFlight.compareAndSet( current, current + 1 ) );
+
+            final long start = System.nanoTime();
+            return new Permit()
+            {
+                private boolean dropped;
+
+                private boolean content = true;
+
+                @Override
+                public void dropped()
+                {
+                    dropped = true;
+                }
+
+                @Override
+                public void noContent()
+                {
+                    content = false;
+                }
+
+                @Override
+                public void close()
+                {
+                    adaptiveLimit.onSample( start, System.nanoTime(), inFlight.getAndDecrement(), dropped,
+                                            content );
+                }
+            };
+        }
+    }
+}
@@ -20,10 +20,22 @@ import static org.commonjava.maven.galley.util.UrlUtils.buildUrl;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -36,6 +48,8 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.IndyException;
 import org.commonjava.indy.IndyWorkflowException;
 import org.commonjava.indy.audit.ChangeSummary;
@@ -46,7 +60,6 @@ import org.commonjava.indy.model.core.Group;
 import org.commonjava.indy.model.core.HostedRepository;
 import org.commonjava.indy.model.core.RemoteRepository;
 import org.commonjava.indy.model.core.StoreKey;
-import org.commonjava.indy.model.core.StoreType;
 import org.commonjava.indy.model.core.dto.EndpointView;
 import org.commonjava.indy.model.core.dto.EndpointViewListing;
 import org.commonjava.indy.model.core.dto.ReplicationAction;
@@ -62,8 +75,16 @@ import org.commonjava.maven.galley.event.EventMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
+/**
+ * Copies store definitions from a remote Indy instance. The remote endpoint and store listings are fetched in parallel
+ * over one client, candidates are compared with the local definitions by a hash of their JSON form, and only the new
+ * or changed ones are written, in one batch with one set of store-update events.
+ */
 @ApplicationScoped
 public class ReplicationController
 {
@@ -85,17 +106,29 @@ public class ReplicationController
     @Inject
     private ScriptEngine scriptEngine;
 
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "replication-fetch", threads = 4, priority = 6 )
+    private ExecutorService fetchExecutor;
+
     protected ReplicationController()
     {
     }
 
     public ReplicationController( final StoreDataManager data, final IndyHttpProvider http, ScriptEngine scriptEngine,
                                   final ObjectMapper serializer )
+    {
+        this( data, http, scriptEngine, serializer, null );
+    }
+
+    public ReplicationController( final StoreDataManager data, final IndyHttpProvider http, ScriptEngine scriptEngine,
+                                  final ObjectMapper serializer, final ExecutorService fetchExecutor )
     {
         this.data = data;
         this.http = http;
         this.scriptEngine = scriptEngine;
         this.serializer = serializer;
+        this.fetchExecutor = fetchExecutor;
     }
 
     public ReplicationRepositoryCreator createRepoCreator()
@@ -136,11 +169,57 @@ public class ReplicationController
             throw new IndyWorkflowException( "Invalid replication request DTO: %s", e, e.getMessage() );
         }
 
-        List<? extends ArtifactStore> remoteStores = null;
-        List<EndpointView> remoteEndpoints = null;
+        boolean needEndpoints = false;
+        boolean needStores = false;
+        for ( final ReplicationAction action : dto )
+        {
+            if ( action != null )
+            {
+                needEndpoints |= action.getType() == ActionType.PROXY;
+                needStores |= action.getType() == ActionType.MIRROR;
+            }
+        }
+
+        final long start = System.currentTimeMillis();
+        List<? extends ArtifactStore> remoteStores = Collections.emptyList();
+        List<EndpointView> remoteEndpoints = Collections.emptyList();
+
+        CloseableHttpClient client = null;
+        try
+        {
+            final String siteId = new URL( dto.getApiUrl() ).getHost();
+            client = http.createClient( siteId );
+
+            final CloseableHttpClient sharedClient = client;
+            final CompletableFuture<List<EndpointView>> endpointsFuture =
+                    needEndpoints ? fetchAsync( () -> getEndpoints( dto, sharedClient, siteId ) ) : null;
+            final CompletableFuture<List<? extends ArtifactStore>> storesFuture =
+                    needStores ? getRemoteStores( dto, sharedClient, siteId ) : null;
+
+            if ( endpointsFuture != null )
+            {
+                remoteEndpoints = await( endpointsFuture );
+            }
+            if ( storesFuture != null )
+            {
+                remoteStores = await( storesFuture );
+            }
+        }
+        catch ( final MalformedURLException | IndyHttpException e )
+        {
+            throw new IndyWorkflowException( "Failed to create client for: %s. Reason: %s", e, dto.getApiUrl(),
+                                             e.getMessage() );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( client );
+        }
+
+        logger.info( "Replication from {}: fetched {} endpoints and {} store definitions in {}ms", dto.getApiUrl(),
+                     remoteEndpoints.size(), remoteStores.size(), System.currentTimeMillis() - start );
 
         final boolean overwrite = dto.isOverwrite();
-        final Set<StoreKey> replicated = new HashSet<StoreKey>();
+        final Map<StoreKey, ArtifactStore> candidates = new LinkedHashMap<>();
         for ( final ReplicationAction action : dto )
         {
             if ( action == null )
@@ -152,82 +231,129 @@ public class ReplicationController
             final String include = action.getInclude();
             final String exclude = action.getExclude();
 
-            try
+            if ( action.getType() == ActionType.PROXY )
             {
-                if ( action.getType() == ActionType.PROXY )
+                for ( final EndpointView view : remoteEndpoints )
                 {
-                    if ( remoteEndpoints == null )
+                    final String key = "remote-" + view.getType() + "_" + view.getName();
+                    if ( ( include == null || key.matches( include ) )
+                        && ( exclude == null || !key.matches( exclude ) ) )
                     {
-                        remoteEndpoints = getEndpoints( dto );
-                    }
+                        RemoteRepository repo = creator.createRemoteRepository( key, view );
+                        repo.setMetadata( ArtifactStore.METADATA_ORIGIN, REPLICATION_ORIGIN );
 
-                    for ( final EndpointView view : remoteEndpoints )
-                    {
-                        final String key = "remote-" + view.getType() + "_" + view.getName();
-                        if ( ( include == null || key.matches( include ) )
-                            && ( exclude == null || !key.matches( exclude ) ) )
-                        {
-                            final StoreKey sk = new StoreKey( StoreType.remote, key );
-                            if ( overwrite || !data.hasArtifactStore( sk ) )
-                            {
-                                RemoteRepository repo = creator.createRemoteRepository( key, view );
-                                repo.setMetadata( ArtifactStore.METADATA_ORIGIN, REPLICATION_ORIGIN );
-
-                                setProxyAttributes( repo, action );
-
-                                data.storeArtifactStore( repo, new ChangeSummary( user,
-                                                                                     "REPLICATION: Proxying remote indy repository: "
-                                                                                      + view.getResourceUri() ),
-                                                         true, true,
-                                                         new EventMetadata().set( StoreDataManager.EVENT_ORIGIN,
-                                                                                  REPLICATION_ORIGIN ) );
-                                replicated.add( repo.getKey() );
-                            }
-                        }
+                        setProxyAttributes( repo, action );
+                        addCandidate( candidates, repo, overwrite );
                     }
                 }
-                else if ( action.getType() == ActionType.MIRROR )
+            }
+            else if ( action.getType() == ActionType.MIRROR )
+            {
+                for ( final ArtifactStore store : remoteStores )
                 {
-                    if ( remoteStores == null )
+                    final String key = store.getKey()
+                                            .toString();
+                    if ( ( include == null || key.matches( include ) )
+                        && ( exclude == null || !key.matches( exclude ) ) )
                     {
-                        remoteStores = getRemoteStores( dto );
-                    }
-
-                    for ( final ArtifactStore store : remoteStores )
-                    {
-                        final String key = store.getKey()
-                                                .toString();
-                        if ( ( include == null || key.matches( include ) )
-                            && ( exclude == null || !key.matches( exclude ) ) )
+                        if ( store instanceof RemoteRepository )
                         {
-                            if ( overwrite || !data.hasArtifactStore( store.getKey() ) )
-                            {
-                                if ( store instanceof RemoteRepository )
-                                {
-                                    setProxyAttributes( ( (RemoteRepository) store ), action );
-                                }
-
-                                data.storeArtifactStore( store, new ChangeSummary( user,
-                                                                                   "REPLICATION: Mirroring remote indy store: "
-                                                                                       + store.getKey() ),
-                                                         true, true,
-                                                         new EventMetadata().set( StoreDataManager.EVENT_ORIGIN,
-                                                                                  REPLICATION_ORIGIN ) );
-                                replicated.add( store.getKey() );
-                            }
+                            setProxyAttributes( ( (RemoteRepository) store ), action );
                         }
+
+                        addCandidate( candidates, store, overwrite );
                     }
                 }
             }
-            catch ( final IndyDataException e )
+        }
+
+        try
+        {
+            // as before, an overwriting replication reports every matched store; the ones already in sync just
+            // aren't written again
+            final Set<StoreKey> unchanged = new HashSet<>();
+            final List<ArtifactStore> changed = new ArrayList<>();
+            int skipped = 0;
+            for ( final ArtifactStore store : candidates.values() )
             {
-                logger.error( e.getMessage(), e );
-                throw new IndyWorkflowException( e.getMessage(), e );
+                final ArtifactStore local = data.getArtifactStore( store.getKey() );
+                if ( local == null )
+                {
+                    changed.add( store );
+                }
+                else if ( !overwrite )
+                {
+                    skipped++;
+                }
+                else if ( Arrays.equals( definitionHash( local ), definitionHash( store ) ) )
+                {
+                    unchanged.add( store.getKey() );
+                }
+                else
+                {
+                    changed.add( store );
+                }
+            }
+
+            logger.info( "Replication from {}: {} candidates; {} new or changed, {} unchanged, {} existing skipped",
+                         dto.getApiUrl(), candidates.size(), changed.size(), unchanged.size(), skipped );
+
+            if ( changed.isEmpty() )
+            {
+                return unchanged;
             }
+
+            final Set<StoreKey> stored = data.storeArtifactStores( changed, new ChangeSummary( user,
+                                                                                                   "REPLICATION: Mirroring remote indy stores from: "
+                                                                                                           + dto.getApiUrl() ),
+                                                                       new EventMetadata().set(
+                                                                               StoreDataManager.EVENT_ORIGIN,
+                                                                               REPLICATION_ORIGIN ) );
+
+            logger.info( "Replication from {}: stored {} store definitions in {}ms", dto.getApiUrl(),
+                         stored.size(), System.currentTimeMillis() - start );
+
+            final Set<StoreKey> replicated = new HashSet<>( unchanged );
+            replicated.addAll( stored );
+            return replicated;
+        }
+        catch ( final IndyDataException e )
+        {
+            logger.error( e.getMessage(), e );
+            throw new IndyWorkflowException( e.getMessage(), e );
         }
 
-        return replicated;
+    }
 
+    private void addCandidate( final Map<StoreKey, ArtifactStore> candidates, final ArtifactStore store,
+                               final boolean overwrite )
+    {
+        if ( overwrite )
+        {
+            candidates.put( store.getKey(), store );
+        }
+        else
+        {
+            candidates.putIfAbsent( store.getKey(), store );
+        }
+    }
+
+    /**
+     * SHA-256 of the store's JSON, with map entries in key order so equal definitions hash the same.
+     */
+    private byte[] definitionHash( final ArtifactStore store )
+        throws IndyDataException
+    {
+        try
+        {
+            ObjectWriter writer = serializer.writer( SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS );
+            return MessageDigest.getInstance( "SHA-256" ).digest( writer.writeValueAsBytes( store ) );
+        }
+        catch ( JsonProcessingException | NoSuchAlgorithmException e )
+        {
+            throw new IndyDataException( "Failed to hash definition of: %s. Reason: %s", e, store.getKey(),
+                                         e.getMessage() );
+        }
     }
 
     private void setProxyAttributes( final RemoteRepository repo, final ReplicationAction action )
@@ -254,7 +380,9 @@ public class ReplicationController
     }
 
     // FIXME: Find a better solution to the passed-in generic deserialization problem...erasure is a mother...
-    private List<? extends ArtifactStore> getRemoteStores( final ReplicationDTO dto )
+    private CompletableFuture<List<? extends ArtifactStore>> getRemoteStores( final ReplicationDTO dto,
+                                                                            final CloseableHttpClient client,
+                                                                            final String siteId )
         throws IndyWorkflowException
     {
         final String apiUrl = dto.getApiUrl();
@@ -275,29 +403,43 @@ public class ReplicationController
                                               e, apiUrl, e.getMessage() );
         }
 
-        //        logger.info( "\n\n\n\n\n[AutoProx] Checking URL: {} from:", new Throwable(), url );
-        final List<ArtifactStore> result = new ArrayList<ArtifactStore>();
-
-        addStoresFrom( result, remotesUrl, dto, RemoteRepository.class );
-        addStoresFrom( result, groupsUrl, dto, Group.class );
-        addStoresFrom( result, hostedUrl, dto, HostedRepository.class );
+        final AtomicInteger done = new AtomicInteger();
+        final List<CompletableFuture<List<ArtifactStore>>> listings = new ArrayList<>();
+        listings.add( fetchStoresAsync( remotesUrl, dto, client, siteId, RemoteRepository.class, done ) );
+        listings.add( fetchStoresAsync( groupsUrl, dto, client, siteId, Group.class, done ) );
+        listings.add( fetchStoresAsync( hostedUrl, dto, client, siteId, HostedRepository.class, done ) );
+
+        return CompletableFuture.allOf( listings.toArray( new CompletableFuture[0] ) ).thenApply( v -> {
+            final List<ArtifactStore> result = new ArrayList<>();
+            listings.forEach( listing -> result.addAll( listing.join() ) );
+            return result;
+        } );
+    }
 
-        return result;
+    private <T extends ArtifactStore> CompletableFuture<List<ArtifactStore>> fetchStoresAsync( final String url,
+                                                                                              final ReplicationDTO dto,
+                                                                                              final CloseableHttpClient client,
+                                                                                              final String siteId,
+                                                                                              final Class<T> type,
+                                                                                              final AtomicInteger done )
+    {
+        return fetchAsync( () -> {
+            final List<ArtifactStore> result = new ArrayList<>();
+            addStoresFrom( result, url, dto, client, siteId, type );
+            logger.info( "Replication from {}: fetched {} {} definitions ({} of 3 listings)", dto.getApiUrl(),
+                         result.size(), type.getSimpleName(), done.incrementAndGet() );
+            return result;
+        } );
     }
 
     private <T extends ArtifactStore> void addStoresFrom( final List<ArtifactStore> result, final String remotesUrl,
-                                                          final ReplicationDTO dto, final Class<T> type )
+                                                          final ReplicationDTO dto, final CloseableHttpClient client,
+                                                          final String siteId, final Class<T> type )
         throws IndyWorkflowException
     {
         final HttpGet req = newGet( remotesUrl, dto );
-        CloseableHttpClient client = null;
-        try
+        try (CloseableHttpResponse response = client.execute( req, http.createContext( siteId ) ))
         {
-            String siteId = new URL( remotesUrl ).getHost();
-
-            client = http.createClient( siteId );
-            CloseableHttpResponse response = client.execute( req, http.createContext( siteId ) );
-
             final StatusLine statusLine = response.getStatusLine();
             final int status = statusLine.getStatusCode();
             if ( status == HttpStatus.SC_OK )
@@ -324,15 +466,16 @@ public class ReplicationController
             throw new IndyWorkflowException( "Failed to retrieve endpoints from: %s. Reason: %s", e, remotesUrl,
                                               e.getMessage() );
         }
-        finally
-        {
-            IOUtils.closeQuietly( client );
-        }
     }
 
     private HttpGet newGet( final String url, final ReplicationDTO dto )
     {
         final HttpGet get = new HttpGet( url );
+        if ( dto.getProxyHost() == null )
+        {
+            return get;
+        }
+
         final int proxyPort = dto.getProxyPort();
         HttpHost proxy;
         if ( proxyPort < 1 )
@@ -352,7 +495,8 @@ public class ReplicationController
         return get;
     }
 
-    private List<EndpointView> getEndpoints( final ReplicationDTO dto )
+    private List<EndpointView> getEndpoints( final ReplicationDTO dto, final CloseableHttpClient client,
+                                             final String siteId )
         throws IndyWorkflowException
     {
         final String apiUrl = dto.getApiUrl();
@@ -369,15 +513,8 @@ public class ReplicationController
         }
 
         final HttpGet req = newGet( url, dto );
-        CloseableHttpClient client = null;
-        try
+        try (CloseableHttpResponse response = client.execute( req, http.createContext( siteId ) ))
         {
-            String siteId = new URL( url ).getHost();
-
-            client = http.createClient( siteId );
-
-            CloseableHttpResponse response = client.execute( req, http.createContext( siteId ) );
-
             final StatusLine statusLine = response.getStatusLine();
             final int status = statusLine.getStatusCode();
             if ( status == HttpStatus.SC_OK )
@@ -394,9 +531,59 @@ public class ReplicationController
             throw new IndyWorkflowException( "Failed to retrieve endpoints from: {}. Reason: {}", e, url,
                                               e.getMessage() );
         }
-        finally
+    }
+
+    private <T> CompletableFuture<T> fetchAsync( final Callable<T> fetch )
+    {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Runnable task = () -> {
+            try
+            {
+                future.complete( fetch.call() );
+            }
+            catch ( Throwable e )
+            {
+                future.completeExceptionally( e );
+            }
+        };
+
+        if ( fetchExecutor == null )
         {
-            IOUtils.closeQuietly( client );
+            task.run();
+        }
+        else
+        {
+            fetchExecutor.execute( task );
+        }
+        return future;
+    }
+
+    private <T> T await( final CompletableFuture<T> future )
+        throws IndyWorkflowException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IndyWorkflowException( "Interrupted while fetching store definitions for replication", e );
+        }
+        catch ( final ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            while ( cause instanceof CompletionException && cause.getCause() != null )
+            {
+                cause = cause.getCause();
+            }
+
+            if ( cause instanceof IndyWorkflowException )
+            {
+                throw (IndyWorkflowException) cause;
+            }
+            throw new IndyWorkflowException( "Failed to fetch store definitions for replication: %s", cause,
+                                             cause.getMessage() );
         }
     }
 
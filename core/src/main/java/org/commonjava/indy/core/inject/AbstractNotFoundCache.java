@@ -22,6 +22,7 @@ import org.commonjava.maven.galley.model.ConcreteResource;
 import org.commonjava.maven.galley.model.Location;
 import org.commonjava.maven.galley.spi.nfc.NotFoundCache;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
@@ -42,6 +43,44 @@ public abstract class AbstractNotFoundCache implements NotFoundCache
         return Collections.emptySet();
     }
 
+    /**
+     * Add many entries at once. Implementations backed by a remote store should override this to avoid one round trip
+     * per resource.
+     */
+    public void addMissing( Collection<ConcreteResource> resources )
+    {
+        resources.forEach( this::addMissing );
+    }
+
+    /**
+     * Clear many entries at once. Implementations backed by a remote store should override this to avoid one round
+     * trip per resource.
+     */
+    public void clearMissing( Collection<ConcreteResource> resources )
+    {
+        resources.forEach( this::clearMissing );
+    }
+
+    /**
+     * Clear the given resources, using the bulk operation when the NFC supports it.
+     */
+    public static void clearMissing( NotFoundCache nfc, Collection<ConcreteResource> resources )
+    {
+        if ( resources.isEmpty() )
+        {
+            return;
+        }
+
+        if ( nfc instanceof AbstractNotFoundCache )
+        {
+            ( (AbstractNotFoundCache) nfc ).clearMissing( resources );
+        }
+        else
+        {
+            resources.forEach( nfc::clearMissing );
+        }
+    }
+
     abstract public long getSize( StoreKey storeKey );
 
     abstract public long getSize();
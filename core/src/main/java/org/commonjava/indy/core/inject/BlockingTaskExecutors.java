@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+import com.codahale.metrics.MetricRegistry;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.cdi.util.weft.ThreadContextualizer;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.cdi.util.weft.config.WeftConfig;
+import org.commonjava.indy.conf.ExecutionModeConfig;
+import org.commonjava.indy.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the executor for a Weft pool whose tasks mostly block on remote HTTP, storage or Cassandra. Components inject
+ * their Weft pool as usual and pass it through {@link #select(String, WeftExecutorService)} when they are constructed.
+ * In platform mode that is the pool itself. In virtual mode ([execution] mode=virtual on Java 21+) it is a pool of the
+ * same name that starts a virtual thread per task: the configured thread count stops applying, and
+ * {@link org.commonjava.indy.core.content.UpstreamConcurrencyLimiter} limits what reaches each upstream instead.
+ */
+@ApplicationScoped
+public class BlockingTaskExecutors
+{
+    private static final long IDLE_SECONDS = 60;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Map<String, WeftExecutorService> virtualPools = new ConcurrentHashMap<>();
+
+    @Inject
+    private ExecutionModeConfig config;
+
+    @Inject
+    private WeftConfig weftConfig;
+
+    @Inject
+    private Instance<MetricRegistry> metricRegistryInstance;
+
+    @Inject
+    private Instance<ThreadContextualizer> contextualizerInstance;
+
+    private MetricRegistry metricRegistry;
+
+    private Iterable<ThreadContextualizer> contextualizers;
+
+    protected BlockingTaskExecutors()
+    {
+    }
+
+    public BlockingTaskExecutors( final ExecutionModeConfig config, final WeftConfig weftConfig,
+                                  final MetricRegistry metricRegistry,
+                                  final Iterable<ThreadContextualizer> contextualizers )
+    {
+        this.config = config;
+        this.weftConfig = weftConfig;
+        this.metricRegistry = metricRegistry;
+        this.contextualizers = contextualizers;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        if ( !metricRegistryInstance.isUnsatisfied() )
+        {
+            metricRegistry = metricRegistryInstance.get();
+        }
+
+        contextualizers = contextualizerInstance;
+    }
+
+    public WeftExecutorService select( final String name, final WeftExecutorService managed )
+    {
+        if ( !config.isVirtualThreads() )
+        {
+            return managed;
+        }
+
+        return virtualPools.computeIfAbsent( name, n -> {
+            logger.info( "Running tasks of pool: {} on virtual threads", n );
+            final ThreadPoolExecutor pool =
+                    new ThreadPoolExecutor( 0, Integer.MAX_VALUE, IDLE_SECONDS, TimeUnit.SECONDS,
+                                            new SynchronousQueue<>(), VirtualThreads.newThreadFactory( n + "-" ) );
+
+            // the thread count only feeds Weft's load factor, which doesn't apply without a thread limit. Metrics and
+            // thread contextualizers are wired the same way WeftPoolBoy wires the pool this one stands in for.
+            final String metricPrefix = MetricRegistry.name( weftConfig.getNodePrefix(), "weft.ThreadPoolExecutor", n );
+            return new PoolWeftExecutorService( n, pool, Integer.MAX_VALUE, 1f, false, metricRegistry, metricPrefix,
+                                                contextualizers );
+        } );
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        virtualPools.values().forEach( WeftExecutorService::shutdown );
+    }
+}
@@ -0,0 +1,521 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+import org.commonjava.indy.conf.IndyConfiguration;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.galley.KeyedLocation;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Alternative;
+import javax.inject.Inject;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static org.commonjava.indy.model.core.StoreType.hosted;
+
+/**
+ * In-memory NFC with a hard cap on the number of entries, selected with <code>nfc.provider = memory</code>.
+ * <ul>
+ *     <li>Entries are indexed per {@link Location}, so location-scoped clears and queries only touch the entries of
+ *     that location. Each entry keeps only its path; the location instance is shared by the index.</li>
+ *     <li>Expiration is driven by a hierarchical timing wheel ({@link NfcTimerWheel}) instead of full scans.</li>
+ *     <li>When the cap is reached, the least-recently-used entry is only evicted if the new entry has been requested
+ *     at least as often (TinyLFU admission, see {@link NfcFrequencySketch}); otherwise the new entry is dropped.</li>
+ * </ul>
+ * Reads are lock-free. Writes, LRU reordering and sketch updates are serialized by one lock; reads only update the
+ * LRU order and sketch when that lock is free, so the recency order is approximate.
+ */
+@ApplicationScoped
+@Alternative
+public class BoundedMemoryNotFoundCache
+        extends AbstractNotFoundCache
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    protected IndyConfiguration config;
+
+    private final Map<Location, LocationIndex> locations = new ConcurrentHashMap<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final NfcMemoryEntry lruHead = new NfcMemoryEntry();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong rejections = new AtomicLong();
+
+    private final AtomicLong expirations = new AtomicLong();
+
+    private NfcTimerWheel timerWheel;
+
+    private NfcFrequencySketch sketch;
+
+    private long maxEntries;
+
+    private volatile long size;
+
+    private ScheduledExecutorService evictionService;
+
+    protected BoundedMemoryNotFoundCache()
+    {
+    }
+
+    public BoundedMemoryNotFoundCache( final IndyConfiguration config )
+    {
+        this.config = config;
+        start();
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        maxEntries = Math.max( 1, config.getNfcMemoryMaxEntries() );
+        timerWheel = new NfcTimerWheel( System.currentTimeMillis() );
+        sketch = new NfcFrequencySketch( maxEntries );
+
+        // the wheel is also advanced on every write; this only reclaims memory when the NFC is read-mostly
+        final int sweepMins = config.getNfcExpirationSweepMinutes();
+        evictionService = Executors.newSingleThreadScheduledExecutor( r -> {
+            Thread t = new Thread( r, "nfc-memory-expiration" );
+            t.setDaemon( true );
+            return t;
+        } );
+        evictionService.scheduleAtFixedRate( this::clearAllExpiredMissing, sweepMins, sweepMins, TimeUnit.MINUTES );
+        logger.info( "[NFC] Started in-memory NFC with max entries: {}", maxEntries );
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        if ( evictionService != null )
+        {
+            evictionService.shutdownNow();
+        }
+    }
+
+    @Override
+    public void addMissing( final ConcreteResource resource )
+    {
+        final Location location = resource.getLocation();
+        final String path = resource.getPath();
+        final long now = System.currentTimeMillis();
+        final long expiresAt = getExpiration( resource, now );
+        final int hash = hash( location, path );
+
+        writeLock.lock();
+        try
+        {
+            timerWheel.advance( now, this::expire );
+            sketch.increment( hash );
+
+            LocationIndex index = locations.get( location );
+            NfcMemoryEntry entry = index == null ? null : index.entries.get( path );
+            if ( entry != null )
+            {
+                timerWheel.deschedule( entry );
+                entry.expiresAtMillis = expiresAt;
+                timerWheel.schedule( entry );
+                moveToTail( entry );
+                return;
+            }
+
+            if ( size >= maxEntries && !admit( hash, now ) )
+            {
+                rejections.incrementAndGet();
+                logger.debug( "[NFC] Rejected {} by admission policy", resource );
+                return;
+            }
+
+            // admission may have evicted the last entry of this location, so resolve the index afterwards
+            index = locations.computeIfAbsent( location, LocationIndex::new );
+            entry = new NfcMemoryEntry( path, index, hash );
+            entry.expiresAtMillis = expiresAt;
+            index.entries.put( path, entry );
+            timerWheel.schedule( entry );
+            linkTail( entry );
+            size++;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+
+        logger.debug( "[NFC] {} will not be checked again until: {}", resource, expiresAt );
+    }
+
+    @Override
+    public boolean isMissing( final ConcreteResource resource )
+    {
+        final Location location = resource.getLocation();
+        final String path = resource.getPath();
+
+        final LocationIndex index = locations.get( location );
+        final NfcMemoryEntry entry = index == null ? null : index.entries.get( path );
+        final boolean result = entry != null && !entry.isExpired( System.currentTimeMillis() );
+
+        recordAccess( hash( location, path ), result ? entry : null );
+
+        logger.trace( "NFC check: {} result is: {}", resource, result );
+        return result;
+    }
+
+    @Override
+    public void clearMissing( final Location location )
+    {
+        writeLock.lock();
+        try
+        {
+            LocationIndex index = locations.remove( location );
+            if ( index != null )
+            {
+                index.entries.values().forEach( this::unlink );
+                size -= index.entries.size();
+                index.entries.clear();
+            }
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clearMissing( final ConcreteResource resource )
+    {
+        writeLock.lock();
+        try
+        {
+            LocationIndex index = locations.get( resource.getLocation() );
+            if ( index != null )
+            {
+                remove( index, index.entries.get( resource.getPath() ) );
+            }
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clearMissing( final Collection<ConcreteResource> resources )
+    {
+        writeLock.lock();
+        try
+        {
+            resources.forEach( resource -> {
+                LocationIndex index = locations.get( resource.getLocation() );
+                if ( index != null )
+                {
+                    remove( index, index.entries.get( resource.getPath() ) );
+                }
+            } );
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clearAllMissing()
+    {
+        writeLock.lock();
+        try
+        {
+            locations.clear();
+            timerWheel.clear();
+            sketch.clear();
+            lruHead.lruNext = lruHead;
+            lruHead.lruPrev = lruHead;
+            size = 0;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Map<Location, Set<String>> getAllMissing()
+    {
+        final long now = System.currentTimeMillis();
+        final Map<Location, Set<String>> result = new HashMap<>();
+        locations.forEach( ( location, index ) -> {
+            Set<String> paths = index.livePaths( now );
+            if ( !paths.isEmpty() )
+            {
+                result.put( location, paths );
+            }
+        } );
+
+        return result;
+    }
+
+    @Override
+    public Set<String> getMissing( final Location location )
+    {
+        final LocationIndex index = locations.get( location );
+        if ( index == null )
+        {
+            return new HashSet<>();
+        }
+
+        return index.livePaths( System.currentTimeMillis() );
+    }
+
+    @Override
+    public Set<String> getMissing( final Location location, final int pageIndex, final int pageSize )
+    {
+        final LocationIndex index = locations.get( location );
+        if ( index == null || pageIndex < 0 || pageSize <= 0 )
+        {
+            return new HashSet<>();
+        }
+
+        final long now = System.currentTimeMillis();
+        return index.entries.values()
+                            .stream()
+                            .filter( e -> !e.isExpired( now ) )
+                            .map( e -> e.path )
+                            .sorted()
+                            .skip( (long) pageIndex * pageSize )
+                            .limit( pageSize )
+                            .collect( Collectors.toSet() );
+    }
+
+    @Override
+    public long getSize( final StoreKey storeKey )
+    {
+        return locations.entrySet()
+                        .stream()
+                        .filter( e -> e.getKey() instanceof KeyedLocation && storeKey.equals(
+                                        ( (KeyedLocation) e.getKey() ).getKey() ) )
+                        .mapToLong( e -> e.getValue().entries.size() )
+                        .sum();
+    }
+
+    @Override
+    public long getSize()
+    {
+        return size;
+    }
+
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    public long getRejectionCount()
+    {
+        return rejections.get();
+    }
+
+    public long getExpirationCount()
+    {
+        return expirations.get();
+    }
+
+    @Override
+    protected IndyConfiguration getIndyConfiguration()
+    {
+        return config;
+    }
+
+    private void clearAllExpiredMissing()
+    {
+        try
+        {
+            writeLock.lock();
+            try
+            {
+                timerWheel.advance( System.currentTimeMillis(), this::expire );
+            }
+            finally
+            {
+                writeLock.unlock();
+            }
+        }
+        catch ( Throwable error )
+        {
+            logger.error( "Failed to clear expired entries from NFC", error );
+        }
+    }
+
+    /**
+     * Hosted entries never time out (same as {@link IspnNotFoundCache}); everything else uses the configured or
+     * per-location timeout.
+     */
+    private long getExpiration( final ConcreteResource resource, final long now )
+    {
+        final Location location = resource.getLocation();
+        if ( location instanceof KeyedLocation && ( (KeyedLocation) location ).getKey().getType() == hosted )
+        {
+            return NfcMemoryEntry.NO_EXPIRATION;
+        }
+
+        final int timeoutInSeconds = getTimeoutInSeconds( resource );
+        return timeoutInSeconds > 0 ? now + TimeUnit.SECONDS.toMillis( timeoutInSeconds ) : NfcMemoryEntry.NO_EXPIRATION;
+    }
+
+    /**
+     * Decide whether a new entry may replace the LRU victim. Expired victims are always replaced.
+     */
+    private boolean admit( final int candidateHash, final long now )
+    {
+        NfcMemoryEntry victim = lruHead.lruNext;
+        if ( victim == lruHead )
+        {
+            return true;
+        }
+
+        if ( victim.isExpired( now ) || sketch.frequency( candidateHash ) >= sketch.frequency( victim.hash ) )
+        {
+            remove( victim.owner, victim );
+            evictions.incrementAndGet();
+            return true;
+        }
+
+        return false;
+    }
+
+    private void recordAccess( final int hash, final NfcMemoryEntry entry )
+    {
+        if ( writeLock.tryLock() )
+        {
+            try
+            {
+                sketch.increment( hash );
+                if ( entry != null && entry.lruNext != null )
+                {
+                    moveToTail( entry );
+                }
+            }
+            finally
+            {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void expire( final NfcMemoryEntry entry )
+    {
+        // the wheel already unlinked it
+        if ( entry.owner.entries.remove( entry.path, entry ) )
+        {
+            unlinkLru( entry );
+            size--;
+            expirations.incrementAndGet();
+            removeIfEmpty( entry.owner );
+        }
+    }
+
+    private void remove( final LocationIndex index, final NfcMemoryEntry entry )
+    {
+        if ( entry != null && index.entries.remove( entry.path, entry ) )
+        {
+            unlink( entry );
+            size--;
+            removeIfEmpty( index );
+        }
+    }
+
+    private void removeIfEmpty( final LocationIndex index )
+    {
+        if ( index.entries.isEmpty() )
+        {
+            locations.remove( index.location, index );
+        }
+    }
+
+    private void unlink( final NfcMemoryEntry entry )
+    {
+        timerWheel.deschedule( entry );
+        unlinkLru( entry );
+    }
+
+    private void linkTail( final NfcMemoryEntry entry )
+    {
+        entry.lruNext = lruHead;
+        entry.lruPrev = lruHead.lruPrev;
+        lruHead.lruPrev.lruNext = entry;
+        lruHead.lruPrev = entry;
+    }
+
+    private void unlinkLru( final NfcMemoryEntry entry )
+    {
+        if ( entry.lruNext != null )
+        {
+            entry.lruPrev.lruNext = entry.lruNext;
+            entry.lruNext.lruPrev = entry.lruPrev;
+            entry.lruPrev = null;
+            entry.lruNext = null;
+        }
+    }
+
+    private void moveToTail( final NfcMemoryEntry entry )
+    {
+        unlinkLru( entry );
+        linkTail( entry );
+    }
+
+    private static int hash( final Location location, final String path )
+    {
+        return 31 * location.hashCode() + ( path == null ? 0 : path.hashCode() );
+    }
+
+    /**
+     * Entries of one {@link Location}. Removing an index from the cache drops all of its entries at once.
+     */
+    static final class LocationIndex
+    {
+        final Location location;
+
+        final Map<String, NfcMemoryEntry> entries = new ConcurrentHashMap<>();
+
+        LocationIndex( final Location location )
+        {
+            this.location = location;
+        }
+
+        Set<String> livePaths( final long now )
+        {
+            return entries.values()
+                          .stream()
+                          .filter( e -> !e.isExpired( now ) )
+                          .map( e -> e.path )
+                          .collect( Collectors.toSet() );
+        }
+    }
+}
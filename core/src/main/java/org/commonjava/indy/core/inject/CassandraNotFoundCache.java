@@ -15,11 +15,14 @@
  */
 package org.commonjava.indy.core.inject;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import org.commonjava.indy.conf.IndyConfiguration;
 import org.commonjava.indy.measure.annotation.Measure;
 import org.commonjava.indy.model.core.StoreKey;
@@ -37,11 +40,16 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import static org.commonjava.indy.conf.DefaultIndyConfiguration.DEFAULT_NOT_FOUND_CACHE_TIMEOUT_SECONDS;
@@ -100,6 +108,10 @@ public class CassandraNotFoundCache
 
     private Session session;
 
+    private Semaphore inFlight;
+
+    private int batchSize;
+
     protected CassandraNotFoundCache()
     {
     }
@@ -120,6 +132,8 @@ public class CassandraNotFoundCache
 
         keyspace = config.getCacheKeyspace();
         maxResultSetSize = config.getNfcMaxResultSetSize();
+        inFlight = new Semaphore( Math.max( 1, config.getNfcCassandraMaxInflight() ) );
+        batchSize = Math.max( 1, config.getNfcCassandraBatchSize() );
 
         session = cassandraClient.getSession( keyspace );
         if ( session == null )
@@ -152,9 +166,45 @@ public class CassandraNotFoundCache
         return config;
     }
 
+    /**
+     * The insert is sent asynchronously; the near-cache is updated right away so this node sees the entry immediately.
+     * A later clear still wins over an insert that is still in flight, because statements carry client-side
+     * timestamps.
+     */
     @Override
     @Measure
     public void addMissing( final ConcreteResource resource )
+    {
+        ResultSetFuture future = executeAsync( bindInsert( resource ) );
+        future.addListener( () -> {
+            try
+            {
+                future.getUninterruptibly();
+            }
+            catch ( RuntimeException e )
+            {
+                logger.warn( "[NFC] Failed to add {}, reason: {}", resource, e.getMessage() );
+            }
+        }, Runnable::run );
+    }
+
+    /**
+     * Insert entries with one unlogged batch per storekey partition (split by the configured batch size), running the
+     * batches in parallel with bounded in-flight requests. Returns when all of them are written.
+     */
+    @Override
+    @Measure
+    public void addMissing( final Collection<ConcreteResource> resources )
+    {
+        Map<String, List<Statement>> byPartition = new HashMap<>();
+        resources.forEach( resource -> byPartition.computeIfAbsent( getResourceKey( resource ).toString(),
+                                                                    k -> new ArrayList<>() )
+                                                  .add( bindInsert( resource ) ) );
+
+        executeBatches( byPartition );
+    }
+
+    private BoundStatement bindInsert( final ConcreteResource resource )
     {
         KeyedLocation location = (KeyedLocation) resource.getLocation();
         StoreKey key = location.getKey();
@@ -170,10 +220,8 @@ public class CassandraNotFoundCache
         logger.debug( "[NFC] {} will not be checked again until {}", resource,
                       new SimpleDateFormat( TIMEOUT_FORMAT ).format( timeoutDate ) );
 
-        BoundStatement bound = preparedInsert.bind( key.toString(), resource.getPath(), curDate, timeoutDate,
-                                                    timeoutInSeconds );
-        session.execute( bound );
         inMemoryCache.put( resource, DUMB_CACHE_VALUE, timeoutInSeconds, TimeUnit.SECONDS );
+        return preparedInsert.bind( key.toString(), resource.getPath(), curDate, timeoutDate, timeoutInSeconds );
     }
 
     @Override
@@ -245,6 +293,28 @@ public class CassandraNotFoundCache
         inMemoryCache.remove( resource );
     }
 
+    /**
+     * Delete entries with one unlogged batch per storekey partition (split by the configured batch size), running the
+     * batches in parallel with bounded in-flight requests. Returns when all of them are deleted.
+     */
+    @Override
+    @Measure
+    public void clearMissing( final Collection<ConcreteResource> resources )
+    {
+        Map<String, List<Statement>> byPartition = new HashMap<>();
+        resources.forEach( resource -> {
+            String key = getResourceKey( resource ).toString();
+            byPartition.computeIfAbsent( key, k -> new ArrayList<>() )
+                       .add( preparedDelete.bind( key, resource.getPath() ) );
+        } );
+
+        executeBatches( byPartition );
+        inMemoryCache.executeCache( c -> {
+            resources.forEach( r -> c.remove( r ) );
+            return null;
+        } );
+    }
+
     @Override
     @Measure
     public void clearAllMissing()
@@ -321,6 +391,49 @@ public class CassandraNotFoundCache
         return 0; // not support
     }
 
+    private void executeBatches( final Map<String, List<Statement>> byPartition )
+    {
+        List<ResultSetFuture> futures = new ArrayList<>();
+        byPartition.values().forEach( statements -> {
+            if ( statements.size() == 1 )
+            {
+                futures.add( executeAsync( statements.get( 0 ) ) );
+                return;
+            }
+
+            for ( int i = 0; i < statements.size(); i += batchSize )
+            {
+                BatchStatement batch = new BatchStatement( BatchStatement.Type.UNLOGGED );
+                batch.addAll( statements.subList( i, Math.min( i + batchSize, statements.size() ) ) );
+                futures.add( executeAsync( batch ) );
+            }
+        } );
+
+        logger.debug( "[NFC] Executing {} statements/batches for {} partitions", futures.size(), byPartition.size() );
+        futures.forEach( ResultSetFuture::getUninterruptibly );
+    }
+
+    /**
+     * Execute a statement asynchronously, blocking only when the max number of in-flight statements is reached.
+     */
+    private ResultSetFuture executeAsync( final Statement statement )
+    {
+        inFlight.acquireUninterruptibly();
+        ResultSetFuture future;
+        try
+        {
+            future = session.executeAsync( statement );
+        }
+        catch ( RuntimeException e )
+        {
+            inFlight.release();
+            throw e;
+        }
+
+        future.addListener( inFlight::release, Runnable::run );
+        return future;
+    }
+
     private StoreKey getResourceKey( ConcreteResource resource )
     {
         KeyedLocation location = (KeyedLocation) resource.getLocation();
@@ -35,6 +35,7 @@ import javax.inject.Inject;
 
 import static org.commonjava.indy.conf.DefaultIndyConfiguration.CASSANDRA_NFC_PROVIDER;
 import static org.commonjava.indy.conf.DefaultIndyConfiguration.ISPN_NFC_PROVIDER;
+import static org.commonjava.indy.conf.DefaultIndyConfiguration.MEMORY_NFC_PROVIDER;
 
 @ApplicationScoped
 public class CoreProvider
@@ -95,6 +96,10 @@ public class CoreProvider
                 notFoundCache = new CassandraNotFoundCache( indyConfiguration, cacheProducer,
                                                             cassandraClient );
             }
+            else if ( MEMORY_NFC_PROVIDER.equals( nfcProvider ) )
+            {
+                notFoundCache = new BoundedMemoryNotFoundCache( indyConfiguration );
+            }
             else
             {
                 notFoundCache = new IspnNotFoundCache( indyConfiguration, nfcCache ); // default
@@ -37,6 +37,7 @@ import javax.enterprise.inject.Alternative;
 import javax.enterprise.inject.Default;
 import javax.inject.Inject;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -44,6 +45,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
 import static org.commonjava.indy.model.core.StoreKey.fromString;
@@ -156,11 +158,17 @@ public class IspnNotFoundCache
     @Measure
     public void clearMissing( final Location location )
     {
-        nfcCache.execute( (cache) -> {
-            Set<String> paths = getMissing( location );
-            paths.forEach( path -> cache.remove( getResourceKey( new ConcreteResource( location, path ) ) ) );
-            return null;
-        } );
+        Set<String> paths = getMissing( location );
+        nfcCache.removeAll( paths.stream()
+                                 .map( path -> getResourceKey( new ConcreteResource( location, path ) ) )
+                                 .collect( Collectors.toList() ) );
+    }
+
+    @Override
+    @Measure
+    public void clearMissing( final Collection<ConcreteResource> resources )
+    {
+        nfcCache.removeAll( resources.stream().map( this::getResourceKey ).collect( Collectors.toList() ) );
     }
 
     @Override
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+/**
+ * Count-min sketch of 4-bit counters used as the TinyLFU admission filter for {@link BoundedMemoryNotFoundCache}. It
+ * estimates how often a key was looked up or added recently, including keys that are not in the cache. Counters are
+ * halved once the number of increments reaches ten times the cache capacity, so old popularity fades out.
+ * <br/>
+ * Not thread-safe: callers must hold the NFC write lock. Lost updates only make the estimate less precise.
+ */
+final class NfcFrequencySketch
+{
+    private static final long[] SEEDS =
+                    { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    private int size;
+
+    NfcFrequencySketch( final long maximumSize )
+    {
+        // one long (16 counters) per expected entry keeps collisions low enough for the admission decision
+        int maximum = (int) Math.min( Math.max( 1, maximumSize ), 1 << 30 );
+        table = new long[ceilingPowerOfTwo( maximum )];
+        tableMask = table.length - 1;
+        sampleSize = (int) Math.min( 10L * Math.max( 1, maximumSize ), Integer.MAX_VALUE );
+    }
+
+    int frequency( final int hash )
+    {
+        int start = ( spread( hash ) & 3 ) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for ( int i = 0; i < 4; i++ )
+        {
+            int index = indexOf( hash, i );
+            int count = (int) ( ( table[index] >>> ( ( start + i ) << 2 ) ) & 0xfL );
+            frequency = Math.min( frequency, count );
+        }
+        return frequency;
+    }
+
+    void increment( final int hash )
+    {
+        int start = ( spread( hash ) & 3 ) << 2;
+        boolean added = false;
+        for ( int i = 0; i < 4; i++ )
+        {
+            added |= incrementAt( indexOf( hash, i ), start + i );
+        }
+
+        if ( added && ++size >= sampleSize )
+        {
+            reset();
+        }
+    }
+
+    void clear()
+    {
+        for ( int i = 0; i < table.length; i++ )
+        {
+            table[i] = 0L;
+        }
+        size = 0;
+    }
+
+    private boolean incrementAt( final int index, final int counter )
+    {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ( ( table[index] & mask ) != mask )
+        {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset()
+    {
+        int count = 0;
+        for ( int i = 0; i < table.length; i++ )
+        {
+            count += Long.bitCount( table[i] & ONE_MASK );
+            table[i] = ( table[i] >>> 1 ) & RESET_MASK;
+        }
+        size = ( size - ( count >>> 2 ) ) >>> 1;
+    }
+
+    private int indexOf( final int hash, final int i )
+    {
+        long h = ( hash + SEEDS[i] ) * SEEDS[i];
+        h += h >>> 32;
+        return ( (int) h ) & tableMask;
+    }
+
+    private static int spread( final int hash )
+    {
+        int h = ( ( hash >>> 16 ) ^ hash ) * 0x45d9f3b;
+        return ( h >>> 16 ) ^ h;
+    }
+
+    private static int ceilingPowerOfTwo( final int value )
+    {
+        return value <= 1 ? 1 : Integer.highestOneBit( value - 1 ) << 1;
+    }
+}
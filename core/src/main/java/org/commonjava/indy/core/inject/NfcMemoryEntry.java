@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+/**
+ * Single NFC entry held by {@link BoundedMemoryNotFoundCache}. The entry doesn't keep a {@link
+ * org.commonjava.maven.galley.model.ConcreteResource}; the location is shared through the owning
+ * {@link BoundedMemoryNotFoundCache.LocationIndex}, so each entry only carries its path plus the intrusive links used by
+ * the timer wheel and the LRU list. All link fields are guarded by the cache's write lock.
+ */
+final class NfcMemoryEntry
+{
+    static final long NO_EXPIRATION = Long.MAX_VALUE;
+
+    final String path;
+
+    final BoundedMemoryNotFoundCache.LocationIndex owner;
+
+    final int hash;
+
+    volatile long expiresAtMillis;
+
+    long expireTick;
+
+    NfcMemoryEntry wheelPrev;
+
+    NfcMemoryEntry wheelNext;
+
+    NfcMemoryEntry lruPrev;
+
+    NfcMemoryEntry lruNext;
+
+    NfcMemoryEntry( final String path, final BoundedMemoryNotFoundCache.LocationIndex owner, final int hash )
+    {
+        this.path = path;
+        this.owner = owner;
+        this.hash = hash;
+    }
+
+    /**
+     * Sentinel constructor, used for the heads of the timer wheel buckets and the LRU list.
+     */
+    NfcMemoryEntry()
+    {
+        this.path = null;
+        this.owner = null;
+        this.hash = 0;
+        this.wheelPrev = this;
+        this.wheelNext = this;
+        this.lruPrev = this;
+        this.lruNext = this;
+    }
+
+    boolean isExpired( final long nowMillis )
+    {
+        return nowMillis >= expiresAtMillis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "NfcMemoryEntry{" + "location=" + ( owner == null ? null : owner.location ) + ", path='" + path + '\''
+                        + ", expiresAtMillis=" + expiresAtMillis + '}';
+    }
+}
@@ -26,6 +26,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 @ApplicationScoped
@@ -51,8 +53,9 @@ public class NfcStoreContentAction
                                    boolean clearOriginPath )
     {
         logger.debug( "Clearing NFC path: {}, store: {}, affected: {}", path, store.getKey(), affectedGroups );
-        nfc.clearMissing( new ConcreteResource( LocationUtils.toLocation( store ), path ) );
-        affectedGroups.forEach(
-                        group -> nfc.clearMissing( new ConcreteResource( LocationUtils.toLocation( group ), path ) ) );
+        List<ConcreteResource> resources = new ArrayList<>( affectedGroups.size() + 1 );
+        resources.add( new ConcreteResource( LocationUtils.toLocation( store ), path ) );
+        affectedGroups.forEach( group -> resources.add( new ConcreteResource( LocationUtils.toLocation( group ), path ) ) );
+        AbstractNotFoundCache.clearMissing( nfc, resources );
     }
 }
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel used to expire {@link NfcMemoryEntry} instances without scanning the whole NFC. Ticks are
+ * one second wide; each level has 64 buckets, so the levels cover roughly 1 minute, 1 hour, 3 days and 6 months.
+ * Entries further out than the last level are parked in it and re-scheduled as the wheel turns. Scheduling and
+ * descheduling are O(1); {@link #advance(long, Consumer)} only touches the buckets that elapsed since the last call.
+ * <br/>
+ * Not thread-safe: callers must hold the NFC write lock.
+ */
+final class NfcTimerWheel
+{
+    private static final int BUCKET_BITS = 6;
+
+    private static final int BUCKETS = 1 << BUCKET_BITS;
+
+    private static final int LEVELS = 4;
+
+    private static final long MAX_DELAY_TICKS = ( 1L << ( BUCKET_BITS * LEVELS ) ) - 1;
+
+    private final NfcMemoryEntry[][] wheel = new NfcMemoryEntry[LEVELS][BUCKETS];
+
+    private long currentTick;
+
+    NfcTimerWheel( final long nowMillis )
+    {
+        this.currentTick = toTick( nowMillis );
+        clear();
+    }
+
+    static long toTick( final long millis )
+    {
+        return millis / 1000;
+    }
+
+    /**
+     * Round up so an entry never expires from the wheel before its millisecond deadline has passed.
+     */
+    static long toExpireTick( final long expiresAtMillis )
+    {
+        return expiresAtMillis / 1000 + ( expiresAtMillis % 1000 == 0 ? 0 : 1 );
+    }
+
+    void clear()
+    {
+        for ( int i = 0; i < LEVELS; i++ )
+        {
+            for ( int j = 0; j < BUCKETS; j++ )
+            {
+                wheel[i][j] = new NfcMemoryEntry();
+            }
+        }
+    }
+
+    void schedule( final NfcMemoryEntry entry )
+    {
+        if ( entry.expiresAtMillis == NfcMemoryEntry.NO_EXPIRATION )
+        {
+            return;
+        }
+
+        entry.expireTick = toExpireTick( entry.expiresAtMillis );
+
+        long delay = Math.max( 0, Math.min( entry.expireTick - currentTick, MAX_DELAY_TICKS ) );
+        for ( int level = 0; level < LEVELS; level++ )
+        {
+            if ( level == LEVELS - 1 || delay < ( 1L << ( BUCKET_BITS * ( level + 1 ) ) ) )
+            {
+                long target = currentTick + delay;
+                int index = (int) ( ( target >>> ( BUCKET_BITS * level ) ) & ( BUCKETS - 1 ) );
+                link( wheel[level][index], entry );
+                return;
+            }
+        }
+    }
+
+    void deschedule( final NfcMemoryEntry entry )
+    {
+        if ( entry.wheelNext != null )
+        {
+            entry.wheelPrev.wheelNext = entry.wheelNext;
+            entry.wheelNext.wheelPrev = entry.wheelPrev;
+            entry.wheelPrev = null;
+            entry.wheelNext = null;
+        }
+    }
+
+    /**
+     * Turn the wheel up to the given time, handing every entry whose deadline has passed to the evicter. Entries found
+     * in an elapsed bucket of a higher level that are not yet due cascade down to a finer level.
+     */
+    void advance( final long nowMillis, final Consumer<NfcMemoryEntry> evicter )
+    {
+        long previousTick = currentTick;
+        long nowTick = toTick( nowMillis );
+        if ( nowTick <= previousTick )
+        {
+            return;
+        }
+
+        currentTick = nowTick;
+        for ( int level = 0; level < LEVELS; level++ )
+        {
+            int shift = BUCKET_BITS * level;
+            long previousTicks = previousTick >>> shift;
+            long currentTicks = nowTick >>> shift;
+            if ( currentTicks - previousTicks <= 0 )
+            {
+                break;
+            }
+
+            expire( level, previousTicks, currentTicks, evicter );
+        }
+    }
+
+    private void expire( final int level, final long previousTicks, final long currentTicks,
+                         final Consumer<NfcMemoryEntry> evicter )
+    {
+        NfcMemoryEntry[] buckets = wheel[level];
+        int steps = (int) Math.min( 1 + currentTicks - previousTicks, BUCKETS );
+        int start = (int) ( previousTicks & ( BUCKETS - 1 ) );
+        for ( int i = start; i < start + steps; i++ )
+        {
+            NfcMemoryEntry sentinel = buckets[i & ( BUCKETS - 1 )];
+            NfcMemoryEntry node = sentinel.wheelNext;
+
+            // detach the whole bucket first, so cascaded entries can be re-linked into it safely
+            sentinel.wheelPrev = sentinel;
+            sentinel.wheelNext = sentinel;
+
+            while ( node != sentinel )
+            {
+                NfcMemoryEntry next = node.wheelNext;
+                node.wheelPrev = null;
+                node.wheelNext = null;
+
+                if ( node.expireTick <= currentTick )
+                {
+                    evicter.accept( node );
+                }
+                else
+                {
+                    schedule( node );
+                }
+
+                node = next;
+            }
+        }
+    }
+
+    private static void link( final NfcMemoryEntry sentinel, final NfcMemoryEntry entry )
+    {
+        entry.wheelNext = sentinel;
+        entry.wheelPrev = sentinel.wheelPrev;
+        sentinel.wheelPrev.wheelNext = entry;
+        sentinel.wheelPrev = entry;
+    }
+}
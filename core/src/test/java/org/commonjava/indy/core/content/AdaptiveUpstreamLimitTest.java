@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class AdaptiveUpstreamLimitTest
+{
+    private static final long MS = 1000000L;
+
+    @Test
+    public void growsOnlyWhileMostlyUsed()
+    {
+        AdaptiveUpstreamLimit limit = new AdaptiveUpstreamLimit( 10, 2, 12, 2.0, 0.5 );
+        long now = 0;
+
+        limit.onSample( now, now += 10 * MS, 1, false, true );
+        assertThat( limit.getLimit(), equalTo( 10 ) );
+
+        limit.onSample( now, now += 10 * MS, 5, false, true );
+        assertThat( limit.getLimit(), equalTo( 11 ) );
+
+        limit.onSample( now, now += 10 * MS, 11, false, true );
+        limit.onSample( now, now += 10 * MS, 11, false, true );
+        assertThat( limit.getLimit(), equalTo( 12 ) );
+    }
+
+    @Test
+    public void slowResponseCutsLimitOncePerEpisode()
+    {
+        AdaptiveUpstreamLimit limit = new AdaptiveUpstreamLimit( 16, 2, 100, 2.0, 0.5 );
+        long now = 0;
+        for ( int i = 0; i < 10; i++ )
+        {
+            limit.onSample( now, now += 10 * MS, 1, false, true );
+        }
+
+        // two concurrent requests, both slow: only the first to complete cuts the limit
+        long start = now;
+        limit.onSample( start, now += 200 * MS, 2, false, true );
+        assertThat( limit.getLimit(), equalTo( 8 ) );
+        limit.onSample( start, now += 1 * MS, 1, false, true );
+        assertThat( limit.getLimit(), equalTo( 8 ) );
+
+        // a slow request started after the cut is a new episode
+        limit.onSample( now, now += 200 * MS, 1, false, true );
+        assertThat( limit.getLimit(), equalTo( 4 ) );
+    }
+
+    @Test
+    public void varyingResponseTimesAroundTheBaselineDontCut()
+    {
+        AdaptiveUpstreamLimit limit = new AdaptiveUpstreamLimit( 10, 2, 100, 2.0, 0.5 );
+        long now = 0;
+        for ( int i = 0; i < 10; i++ )
+        {
+            limit.onSample( now, now += 10 * MS, 1, false, true );
+        }
+
+        // one larger download, then a mix of small and large ones
+        limit.onSample( now, now += 25 * MS, 1, false, true );
+        for ( int i = 0; i < 20; i++ )
+        {
+            limit.onSample( now, now += 30 * MS, 1, false, true );
+            limit.onSample( now, now += 10 * MS, 1, false, true );
+        }
+
+        assertThat( limit.getLimit(), equalTo( 10 ) );
+        assertThat( limit.getBaselineNanos( true ) > 10 * MS && limit.getBaselineNanos( true ) < 20 * MS,
+                    equalTo( true ) );
+    }
+
+    @Test
+    public void responsesWithoutContentKeepTheirOwnBaseline()
+    {
+        AdaptiveUpstreamLimit limit = new AdaptiveUpstreamLimit( 10, 2, 100, 2.0, 0.5 );
+        long now = 0;
+        for ( int i = 0; i < 40; i++ )
+        {
+            limit.onSample( now, now += 1 * MS, 1, false, false );
+            limit.onSample( now, now += 20 * MS, 1, false, true );
+        }
+
+        assertThat( limit.getLimit(), equalTo( 10 ) );
+        assertThat( limit.getBaselineNanos( false ), equalTo( 1 * MS ) );
+        assertThat( limit.getBaselineNanos( true ), equalTo( 20 * MS ) );
+    }
+
+    @Test
+    public void sustainedSlowdownAfterColdStartCutsLimit()
+    {
+        AdaptiveUpstreamLimit limit = new AdaptiveUpstreamLimit( 3, 1, 8, 2.0, 0.5 );
+        long now = 0;
+
+        // the first response pays for connection setup
+        limit.onSample( now, now += 2000 * MS, 1, false, true );
+        for ( int i = 0; i < 4; i++ )
+        {
+            limit.onSample( now, now += 3 * MS, 1, false, true );
+        }
+        assertThat( limit.getLimit(), equalTo( 3 ) );
+
+        limit.onSample( now, now += 500 * MS, 1, false, true );
+        assertThat( limit.getLimit(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void droppedRequestCutsLimitDownToMin()
+    {
+        AdaptiveUpstreamLimit limit = new AdaptiveUpstreamLimit( 8, 3, 100, 2.0, 0.5 );
+        long now = 0;
+        for ( int i = 0; i < 5; i++ )
+        {
+            limit.onSample( now, now += 10 * MS, 1, true, true );
+        }
+
+        assertThat( limit.getLimit(), equalTo( 3 ) );
+        assertThat( limit.getBaselineNanos( true ), equalTo( 0L ) );
+    }
+
+    @Test
+    public void initialLimitIsClamped()
+    {
+        assertThat( new AdaptiveUpstreamLimit( 500, 2, 100, 2.0, 0.9 ).getLimit(), equalTo( 100 ) );
+        assertThat( new AdaptiveUpstreamLimit( 0, 2, 100, 2.0, 0.9 ).getLimit(), equalTo( 2 ) );
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.content.ContentManager;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.model.Transfer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.commonjava.indy.model.core.StoreType.group;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ContentRequestCoalescerTest
+{
+    private static final StoreKey GROUP = new StoreKey( "maven", group, "public" );
+
+    private static final String PATH = "/org/foo/bar/1/bar-1.pom";
+
+    private final AtomicInteger retrievals = new AtomicInteger();
+
+    @Test( timeout = 10000 )
+    public void followersShareLeaderResult()
+            throws Exception
+    {
+        ContentRequestCoalescer coalescer = new ContentRequestCoalescer( TimeUnit.SECONDS.toMillis( 10 ) );
+        CountDownLatch leaderRunning = new CountDownLatch( 1 );
+        CountDownLatch releaseLeader = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( 5 );
+        try
+        {
+            Future<Transfer> leader = executor.submit( () -> coalescer.retrieve( GROUP, PATH, () -> {
+                leaderRunning.countDown();
+                await( releaseLeader );
+                return counted();
+            } ) );
+            leaderRunning.await();
+
+            List<Future<Transfer>> followers = new ArrayList<>();
+            for ( int i = 0; i < 4; i++ )
+            {
+                followers.add( executor.submit( () -> coalescer.retrieve( GROUP, PATH, this::counted ) ) );
+            }
+            while ( coalescer.getCoalescedCount() < 4 )
+            {
+                Thread.sleep( 10 );
+            }
+            releaseLeader.countDown();
+
+            assertThat( leader.get(), nullValue() );
+            for ( Future<Transfer> follower : followers )
+            {
+                assertThat( follower.get(), nullValue() );
+            }
+            assertThat( retrievals.get(), equalTo( 1 ) );
+            assertThat( coalescer.getLeaderCount(), equalTo( 1L ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test( timeout = 10000 )
+    public void onlyRequestsWithTheSameMetadataShareAResult()
+            throws Exception
+    {
+        ContentRequestCoalescer coalescer = new ContentRequestCoalescer( TimeUnit.SECONDS.toMillis( 10 ) );
+        CountDownLatch leaderRunning = new CountDownLatch( 1 );
+        CountDownLatch releaseLeader = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( 3 );
+        try
+        {
+            Future<Transfer> leader = executor.submit(
+                    () -> coalescer.retrieve( GROUP, PATH, metadata( "http://localhost/" ), () -> {
+                        leaderRunning.countDown();
+                        await( releaseLeader );
+                        return counted();
+                    } ) );
+            leaderRunning.await();
+
+            // a different base URI gets its own retrieval, without waiting for the leader
+            Future<Transfer> other = executor.submit(
+                    () -> coalescer.retrieve( GROUP, PATH, metadata( "http://indy.example.com/" ), this::counted ) );
+            assertThat( other.get(), nullValue() );
+            assertThat( retrievals.get(), equalTo( 1 ) );
+
+            Future<Transfer> follower = executor.submit(
+                    () -> coalescer.retrieve( GROUP, PATH, metadata( "http://localhost/" ), this::counted ) );
+            while ( coalescer.getCoalescedCount() < 1 )
+            {
+                Thread.sleep( 10 );
+            }
+            releaseLeader.countDown();
+
+            assertThat( leader.get(), nullValue() );
+            assertThat( follower.get(), nullValue() );
+            assertThat( retrievals.get(), equalTo( 2 ) );
+            assertThat( coalescer.getLeaderCount(), equalTo( 2L ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test( timeout = 10000 )
+    public void leaderFailureReachesFollowers()
+            throws Exception
+    {
+        ContentRequestCoalescer coalescer = new ContentRequestCoalescer( TimeUnit.SECONDS.toMillis( 10 ) );
+        CountDownLatch leaderRunning = new CountDownLatch( 1 );
+        CountDownLatch releaseLeader = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            Future<Transfer> leader = executor.submit( () -> coalescer.retrieve( GROUP, PATH, () -> {
+                leaderRunning.countDown();
+                await( releaseLeader );
+                throw new IndyWorkflowException( 502, "upstream failed" );
+            } ) );
+            leaderRunning.await();
+
+            Future<Transfer> follower = executor.submit( () -> coalescer.retrieve( GROUP, PATH, this::counted ) );
+            while ( coalescer.getCoalescedCount() < 1 )
+            {
+                Thread.sleep( 10 );
+            }
+            releaseLeader.countDown();
+
+            assertWorkflowFailure( leader, 502 );
+            assertWorkflowFailure( follower, 502 );
+            assertThat( retrievals.get(), equalTo( 0 ) );
+            assertThat( coalescer.getFailedCount(), equalTo( 1L ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test( timeout = 10000 )
+    public void followerRetrievesAloneOnceWaitExpires()
+            throws Exception
+    {
+        ContentRequestCoalescer coalescer = new ContentRequestCoalescer( 50 );
+        CountDownLatch leaderRunning = new CountDownLatch( 1 );
+        CountDownLatch releaseLeader = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<Transfer> leader = executor.submit( () -> coalescer.retrieve( GROUP, PATH, () -> {
+                leaderRunning.countDown();
+                await( releaseLeader );
+                return counted();
+            } ) );
+            leaderRunning.await();
+
+            assertThat( coalescer.retrieve( GROUP, PATH, this::counted ), nullValue() );
+            assertThat( retrievals.get(), equalTo( 1 ) );
+            assertThat( coalescer.getTimedOutCount(), equalTo( 1L ) );
+
+            releaseLeader.countDown();
+            leader.get();
+            assertThat( retrievals.get(), equalTo( 2 ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static EventMetadata metadata( final String baseUri )
+    {
+        return new EventMetadata().set( ContentManager.ENTRY_POINT_STORE, GROUP )
+                                  .set( ContentManager.ENTRY_POINT_BASE_URI, baseUri );
+    }
+
+    private Transfer counted()
+    {
+        retrievals.incrementAndGet();
+        return null;
+    }
+
+    private static void assertWorkflowFailure( final Future<Transfer> future, final int status )
+            throws InterruptedException
+    {
+        try
+        {
+            future.get();
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof IndyWorkflowException );
+            assertThat( ( (IndyWorkflowException) e.getCause() ).getStatus(), equalTo( status ) );
+            return;
+        }
+        assertTrue( "Expected a retrieval failure", false );
+    }
+
+    private static void await( final CountDownLatch latch )
+    {
+        try
+        {
+            latch.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
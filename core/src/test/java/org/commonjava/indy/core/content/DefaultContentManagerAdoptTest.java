@@ -0,0 +1,237 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.apache.commons.io.IOUtils;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.cdi.util.weft.WeftExecutorService;
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.content.ContentDigester;
+import org.commonjava.indy.content.ContentManager;
+import org.commonjava.indy.content.IndyLocationExpander;
+import org.commonjava.indy.core.change.event.IndyFileEventManager;
+import org.commonjava.indy.core.inject.ExpiringMemoryNotFoundCache;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.subsys.infinispan.CacheHandle;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.GalleyCore;
+import org.commonjava.maven.galley.GalleyCoreBuilder;
+import org.commonjava.maven.galley.cache.FileCacheProviderFactory;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.event.FileStorageEvent;
+import org.commonjava.maven.galley.io.SpecialPathManagerImpl;
+import org.commonjava.maven.galley.io.checksum.ContentDigest;
+import org.commonjava.maven.galley.io.checksum.TransferMetadata;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
+import org.commonjava.maven.galley.nfc.MemoryNotFoundCache;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Covers {@link DefaultContentManager#adopt} down through {@link DefaultDownloadManager#adopt}: the promoted file is
+ * hard-linked when enabled and possible, copied otherwise, and either way the new path gets its own storage event
+ * and the source's content metadata.
+ */
+public class DefaultContentManagerAdoptTest
+{
+    private static final String PATH = "org/foo/bar/1/bar-1.jar";
+
+    private static final String CONTENT = "This is the jar content";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private DefaultCacheManager cacheManager;
+
+    private StoreDataManager storeManager;
+
+    private ContentManager contentManager;
+
+    private ContentDigester contentDigester;
+
+    private RecordingFileEventManager fileEventManager;
+
+    private HostedRepository source;
+
+    private HostedRepository target;
+
+    @After
+    public void teardown()
+    {
+        if ( cacheManager != null )
+        {
+            cacheManager.stop();
+        }
+    }
+
+    @Test
+    public void hardLinksSourceFileWhenEnabled()
+            throws Exception
+    {
+        setup( true );
+
+        final Transfer src = storeSource();
+        final Transfer adopted = contentManager.adopt( target, PATH, src, new EventMetadata() );
+
+        assertThat( Files.isSameFile( adopted.getDetachedFile().toPath(), src.getDetachedFile().toPath() ),
+                    equalTo( true ) );
+        assertAdopted( src, adopted );
+    }
+
+    @Test
+    public void copiesSourceFileWhenHardLinksDisabled()
+            throws Exception
+    {
+        setup( false );
+
+        final Transfer src = storeSource();
+        final Transfer adopted = contentManager.adopt( target, PATH, src, new EventMetadata() );
+
+        assertThat( Files.isSameFile( adopted.getDetachedFile().toPath(), src.getDetachedFile().toPath() ),
+                    equalTo( false ) );
+        assertAdopted( src, adopted );
+    }
+
+    @Test
+    public void copiesSourceFileWhenTargetAlreadyExists()
+            throws Exception
+    {
+        setup( true );
+
+        contentManager.store( target, PATH, new ByteArrayInputStream( "old content".getBytes() ),
+                              TransferOperation.UPLOAD, new EventMetadata() );
+
+        final Transfer src = storeSource();
+        final Transfer adopted = contentManager.adopt( target, PATH, src, new EventMetadata() );
+
+        assertThat( Files.isSameFile( adopted.getDetachedFile().toPath(), src.getDetachedFile().toPath() ),
+                    equalTo( false ) );
+        assertAdopted( src, adopted );
+    }
+
+    private void assertAdopted( final Transfer src, final Transfer adopted )
+            throws Exception
+    {
+        assertThat( LocationUtils.getKey( adopted ), equalTo( target.getKey() ) );
+        try (InputStream in = adopted.openInputStream( false ))
+        {
+            assertThat( IOUtils.toString( in ), equalTo( CONTENT ) );
+        }
+
+        // plain stores are announced by galley's own event manager, so the only one here is the adoption's
+        assertThat( fileEventManager.stored.size(), equalTo( 1 ) );
+        final FileStorageEvent event = fileEventManager.stored.get( 0 );
+        assertThat( event.getTransfer(), equalTo( adopted ) );
+        assertThat( event.getType(), equalTo( TransferOperation.UPLOAD ) );
+
+        final TransferMetadata metadata = contentDigester.getContentMetadata( adopted );
+        assertThat( metadata, notNullValue() );
+        assertThat( metadata.getDigests(), equalTo( contentDigester.getContentMetadata( src ).getDigests() ) );
+    }
+
+    private Transfer storeSource()
+            throws Exception
+    {
+        final Transfer src = contentManager.store( source, PATH, new ByteArrayInputStream( CONTENT.getBytes() ),
+                                                   TransferOperation.UPLOAD, new EventMetadata() );
+
+        // stands in for the checksumming decorator, which this bare galley core doesn't have
+        contentDigester.addMetadata( src, new TransferMetadata(
+                Collections.singletonMap( ContentDigest.MD5, "0123456789abcdef" ), (long) CONTENT.length() ) );
+
+        return src;
+    }
+
+    private void setup( final boolean hardLinks )
+            throws Exception
+    {
+        cacheManager = new DefaultCacheManager( new ConfigurationBuilder().simpleCache( true ).build() );
+        final Cache<String, TransferMetadata> metadataCache = cacheManager.getCache( "content-metadata", true );
+
+        final GalleyCore core = new GalleyCoreBuilder( new FileCacheProviderFactory( temp.newFolder( "cache" ) ) ).build();
+
+        storeManager = new MemoryStoreDataManager( true );
+        final ChangeSummary summary = new ChangeSummary( ChangeSummary.SYSTEM_USER, "Test setup" );
+        source = new HostedRepository( MAVEN_PKG_KEY, "source" );
+        target = new HostedRepository( MAVEN_PKG_KEY, "target" );
+        storeManager.storeArtifactStore( source, summary, false, true, new EventMetadata() );
+        storeManager.storeArtifactStore( target, summary, false, true, new EventMetadata() );
+
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setNotFoundCacheTimeoutSeconds( 1 );
+        config.setStandalone( true );
+        config.setContentAdoptHardLinkEnabled( hardLinks );
+
+        final WeftExecutorService rescanService =
+                new PoolWeftExecutorService( "test-rescan-executor", (ThreadPoolExecutor) Executors.newCachedThreadPool(),
+                                             2, 10f, false, null, null );
+
+        fileEventManager = new RecordingFileEventManager();
+        final DefaultDownloadManager downloadManager =
+                new DefaultDownloadManager( storeManager, core.getTransferManager(),
+                                            new IndyLocationExpander( storeManager ), null,
+                                            new ExpiringMemoryNotFoundCache( config ), rescanService,
+                                            fileEventManager, config );
+
+        final WeftExecutorService contentAccessService =
+                new PoolWeftExecutorService( "test-content-access-executor",
+                                             (ThreadPoolExecutor) Executors.newCachedThreadPool(), 2, 10f, false, null,
+                                             null );
+
+        contentDigester = new DefaultContentDigester( new DefaultDirectContentAccess( downloadManager, contentAccessService ),
+                                                      new CacheHandle<>( "content-metadata", metadataCache ) );
+
+        contentManager = new DefaultContentManager( storeManager, downloadManager, new IndyObjectMapper( true ),
+                                                    new SpecialPathManagerImpl(), new MemoryNotFoundCache(),
+                                                    contentDigester, new ContentGeneratorManager() );
+    }
+
+    private static final class RecordingFileEventManager
+            extends IndyFileEventManager
+    {
+        private final List<FileStorageEvent> stored = new ArrayList<>();
+
+        @Override
+        public void fire( final FileStorageEvent evt )
+        {
+            stored.add( evt );
+        }
+    }
+}
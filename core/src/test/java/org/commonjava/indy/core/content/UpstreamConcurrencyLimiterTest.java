@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.conf.ExecutionModeConfig;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.util.ApplicationStatus;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class UpstreamConcurrencyLimiterTest
+{
+    private final RemoteRepository central =
+            new RemoteRepository( MAVEN_PKG_KEY, "central", "https://repo.maven.apache.org/maven2/" );
+
+    private final RemoteRepository centralMirror =
+            new RemoteRepository( MAVEN_PKG_KEY, "central-mirror", "https://REPO.maven.apache.org:443/other/" );
+
+    private final RemoteRepository other = new RemoteRepository( MAVEN_PKG_KEY, "other", "http://localhost:8080/" );
+
+    @Test
+    public void unlimitedByDefault()
+            throws Exception
+    {
+        UpstreamConcurrencyLimiter limiter = new UpstreamConcurrencyLimiter( new ExecutionModeConfig() );
+        for ( int i = 0; i < 100; i++ )
+        {
+            limiter.acquire( central );
+        }
+
+        assertThat( limiter.getInFlight( "repo.maven.apache.org:443" ), equalTo( 0 ) );
+    }
+
+    @Test
+    public void remotesOnSameHostSharePermits()
+            throws Exception
+    {
+        UpstreamConcurrencyLimiter limiter = new UpstreamConcurrencyLimiter( config( 2, 1 ) );
+        try (UpstreamConcurrencyLimiter.Permit first = limiter.acquire( central );
+             UpstreamConcurrencyLimiter.Permit second = limiter.acquire( centralMirror ))
+        {
+            assertThat( limiter.getInFlight( "repo.maven.apache.org:443" ), equalTo( 2 ) );
+
+            try (UpstreamConcurrencyLimiter.Permit unrelated = limiter.acquire( other ))
+            {
+                assertThat( limiter.getInFlight( "localhost:8080" ), equalTo( 1 ) );
+            }
+
+            try
+            {
+                limiter.acquire( central );
+                fail( "Third request to the same host should time out" );
+            }
+            catch ( IndyWorkflowException e )
+            {
+                assertThat( e.getStatus(), equalTo( ApplicationStatus.SERVICE_UNAVAILABLE.code() ) );
+            }
+        }
+
+        assertThat( limiter.getInFlight( "repo.maven.apache.org:443" ), equalTo( 0 ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void waitingRequestProceedsWhenPermitIsReturned()
+            throws Exception
+    {
+        UpstreamConcurrencyLimiter limiter = new UpstreamConcurrencyLimiter( config( 1, 10 ) );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            CountDownLatch waiting = new CountDownLatch( 1 );
+            Future<?> second;
+            try (UpstreamConcurrencyLimiter.Permit first = limiter.acquire( central ))
+            {
+                second = executor.submit( () -> {
+                    waiting.countDown();
+                    try (UpstreamConcurrencyLimiter.Permit permit = limiter.acquire( central ))
+                    {
+                        assertThat( limiter.getInFlight( "repo.maven.apache.org:443" ), equalTo( 1 ) );
+                    }
+                    return null;
+                } );
+                assertTrue( waiting.await( 5, TimeUnit.SECONDS ) );
+            }
+
+            second.get();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test( timeout = 10000 )
+    public void adaptiveLimitRejectsWithoutWaiting()
+            throws Exception
+    {
+        ExecutionModeConfig config = config( 10, 60 );
+        config.setUpstreamLimitAdaptive( true );
+        config.setUpstreamLimitInitial( 2 );
+        UpstreamConcurrencyLimiter limiter = new UpstreamConcurrencyLimiter( config );
+
+        try (UpstreamConcurrencyLimiter.Permit first = limiter.acquire( central );
+             UpstreamConcurrencyLimiter.Permit second = limiter.acquire( centralMirror ))
+        {
+            assertThat( limiter.getLimit( "repo.maven.apache.org:443" ), equalTo( 2 ) );
+            try
+            {
+                limiter.acquire( central );
+                fail( "Request over the adaptive limit should be rejected" );
+            }
+            catch ( IndyWorkflowException e )
+            {
+                assertThat( e.getStatus(), equalTo( ApplicationStatus.SERVICE_UNAVAILABLE.code() ) );
+            }
+
+            limiter.acquire( other ).close();
+        }
+
+        assertThat( limiter.getInFlight( "repo.maven.apache.org:443" ), equalTo( 0 ) );
+        assertThat( limiter.getRejected( "repo.maven.apache.org:443" ), equalTo( 1L ) );
+        assertThat( limiter.getRejected( "localhost:8080" ), equalTo( 0L ) );
+    }
+
+    @Test
+    public void droppedRequestLowersAdaptiveLimit()
+            throws Exception
+    {
+        ExecutionModeConfig config = config( 10, 60 );
+        config.setUpstreamLimitAdaptive( true );
+        config.setUpstreamLimitInitial( 8 );
+        config.setUpstreamLimitMin( 1 );
+        config.setUpstreamLimitBackoffPercent( 50 );
+        UpstreamConcurrencyLimiter limiter = new UpstreamConcurrencyLimiter( config );
+
+        try (UpstreamConcurrencyLimiter.Permit permit = limiter.acquire( central ))
+        {
+            permit.dropped();
+        }
+
+        assertThat( limiter.getLimit( "repo.maven.apache.org:443" ), equalTo( 4 ) );
+    }
+
+    private ExecutionModeConfig config( final int maxConcurrent, final int timeoutSeconds )
+    {
+        ExecutionModeConfig config = new ExecutionModeConfig();
+        config.setUpstreamMaxConcurrent( maxConcurrent );
+        config.setUpstreamAcquireTimeoutSeconds( timeoutSeconds );
+        return config;
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.content;
+
+import org.apache.commons.io.IOUtils;
+import org.commonjava.cdi.util.weft.PoolWeftExecutorService;
+import org.commonjava.indy.IndyWorkflowException;
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.indy.conf.ExecutionModeConfig;
+import org.commonjava.indy.content.IndyLocationExpander;
+import org.commonjava.indy.core.inject.ExpiringMemoryNotFoundCache;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.util.ApplicationStatus;
+import org.commonjava.maven.galley.GalleyCore;
+import org.commonjava.maven.galley.GalleyCoreBuilder;
+import org.commonjava.maven.galley.auth.MemoryPasswordManager;
+import org.commonjava.maven.galley.cache.FileCacheProviderFactory;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.transport.htcli.HttpClientTransport;
+import org.commonjava.maven.galley.transport.htcli.HttpImpl;
+import org.commonjava.test.http.expect.ExpectationServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Downloads through {@link DefaultDownloadManager} from a local upstream that can be made slow, with adaptive
+ * per-upstream limits on.
+ */
+public class UpstreamLimitedDownloadTest
+{
+    private static final String CONTENT = "<project><modelVersion>4.0.0</modelVersion></project>";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Rule
+    public ExpectationServer server = new ExpectationServer();
+
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+
+    private volatile CountDownLatch hold = new CountDownLatch( 0 );
+
+    private volatile long delayMillis;
+
+    private UpstreamConcurrencyLimiter limiter;
+
+    private DefaultDownloadManager downloadManager;
+
+    private RemoteRepository remote;
+
+    private String host;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        GalleyCore core = new GalleyCoreBuilder( new FileCacheProviderFactory( temp.newFolder( "cache" ) ) ).withEnabledTransports(
+                new HttpClientTransport( new HttpImpl( new MemoryPasswordManager() ) ) ).build();
+
+        StoreDataManager storeManager = new MemoryStoreDataManager( true );
+        remote = new RemoteRepository( MAVEN_PKG_KEY, "slow", server.formatUrl( "slow" ) );
+        storeManager.storeArtifactStore( remote, new ChangeSummary( ChangeSummary.SYSTEM_USER, "Test setup" ), false,
+                                         false, new EventMetadata() );
+        host = UpstreamConcurrencyLimiter.getHost( remote );
+
+        ExecutionModeConfig config = new ExecutionModeConfig();
+        config.setUpstreamLimitAdaptive( true );
+        config.setUpstreamMaxConcurrent( 8 );
+        config.setUpstreamLimitInitial( 3 );
+        config.setUpstreamLimitMin( 1 );
+        config.setUpstreamLimitBackoffPercent( 50 );
+        limiter = new UpstreamConcurrencyLimiter( config );
+
+        DefaultIndyConfiguration indyConfig = new DefaultIndyConfiguration();
+        indyConfig.setNotFoundCacheTimeoutSeconds( 1 );
+
+        downloadManager = new DefaultDownloadManager( storeManager, core.getTransferManager(),
+                                                      new IndyLocationExpander( storeManager ), null,
+                                                      new ExpiringMemoryNotFoundCache( indyConfig ),
+                                                      new PoolWeftExecutorService( "test-rescan-executor",
+                                                                                   (ThreadPoolExecutor) Executors.newCachedThreadPool(),
+                                                                                   2, 10f, false, null, null ),
+                                                      limiter );
+    }
+
+    @After
+    public void teardown()
+    {
+        hold.countDown();
+        clients.shutdownNow();
+    }
+
+    @Test( timeout = 30000 )
+    public void requestsOverLimitFailFastWhileCachedContentIsServed()
+            throws Exception
+    {
+        expect( "cached.pom" );
+        assertThat( retrieve( "cached.pom" ), notNullValue() );
+
+        hold = new CountDownLatch( 1 );
+        int limit = limiter.getLimit( host );
+        List<Future<Transfer>> slow = new ArrayList<>();
+        for ( int i = 0; i < limit; i++ )
+        {
+            String path = "slow-" + i + ".pom";
+            expect( path );
+            slow.add( clients.submit( () -> retrieve( path ) ) );
+        }
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while ( limiter.getInFlight( host ) < limit && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+        assertThat( limiter.getInFlight( host ), equalTo( limit ) );
+
+        expect( "rejected.pom" );
+        long start = System.currentTimeMillis();
+        try
+        {
+            retrieve( "rejected.pom" );
+            fail( "Request over the upstream limit should be rejected" );
+        }
+        catch ( IndyWorkflowException e )
+        {
+            assertThat( e.getStatus(), equalTo( ApplicationStatus.SERVICE_UNAVAILABLE.code() ) );
+        }
+        assertTrue( "Rejection should not wait for a permit", System.currentTimeMillis() - start < 2000 );
+        assertThat( limiter.getRejected( host ), equalTo( 1L ) );
+
+        Transfer cached = retrieve( "cached.pom" );
+        try (InputStream in = cached.openInputStream())
+        {
+            assertThat( IOUtils.toString( in ), equalTo( CONTENT ) );
+        }
+
+        hold.countDown();
+        for ( Future<Transfer> future : slow )
+        {
+            assertThat( future.get(), notNullValue() );
+        }
+        assertThat( limiter.getInFlight( host ), equalTo( 0 ) );
+    }
+
+    @Test( timeout = 30000 )
+    public void slowingUpstreamLowersItsLimit()
+            throws Exception
+    {
+        for ( int i = 0; i < 5; i++ )
+        {
+            expect( "fast-" + i + ".pom" );
+            retrieve( "fast-" + i + ".pom" );
+        }
+        assertThat( limiter.getLimit( host ), equalTo( 3 ) );
+
+        // a sustained slowdown, not a single slow response
+        delayMillis = 500;
+        for ( int i = 0; i < 3; i++ )
+        {
+            expect( "delayed-" + i + ".pom" );
+            retrieve( "delayed-" + i + ".pom" );
+        }
+
+        assertThat( limiter.getLimit( host ), equalTo( 1 ) );
+    }
+
+    @Test( timeout = 30000 )
+    public void fastExistenceChecksDontMakeDownloadsLookSlow()
+            throws Exception
+    {
+        delayMillis = 200;
+        for ( int i = 0; i < 8; i++ )
+        {
+            String path = "mixed-" + i + ".pom";
+            expectHead( path );
+            expect( path );
+
+            assertThat( downloadManager.exists( remote, path ), equalTo( true ) );
+            assertThat( retrieve( path ), notNullValue() );
+        }
+
+        assertThat( limiter.getLimit( host ), equalTo( 3 ) );
+    }
+
+    private Transfer retrieve( final String path )
+            throws IndyWorkflowException
+    {
+        return downloadManager.retrieve( remote, path, new EventMetadata() );
+    }
+
+    private void expect( final String path )
+            throws Exception
+    {
+        server.expect( "GET", server.formatUrl( "slow", path ), ( request, response ) -> {
+            try
+            {
+                hold.await( 20, TimeUnit.SECONDS );
+                if ( delayMillis > 0 )
+                {
+                    Thread.sleep( delayMillis );
+                }
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            response.setStatus( 200 );
+            response.getWriter().write( CONTENT );
+        } );
+    }
+
+    private void expectHead( final String path )
+            throws Exception
+    {
+        server.expect( "HEAD", server.formatUrl( "slow", path ), ( request, response ) -> {
+            try
+            {
+                Thread.sleep( 20 );
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            response.setStatus( 200 );
+        } );
+    }
+}
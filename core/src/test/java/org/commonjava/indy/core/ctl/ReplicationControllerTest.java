@@ -0,0 +1,232 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.ctl;
+
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.change.event.ArtifactStoreUpdateType;
+import org.commonjava.indy.data.NoOpStoreEventDispatcher;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.dto.ReplicationAction;
+import org.commonjava.indy.model.core.dto.ReplicationAction.ActionType;
+import org.commonjava.indy.model.core.dto.ReplicationDTO;
+import org.commonjava.indy.model.core.dto.StoreListingDTO;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.subsys.http.IndyHttpProvider;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.test.http.expect.ExpectationServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ReplicationControllerTest
+{
+    @Rule
+    public ExpectationServer server = new ExpectationServer();
+
+    private final IndyObjectMapper mapper = new IndyObjectMapper( true );
+
+    private final List<Integer> addEvents = new ArrayList<>();
+
+    private final List<Integer> updateEvents = new ArrayList<>();
+
+    private MemoryStoreDataManager storeManager;
+
+    private ExecutorService executor;
+
+    private ReplicationController controller;
+
+    private RemoteRepository central;
+
+    private HostedRepository deploy;
+
+    private RemoteRepository mirrored;
+
+    private Group pub;
+
+    @Before
+    public void setUp()
+            throws Exception
+    {
+        storeManager = new MemoryStoreDataManager( new NoOpStoreEventDispatcher()
+        {
+            @Override
+            public void updated( final ArtifactStoreUpdateType type, final EventMetadata eventMetadata,
+                                 final Map<ArtifactStore, ArtifactStore> stores )
+            {
+                ( type == ArtifactStoreUpdateType.ADD ? addEvents : updateEvents ).add( stores.size() );
+            }
+        } );
+
+        executor = Executors.newFixedThreadPool( 3 );
+        controller = new ReplicationController( storeManager, new DirectHttpProvider(), null, mapper, executor )
+        {
+            @Override
+            public ReplicationRepositoryCreator createRepoCreator()
+            {
+                return ( name, view ) -> new RemoteRepository( name, view.getResourceUri() );
+            }
+        };
+
+        central = new RemoteRepository( "central", "https://repo.maven.apache.org/maven2/" );
+        deploy = new HostedRepository( "deploy" );
+
+        mirrored = new RemoteRepository( "mirrored", "http://repo.example.com/mirrored/" );
+        pub = new Group( "public", central.getKey(), deploy.getKey() );
+
+        HostedRepository remoteDeploy = deploy.copyOf();
+        remoteDeploy.setAllowSnapshots( true );
+
+        server.expect( server.formatUrl( "api/admin/remotes" ), 200,
+                       mapper.writeValueAsString( new StoreListingDTO<>( Arrays.asList( central, mirrored ) ) ) );
+        server.expect( server.formatUrl( "api/admin/groups" ), 200,
+                       mapper.writeValueAsString( new StoreListingDTO<>( Collections.singletonList( pub ) ) ) );
+        server.expect( server.formatUrl( "api/admin/hosted" ), 200,
+                       mapper.writeValueAsString( new StoreListingDTO<>( Collections.singletonList( remoteDeploy ) ) ) );
+
+        // local copies as a previous replication would have left them
+        storeLocal( central );
+        storeLocal( deploy );
+
+        addEvents.clear();
+        updateEvents.clear();
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void onlyNewAndChangedStoresAreWrittenInOneBatch()
+            throws Exception
+    {
+        Set<StoreKey> replicated = controller.replicate( mirrorDTO( true ), "test" );
+
+        assertThat( replicated, equalTo( keys( central, mirrored, pub, deploy ) ) );
+
+        assertThat( addEvents, equalTo( Collections.singletonList( 2 ) ) );
+        assertThat( updateEvents, equalTo( Collections.singletonList( 1 ) ) );
+        assertThat( ( (HostedRepository) storeManager.getArtifactStore( deploy.getKey() ) ).isAllowSnapshots(),
+                    equalTo( true ) );
+    }
+
+    @Test
+    public void overwriteReplacesExistingChangedStore()
+            throws Exception
+    {
+        ReplicationAction action = new ReplicationAction( ActionType.MIRROR );
+        action.setInclude( ".*:hosted:deploy" );
+
+        ReplicationDTO dto = mirrorDTO( true );
+        dto.setActions( Collections.singletonList( action ) );
+
+        Set<StoreKey> replicated = controller.replicate( dto, "test" );
+
+        assertThat( replicated, equalTo( keys( deploy ) ) );
+        assertThat( addEvents.isEmpty(), equalTo( true ) );
+        assertThat( updateEvents, equalTo( Collections.singletonList( 1 ) ) );
+        assertThat( ( (HostedRepository) storeManager.getArtifactStore( deploy.getKey() ) ).isAllowSnapshots(),
+                    equalTo( true ) );
+    }
+
+    @Test
+    public void existingStoresAreKeptWithoutOverwrite()
+            throws Exception
+    {
+        Set<StoreKey> replicated = controller.replicate( mirrorDTO( false ), "test" );
+
+        assertThat( replicated, equalTo( keys( mirrored, pub ) ) );
+        assertThat( ( (HostedRepository) storeManager.getArtifactStore( deploy.getKey() ) ).isAllowSnapshots(),
+                    equalTo( false ) );
+    }
+
+    @Test
+    public void repeatedReplicationReportsStoresButWritesNothing()
+            throws Exception
+    {
+        controller.replicate( mirrorDTO( true ), "test" );
+        addEvents.clear();
+        updateEvents.clear();
+
+        Set<StoreKey> replicated = controller.replicate( mirrorDTO( true ), "test" );
+
+        assertThat( replicated, equalTo( keys( central, mirrored, pub, deploy ) ) );
+        assertThat( addEvents.isEmpty() && updateEvents.isEmpty(), equalTo( true ) );
+    }
+
+    private ReplicationDTO mirrorDTO( final boolean overwrite )
+    {
+        ReplicationDTO dto = new ReplicationDTO();
+        dto.setApiUrl( server.formatUrl( "api" ) );
+        dto.setOverwrite( overwrite );
+        dto.setActions( Collections.singletonList( new ReplicationAction( ActionType.MIRROR ) ) );
+        return dto;
+    }
+
+    private void storeLocal( final ArtifactStore store )
+            throws Exception
+    {
+        ArtifactStore local = mapper.readValue( mapper.writeValueAsString( store ), store.getClass() );
+        storeManager.storeArtifactStore( local, new ChangeSummary( "test", "setup" ), false, true,
+                                         new EventMetadata() );
+    }
+
+    private static Set<StoreKey> keys( final ArtifactStore... stores )
+    {
+        Set<StoreKey> keys = new HashSet<>();
+        Arrays.stream( stores ).forEach( store -> keys.add( store.getKey() ) );
+        return keys;
+    }
+
+    private static final class DirectHttpProvider
+            extends IndyHttpProvider
+    {
+        @Override
+        public HttpClientContext createContext( final String siteId )
+        {
+            return HttpClientContext.create();
+        }
+
+        @Override
+        public CloseableHttpClient createClient( final String siteId )
+        {
+            return HttpClients.createDefault();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.core.inject;
+
+import org.commonjava.indy.conf.DefaultIndyConfiguration;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.model.Location;
+import org.commonjava.maven.galley.model.SimpleLocation;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class BoundedMemoryNotFoundCacheTest
+{
+
+    private BoundedMemoryNotFoundCache nfc;
+
+    @After
+    public void stop()
+    {
+        if ( nfc != null )
+        {
+            nfc.stop();
+        }
+    }
+
+    @Test
+    public void expireUsingConfiguredValue()
+        throws Exception
+    {
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setNotFoundCacheTimeoutSeconds( 1 );
+
+        nfc = new BoundedMemoryNotFoundCache( config );
+
+        final ConcreteResource res = new ConcreteResource( new SimpleLocation( "test:uri" ), "/path/to/expired/object" );
+
+        nfc.addMissing( res );
+        assertThat( nfc.isMissing( res ), equalTo( true ) );
+
+        Thread.sleep( TimeUnit.SECONDS.toMillis( 2 ) );
+
+        assertThat( nfc.isMissing( res ), equalTo( false ) );
+
+        final Set<String> locMissing = nfc.getMissing( res.getLocation() );
+        assertThat( locMissing.isEmpty(), equalTo( true ) );
+
+        final Map<Location, Set<String>> allMissing = nfc.getAllMissing();
+        assertThat( allMissing.isEmpty(), equalTo( true ) );
+
+        // the next write turns the timer wheel and drops the expired entry
+        nfc.addMissing( new ConcreteResource( res.getLocation(), "/path/to/other/object" ) );
+        assertThat( nfc.getSize(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void clearLocationOnlyDropsItsOwnEntries()
+    {
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        nfc = new BoundedMemoryNotFoundCache( config );
+
+        final Location first = new SimpleLocation( "test:first" );
+        final Location second = new SimpleLocation( "test:second" );
+        for ( int i = 0; i < 10; i++ )
+        {
+            nfc.addMissing( new ConcreteResource( first, "/path/" + i ) );
+            nfc.addMissing( new ConcreteResource( second, "/path/" + i ) );
+        }
+
+        assertThat( nfc.getSize(), equalTo( 20L ) );
+
+        nfc.clearMissing( first );
+
+        assertThat( nfc.getSize(), equalTo( 10L ) );
+        assertThat( nfc.getMissing( first ).isEmpty(), equalTo( true ) );
+        assertThat( nfc.getMissing( second ).size(), equalTo( 10 ) );
+        assertThat( nfc.isMissing( new ConcreteResource( second, "/path/3" ) ), equalTo( true ) );
+
+        nfc.clearMissing( new ConcreteResource( second, "/path/3" ) );
+        assertThat( nfc.isMissing( new ConcreteResource( second, "/path/3" ) ), equalTo( false ) );
+        assertThat( nfc.getSize(), equalTo( 9L ) );
+    }
+
+    @Test
+    public void sizeNeverExceedsConfiguredMaximum()
+    {
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setNfcMemoryMaxEntries( 100 );
+        nfc = new BoundedMemoryNotFoundCache( config );
+
+        final Location location = new SimpleLocation( "test:uri" );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            nfc.addMissing( new ConcreteResource( location, "/path/" + i ) );
+            assertThat( nfc.getSize() <= 100, equalTo( true ) );
+        }
+
+        assertThat( nfc.getSize(), equalTo( 100L ) );
+        assertThat( nfc.getMissing( location ).size(), equalTo( 100 ) );
+        assertThat( nfc.getEvictionCount() + nfc.getRejectionCount(), equalTo( 900L ) );
+    }
+
+    @Test
+    public void frequentlyRequestedEntrySurvivesEviction()
+    {
+        final DefaultIndyConfiguration config = new DefaultIndyConfiguration();
+        config.setNfcMemoryMaxEntries( 10 );
+        nfc = new BoundedMemoryNotFoundCache( config );
+
+        final Location location = new SimpleLocation( "test:uri" );
+        final ConcreteResource hot = new ConcreteResource( location, "/hot/path" );
+        nfc.addMissing( hot );
+        for ( int i = 0; i < 10; i++ )
+        {
+            nfc.isMissing( hot );
+        }
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            nfc.addMissing( new ConcreteResource( location, "/cold/path/" + i ) );
+        }
+
+        assertThat( nfc.isMissing( hot ), equalTo( true ) );
+    }
+}
@@ -48,11 +48,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
@@ -101,10 +104,68 @@ public abstract class AbstractStoreDataManager
     @ExecutorConfig( named = AFFECTED_BY_ASYNC_RUNNER_NAME, priority = 4, threads = 32 )
     protected ExecutorService affectedByAsyncRunner;
 
+    private final AtomicLong storeVersion = new AtomicLong();
+
+    private final Object snapshotLock = new Object();
+
+    private volatile StoreSnapshot storeSnapshot;
+
     protected AbstractStoreDataManager()
     {
     }
 
+    /**
+     * Whether this manager sees every change to its stores locally, so {@link #getStoreSnapshot()} can serve reads.
+     * Implementations returning true must call {@link #invalidateStoreSnapshot()} after each change to the stores.
+     */
+    protected boolean isStoreSnapshotSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Mark the current snapshot obsolete. Must be called after the change is visible via the internal store methods.
+     */
+    protected void invalidateStoreSnapshot()
+    {
+        storeVersion.incrementAndGet();
+    }
+
+    /**
+     * Immutable view of all stores with prebuilt indexes, rebuilt lazily on the first read after a change. Only one
+     * reader rebuilds at a time; the others wait for it and share its snapshot, since it was started after they saw
+     * the change.
+     * @return the snapshot, or null if this manager doesn't support them
+     */
+    public StoreSnapshot getStoreSnapshot()
+            throws IndyDataException
+    {
+        if ( !isStoreSnapshotSupported() )
+        {
+            return null;
+        }
+
+        final long version = storeVersion.get();
+        StoreSnapshot snapshot = storeSnapshot;
+        if ( snapshot != null && snapshot.getVersion() >= version )
+        {
+            return snapshot;
+        }
+
+        synchronized ( snapshotLock )
+        {
+            snapshot = storeSnapshot;
+            if ( snapshot == null || snapshot.getVersion() < version )
+            {
+                // tag with the version seen before reading, so a change made during the build triggers another one
+                snapshot = StoreSnapshot.build( storeVersion.get(), getAllArtifactStores() );
+                storeSnapshot = snapshot;
+            }
+        }
+
+        return snapshot;
+    }
+
     @Override
     public ArtifactStoreQuery<ArtifactStore> query()
     {
@@ -131,6 +192,206 @@ public abstract class AbstractStoreDataManager
         return store( store, summary, skipIfExists, fireEvents, eventMetadata );
     }
 
+    @Override
+    @Measure
+    public Set<StoreKey> storeArtifactStores( final Collection<? extends ArtifactStore> stores,
+                                              final ChangeSummary summary, final EventMetadata eventMetadata )
+            throws IndyDataException
+    {
+        final Map<ArtifactStore, ArtifactStore> added = new LinkedHashMap<>();
+        final Map<ArtifactStore, ArtifactStore> updated = new LinkedHashMap<>();
+        for ( ArtifactStore store : stores )
+        {
+            if ( store == null )
+            {
+                logger.warn( "Tried to store null ArtifactStore!" );
+                continue;
+            }
+
+            validateStore( store );
+            ArtifactStore original = getArtifactStoreInternal( store.getKey() );
+            if ( original == null )
+            {
+                added.put( store, null );
+            }
+            else
+            {
+                updated.put( store, original );
+            }
+        }
+
+        if ( added.isEmpty() && updated.isEmpty() )
+        {
+            return emptySet();
+        }
+
+        if ( eventMetadata != null && summary != null )
+        {
+            eventMetadata.set( StoreDataManager.CHANGE_SUMMARY, summary );
+        }
+
+        logger.debug( "Storing {} new and {} changed stores as one batch", added.size(), updated.size() );
+        fireBatchStoreEvents( added, updated, eventMetadata, true );
+
+        final Set<StoreKey> stored = new LinkedHashSet<>();
+        final List<StoreKey> lockFailed = new ArrayList<>();
+        final Map<StoreKey, IndyDataException> persistFailed = new LinkedHashMap<>();
+        storeBatch( added, summary, stored, lockFailed, persistFailed );
+        storeBatch( updated, summary, stored, lockFailed, persistFailed );
+
+        added.keySet().removeIf( store -> !stored.contains( store.getKey() ) );
+        updated.keySet().removeIf( store -> !stored.contains( store.getKey() ) );
+        fireBatchStoreEvents( added, updated, eventMetadata, false );
+
+        for ( ArtifactStore store : added.keySet() )
+        {
+            if ( store instanceof Group )
+            {
+                refreshAffectedBy( store, null, STORE );
+            }
+        }
+
+        for ( Map.Entry<ArtifactStore, ArtifactStore> e : updated.entrySet() )
+        {
+            if ( e.getKey() instanceof Group )
+            {
+                refreshAffectedBy( e.getKey(), e.getValue(), STORE );
+            }
+        }
+
+        if ( !lockFailed.isEmpty() )
+        {
+            throw new IndyDataException( "Failed to lock: %s for STORE after %d seconds.", lockFailed,
+                                         LOCK_TIMEOUT_SECONDS );
+        }
+
+        if ( !persistFailed.isEmpty() )
+        {
+            IndyDataException first = persistFailed.values().iterator().next();
+            throw new IndyDataException( "Failed to persist: %s. First error: %s", first, persistFailed.keySet(),
+                                         first.getMessage() );
+        }
+
+        return stored;
+    }
+
+    private void storeBatch( final Map<ArtifactStore, ArtifactStore> batch, final ChangeSummary summary,
+                             final Set<StoreKey> stored, final List<StoreKey> lockFailed,
+                             final Map<StoreKey, IndyDataException> persistFailed )
+    {
+        for ( ArtifactStore store : batch.keySet() )
+        {
+            Boolean result = opLocks.lockAnd( store.getKey(), LOCK_TIMEOUT_SECONDS, k -> {
+                final ArtifactStore old = putArtifactStoreInternal( k, store );
+                try
+                {
+                    persistStore( store, summary );
+                    return true;
+                }
+                catch ( final IndyDataException e )
+                {
+                    logger.error( "persistStore() failed for {}. Rollback to old value: {}", store, old );
+                    if ( old != null )
+                    {
+                        putArtifactStoreInternal( k, old );
+                    }
+                    else
+                    {
+                        removeArtifactStoreInternal( k );
+                    }
+                    persistFailed.put( k, e );
+                    return null;
+                }
+            }, ( k, lock ) -> false );
+
+            if ( Boolean.TRUE.equals( result ) )
+            {
+                stored.add( store.getKey() );
+            }
+            else if ( result != null )
+            {
+                lockFailed.add( store.getKey() );
+            }
+        }
+    }
+
+    /**
+     * Write a store that has just been put into the internal map through to durable storage, if this manager keeps it
+     * anywhere else. {@link #storeArtifactStores} calls this for each store of a batch, under the store's lock, since it
+     * doesn't go through {@link #postStore}; a failure rolls that store back. Does nothing by default.
+     */
+    protected void persistStore( final ArtifactStore store, final ChangeSummary summary )
+            throws IndyDataException
+    {
+    }
+
+    /**
+     * Batch form of the events fired by {@link #preStore} / {@link #postStore}: one update event per update type, and
+     * one enabled / disabled event for all the stores whose state flipped.
+     */
+    private void fireBatchStoreEvents( final Map<ArtifactStore, ArtifactStore> added,
+                                       final Map<ArtifactStore, ArtifactStore> updated,
+                                       final EventMetadata eventMetadata, final boolean pre )
+    {
+        StoreEventDispatcher dispatcher = getStoreEventDispatcher();
+        if ( dispatcher == null || !isStarted() )
+        {
+            return;
+        }
+
+        List<ArtifactStore> disabling = new ArrayList<>();
+        List<ArtifactStore> enabling = new ArrayList<>();
+        updated.forEach( ( store, original ) -> {
+            if ( store.isDisabled() && !original.isDisabled() )
+            {
+                disabling.add( store );
+            }
+            else if ( !store.isDisabled() && original.isDisabled() )
+            {
+                enabling.add( store );
+            }
+        } );
+
+        if ( pre )
+        {
+            if ( !added.isEmpty() )
+            {
+                dispatcher.updating( ArtifactStoreUpdateType.ADD, eventMetadata, added );
+            }
+            if ( !updated.isEmpty() )
+            {
+                dispatcher.updating( ArtifactStoreUpdateType.UPDATE, eventMetadata, updated );
+            }
+            if ( !disabling.isEmpty() )
+            {
+                dispatcher.disabling( eventMetadata, disabling.toArray( new ArtifactStore[0] ) );
+            }
+            if ( !enabling.isEmpty() )
+            {
+                dispatcher.enabling( eventMetadata, enabling.toArray( new ArtifactStore[0] ) );
+            }
+        }
+        else
+        {
+            if ( !added.isEmpty() )
+            {
+                dispatcher.updated( ArtifactStoreUpdateType.ADD, eventMetadata, added );
+            }
+            if ( !updated.isEmpty() )
+            {
+                dispatcher.updated( ArtifactStoreUpdateType.UPDATE, eventMetadata, updated );
+            }
+            if ( !disabling.isEmpty() )
+            {
+                dispatcher.disabled( eventMetadata, disabling.toArray( new ArtifactStore[0] ) );
+            }
+            if ( !enabling.isEmpty() )
+            {
+                dispatcher.enabled( eventMetadata, enabling.toArray( new ArtifactStore[0] ) );
+            }
+        }
+    }
+
     protected void preStore( final ArtifactStore store, final ArtifactStore original, final ChangeSummary summary,
                              final boolean exists, final boolean fireEvents, final EventMetadata eventMetadata )
             throws IndyDataException
@@ -306,6 +567,12 @@ public abstract class AbstractStoreDataManager
     public Stream<ArtifactStore> streamArtifactStores()
             throws IndyDataException
     {
+        StoreSnapshot snapshot = getStoreSnapshot();
+        if ( snapshot != null )
+        {
+            return snapshot.getAll().stream();
+        }
+
         return getAllArtifactStores().stream();
     }
 
@@ -344,25 +611,7 @@ public abstract class AbstractStoreDataManager
 
         logger.warn("Storing {} using operation lock: {}", store, opLocks);
 
-        if ( internalFeatureConfig != null && internalFeatureConfig.getStoreValidation() && store.getType() != group )
-        {
-            ArtifactStoreValidateData validateData = storeValidator.validate( store );
-            if ( !validateData.isValid() )
-            {
-                logger.warn(
-                        "=> [AbstractStoreDataManager] Adding Validation Metadata to Remote Store: " + store.getKey()
-                                + " - not Valid! " );
-                if ( store.getMetadata() != null )
-                {
-                    store.getMetadata().putAll( validateData.getErrors() );
-                }
-                else
-                {
-                    store.setMetadata( validateData.getErrors() );
-                }
-            }
-        }
-
+        validateStore( store );
 
         Function<StoreKey, Boolean> lockHandler = k -> doStore( k, store, summary, error, skipIfExists, fireEvents, eventMetadata );
 
@@ -387,6 +636,31 @@ public abstract class AbstractStoreDataManager
         return result;
     }
 
+    /**
+     * When store validation is enabled, record validation errors of non-group stores in their metadata.
+     */
+    protected void validateStore( final ArtifactStore store )
+    {
+        if ( internalFeatureConfig != null && internalFeatureConfig.getStoreValidation() && store.getType() != group )
+        {
+            ArtifactStoreValidateData validateData = storeValidator.validate( store );
+            if ( !validateData.isValid() )
+            {
+                logger.warn(
+                        "=> [AbstractStoreDataManager] Adding Validation Metadata to Remote Store: " + store.getKey()
+                                + " - not Valid! " );
+                if ( store.getMetadata() != null )
+                {
+                    store.getMetadata().putAll( validateData.getErrors() );
+                }
+                else
+                {
+                    store.setMetadata( validateData.getErrors() );
+                }
+            }
+        }
+    }
+
     private Boolean doStore( StoreKey k, ArtifactStore store, ChangeSummary summary,
                              AtomicReference<IndyDataException> error, boolean skipIfExists, boolean fireEvents,
                              EventMetadata eventMetadata )
@@ -528,6 +802,37 @@ public abstract class AbstractStoreDataManager
         Set<StoreKey> processed = new HashSet<>();
         final String packageType = toProcess.get( 0 ).getPackageType();
 
+        StoreSnapshot snapshot = null;
+        try
+        {
+            snapshot = getStoreSnapshot();
+        }
+        catch ( IndyDataException e )
+        {
+            logger.warn( "Cannot get store snapshot, scanning groups instead. Reason: {}", e.getMessage() );
+        }
+
+        if ( snapshot != null )
+        {
+            while ( !toProcess.isEmpty() )
+            {
+                StoreKey next = toProcess.remove( 0 );
+                if ( processed.add( next ) )
+                {
+                    for ( Group g : snapshot.getGroupsContaining( next ) )
+                    {
+                        if ( packageType.equals( g.getPackageType() ) && !processed.contains( g.getKey() ) )
+                        {
+                            groups.add( g );
+                            toProcess.add( g.getKey() );
+                        }
+                    }
+                }
+            }
+
+            return filterAffectedGroups( groups );
+        }
+
         Set<ArtifactStore> all = this.getStoreKeysByPkgAndType( packageType, group )
                                      .stream()
                                      .map( this::getArtifactStoreInternal )
@@ -28,6 +28,7 @@ import org.commonjava.indy.model.core.RemoteRepository;
 import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.core.StoreType;
 import org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor;
+import org.commonjava.indy.util.HostAddressCache;
 import org.commonjava.indy.util.UrlInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -182,8 +183,13 @@ public class DefaultArtifactStoreQuery<T extends ArtifactStore>
     public Stream<T> stream( Predicate<ArtifactStore> filter )
             throws IndyDataException
     {
+        // with a snapshot, the package and store type selection is an index lookup instead of a filter over all stores
+        StoreSnapshot snapshot = getStoreSnapshot();
+        Stream<ArtifactStore> source =
+                snapshot == null ? dataManager.streamArtifactStores() : snapshot.stream( packageType, types );
+
         /* @formatter:off */
-        return dataManager.streamArtifactStores().filter( ( store ) ->
+        return source.filter( ( store ) ->
         {
             logger.debug( "Checking whether {} is included in stream...", store.getKey() );
 
@@ -263,6 +269,16 @@ public class DefaultArtifactStoreQuery<T extends ArtifactStore>
     public Set<Group> getGroupsContaining( StoreKey storeKey )
             throws IndyDataException
     {
+        StoreSnapshot snapshot = getStoreSnapshot();
+        if ( snapshot != null )
+        {
+            return snapshot.getGroupsContaining( storeKey )
+                           .stream()
+                           .filter( g -> ( packageType == null || packageType.equals( g.getPackageType() ) ) && (
+                                   enabled == null || g.isDisabled() != enabled ) )
+                           .collect( Collectors.toSet() );
+        }
+
         return getAllGroups().stream().filter( g -> g.getConstituents().contains( storeKey ) ).collect( Collectors.toSet() );
     }
 
@@ -291,6 +307,46 @@ public class DefaultArtifactStoreQuery<T extends ArtifactStore>
         final UrlInfo urlInfo = temp;
 
         // first try to find the remote repo by urlWithNoSchemeAndLastSlash
+        StoreSnapshot snapshot = getStoreSnapshot();
+        if ( snapshot == null )
+        {
+            result = findRemotesByUrlWithNoScheme( url, urlInfo );
+            if ( result.isEmpty() )
+            {
+                result = findRemotesByIp( url, urlInfo );
+            }
+            return result;
+        }
+
+        result = selectRemotes( snapshot.getRemotesByUrlKey( StoreSnapshot.urlKey( urlInfo ) ) );
+        if ( result.isEmpty() )
+        {
+            // ...if not found by hostname, match by IP. Each remote host is resolved once, via the TTL cache.
+            try
+            {
+                result = selectRemotes( snapshot.getRemotesByAddress( urlInfo, HostAddressCache.getInstance() ) );
+            }
+            catch ( UnknownHostException e )
+            {
+                logger.warn( "Failed to filter remote: ip fetch error.", e );
+            }
+        }
+
+        return result;
+    }
+
+    private List<RemoteRepository> selectRemotes( final List<RemoteRepository> remotes )
+    {
+        return remotes.stream()
+                      .filter( r -> ( packageType == null || packageType.equals( r.getPackageType() ) ) && (
+                              enabled == null || r.isDisabled() != enabled ) )
+                      .collect( Collectors.toList() );
+    }
+
+    private List<RemoteRepository> findRemotesByUrlWithNoScheme( final String url, final UrlInfo urlInfo )
+            throws IndyDataException
+    {
+        List<RemoteRepository> result;
         /* @formatter:off */
         result = new DefaultArtifactStoreQuery<>( dataManager, packageType, enabled, RemoteRepository.class ).stream(
                 store -> {
@@ -325,62 +381,76 @@ public class DefaultArtifactStoreQuery<T extends ArtifactStore>
                 } ).collect( Collectors.toList() );
         /* @formatter:on */
 
+        return result;
+    }
 
-        if ( result.isEmpty() )
-        {
-            // ...if not found by hostname try to search by IP
-            /* @formatter:off */
-            result = new DefaultArtifactStoreQuery<>( dataManager, packageType, enabled, RemoteRepository.class ).stream(
-                    store -> {
-                        if ( ( StoreType.remote == store.getType() ) )
+    private List<RemoteRepository> findRemotesByIp( final String url, final UrlInfo urlInfo )
+            throws IndyDataException
+    {
+        List<RemoteRepository> result;
+        // ...if not found by hostname try to search by IP
+        /* @formatter:off */
+        result = new DefaultArtifactStoreQuery<>( dataManager, packageType, enabled, RemoteRepository.class ).stream(
+                store -> {
+                    if ( ( StoreType.remote == store.getType() ) )
+                    {
+                        final String targetUrl = ( (RemoteRepository) store ).getUrl();
+                        UrlInfo targetUrlInfo;
+                        try
+                        {
+                            targetUrlInfo = new UrlInfo( targetUrl );
+                        }
+                        catch ( Exception error )
                         {
-                            final String targetUrl = ( (RemoteRepository) store ).getUrl();
-                            UrlInfo targetUrlInfo;
+                            logger.warn( "Invalid repository, store: {}, url: '{}'. Reason: {}", store.getKey(), targetUrl, error.getMessage() );
+                            return false;
+                        }
+
+                        if (  targetUrlInfo != null )
+                        {
+                            String ipForUrl = null;
+                            String ipForTargetUrl = null;
                             try
                             {
-                                targetUrlInfo = new UrlInfo( targetUrl );
+                                ipForUrl = urlInfo.getIpForUrl();
+                                ipForTargetUrl = targetUrlInfo.getIpForUrl();
+                                if ( ipForUrl != null && ipForUrl.equals( ipForTargetUrl )
+                                        && urlInfo.getPort() == targetUrlInfo.getPort()
+                                        && urlInfo.getFileWithNoLastSlash().equals( targetUrlInfo.getFileWithNoLastSlash() ) )
+                                {
+                                    logger.debug( "Repository found because of same ip, url is {}, store key is {}", url,
+                                                  store.getKey() );
+                                    return true;
+                                }
                             }
-                            catch ( Exception error )
+                            catch ( UnknownHostException ue )
                             {
-                                logger.warn( "Invalid repository, store: {}, url: '{}'. Reason: {}", store.getKey(), targetUrl, error.getMessage() );
-                                return false;
+                                logger.warn( "Failed to filter remote: ip fetch error.", ue );
                             }
 
-                            if (  targetUrlInfo != null )
-                            {
-                                String ipForUrl = null;
-                                String ipForTargetUrl = null;
-                                try
-                                {
-                                    ipForUrl = urlInfo.getIpForUrl();
-                                    ipForTargetUrl = targetUrlInfo.getIpForUrl();
-                                    if ( ipForUrl != null && ipForUrl.equals( ipForTargetUrl )
-                                            && urlInfo.getPort() == targetUrlInfo.getPort()
-                                            && urlInfo.getFileWithNoLastSlash().equals( targetUrlInfo.getFileWithNoLastSlash() ) )
-                                    {
-                                        logger.debug( "Repository found because of same ip, url is {}, store key is {}", url,
-                                                      store.getKey() );
-                                        return true;
-                                    }
-                                }
-                                catch ( UnknownHostException ue )
-                                {
-                                    logger.warn( "Failed to filter remote: ip fetch error.", ue );
-                                }
-
-                                logger.debug( "ip not same: ip for url:{}-{}; ip for searching repo: {}-{}", url, ipForUrl,
-                                              store.getKey(), ipForTargetUrl );
-                            }
+                            logger.debug( "ip not same: ip for url:{}-{}; ip for searching repo: {}-{}", url, ipForUrl,
+                                          store.getKey(), ipForTargetUrl );
                         }
+                    }
 
-                        return false;
-                    } ).collect(Collectors.toList());
-            /* @formatter:on */
-        }
+                    return false;
+                } ).collect(Collectors.toList());
+        /* @formatter:on */
 
         return result;
     }
 
+    private StoreSnapshot getStoreSnapshot()
+            throws IndyDataException
+    {
+        if ( dataManager instanceof AbstractStoreDataManager )
+        {
+            return ( (AbstractStoreDataManager) dataManager ).getStoreSnapshot();
+        }
+
+        return null;
+    }
+
     @Override
     @Measure
     public List<ArtifactStore> getOrderedConcreteStoresInGroup( final String groupName )
@@ -0,0 +1,247 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.db.common;
+
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.util.HostAddressCache;
+import org.commonjava.indy.util.UrlInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Immutable, versioned view of all stores of a data manager, with the indexes the query path needs prebuilt: by package
+ * and store type, by normalized remote URL, remotes by host, and from member to the groups containing it. A new
+ * instance is built after the stores change; readers only ever see a complete one, so they need no locking.
+ */
+public final class StoreSnapshot
+{
+    private static final Logger logger = LoggerFactory.getLogger( StoreSnapshot.class );
+
+    private final long version;
+
+    private final List<ArtifactStore> all;
+
+    private final Map<String, Map<StoreType, List<ArtifactStore>>> byPkgAndType;
+
+    private final Map<String, List<RemoteRepository>> remotesByUrl;
+
+    private final Map<String, List<RemoteUrl>> remotesByHost;
+
+    private final Map<StoreKey, List<Group>> groupsByMember;
+
+    private StoreSnapshot( final long version, final List<ArtifactStore> all,
+                           final Map<String, Map<StoreType, List<ArtifactStore>>> byPkgAndType,
+                           final Map<String, List<RemoteRepository>> remotesByUrl,
+                           final Map<String, List<RemoteUrl>> remotesByHost,
+                           final Map<StoreKey, List<Group>> groupsByMember )
+    {
+        this.version = version;
+        this.all = all;
+        this.byPkgAndType = byPkgAndType;
+        this.remotesByUrl = remotesByUrl;
+        this.remotesByHost = remotesByHost;
+        this.groupsByMember = groupsByMember;
+    }
+
+    public static StoreSnapshot build( final long version, final Collection<ArtifactStore> stores )
+    {
+        final List<ArtifactStore> all = new ArrayList<>( stores );
+        final Map<String, Map<StoreType, List<ArtifactStore>>> byPkgAndType = new HashMap<>();
+        final Map<String, List<RemoteRepository>> remotesByUrl = new HashMap<>();
+        final Map<String, List<RemoteUrl>> remotesByHost = new HashMap<>();
+        final Map<StoreKey, List<Group>> groupsByMember = new HashMap<>();
+
+        for ( ArtifactStore store : all )
+        {
+            final StoreKey key = store.getKey();
+            byPkgAndType.computeIfAbsent( key.getPackageType(), k -> new EnumMap<>( StoreType.class ) )
+                        .computeIfAbsent( key.getType(), k -> new ArrayList<>() )
+                        .add( store );
+
+            if ( store instanceof RemoteRepository )
+            {
+                final RemoteRepository remote = (RemoteRepository) store;
+                final UrlInfo info = parse( remote.getUrl() );
+                if ( info != null )
+                {
+                    remotesByUrl.computeIfAbsent( urlKey( info ), k -> new ArrayList<>() ).add( remote );
+                    remotesByHost.computeIfAbsent( info.getHost(), k -> new ArrayList<>() )
+                                 .add( new RemoteUrl( remote, info ) );
+                }
+            }
+            else if ( store instanceof Group && ( (Group) store ).getConstituents() != null )
+            {
+                for ( StoreKey member : ( (Group) store ).getConstituents() )
+                {
+                    groupsByMember.computeIfAbsent( member, k -> new ArrayList<>() ).add( (Group) store );
+                }
+            }
+        }
+
+        return new StoreSnapshot( version, Collections.unmodifiableList( all ), byPkgAndType, remotesByUrl,
+                                  remotesByHost, groupsByMember );
+    }
+
+    /**
+     * Key remotes are matched by in {@link DefaultArtifactStoreQuery#getRemoteRepositoryByUrl(String)} without a DNS
+     * lookup: the protocol plus the URL without scheme and trailing slash.
+     */
+    public static String urlKey( final UrlInfo info )
+    {
+        return info.getProtocol() + "|" + info.getUrlWithNoSchemeAndLastSlash();
+    }
+
+    private static UrlInfo parse( final String url )
+    {
+        if ( url == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            return new UrlInfo( url );
+        }
+        catch ( Exception e )
+        {
+            logger.debug( "Cannot index remote URL: '{}'. Reason: {}", url, e.getMessage() );
+            return null;
+        }
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public List<ArtifactStore> getAll()
+    {
+        return all;
+    }
+
+    /**
+     * Stores of the given package type (any, if null) and store types (any, if null or empty).
+     */
+    public Stream<ArtifactStore> stream( final String packageType, final Set<StoreType> types )
+    {
+        if ( packageType == null )
+        {
+            if ( types == null || types.isEmpty() )
+            {
+                return all.stream();
+            }
+            return byPkgAndType.values().stream().flatMap( typed -> streamTypes( typed, types ) );
+        }
+
+        final Map<StoreType, List<ArtifactStore>> typed = byPkgAndType.get( packageType );
+        if ( typed == null )
+        {
+            return Stream.empty();
+        }
+
+        return streamTypes( typed, types );
+    }
+
+    private static Stream<ArtifactStore> streamTypes( final Map<StoreType, List<ArtifactStore>> typed,
+                                                      final Set<StoreType> types )
+    {
+        if ( types == null || types.isEmpty() )
+        {
+            return typed.values().stream().flatMap( List::stream );
+        }
+
+        return types.stream().map( typed::get ).filter( list -> list != null ).flatMap( List::stream );
+    }
+
+    public List<RemoteRepository> getRemotesByUrlKey( final String urlKey )
+    {
+        final List<RemoteRepository> remotes = remotesByUrl.get( urlKey );
+        return remotes == null ? Collections.emptyList() : remotes;
+    }
+
+    /**
+     * Remotes whose host resolves to the same address as the target's, with the same port and path. Each distinct
+     * remote host is resolved once, through the given (TTL) cache.
+     */
+    public List<RemoteRepository> getRemotesByAddress( final UrlInfo target, final HostAddressCache addresses )
+            throws UnknownHostException
+    {
+        final String targetAddress = addresses.resolve( target.getHost() );
+        final List<RemoteRepository> result = new ArrayList<>();
+        for ( Map.Entry<String, List<RemoteUrl>> entry : remotesByHost.entrySet() )
+        {
+            final String address;
+            try
+            {
+                address = addresses.resolve( entry.getKey() );
+            }
+            catch ( UnknownHostException e )
+            {
+                logger.debug( "Cannot resolve remote host: {}", entry.getKey() );
+                continue;
+            }
+
+            if ( targetAddress.equals( address ) )
+            {
+                for ( RemoteUrl remoteUrl : entry.getValue() )
+                {
+                    UrlInfo info = remoteUrl.info;
+                    if ( info.getPort() == target.getPort()
+                            && info.getFileWithNoLastSlash().equals( target.getFileWithNoLastSlash() ) )
+                    {
+                        result.add( remoteUrl.remote );
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public List<Group> getGroupsContaining( final StoreKey member )
+    {
+        final List<Group> groups = groupsByMember.get( member );
+        return groups == null ? Collections.emptyList() : groups;
+    }
+
+    private static final class RemoteUrl
+    {
+        private final RemoteRepository remote;
+
+        private final UrlInfo info;
+
+        private RemoteUrl( final RemoteRepository remote, final UrlInfo info )
+        {
+            this.remote = remote;
+            this.info = info;
+        }
+    }
+}
@@ -15,16 +15,24 @@
  */
 package org.commonjava.indy.flat.data;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
 
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
 import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.conf.IndyConfiguration;
 import org.commonjava.indy.data.IndyDataException;
-import org.commonjava.indy.data.StoreDataManager;
 import org.commonjava.indy.data.StoreEventDispatcher;
 import org.commonjava.indy.mem.data.MemoryStoreDataManager;
 import org.commonjava.indy.model.core.ArtifactStore;
@@ -40,9 +48,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.commonjava.indy.flat.data.DataFileStoreUtils.INDY_STORE;
-import static org.commonjava.indy.flat.data.DataFileStoreUtils.LOAD_FROM_DISK;
 import static org.commonjava.indy.flat.data.DataFileStoreUtils.deleteFromDisk;
-import static org.commonjava.indy.flat.data.DataFileStoreUtils.loadFromDiskAnd;
+import static org.commonjava.indy.flat.data.DataFileStoreUtils.loadAllFromDisk;
 import static org.commonjava.indy.flat.data.DataFileStoreUtils.storeToDisk;
 import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
 
@@ -60,6 +67,16 @@ public class DataFileStoreDataManager
     @Inject
     private IndyObjectMapper serializer;
 
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "store-definition-loader", threads = 8, priority = 9 )
+    private ExecutorService definitionLoader;
+
+    @Inject
+    private IndyConfiguration indyConfig;
+
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+
     private boolean started;
 
     protected DataFileStoreDataManager()
@@ -75,24 +92,102 @@ public class DataFileStoreDataManager
         this.started = true;
     }
 
+    /**
+     * Load all definitions in one bulk pass: files are parsed (and validated) in parallel, then put into the store map
+     * at once and indexed by package type once. Unlike {@link #storeArtifactStore}, no per-store locks, hooks or events
+     * are involved, and the definitions are not written back to the files they came from.
+     * <p>
+     * If store snapshots are enabled and the snapshot still matches the definition files, it is loaded instead.
+     */
     @PostConstruct
     public void readDefinitions()
     {
         ChangeSummary summary = new ChangeSummary( ChangeSummary.SYSTEM_USER,
                                                    "Reading definitions from disk, culling invalid definition files." );
 
-        loadFromDiskAnd( manager, serializer, summary, ( store ) -> {
+        long start = System.nanoTime();
+        List<ArtifactStore> loaded = readSnapshot();
+        boolean fromSnapshot = loaded != null;
+        if ( !fromSnapshot )
+        {
+            loaded = loadAllFromDisk( manager, serializer, summary, definitionLoader, this::validateStore );
+        }
+        long parsed = System.nanoTime();
+
+        putAllArtifactStoresInternal( loaded );
+        started = true;
+
+        logger.info( "Loaded {} store definitions from {} in {}ms (read: {}ms, index: {}ms)", loaded.size(),
+                     fromSnapshot ? "snapshot" : "definition files",
+                     TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ),
+                     TimeUnit.NANOSECONDS.toMillis( parsed - start ),
+                     TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - parsed ) );
+
+        if ( !fromSnapshot )
+        {
+            scheduleSnapshot();
+        }
+    }
+
+    private boolean isSnapshotEnabled()
+    {
+        return indyConfig != null && indyConfig.isStoreSnapshotEnabled();
+    }
+
+    private List<ArtifactStore> readSnapshot()
+    {
+        if ( !isSnapshotEnabled() )
+        {
+            return null;
+        }
+
+        try
+        {
+            return StoreDataSnapshot.read( StoreDataSnapshot.getSnapshotFile( manager ),
+                                           StoreDataSnapshot.fingerprint( manager ) );
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Cannot fingerprint store definitions, not using the store snapshot. Reason: {}",
+                         e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     * Rewrite the snapshot in the background. Changes arriving while a rewrite is queued are folded into it.
+     */
+    private void scheduleSnapshot()
+    {
+        if ( !isSnapshotEnabled() || !snapshotScheduled.compareAndSet( false, true ) )
+        {
+            return;
+        }
+
+        Runnable writer = () -> {
+            snapshotScheduled.set( false );
             try
             {
-                storeArtifactStore( store, summary, false, false,
-                                    new EventMetadata().set( StoreDataManager.EVENT_ORIGIN, LOAD_FROM_DISK ) );
+                // fingerprint before copying the stores: a change racing with this makes the snapshot stale rather
+                // than wrongly current, since stores are put into the map before their files are written.
+                String fingerprint = StoreDataSnapshot.fingerprint( manager );
+                StoreDataSnapshot.write( StoreDataSnapshot.getSnapshotFile( manager ), fingerprint,
+                                         new ArrayList<>( getAllArtifactStores() ) );
             }
-            catch ( IndyDataException e )
+            catch ( IOException | IndyDataException e )
             {
-                throw new IllegalStateException( "Failed to start store data manager: " + e.getMessage(), e );
+                logger.warn( "Failed to write store snapshot. Reason: {}", e.getMessage() );
             }
-        } );
-        started = true;
+        };
+
+        if ( definitionLoader == null )
+        {
+            writer.run();
+        }
+        else
+        {
+            definitionLoader.execute( writer );
+        }
     }
 
     @Override
@@ -100,10 +195,18 @@ public class DataFileStoreDataManager
                               final boolean fireEvents, final EventMetadata eventMetadata )
         throws IndyDataException
     {
-        storeToDisk( manager, serializer, false, summary, store );
+        persistStore( store, summary );
         super.postStore( store, original, summary, exists, fireEvents, eventMetadata );
     }
 
+    @Override
+    protected void persistStore( final ArtifactStore store, final ChangeSummary summary )
+        throws IndyDataException
+    {
+        storeToDisk( manager, serializer, false, summary, store );
+        scheduleSnapshot();
+    }
+
     @Override
     protected void postDelete( final ArtifactStore store, final ChangeSummary summary, final boolean fireEvents,
                                final EventMetadata eventMetadata )
@@ -111,6 +214,7 @@ public class DataFileStoreDataManager
     {
         deleteFromDisk( manager, store, summary );
         super.postDelete( store, summary, fireEvents, eventMetadata );
+        scheduleSnapshot();
     }
 
     @Override
@@ -128,6 +232,12 @@ public class DataFileStoreDataManager
         {
             throw new IndyDataException( "Failed to delete Indy storage files: {}", e, e.getMessage() );
         }
+
+        File snapshot = StoreDataSnapshot.getSnapshotFile( manager );
+        if ( snapshot.exists() && !snapshot.delete() )
+        {
+            logger.warn( "Failed to delete store snapshot: {}", snapshot );
+        }
     }
 
     @Override
@@ -27,6 +27,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 public class DataFileStoreUtils
@@ -37,6 +42,8 @@ public class DataFileStoreUtils
 
     public static final String LOAD_FROM_DISK = "load-from-disk";
 
+    private static final int LOAD_BATCH_SIZE = 256;
+
     /**
      * Load all store definitions from disk and apply consumer function.
      */
@@ -122,6 +129,115 @@ public class DataFileStoreUtils
         }
     }
 
+    /**
+     * Load all store definitions from disk, parsing the files in batches on the given executor (or on the calling
+     * thread if it is null). Each parsed store is passed to the preparer on the parsing thread. Unreadable definition
+     * files are deleted, as in {@link #loadFromDiskAnd(DataFileManager, IndyObjectMapper, ChangeSummary, Consumer)}.
+     */
+    public static List<ArtifactStore> loadAllFromDisk( final DataFileManager manager, final IndyObjectMapper serializer,
+                                                       final ChangeSummary summary, final ExecutorService executor,
+                                                       final Consumer<ArtifactStore> preparer )
+    {
+        final List<StoreType> types = new ArrayList<>();
+        final List<DataFile> files = new ArrayList<>();
+        DataFile[] packageDirs = manager.getDataFile( INDY_STORE ).listFiles( ( f ) -> true );
+        if ( packageDirs != null )
+        {
+            for ( DataFile pkgDir : packageDirs )
+            {
+                for ( StoreType type : StoreType.values() )
+                {
+                    DataFile[] typeFiles = pkgDir.getChild( type.singularEndpointName() ).listFiles( f -> true );
+                    if ( typeFiles != null )
+                    {
+                        for ( DataFile f : typeFiles )
+                        {
+                            types.add( type );
+                            files.add( f );
+                        }
+                    }
+                }
+            }
+        }
+
+        final List<ArtifactStore> result = new ArrayList<>( files.size() );
+        if ( executor == null )
+        {
+            result.addAll( loadBatch( serializer, summary, types, files, 0, files.size(), preparer ) );
+            return result;
+        }
+
+        final List<Future<List<ArtifactStore>>> batches = new ArrayList<>();
+        for ( int start = 0; start < files.size(); start += LOAD_BATCH_SIZE )
+        {
+            final int from = start;
+            final int to = Math.min( start + LOAD_BATCH_SIZE, files.size() );
+            batches.add( executor.submit( () -> loadBatch( serializer, summary, types, files, from, to, preparer ) ) );
+        }
+
+        for ( Future<List<ArtifactStore>> batch : batches )
+        {
+            try
+            {
+                result.addAll( batch.get() );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException( "Interrupted while loading store definitions", e );
+            }
+            catch ( ExecutionException e )
+            {
+                throw new IllegalStateException( "Failed to load store definitions: " + e.getCause().getMessage(),
+                                                 e.getCause() );
+            }
+        }
+
+        return result;
+    }
+
+    private static List<ArtifactStore> loadBatch( final IndyObjectMapper serializer, final ChangeSummary summary,
+                                                  final List<StoreType> types, final List<DataFile> files,
+                                                  final int from, final int to, final Consumer<ArtifactStore> preparer )
+    {
+        final List<ArtifactStore> loaded = new ArrayList<>( to - from );
+        for ( int i = from; i < to; i++ )
+        {
+            final StoreType type = types.get( i );
+            final DataFile f = files.get( i );
+            try
+            {
+                final ArtifactStore store = serializer.readValue( f.readString(), type.getStoreClass() );
+                if ( store == null )
+                {
+                    f.delete( summary );
+                }
+                else
+                {
+                    if ( preparer != null )
+                    {
+                        preparer.accept( store );
+                    }
+                    loaded.add( store );
+                }
+            }
+            catch ( final IOException e )
+            {
+                logger.error( String.format( "Failed to load %s store: %s. Reason: %s", type, f, e.getMessage() ), e );
+                try
+                {
+                    f.delete( summary );
+                }
+                catch ( IOException e1 )
+                {
+                    logger.error( "Failed to delete invalid store definition file: " + f, e );
+                }
+            }
+        }
+
+        return loaded;
+    }
+
     public static void storeToDisk( final DataFileManager manager, final IndyObjectMapper serializer,
                                     final boolean skipIfExists, final ChangeSummary summary,
                                     final ArtifactStore... stores ) throws IndyDataException
@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.flat.data;
+
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.StoreType;
+import org.commonjava.indy.subsys.datafile.DataFile;
+import org.commonjava.indy.subsys.datafile.DataFileManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.commonjava.indy.flat.data.DataFileStoreUtils.INDY_STORE;
+
+/**
+ * Versioned binary snapshot of all store definitions, used to warm-start the flat-file store data manager without
+ * opening and parsing every definition file. Stores are written in one column per {@link StoreType}, each one in its
+ * {@link java.io.Externalizable} form.
+ * <p>
+ * The snapshot carries a fingerprint of the definition files (a checksum of the relative path and content of each)
+ * taken when it was written. It is only used if the fingerprint of the files on disk still matches; the JSON
+ * definitions stay authoritative.
+ */
+public final class StoreDataSnapshot
+{
+    private static final Logger logger = LoggerFactory.getLogger( StoreDataSnapshot.class );
+
+    public static final String SNAPSHOT_DIR = "indy-snapshot";
+
+    public static final String SNAPSHOT_FILE = "stores.bin";
+
+    private static final int MAGIC = 0x49534e50; // "ISNP"
+
+    private static final int FORMAT_VERSION = 1;
+
+    private StoreDataSnapshot()
+    {
+    }
+
+    public static File getSnapshotFile( final DataFileManager manager )
+    {
+        return manager.getDataFile( SNAPSHOT_DIR, SNAPSHOT_FILE ).getDetachedFile();
+    }
+
+    /**
+     * Fingerprint of all definition files under the store directory: a SHA-256 checksum over the relative path and
+     * content of each. Reading the raw bytes is still much cheaper than parsing them into stores, and unlike sizes and
+     * modification times it catches any edit to a definition.
+     */
+    public static String fingerprint( final DataFileManager manager )
+            throws IOException
+    {
+        final File root = manager.getDataFile( INDY_STORE ).getDetachedFile();
+        final List<String> entries = new ArrayList<>();
+        final File[] packageDirs = root.listFiles( File::isDirectory );
+        if ( packageDirs != null )
+        {
+            for ( File pkgDir : packageDirs )
+            {
+                for ( StoreType type : StoreType.values() )
+                {
+                    final File[] files = new File( pkgDir, type.singularEndpointName() ).listFiles( File::isFile );
+                    if ( files != null )
+                    {
+                        for ( File f : files )
+                        {
+                            entries.add( pkgDir.getName() + "/" + type.singularEndpointName() + "/" + f.getName() );
+                        }
+                    }
+                }
+            }
+        }
+
+        entries.sort( Comparator.naturalOrder() );
+
+        final MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance( "SHA-256" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IOException( "SHA-256 is not available", e );
+        }
+
+        final byte[] buf = new byte[8192];
+        for ( String entry : entries )
+        {
+            digest.update( entry.getBytes( StandardCharsets.UTF_8 ) );
+            digest.update( (byte) '\n' );
+
+            try (InputStream in = Files.newInputStream( new File( root, entry ).toPath() ))
+            {
+                int read;
+                while ( ( read = in.read( buf ) ) > -1 )
+                {
+                    digest.update( buf, 0, read );
+                }
+            }
+            digest.update( (byte) '\n' );
+        }
+
+        return entries.size() + "-" + Base64.getUrlEncoder().withoutPadding().encodeToString( digest.digest() );
+    }
+
+    /**
+     * Read the snapshot if it exists and matches the given fingerprint.
+     * @return the stores, or null if there is no usable snapshot
+     */
+    public static List<ArtifactStore> read( final File snapshot, final String fingerprint )
+    {
+        if ( !snapshot.isFile() )
+        {
+            return null;
+        }
+
+        try (InputStream stream = new BufferedInputStream( Files.newInputStream( snapshot.toPath() ), 65536 );
+             ObjectInputStream in = new ObjectInputStream( stream ))
+        {
+            if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION )
+            {
+                logger.info( "Ignoring store snapshot {} with unknown format", snapshot );
+                return null;
+            }
+
+            final String snapshotFingerprint = in.readUTF();
+            if ( !snapshotFingerprint.equals( fingerprint ) )
+            {
+                logger.info( "Store snapshot {} is stale, definitions have changed since it was written", snapshot );
+                return null;
+            }
+
+            final List<ArtifactStore> stores = new ArrayList<>( in.readInt() );
+            final int columns = in.readInt();
+            for ( int c = 0; c < columns; c++ )
+            {
+                final StoreType type = StoreType.valueOf( in.readUTF() );
+                final int count = in.readInt();
+                for ( int i = 0; i < count; i++ )
+                {
+                    final ArtifactStore store = type.getStoreClass().newInstance();
+                    store.readExternal( in );
+                    stores.add( store );
+                }
+            }
+
+            if ( in.readInt() != MAGIC )
+            {
+                logger.warn( "Store snapshot {} is truncated, ignoring it", snapshot );
+                return null;
+            }
+
+            return stores;
+        }
+        catch ( IOException | ReflectiveOperationException | RuntimeException e )
+        {
+            logger.warn( String.format( "Failed to read store snapshot %s, ignoring it. Reason: %s", snapshot,
+                                        e.getMessage() ), e );
+            return null;
+        }
+    }
+
+    /**
+     * Write the snapshot to a temp file next to the target and atomically move it into place.
+     */
+    public static void write( final File snapshot, final String fingerprint,
+                              final Collection<? extends ArtifactStore> stores )
+            throws IOException
+    {
+        final Map<StoreType, List<ArtifactStore>> columns = new EnumMap<>( StoreType.class );
+        stores.forEach( store -> columns.computeIfAbsent( store.getType(), t -> new ArrayList<>() ).add( store ) );
+
+        final File dir = snapshot.getParentFile();
+        if ( !dir.isDirectory() && !dir.mkdirs() )
+        {
+            throw new IOException( "Cannot create store snapshot directory: " + dir );
+        }
+
+        final File temp = File.createTempFile( snapshot.getName(), ".tmp", dir );
+        try
+        {
+            try (OutputStream stream = new BufferedOutputStream( Files.newOutputStream( temp.toPath() ), 65536 );
+                 ObjectOutputStream out = new ObjectOutputStream( stream ))
+            {
+                out.writeInt( MAGIC );
+                out.writeInt( FORMAT_VERSION );
+                out.writeUTF( fingerprint );
+                out.writeInt( stores.size() );
+                out.writeInt( columns.size() );
+                for ( Map.Entry<StoreType, List<ArtifactStore>> column : columns.entrySet() )
+                {
+                    out.writeUTF( column.getKey().name() );
+                    out.writeInt( column.getValue().size() );
+                    for ( ArtifactStore store : column.getValue() )
+                    {
+                        store.writeExternal( out );
+                    }
+                }
+                out.writeInt( MAGIC );
+            }
+
+            Files.move( temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE );
+        }
+        finally
+        {
+            Files.deleteIfExists( temp.toPath() );
+        }
+
+        logger.debug( "Wrote snapshot of {} stores to {}", stores.size(), snapshot );
+    }
+}
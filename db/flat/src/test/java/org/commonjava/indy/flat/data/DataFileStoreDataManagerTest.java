@@ -20,10 +20,15 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.commonjava.indy.audit.ChangeSummary;
 import org.commonjava.indy.conf.DefaultIndyConfiguration;
 import org.commonjava.indy.core.data.testutil.StoreEventDispatcherStub;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.HostedRepository;
 import org.commonjava.indy.model.core.RemoteRepository;
 import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.model.core.StoreType;
@@ -48,13 +53,15 @@ public class DataFileStoreDataManagerTest
 
     private DataFileConfiguration fileCfg;
 
+    private DataFileManager fileMgr;
+
     @Before
     public void setup()
             throws Exception
     {
         fileCfg = new DataFileConfiguration( temp.newFolder( "data" ), temp.newFolder( "work" ) );
 
-        final DataFileManager fileMgr = new DataFileManager( fileCfg, new DataFileEventManager() );
+        fileMgr = new DataFileManager( fileCfg, new DataFileEventManager() );
 
         mgr = new DataFileStoreDataManager( fileMgr, new IndyObjectMapper( false ), new StoreEventDispatcherStub() );
     }
@@ -74,4 +81,68 @@ public class DataFileStoreDataManagerTest
                 new File( fileCfg.getDataBasedir(), "indy/remote/" + name + ".json" ).getAbsolutePath() ) );
     }
 
+    @Test
+    public void readDefinitionsLoadsAllStoresAndCullsInvalidFiles()
+            throws Exception
+    {
+        final ChangeSummary summary = new ChangeSummary( "test-user", "init" );
+        final RemoteRepository central =
+                new RemoteRepository( MAVEN_PKG_KEY, "central", "http://repo.maven.apache.org/maven2/" );
+        final HostedRepository hosted = new HostedRepository( MAVEN_PKG_KEY, "local" );
+        final Group pub = new Group( MAVEN_PKG_KEY, "public", central.getKey(), hosted.getKey() );
+        final RemoteRepository npm = new RemoteRepository( "npm", "npmjs", "https://registry.npmjs.org/" );
+        for ( RemoteRepository remote : Arrays.asList( central, npm ) )
+        {
+            mgr.storeArtifactStore( remote, summary, false, false, new EventMetadata() );
+        }
+        mgr.storeArtifactStore( hosted, summary, false, false, new EventMetadata() );
+        mgr.storeArtifactStore( pub, summary, false, false, new EventMetadata() );
+
+        final DataFile invalid = fileMgr.getDataFile( "indy", MAVEN_PKG_KEY, "hosted", "broken.json" );
+        invalid.writeString( "{ not json", "UTF-8", summary );
+
+        final DataFileStoreDataManager reloaded =
+                new DataFileStoreDataManager( fileMgr, new IndyObjectMapper( false ), new StoreEventDispatcherStub() );
+        reloaded.readDefinitions();
+
+        assertThat( reloaded.getArtifactStoresByKey().keySet(), equalTo(
+                new HashSet<>( Arrays.asList( central.getKey(), npm.getKey(), hosted.getKey(), pub.getKey() ) ) ) );
+        assertThat( reloaded.getStoreKeysByPkg( MAVEN_PKG_KEY ),
+                    equalTo( new HashSet<>( Arrays.asList( central.getKey(), hosted.getKey(), pub.getKey() ) ) ) );
+        assertThat( reloaded.getStoreKeysByPkgAndType( "npm", StoreType.remote ),
+                    equalTo( new HashSet<>( Arrays.asList( npm.getKey() ) ) ) );
+        assertThat( invalid.exists(), equalTo( false ) );
+    }
+
+    @Test
+    public void batchStoredStoresArePersistedAcrossRestart()
+            throws Exception
+    {
+        final ChangeSummary summary = new ChangeSummary( "test-user", "init" );
+        final HostedRepository existing = new HostedRepository( MAVEN_PKG_KEY, "local" );
+        mgr.storeArtifactStore( existing, summary, false, false, new EventMetadata() );
+
+        final HostedRepository changed = existing.copyOf();
+        changed.setDescription( "replicated" );
+        final RemoteRepository central =
+                new RemoteRepository( MAVEN_PKG_KEY, "central", "http://repo.maven.apache.org/maven2/" );
+        final Group pub = new Group( MAVEN_PKG_KEY, "public", central.getKey(), existing.getKey() );
+
+        final Set<StoreKey> stored = mgr.storeArtifactStores( Arrays.asList( changed, central, pub ),
+                                                              new ChangeSummary( "test-user", "replicate" ),
+                                                              new EventMetadata() );
+        assertThat( stored, equalTo(
+                new HashSet<>( Arrays.asList( changed.getKey(), central.getKey(), pub.getKey() ) ) ) );
+
+        final DataFileStoreDataManager restarted =
+                new DataFileStoreDataManager( fileMgr, new IndyObjectMapper( false ), new StoreEventDispatcherStub() );
+        restarted.readDefinitions();
+
+        assertThat( restarted.getArtifactStoresByKey().keySet(), equalTo(
+                new HashSet<>( Arrays.asList( existing.getKey(), central.getKey(), pub.getKey() ) ) ) );
+        assertThat( restarted.getArtifactStore( existing.getKey() ).getDescription(), equalTo( "replicated" ) );
+        assertThat( ( (Group) restarted.getArtifactStore( pub.getKey() ) ).getConstituents(),
+                    equalTo( pub.getConstituents() ) );
+    }
+
 }
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.flat.data;
+
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.core.data.testutil.StoreEventDispatcherStub;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.subsys.datafile.DataFileManager;
+import org.commonjava.indy.subsys.datafile.change.DataFileEventManager;
+import org.commonjava.indy.subsys.datafile.conf.DataFileConfiguration;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.commonjava.indy.flat.data.DataFileStoreUtils.INDY_STORE;
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class StoreDataSnapshotTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private DataFileManager fileMgr;
+
+    private DataFileStoreDataManager mgr;
+
+    @Before
+    public void setup()
+            throws Exception
+    {
+        DataFileConfiguration fileCfg = new DataFileConfiguration( temp.newFolder( "data" ), temp.newFolder( "work" ) );
+        fileMgr = new DataFileManager( fileCfg, new DataFileEventManager() );
+        mgr = new DataFileStoreDataManager( fileMgr, new IndyObjectMapper( false ), new StoreEventDispatcherStub() );
+    }
+
+    @Test
+    public void roundTripWhileDefinitionsAreUnchanged()
+            throws Exception
+    {
+        RemoteRepository central =
+                new RemoteRepository( MAVEN_PKG_KEY, "central", "http://repo.maven.apache.org/maven2/" );
+        central.setDescription( "Maven Central" );
+        HostedRepository hosted = new HostedRepository( MAVEN_PKG_KEY, "local" );
+        Group pub = new Group( MAVEN_PKG_KEY, "public", central.getKey(), hosted.getKey() );
+        store( central, hosted, pub );
+
+        File snapshot = StoreDataSnapshot.getSnapshotFile( fileMgr );
+        StoreDataSnapshot.write( snapshot, StoreDataSnapshot.fingerprint( fileMgr ), mgr.getAllArtifactStores() );
+
+        List<ArtifactStore> read = StoreDataSnapshot.read( snapshot, StoreDataSnapshot.fingerprint( fileMgr ) );
+        Map<StoreKey, ArtifactStore> byKey =
+                read.stream().collect( Collectors.toMap( ArtifactStore::getKey, Function.identity() ) );
+
+        assertThat( byKey.size(), equalTo( 3 ) );
+        assertThat( ( (RemoteRepository) byKey.get( central.getKey() ) ).getUrl(), equalTo( central.getUrl() ) );
+        assertThat( byKey.get( central.getKey() ).getDescription(), equalTo( "Maven Central" ) );
+        assertThat( ( (Group) byKey.get( pub.getKey() ) ).getConstituents(), equalTo( pub.getConstituents() ) );
+    }
+
+    @Test
+    public void staleSnapshotIsIgnored()
+            throws Exception
+    {
+        store( new HostedRepository( MAVEN_PKG_KEY, "local" ) );
+
+        File snapshot = StoreDataSnapshot.getSnapshotFile( fileMgr );
+        StoreDataSnapshot.write( snapshot, StoreDataSnapshot.fingerprint( fileMgr ), mgr.getAllArtifactStores() );
+
+        store( new HostedRepository( MAVEN_PKG_KEY, "other" ) );
+
+        assertThat( StoreDataSnapshot.read( snapshot, StoreDataSnapshot.fingerprint( fileMgr ) ), nullValue() );
+    }
+
+    @Test
+    public void editKeepingSizeAndTimestampMakesSnapshotStale()
+            throws Exception
+    {
+        store( new HostedRepository( MAVEN_PKG_KEY, "local" ) );
+
+        File snapshot = StoreDataSnapshot.getSnapshotFile( fileMgr );
+        StoreDataSnapshot.write( snapshot, StoreDataSnapshot.fingerprint( fileMgr ), mgr.getAllArtifactStores() );
+
+        File definition;
+        try (Stream<Path> files = Files.walk( fileMgr.getDataFile( INDY_STORE ).getDetachedFile().toPath() ))
+        {
+            definition = files.filter( f -> f.getFileName().toString().equals( "local.json" ) )
+                              .findFirst()
+                              .get()
+                              .toFile();
+        }
+
+        long modified = definition.lastModified();
+        String json = new String( Files.readAllBytes( definition.toPath() ), StandardCharsets.UTF_8 );
+        Files.write( definition.toPath(), json.replace( "local", "LOCAL" ).getBytes( StandardCharsets.UTF_8 ) );
+        definition.setLastModified( modified );
+
+        assertThat( StoreDataSnapshot.read( snapshot, StoreDataSnapshot.fingerprint( fileMgr ) ), nullValue() );
+    }
+
+    private void store( ArtifactStore... stores )
+            throws Exception
+    {
+        for ( ArtifactStore store : stores )
+        {
+            mgr.storeArtifactStore( store, new ChangeSummary( "test-user", "init" ), false, false,
+                                    new EventMetadata() );
+        }
+    }
+}
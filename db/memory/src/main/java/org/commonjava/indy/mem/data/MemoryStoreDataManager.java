@@ -23,12 +23,15 @@ import org.commonjava.indy.data.StoreEventDispatcher;
 import org.commonjava.indy.db.common.AbstractStoreDataManager;
 import org.commonjava.indy.model.core.ArtifactStore;
 import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.StoreType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -46,6 +49,8 @@ public class MemoryStoreDataManager
 
     private final Map<StoreKey, ArtifactStore> stores = new ConcurrentHashMap<>();
 
+    private final Map<String, Map<StoreType, Set<StoreKey>>> storesByPkg = new ConcurrentHashMap<>();
+
     @Inject
     private StoreEventDispatcher dispatcher;
 
@@ -75,6 +80,12 @@ public class MemoryStoreDataManager
         return dispatcher;
     }
 
+    @Override
+    protected boolean isStoreSnapshotSupported()
+    {
+        return true;
+    }
+
     @Override
     protected ArtifactStore getArtifactStoreInternal( StoreKey key )
     {
@@ -84,7 +95,18 @@ public class MemoryStoreDataManager
     @Override
     protected ArtifactStore removeArtifactStoreInternal( StoreKey key )
     {
-        return stores.remove( key );
+        final ArtifactStore removed = stores.remove( key );
+        final Map<StoreType, Set<StoreKey>> typedKeys = storesByPkg.get( key.getPackageType() );
+        if ( typedKeys != null )
+        {
+            final Set<StoreKey> keys = typedKeys.get( key.getType() );
+            if ( keys != null )
+            {
+                keys.remove( key );
+            }
+        }
+        invalidateStoreSnapshot();
+        return removed;
     }
 
     @Override
@@ -98,6 +120,8 @@ public class MemoryStoreDataManager
             throws IndyDataException
     {
         stores.clear();
+        storesByPkg.clear();
+        invalidateStoreSnapshot();
     }
 
     @Override
@@ -146,7 +170,64 @@ public class MemoryStoreDataManager
     @Override
     protected ArtifactStore putArtifactStoreInternal( StoreKey storeKey, ArtifactStore store )
     {
-        return stores.put( storeKey, store );
+        final ArtifactStore added = stores.put( storeKey, store );
+        indexByPkg( storeKey );
+        invalidateStoreSnapshot();
+        return added;
+    }
+
+    /**
+     * Bulk insert for loading definitions at startup: the stores go into the map in one shot and the by-package index
+     * is rebuilt once, with no per-store locking, hooks or events. Callers are responsible for any validation.
+     */
+    protected void putAllArtifactStoresInternal( final Collection<ArtifactStore> toAdd )
+    {
+        final Map<StoreKey, ArtifactStore> byKey = new HashMap<>( toAdd.size() );
+        toAdd.forEach( store -> byKey.put( store.getKey(), store ) );
+        stores.putAll( byKey );
+        initByPkgMap();
+        invalidateStoreSnapshot();
+    }
+
+    public void initByPkgMap()
+    {
+        storesByPkg.clear();
+        stores.keySet().forEach( this::indexByPkg );
+        logger.debug( "Indexed {} stores by package type", stores.size() );
+    }
+
+    private void indexByPkg( final StoreKey key )
+    {
+        storesByPkg.computeIfAbsent( key.getPackageType(), k -> new ConcurrentHashMap<>() )
+                   .computeIfAbsent( key.getType(), k -> ConcurrentHashMap.newKeySet() )
+                   .add( key );
+    }
+
+    @Override
+    public Set<StoreKey> getStoreKeysByPkg( final String pkg )
+    {
+        final Map<StoreType, Set<StoreKey>> typedKeys = storesByPkg.get( pkg );
+        if ( typedKeys == null )
+        {
+            return Collections.emptySet();
+        }
+
+        final Set<StoreKey> keys = new HashSet<>();
+        typedKeys.values().forEach( keys::addAll );
+        return keys;
+    }
+
+    @Override
+    public Set<StoreKey> getStoreKeysByPkgAndType( final String pkg, final StoreType type )
+    {
+        final Map<StoreType, Set<StoreKey>> typedKeys = storesByPkg.get( pkg );
+        if ( typedKeys == null )
+        {
+            return Collections.emptySet();
+        }
+
+        final Set<StoreKey> keys = typedKeys.get( type );
+        return keys == null ? Collections.emptySet() : new HashSet<>( keys );
     }
 
 }
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.mem.data;
+
+import org.commonjava.indy.audit.ChangeSummary;
+import org.commonjava.indy.data.IndyDataException;
+import org.commonjava.indy.db.common.StoreSnapshot;
+import org.commonjava.indy.model.core.ArtifactStore;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MemoryStoreSnapshotTest
+{
+    private final MemoryStoreDataManager dataManager = new MemoryStoreDataManager( true );
+
+    private final ChangeSummary summary = new ChangeSummary( ChangeSummary.SYSTEM_USER, "test" );
+
+    @Test
+    public void queriesSeeChangesAfterEachWrite()
+            throws Exception
+    {
+        RemoteRepository central = new RemoteRepository( MAVEN_PKG_KEY, "central", "http://repo.maven.apache.org/maven2" );
+        HostedRepository local = new HostedRepository( MAVEN_PKG_KEY, "local" );
+        store( central, local );
+
+        assertThat( keys( dataManager.query().getAllRemoteRepositories() ),
+                    equalTo( Collections.singleton( central.getKey() ) ) );
+        assertThat( keys( dataManager.query().getRemoteRepositoryByUrl( "http://repo.maven.apache.org/maven2/" ) ),
+                    equalTo( Collections.singleton( central.getKey() ) ) );
+
+        HostedRepository other = new HostedRepository( MAVEN_PKG_KEY, "other" );
+        store( other );
+        assertThat( keys( dataManager.query().storeTypes( local.getType() ).getAll() ),
+                    equalTo( new HashSet<>( asList( local.getKey(), other.getKey() ) ) ) );
+
+        dataManager.deleteArtifactStore( central.getKey(), summary, new EventMetadata() );
+        assertThat( dataManager.query().getRemoteRepositoryByUrl( "http://repo.maven.apache.org/maven2/" ).size(),
+                    equalTo( 0 ) );
+    }
+
+    @Test
+    public void groupIndexesFollowMembership()
+            throws Exception
+    {
+        HostedRepository local = new HostedRepository( MAVEN_PKG_KEY, "local" );
+        Group inner = new Group( MAVEN_PKG_KEY, "inner", local.getKey() );
+        Group outer = new Group( MAVEN_PKG_KEY, "outer", inner.getKey() );
+        store( local, inner, outer );
+
+        assertThat( keys( dataManager.query().getGroupsContaining( local.getKey() ) ),
+                    equalTo( Collections.singleton( inner.getKey() ) ) );
+        assertThat( keys( dataManager.affectedBy( Collections.singleton( local.getKey() ) ) ),
+                    equalTo( new HashSet<>( asList( inner.getKey(), outer.getKey() ) ) ) );
+
+        Group updated = inner.copyOf();
+        updated.removeConstituent( local.getKey() );
+        store( updated );
+
+        assertThat( dataManager.query().getGroupsContaining( local.getKey() ).size(), equalTo( 0 ) );
+        assertThat( dataManager.affectedBy( Collections.singleton( local.getKey() ) ).size(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void concurrentReadersShareOneRebuild()
+            throws Exception
+    {
+        final AtomicInteger builds = new AtomicInteger();
+        final MemoryStoreDataManager counting = new MemoryStoreDataManager( true )
+        {
+            @Override
+            public Set<ArtifactStore> getAllArtifactStores()
+                    throws IndyDataException
+            {
+                builds.incrementAndGet();
+                try
+                {
+                    Thread.sleep( 100 );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getAllArtifactStores();
+            }
+        };
+
+        HostedRepository local = new HostedRepository( MAVEN_PKG_KEY, "local" );
+        counting.storeArtifactStore( local, summary, false, false, new EventMetadata() );
+        builds.set( 0 );
+
+        final ExecutorService readers = Executors.newFixedThreadPool( 8 );
+        try
+        {
+            final List<Future<StoreSnapshot>> snapshots = new ArrayList<>();
+            for ( int i = 0; i < 8; i++ )
+            {
+                snapshots.add( readers.submit( () -> counting.getStoreSnapshot() ) );
+            }
+
+            for ( Future<StoreSnapshot> snapshot : snapshots )
+            {
+                assertThat( keys( snapshot.get().getAll() ), equalTo( Collections.singleton( local.getKey() ) ) );
+            }
+        }
+        finally
+        {
+            readers.shutdownNow();
+        }
+
+        assertThat( builds.get(), equalTo( 1 ) );
+    }
+
+    private void store( ArtifactStore... stores )
+            throws Exception
+    {
+        for ( ArtifactStore store : stores )
+        {
+            dataManager.storeArtifactStore( store, summary, false, false, new EventMetadata() );
+        }
+    }
+
+    private static Set<StoreKey> keys( final Collection<? extends ArtifactStore> stores )
+    {
+        return stores.stream().map( ArtifactStore::getKey ).collect( Collectors.toSet() );
+    }
+}
@@ -268,7 +268,7 @@ public class DefaultGalleyStorageProvider
             decorators.add( decorator );
         }
         decorators.add( getChecksummingTransferDecorator() );
-        transferDecorator = new TransferDecoratorManager( decorators );
+        transferDecorator = new SelectiveTransferDecoratorManager( decorators );
     }
 
     private Function<String, TimingProvider> timerProviderFunction()
@@ -17,8 +17,7 @@ package org.commonjava.indy.filer.def;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
-import org.apache.commons.io.input.CountingInputStream;
-import org.apache.commons.io.output.CountingOutputStream;
+import org.commonjava.indy.content.SelectiveTransferDecorator;
 import org.commonjava.maven.galley.event.EventMetadata;
 import org.commonjava.maven.galley.io.AbstractTransferDecorator;
 import org.commonjava.maven.galley.model.Transfer;
@@ -33,6 +32,7 @@ import java.util.function.Function;
 
 public class IOLatencyDecorator
         extends AbstractTransferDecorator
+        implements SelectiveTransferDecorator
 {
     private Function<String, TimingProvider> timerProvider;
 
@@ -49,11 +49,26 @@ public class IOLatencyDecorator
         this.cumulativeTimer = cumulativeTimer;
     }
 
+    @Override
+    public boolean decoratesRead( final Transfer transfer )
+    {
+        return true;
+    }
+
+    /**
+     * Only uploads are timed.
+     */
+    @Override
+    public boolean decoratesWrite( final Transfer transfer, final TransferOperation op )
+    {
+        return op == TransferOperation.UPLOAD;
+    }
+
     @Override
     public InputStream decorateRead( final InputStream stream, final Transfer transfer, final EventMetadata metadata )
             throws IOException
     {
-        return new TimingInputStream( new CountingInputStream( stream ), timerProvider, meterProvider, cumulativeTimer );
+        return new TimingInputStream( stream, timerProvider, meterProvider, cumulativeTimer );
     }
 
     @Override
@@ -61,9 +76,9 @@ public class IOLatencyDecorator
                                        final EventMetadata metadata )
             throws IOException
     {
-        if ( op == TransferOperation.UPLOAD )
+        if ( decoratesWrite( transfer, op ) )
         {
-            return new TimingOutputStream( new CountingOutputStream( stream ), timerProvider, meterProvider, cumulativeTimer );
+            return new TimingOutputStream( stream, timerProvider, meterProvider, cumulativeTimer );
         }
 
         return super.decorateWrite( stream, transfer, op, metadata );
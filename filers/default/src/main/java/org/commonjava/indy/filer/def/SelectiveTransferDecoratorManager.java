@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.filer.def;
+
+import org.commonjava.indy.content.SelectiveTransferDecorator;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.TransferDecoratorManager;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
+import org.commonjava.maven.galley.spi.io.TransferDecorator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Decorator pipeline for the storage provider. Streams are composed in the same order as by
+ * {@link TransferDecoratorManager}, but a {@link SelectiveTransferDecorator} is asked up front whether it applies to
+ * the transfer and left out of the read / write altogether when it does not. All other operations are handled by the
+ * parent.
+ */
+public class SelectiveTransferDecoratorManager
+        extends TransferDecoratorManager
+{
+    private final TransferDecorator[] decorators;
+
+    private final SelectiveTransferDecorator[] selective;
+
+    public SelectiveTransferDecoratorManager( final List<TransferDecorator> decorators )
+    {
+        super( decorators );
+        this.decorators = decorators.toArray( new TransferDecorator[0] );
+        this.selective = new SelectiveTransferDecorator[this.decorators.length];
+        for ( int i = 0; i < this.decorators.length; i++ )
+        {
+            if ( this.decorators[i] instanceof SelectiveTransferDecorator )
+            {
+                selective[i] = (SelectiveTransferDecorator) this.decorators[i];
+            }
+        }
+    }
+
+    @Override
+    public InputStream decorateRead( final InputStream stream, final Transfer transfer,
+                                     final EventMetadata eventMetadata )
+            throws IOException
+    {
+        InputStream result = stream;
+        for ( int i = 0; i < decorators.length; i++ )
+        {
+            if ( selective[i] == null || selective[i].decoratesRead( transfer ) )
+            {
+                result = decorators[i].decorateRead( result, transfer, eventMetadata );
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public OutputStream decorateWrite( final OutputStream stream, final Transfer transfer, final TransferOperation op,
+                                       final EventMetadata eventMetadata )
+            throws IOException
+    {
+        OutputStream result = stream;
+        for ( int i = 0; i < decorators.length; i++ )
+        {
+            if ( selective[i] == null || selective[i].decoratesWrite( transfer, op ) )
+            {
+                result = decorators[i].decorateWrite( result, transfer, op, eventMetadata );
+            }
+        }
+
+        return result;
+    }
+}
@@ -17,7 +17,6 @@ package org.commonjava.indy.filer.def;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
-import org.apache.commons.io.output.CountingOutputStream;
 import org.commonjava.indy.metrics.IndyMetricsManager;
 import org.commonjava.indy.metrics.RequestContextHelper;
 import org.commonjava.maven.galley.spi.metrics.TimingProvider;
@@ -26,12 +25,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 import static org.commonjava.indy.IndyContentConstants.NANOS_PER_MILLISECOND;
 import static org.commonjava.indy.IndyContentConstants.NANOS_PER_SEC;
 
+/**
+ * Times and meters raw writes. Bytes are counted here rather than by a separate counting stream, and bulk writes are
+ * handed straight to the wrapped stream, so they are never split into single-byte writes by
+ * {@link java.io.FilterOutputStream}.
+ */
 public class TimingOutputStream
         extends IdempotentCloseOutputStream
 {
@@ -44,6 +49,8 @@ public class TimingOutputStream
 
     private Long nanos;
 
+    private long bytes;
+
     private Function<String, TimingProvider> timerProvider;
 
     private Function<String, Meter> meterProvider;
@@ -54,7 +61,7 @@ public class TimingOutputStream
 
     private BiConsumer<String, Double> cumulativeConsumer;
 
-    public TimingOutputStream( final CountingOutputStream stream, Function<String, TimingProvider> timerProvider,
+    public TimingOutputStream( final OutputStream stream, Function<String, TimingProvider> timerProvider,
                                Function<String, Meter> meterProvider, BiConsumer<String, Double> cumulativeConsumer )
     {
         super( stream );
@@ -68,15 +75,15 @@ public class TimingOutputStream
             throws IOException
     {
         initMetrics();
-        super.write( b );
+        out.write( b );
+        bytes++;
     }
 
     @Override
     public void write( final byte[] b )
             throws IOException
     {
-        initMetrics();
-        super.write( b );
+        write( b, 0, b.length );
     }
 
     @Override
@@ -84,7 +91,13 @@ public class TimingOutputStream
             throws IOException
     {
         initMetrics();
-        super.write( b, off, len );
+        out.write( b, off, len );
+        bytes += len;
+    }
+
+    public long getByteCount()
+    {
+        return bytes;
     }
 
     @Override
@@ -109,7 +122,7 @@ public class TimingOutputStream
             if ( meter != null )
             {
                 logger.trace( "Marking meter: {}", meter );
-                meter.mark( (long) ( ( (CountingOutputStream) this.out ).getByteCount() / ( elapsed / NANOS_PER_SEC ) ) );
+                meter.mark( (long) ( bytes / ( elapsed / NANOS_PER_SEC ) ) );
             }
 
             cumulativeConsumer.accept( RAW_IO_WRITE, elapsed / NANOS_PER_MILLISECOND );
@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.filer.def;
+
+import org.commonjava.indy.content.SelectiveTransferDecorator;
+import org.commonjava.maven.galley.event.EventMetadata;
+import org.commonjava.maven.galley.io.AbstractTransferDecorator;
+import org.commonjava.maven.galley.io.TransferDecoratorManager;
+import org.commonjava.maven.galley.model.Transfer;
+import org.commonjava.maven.galley.model.TransferOperation;
+import org.commonjava.maven.galley.spi.io.TransferDecorator;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SelectiveTransferDecoratorManagerTest
+{
+    @Test
+    public void decoratorsAreAppliedInTheSameOrderAsGalley()
+            throws Exception
+    {
+        List<TransferDecorator> decorators =
+                Arrays.asList( new TagDecorator( "a" ), new TagDecorator( "b" ), new TagDecorator( "c" ) );
+
+        InputStream selective = new SelectiveTransferDecoratorManager( decorators ).decorateRead(
+                new ByteArrayInputStream( new byte[0] ), null, new EventMetadata() );
+        InputStream galley = new TransferDecoratorManager( decorators ).decorateRead(
+                new ByteArrayInputStream( new byte[0] ), null, new EventMetadata() );
+
+        assertThat( tags( selective ), equalTo( Arrays.asList( "c", "b", "a" ) ) );
+        assertThat( tags( selective ), equalTo( tags( galley ) ) );
+
+        OutputStream selectiveOut = new SelectiveTransferDecoratorManager( decorators ).decorateWrite(
+                new ByteArrayOutputStream(), null, TransferOperation.UPLOAD, new EventMetadata() );
+        OutputStream galleyOut = new TransferDecoratorManager( decorators ).decorateWrite(
+                new ByteArrayOutputStream(), null, TransferOperation.UPLOAD, new EventMetadata() );
+
+        assertThat( tags( selectiveOut ), equalTo( Arrays.asList( "c", "b", "a" ) ) );
+        assertThat( tags( selectiveOut ), equalTo( tags( galleyOut ) ) );
+    }
+
+    @Test
+    public void inapplicableSelectiveDecoratorIsSkipped()
+            throws Exception
+    {
+        SelectiveTransferDecoratorManager manager = new SelectiveTransferDecoratorManager(
+                Arrays.asList( new TagDecorator( "plain-1" ), new SelectiveTagDecorator( "never", false ),
+                               new SelectiveTagDecorator( "always", true ), new TagDecorator( "plain-2" ) ) );
+
+        InputStream in = manager.decorateRead( new ByteArrayInputStream( new byte[0] ), null, new EventMetadata() );
+        assertThat( tags( in ), equalTo( Arrays.asList( "plain-2", "always", "plain-1" ) ) );
+
+        OutputStream out = manager.decorateWrite( new ByteArrayOutputStream(), null, TransferOperation.UPLOAD,
+                                                  new EventMetadata() );
+        assertThat( tags( out ), equalTo( Arrays.asList( "plain-2", "always", "plain-1" ) ) );
+    }
+
+    @Test
+    public void timingInputStreamCountsReadAndSkippedBytes()
+            throws Exception
+    {
+        byte[] data = new byte[100];
+        try (TimingInputStream in = new TimingInputStream( new ByteArrayInputStream( data ), null, name -> null,
+                                                            ( name, millis ) -> {
+                                                            } ))
+        {
+            assertThat( in.read(), equalTo( 0 ) );
+            assertThat( in.read( new byte[10] ), equalTo( 10 ) );
+            assertThat( in.read( new byte[20], 5, 15 ), equalTo( 15 ) );
+            assertThat( in.skip( 30 ), equalTo( 30L ) );
+            assertThat( in.read( new byte[100] ), equalTo( 44 ) );
+            assertThat( in.read(), equalTo( -1 ) );
+            assertThat( in.read( new byte[10] ), equalTo( -1 ) );
+
+            assertThat( in.getByteCount(), equalTo( 100L ) );
+        }
+    }
+
+    @Test
+    public void timingOutputStreamCountsWrittenBytes()
+            throws Exception
+    {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (TimingOutputStream out = new TimingOutputStream( target, null, name -> null, ( name, millis ) -> {
+        } ))
+        {
+            out.write( 1 );
+            out.write( new byte[10] );
+            out.write( new byte[20], 5, 15 );
+
+            assertThat( out.getByteCount(), equalTo( 26L ) );
+        }
+
+        assertThat( target.size(), equalTo( 26 ) );
+    }
+
+    /**
+     * Tags of the decorated stream, from the outermost layer in.
+     */
+    private static List<String> tags( final InputStream stream )
+    {
+        List<String> tags = new ArrayList<>();
+        InputStream s = stream;
+        while ( s instanceof TaggedInputStream )
+        {
+            tags.add( ( (TaggedInputStream) s ).tag );
+            s = ( (TaggedInputStream) s ).wrapped;
+        }
+        return tags;
+    }
+
+    private static List<String> tags( final OutputStream stream )
+    {
+        List<String> tags = new ArrayList<>();
+        OutputStream s = stream;
+        while ( s instanceof TaggedOutputStream )
+        {
+            tags.add( ( (TaggedOutputStream) s ).tag );
+            s = ( (TaggedOutputStream) s ).wrapped;
+        }
+        return tags;
+    }
+
+    private static class TagDecorator
+            extends AbstractTransferDecorator
+    {
+        private final String tag;
+
+        TagDecorator( final String tag )
+        {
+            this.tag = tag;
+        }
+
+        @Override
+        public InputStream decorateRead( final InputStream stream, final Transfer transfer,
+                                         final EventMetadata metadata )
+                throws IOException
+        {
+            return new TaggedInputStream( stream, tag );
+        }
+
+        @Override
+        public OutputStream decorateWrite( final OutputStream stream, final Transfer transfer,
+                                           final TransferOperation op, final EventMetadata metadata )
+                throws IOException
+        {
+            return new TaggedOutputStream( stream, tag );
+        }
+    }
+
+    /**
+     * Wraps every stream it is handed, so a skipped one shows up only if the manager still called it.
+     */
+    private static final class SelectiveTagDecorator
+            extends TagDecorator
+            implements SelectiveTransferDecorator
+    {
+        private final boolean applies;
+
+        SelectiveTagDecorator( final String tag, final boolean applies )
+        {
+            super( tag );
+            this.applies = applies;
+        }
+
+        @Override
+        public boolean decoratesRead( final Transfer transfer )
+        {
+            return applies;
+        }
+
+        @Override
+        public boolean decoratesWrite( final Transfer transfer, final TransferOperation op )
+        {
+            return applies;
+        }
+    }
+
+    private static final class TaggedInputStream
+            extends FilterInputStream
+    {
+        private final InputStream wrapped;
+
+        private final String tag;
+
+        TaggedInputStream( final InputStream wrapped, final String tag )
+        {
+            super( wrapped );
+            this.wrapped = wrapped;
+            this.tag = tag;
+        }
+    }
+
+    private static final class TaggedOutputStream
+            extends FilterOutputStream
+    {
+        private final OutputStream wrapped;
+
+        private final String tag;
+
+        TaggedOutputStream( final OutputStream wrapped, final String tag )
+        {
+            super( wrapped );
+            this.wrapped = wrapped;
+            this.tag = tag;
+        }
+    }
+}
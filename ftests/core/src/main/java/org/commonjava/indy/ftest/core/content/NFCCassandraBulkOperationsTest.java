@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.ftest.core.content;
+
+import org.apache.commons.io.FileUtils;
+import org.commonjava.indy.core.inject.AbstractNotFoundCache;
+import org.commonjava.indy.core.inject.CassandraNotFoundCache;
+import org.commonjava.indy.ftest.core.AbstractIndyFunctionalTest;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.galley.KeyedLocation;
+import org.commonjava.indy.test.fixture.core.CoreServerFixture;
+import org.commonjava.indy.util.LocationUtils;
+import org.commonjava.maven.galley.model.ConcreteResource;
+import org.commonjava.maven.galley.spi.nfc.NotFoundCache;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+/**
+ * <b>GIVEN:</b>
+ * <ul>
+ *     <li>Cassandra NFC provider</li>
+ *     <li>Hosted repository A</li>
+ * </ul>
+ *
+ * <br/>
+ * <b>WHEN:</b>
+ * <ul>
+ *     <li>Step-1: Bulk-add 200 NFC entries for A</li>
+ *     <li>Step-2: Bulk-clear the first 100 of them</li>
+ *     <li>Step-3: Delete A</li>
+ * </ul>
+ *
+ * <br/>
+ * <b>THEN:</b>
+ * <ul>
+ *     <li>After step-1: all entries are missing</li>
+ *     <li>After step-2: only the remaining 100 entries are missing, also when bypassing the near-cache</li>
+ *     <li>After step-3: no entries are left for A</li>
+ * </ul>
+ */
+public class NFCCassandraBulkOperationsTest
+        extends AbstractIndyFunctionalTest
+{
+    private static final String HOSTED = "bulk_nfc_hosted";
+
+    private static final String PATH = "org/foo/bar/%s/bar-%s.pom";
+
+    @Test
+    public void run()
+            throws Exception
+    {
+        NotFoundCache nfc = lookup( NotFoundCache.class );
+        assertThat( nfc, instanceOf( CassandraNotFoundCache.class ) );
+
+        HostedRepository hosted =
+                client.stores().create( new HostedRepository( HOSTED ), "set up", HostedRepository.class );
+        KeyedLocation location = LocationUtils.toLocation( hosted );
+
+        List<ConcreteResource> resources = new ArrayList<>();
+        for ( int i = 0; i < 200; i++ )
+        {
+            resources.add( new ConcreteResource( location, String.format( PATH, i, i ) ) );
+        }
+
+        CassandraNotFoundCache cassandraNfc = (CassandraNotFoundCache) nfc;
+        cassandraNfc.addMissing( resources );
+
+        resources.forEach( r -> assertThat( r.getPath(), nfc.isMissing( r ), equalTo( true ) ) );
+        assertThat( cassandraNfc.getSize( hosted.getKey() ), equalTo( 200L ) );
+
+        AbstractNotFoundCache.clearMissing( nfc, resources.subList( 0, 100 ) );
+
+        assertThat( cassandraNfc.getSize( hosted.getKey() ), equalTo( 100L ) );
+        resources.subList( 0, 100 ).forEach( r -> assertThat( r.getPath(), nfc.isMissing( r ), equalTo( false ) ) );
+        resources.subList( 100, 200 ).forEach( r -> assertThat( r.getPath(), nfc.isMissing( r ), equalTo( true ) ) );
+
+        client.stores().delete( hosted.getKey(), "clean up" );
+        waitForEventPropagation();
+
+        assertThat( cassandraNfc.getSize( hosted.getKey() ), equalTo( 0L ) );
+        resources.forEach( r -> assertThat( r.getPath(), nfc.isMissing( r ), equalTo( false ) ) );
+    }
+
+    @Override
+    protected void initBaseTestConfig( CoreServerFixture fixture )
+            throws IOException
+    {
+        super.initBaseTestConfig( fixture );
+
+        File defaultConf = new File( etcDir, "conf.d/default.conf" );
+        writeConfigFile( "conf.d/default.conf", FileUtils.readFileToString( defaultConf ) + "\nnfc.provider=cassandra" );
+    }
+
+    @Override
+    protected boolean isSchedulerEnabled()
+    {
+        return false;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Replays the configured build trace (see {@link LoadScenario}) against each store backend and writes the reports to
+ * <tt>target/loadtest</tt>. The assertions only check that every request was answered; the numbers are for comparing
+ * runs, not for pass / fail.
+ */
+public class BuildReplayLoadTest
+{
+    private static final File REPORT_DIR = new File( System.getProperty( "loadtest.report.dir", "target/loadtest" ) );
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Test
+    public void memoryStorage()
+            throws Exception
+    {
+        replay( StorageType.memory );
+    }
+
+    @Test
+    public void flatStorage()
+            throws Exception
+    {
+        replay( StorageType.flat );
+    }
+
+    private void replay( final StorageType storage )
+            throws Exception
+    {
+        final LoadScenario scenario = LoadScenario.fromSystemProperties( "build-replay" );
+
+        final ScenarioReport report;
+        try (IndyLoadHarness harness = new IndyLoadHarness( scenario, storage ).start())
+        {
+            report = harness.run();
+        }
+
+        final File file = report.write( REPORT_DIR );
+        logger.info( "{}\nReport written to: {}", report.toTable(), file );
+
+        for ( final PhaseResult phase : report.getPhases() )
+        {
+            assertThat( phase.getPhase() + " requests", phase.getRequests(),
+                        equalTo( (long) scenario.getTrace().size() ) );
+            assertThat( phase.getPhase() + " failures", phase.getFailures(), equalTo( 0L ) );
+            if ( scenario.getUpstreamProfile().getErrorRate() == 0 )
+            {
+                assertThat( phase.getPhase() + " server errors", phase.getServerErrors(), equalTo( 0L ) );
+            }
+        }
+    }
+}
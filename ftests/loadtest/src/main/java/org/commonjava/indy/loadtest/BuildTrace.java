@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+import org.apache.commons.io.FileUtils;
+import org.commonjava.indy.folo.dto.TrackedContentDTO;
+import org.commonjava.indy.folo.dto.TrackedContentEntryDTO;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.commonjava.indy.pkg.npm.model.NPMPackageTypeDescriptor.NPM_PKG_KEY;
+
+/**
+ * The ordered list of content requests a build makes, which a scenario replays against a group per package type.
+ * Traces come from a Folo tracking record (the downloads, in the order they were first accessed), from a plain path
+ * list, or are generated.
+ */
+public final class BuildTrace
+{
+    public static final class Entry
+    {
+        private final String packageType;
+
+        private final String path;
+
+        public Entry( final String packageType, final String path )
+        {
+            this.packageType = packageType;
+            this.path = path.startsWith( "/" ) ? path.substring( 1 ) : path;
+        }
+
+        public String getPackageType()
+        {
+            return packageType;
+        }
+
+        public String getPath()
+        {
+            return path;
+        }
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( !( o instanceof Entry ) )
+            {
+                return false;
+            }
+            final Entry entry = (Entry) o;
+            return packageType.equals( entry.packageType ) && path.equals( entry.path );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash( packageType, path );
+        }
+
+        @Override
+        public String toString()
+        {
+            return packageType + ":" + path;
+        }
+    }
+
+    private final String name;
+
+    private final List<Entry> entries;
+
+    public BuildTrace( final String name, final List<Entry> entries )
+    {
+        this.name = name;
+        this.entries = Collections.unmodifiableList( new ArrayList<>( entries ) );
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public List<Entry> getEntries()
+    {
+        return entries;
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Downloads of a Folo tracking record (as returned by <tt>/api/folo/admin/{id}/record</tt>), ordered by their
+     * earliest access time. Uploads are not replayed, and neither is content of package types the load test does
+     * not set up.
+     */
+    public static BuildTrace fromFoloRecord( final File file )
+            throws IOException
+    {
+        final TrackedContentDTO record = new IndyObjectMapper( true ).readValue( file, TrackedContentDTO.class );
+        final List<TrackedContentEntryDTO> sorted = new ArrayList<>();
+        if ( record.getDownloads() != null )
+        {
+            sorted.addAll( record.getDownloads() );
+        }
+        sorted.sort( Comparator.comparingLong( BuildTrace::firstAccess ) );
+
+        final List<Entry> entries = new ArrayList<>( sorted.size() );
+        for ( final TrackedContentEntryDTO download : sorted )
+        {
+            final String packageType =
+                    download.getStoreKey() == null ? MAVEN_PKG_KEY : download.getStoreKey().getPackageType();
+            if ( isSupported( packageType ) && download.getPath() != null )
+            {
+                entries.add( new Entry( packageType, download.getPath() ) );
+            }
+        }
+
+        return new BuildTrace( file.getName(), entries );
+    }
+
+    private static long firstAccess( final TrackedContentEntryDTO entry )
+    {
+        final Set<Long> timestamps = entry.getTimestamps();
+        return timestamps == null || timestamps.isEmpty() ? Long.MAX_VALUE : Collections.min( timestamps );
+    }
+
+    /**
+     * One request per line, either as a bare path (Maven) or as <tt>{package-type}:{path}</tt>. Blank lines and lines
+     * starting with '#' are ignored.
+     */
+    public static BuildTrace fromPathList( final File file )
+            throws IOException
+    {
+        final List<Entry> entries = new ArrayList<>();
+        for ( final String raw : FileUtils.readLines( file, StandardCharsets.UTF_8 ) )
+        {
+            final String line = raw.trim();
+            if ( line.isEmpty() || line.startsWith( "#" ) )
+            {
+                continue;
+            }
+
+            final int sep = line.indexOf( ':' );
+            if ( sep > 0 && line.lastIndexOf( '/', sep ) < 0 )
+            {
+                final String packageType = line.substring( 0, sep );
+                if ( isSupported( packageType ) )
+                {
+                    entries.add( new Entry( packageType, line.substring( sep + 1 ) ) );
+                }
+            }
+            else
+            {
+                entries.add( new Entry( MAVEN_PKG_KEY, line ) );
+            }
+        }
+
+        return new BuildTrace( file.getName(), entries );
+    }
+
+    /**
+     * A trace shaped like a typical build: for every Maven artifact the POM, the jar and its SHA-1, plus the
+     * <tt>maven-metadata.xml</tt> of every fourth one (version range resolution); every fifth artifact is an npm
+     * package instead, fetched as package metadata and tarball.
+     */
+    public static BuildTrace synthetic( final int artifacts, final long seed )
+    {
+        final Random random = new Random( seed );
+        final List<Entry> entries = new ArrayList<>( artifacts * 4 );
+        for ( int i = 0; i < artifacts; i++ )
+        {
+            final String version =
+                    ( random.nextInt( 5 ) + 1 ) + "." + random.nextInt( 10 ) + "." + random.nextInt( 10 );
+            if ( i % 5 == 4 )
+            {
+                final String name = i % 2 == 0 ? "loadtest-pkg-" + i : "@loadtest/pkg-" + i;
+                final String basename = name.substring( name.lastIndexOf( '/' ) + 1 );
+                entries.add( new Entry( NPM_PKG_KEY, name ) );
+                entries.add( new Entry( NPM_PKG_KEY, name + "/-/" + basename + "-" + version + ".tgz" ) );
+            }
+            else
+            {
+                final String ga = "org/loadtest/group" + ( i % 20 ) + "/artifact-" + i;
+                final String base = ga + "/" + version + "/artifact-" + i + "-" + version;
+                if ( i % 4 == 0 )
+                {
+                    entries.add( new Entry( MAVEN_PKG_KEY, ga + "/maven-metadata.xml" ) );
+                }
+                entries.add( new Entry( MAVEN_PKG_KEY, base + ".pom" ) );
+                entries.add( new Entry( MAVEN_PKG_KEY, base + ".jar" ) );
+                entries.add( new Entry( MAVEN_PKG_KEY, base + ".jar.sha1" ) );
+            }
+        }
+
+        return new BuildTrace( "synthetic-" + artifacts, entries );
+    }
+
+    public static boolean isSupported( final String packageType )
+    {
+        return MAVEN_PKG_KEY.equals( packageType ) || NPM_PKG_KEY.equals( packageType );
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "BuildTrace [%s, %d requests]", name, entries.size() );
+    }
+}
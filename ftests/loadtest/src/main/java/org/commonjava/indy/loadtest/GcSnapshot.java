@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Collection count and time summed over all collectors, so a phase can report the GC activity it caused as the
+ * difference between two snapshots. Since Indy runs in-process, this includes the load generator's own garbage.
+ */
+public final class GcSnapshot
+{
+    private final long count;
+
+    private final long millis;
+
+    private GcSnapshot( final long count, final long millis )
+    {
+        this.count = count;
+        this.millis = millis;
+    }
+
+    public static GcSnapshot take()
+    {
+        long count = 0;
+        long millis = 0;
+        for ( final GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans() )
+        {
+            // -1 means the collector does not track the value
+            count += Math.max( 0, bean.getCollectionCount() );
+            millis += Math.max( 0, bean.getCollectionTime() );
+        }
+
+        return new GcSnapshot( count, millis );
+    }
+
+    public GcSnapshot since( final GcSnapshot start )
+    {
+        return new GcSnapshot( count - start.count, millis - start.millis );
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getMillis()
+    {
+        return millis;
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.commonjava.cdi.util.weft.NamedThreadFactory;
+import org.commonjava.indy.client.core.Indy;
+import org.commonjava.indy.client.core.IndyClientException;
+import org.commonjava.indy.model.core.Group;
+import org.commonjava.indy.model.core.HostedRepository;
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.test.fixture.core.CoreServerFixture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.commonjava.indy.pkg.npm.model.NPMPackageTypeDescriptor.NPM_PKG_KEY;
+
+/**
+ * Boots Indy in-process, points a group per package type (one hosted repository, then the synthetic upstream's
+ * remotes) at a {@link SyntheticUpstream}, and replays the scenario's {@link BuildTrace} through those groups.
+ * <p>
+ * The first pass runs against empty storage ('cold'), so every artifact is proxied from upstream; later passes
+ * ('warm-N') measure serving from local storage and the not-found cache. Each pass becomes one {@link PhaseResult}.
+ */
+public class IndyLoadHarness
+        implements Closeable
+{
+    private static final String GROUP_PREFIX = "loadtest-";
+
+    private static final String CLIENT_THREADS = "loadtest-client";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final LoadScenario scenario;
+
+    private final StorageType storage;
+
+    private SyntheticUpstream upstream;
+
+    private CoreServerFixture fixture;
+
+    private Indy client;
+
+    private CloseableHttpClient http;
+
+    public IndyLoadHarness( final LoadScenario scenario, final StorageType storage )
+    {
+        this.scenario = scenario;
+        this.storage = storage;
+    }
+
+    public IndyLoadHarness start()
+            throws Exception
+    {
+        System.setProperty( StorageType.STORAGE_SYSPROP, storage.name() );
+
+        upstream = new SyntheticUpstream( scenario.getUpstreamProfile(), scenario.getRemotes() ).start();
+
+        fixture = new CoreServerFixture();
+        writeConfig( new File( fixture.getBootOptions().getHomeDir(), "etc/indy" ) );
+        fixture.start();
+        if ( !fixture.isStarted() )
+        {
+            throw new IllegalStateException( "Indy failed to boot", fixture.getBootStatus().getError() );
+        }
+
+        client = new Indy( fixture.getUrl(), new IndyObjectMapper( true ) );
+        createStores( MAVEN_PKG_KEY );
+        createStores( NPM_PKG_KEY );
+
+        final PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+        connections.setMaxTotal( scenario.getConcurrency() );
+        connections.setDefaultMaxPerRoute( scenario.getConcurrency() );
+        http = HttpClients.custom()
+                          .setConnectionManager( connections )
+                          .setDefaultRequestConfig( RequestConfig.custom().setSocketTimeout( 120_000 ).build() )
+                          .build();
+
+        logger.info( "Indy started at {} for {}", fixture.getUrl(), scenario );
+        return this;
+    }
+
+    /**
+     * Keep the boot cheap and self-contained: standalone mode stores content on the local filesystem instead of
+     * Cassandra, and neither the scheduler nor store validation (which would contact the remotes) is needed.
+     */
+    private void writeConfig( final File etcDir )
+            throws IOException
+    {
+        final File confDir = new File( etcDir, "conf.d" );
+        FileUtils.write( new File( confDir, "default.conf" ), "[default]\nstandalone=true" );
+        FileUtils.write( new File( confDir, "cassandra.conf" ), "[cassandra]\nenabled=false" );
+        FileUtils.write( new File( confDir, "scheduler.conf" ), "[scheduler]\nenabled=false" );
+        FileUtils.write( new File( confDir, "internal-features.conf" ), "[_internal]\nstore.validation.enabled=false" );
+    }
+
+    private void createStores( final String packageType )
+            throws IndyClientException
+    {
+        final String changelog = "Load test setup";
+        final List<StoreKey> members = new ArrayList<>();
+
+        final HostedRepository hosted = new HostedRepository( packageType, GROUP_PREFIX + "hosted" );
+        members.add( client.stores().create( hosted, changelog, HostedRepository.class ).getKey() );
+
+        for ( int i = 0; i < scenario.getRemotes(); i++ )
+        {
+            final RemoteRepository remote = new RemoteRepository( packageType, GROUP_PREFIX + "upstream-" + i,
+                                                                  upstream.getUrl( i, packageType ) );
+            members.add( client.stores().create( remote, changelog, RemoteRepository.class ).getKey() );
+        }
+
+        client.stores().create( new Group( packageType, groupName( packageType ), members ), changelog, Group.class );
+    }
+
+    private static String groupName( final String packageType )
+    {
+        return GROUP_PREFIX + packageType;
+    }
+
+    /**
+     * Replay the trace once per configured pass and collect the results.
+     */
+    public ScenarioReport run()
+            throws Exception
+    {
+        final ScenarioReport report = new ScenarioReport( scenario, storage );
+        for ( int pass = 0; pass < scenario.getPasses(); pass++ )
+        {
+            final PhaseResult result = replay( pass == 0 ? "cold" : "warm-" + pass );
+            logger.info( "{} pass: {} requests, p50={}ms, p99={}ms, {} req/s, upstream: {}", result.getPhase(),
+                         result.getRequests(), result.getP50Millis(), result.getP99Millis(),
+                         String.format( "%.1f", result.getThroughput() ), result.getUpstream() );
+            report.addPhase( result );
+        }
+
+        return report;
+    }
+
+    private PhaseResult replay( final String phase )
+            throws Exception
+    {
+        final List<BuildTrace.Entry> entries = scenario.getTrace().getEntries();
+        final LatencyRecorder recorder = new LatencyRecorder( entries.size() );
+        final AtomicInteger next = new AtomicInteger();
+        final String contentUrl = fixture.getUrl() + "content/";
+
+        upstream.reset();
+        final GcSnapshot gcStart = GcSnapshot.take();
+        final long start = System.nanoTime();
+
+        final ExecutorService clients = Executors.newFixedThreadPool( scenario.getConcurrency(), new NamedThreadFactory(
+                CLIENT_THREADS, new ThreadGroup( CLIENT_THREADS ), true, 5 ) );
+        try
+        {
+            final List<Future<?>> workers = new ArrayList<>();
+            for ( int i = 0; i < scenario.getConcurrency(); i++ )
+            {
+                workers.add( clients.submit( () -> {
+                    int idx;
+                    while ( ( idx = next.getAndIncrement() ) < entries.size() )
+                    {
+                        final BuildTrace.Entry entry = entries.get( idx );
+                        final String packageType = entry.getPackageType();
+                        request( contentUrl + packageType + "/group/" + groupName( packageType ) + "/"
+                                         + entry.getPath(), recorder );
+                    }
+                } ) );
+            }
+
+            for ( final Future<?> worker : workers )
+            {
+                worker.get();
+            }
+        }
+        finally
+        {
+            clients.shutdownNow();
+        }
+
+        final long elapsed = System.nanoTime() - start;
+        return recorder.toResult( phase, elapsed, upstream.snapshot(), GcSnapshot.take().since( gcStart ) );
+    }
+
+    private void request( final String url, final LatencyRecorder recorder )
+    {
+        final long start = System.nanoTime();
+        int status = -1;
+        long bytes = 0;
+        try (CloseableHttpResponse response = http.execute( new HttpGet( url ) ))
+        {
+            status = response.getStatusLine().getStatusCode();
+            final HttpEntity entity = response.getEntity();
+            if ( entity != null )
+            {
+                try (InputStream in = entity.getContent())
+                {
+                    final byte[] buf = new byte[16384];
+                    int read;
+                    while ( ( read = in.read( buf ) ) > 0 )
+                    {
+                        bytes += read;
+                    }
+                }
+            }
+        }
+        catch ( final IOException e )
+        {
+            logger.warn( "Request failed: {}. Reason: {}", url, e.getMessage() );
+            status = -1;
+        }
+        finally
+        {
+            recorder.record( System.nanoTime() - start, status, bytes );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        closeQuietly( http );
+        closeQuietly( client );
+        if ( fixture != null )
+        {
+            fixture.stop();
+        }
+        if ( upstream != null )
+        {
+            upstream.close();
+        }
+    }
+}
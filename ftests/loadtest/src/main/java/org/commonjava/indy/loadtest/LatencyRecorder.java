@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the latency and outcome of every request in one phase. Latencies go into a pre-sized array, so recording
+ * neither allocates nor contends on anything but one counter; requests beyond the capacity are still counted, but not
+ * included in the percentiles.
+ */
+public final class LatencyRecorder
+{
+    private final long[] latencies;
+
+    private final AtomicInteger recorded = new AtomicInteger();
+
+    private final LongAdder ok = new LongAdder();
+
+    private final LongAdder notFound = new LongAdder();
+
+    private final LongAdder serverErrors = new LongAdder();
+
+    private final LongAdder otherStatus = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    public LatencyRecorder( final int capacity )
+    {
+        latencies = new long[capacity];
+    }
+
+    /**
+     * @param status the HTTP status, or a negative value if the request failed without a response
+     */
+    public void record( final long nanos, final int status, final long contentBytes )
+    {
+        final int idx = recorded.getAndIncrement();
+        if ( idx < latencies.length )
+        {
+            latencies[idx] = nanos;
+        }
+
+        if ( status < 0 )
+        {
+            failures.increment();
+        }
+        else if ( status >= 200 && status < 300 )
+        {
+            ok.increment();
+        }
+        else if ( status == 404 )
+        {
+            notFound.increment();
+        }
+        else if ( status >= 500 )
+        {
+            serverErrors.increment();
+        }
+        else
+        {
+            otherStatus.increment();
+        }
+
+        if ( contentBytes > 0 )
+        {
+            bytes.add( contentBytes );
+        }
+    }
+
+    public int getCount()
+    {
+        return recorded.get();
+    }
+
+    /**
+     * Summarize the phase. Call only once all requests have been recorded.
+     */
+    public PhaseResult toResult( final String phase, final long elapsedNanos, final Map<String, Long> upstream,
+                                 final GcSnapshot gc )
+    {
+        final int count = recorded.get();
+        final long[] sorted = Arrays.copyOf( latencies, Math.min( count, latencies.length ) );
+        Arrays.sort( sorted );
+
+        long total = 0;
+        for ( final long l : sorted )
+        {
+            total += l;
+        }
+
+        final PhaseResult result = new PhaseResult();
+        result.setPhase( phase );
+        result.setRequests( count );
+        result.setOk( ok.sum() );
+        result.setNotFound( notFound.sum() );
+        result.setServerErrors( serverErrors.sum() );
+        result.setOtherStatus( otherStatus.sum() );
+        result.setFailures( failures.sum() );
+        result.setBytes( bytes.sum() );
+        result.setElapsedMillis( TimeUnit.NANOSECONDS.toMillis( elapsedNanos ) );
+        result.setThroughput( elapsedNanos > 0 ? count * (double) TimeUnit.SECONDS.toNanos( 1 ) / elapsedNanos : 0 );
+        result.setMeanMillis( sorted.length > 0 ? toMillis( total / sorted.length ) : 0 );
+        result.setP50Millis( toMillis( percentile( sorted, 50 ) ) );
+        result.setP90Millis( toMillis( percentile( sorted, 90 ) ) );
+        result.setP99Millis( toMillis( percentile( sorted, 99 ) ) );
+        result.setMaxMillis( sorted.length > 0 ? toMillis( sorted[sorted.length - 1] ) : 0 );
+        result.setUpstream( upstream );
+        result.setGcCount( gc.getCount() );
+        result.setGcMillis( gc.getMillis() );
+
+        return result;
+    }
+
+    /**
+     * Nearest-rank percentile of an ascending array.
+     */
+    static long percentile( final long[] sorted, final double percentile )
+    {
+        if ( sorted.length == 0 )
+        {
+            return 0;
+        }
+
+        final int rank = (int) Math.ceil( percentile / 100 * sorted.length );
+        return sorted[Math.max( 0, Math.min( sorted.length, rank ) - 1 )];
+    }
+
+    private static double toMillis( final long nanos )
+    {
+        return nanos / 1_000_000d;
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * What to replay and how hard. {@link #fromSystemProperties(String)} reads:
+ * <ul>
+ *     <li><tt>loadtest.trace</tt>: a Folo record (<tt>*.json</tt>) or path list to replay; if unset, a synthetic trace
+ *     of <tt>loadtest.trace.artifacts</tt> artifacts (500) is generated</li>
+ *     <li><tt>loadtest.concurrency</tt>: parallel clients (16)</li>
+ *     <li><tt>loadtest.passes</tt>: passes over the trace; the first runs against empty storage (2)</li>
+ *     <li><tt>loadtest.remotes</tt>: remote repositories per package type in the group (3)</li>
+ *     <li><tt>loadtest.upstream.latency.millis</tt> (20) and <tt>loadtest.upstream.jitter.millis</tt> (10)</li>
+ *     <li><tt>loadtest.upstream.error.rate</tt>: share of upstream requests failing with 503 (0)</li>
+ *     <li><tt>loadtest.upstream.artifact.min.size</tt> (4096) and <tt>loadtest.upstream.artifact.max.size</tt>
+ *     (1048576)</li>
+ *     <li><tt>loadtest.upstream.metadata.versions</tt>: versions per metadata document (20)</li>
+ * </ul>
+ */
+public final class LoadScenario
+{
+    private final String name;
+
+    private final BuildTrace trace;
+
+    private final int concurrency;
+
+    private final int passes;
+
+    private final int remotes;
+
+    private final UpstreamProfile upstreamProfile;
+
+    public LoadScenario( final String name, final BuildTrace trace, final int concurrency, final int passes,
+                         final int remotes, final UpstreamProfile upstreamProfile )
+    {
+        if ( concurrency < 1 || passes < 1 || remotes < 1 )
+        {
+            throw new IllegalArgumentException(
+                    String.format( "Concurrency (%d), passes (%d) and remotes (%d) must all be positive", concurrency,
+                                   passes, remotes ) );
+        }
+
+        this.name = name;
+        this.trace = trace;
+        this.concurrency = concurrency;
+        this.passes = passes;
+        this.remotes = remotes;
+        this.upstreamProfile = upstreamProfile;
+    }
+
+    public static LoadScenario fromSystemProperties( final String name )
+            throws IOException
+    {
+        final BuildTrace trace;
+        final String tracePath = System.getProperty( "loadtest.trace" );
+        if ( tracePath == null || tracePath.trim().isEmpty() )
+        {
+            trace = BuildTrace.synthetic( Integer.getInteger( "loadtest.trace.artifacts", 500 ), 42 );
+        }
+        else
+        {
+            final File file = new File( tracePath.trim() );
+            trace = file.getName().endsWith( ".json" ) ?
+                    BuildTrace.fromFoloRecord( file ) :
+                    BuildTrace.fromPathList( file );
+        }
+
+        final UpstreamProfile profile =
+                new UpstreamProfile( Long.getLong( "loadtest.upstream.latency.millis", 20 ),
+                                     Long.getLong( "loadtest.upstream.jitter.millis", 10 ),
+                                     Double.parseDouble( System.getProperty( "loadtest.upstream.error.rate", "0" ) ),
+                                     Integer.getInteger( "loadtest.upstream.artifact.min.size", 4096 ),
+                                     Integer.getInteger( "loadtest.upstream.artifact.max.size", 1048576 ),
+                                     Integer.getInteger( "loadtest.upstream.metadata.versions", 20 ) );
+
+        return new LoadScenario( name, trace, Integer.getInteger( "loadtest.concurrency", 16 ),
+                                 Integer.getInteger( "loadtest.passes", 2 ),
+                                 Integer.getInteger( "loadtest.remotes", 3 ), profile );
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public BuildTrace getTrace()
+    {
+        return trace;
+    }
+
+    public int getConcurrency()
+    {
+        return concurrency;
+    }
+
+    public int getPasses()
+    {
+        return passes;
+    }
+
+    public int getRemotes()
+    {
+        return remotes;
+    }
+
+    public UpstreamProfile getUpstreamProfile()
+    {
+        return upstreamProfile;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "LoadScenario [%s, %s, concurrency=%d, passes=%d, remotes=%d, %s]", name, trace,
+                              concurrency, passes, remotes, upstreamProfile );
+    }
+}
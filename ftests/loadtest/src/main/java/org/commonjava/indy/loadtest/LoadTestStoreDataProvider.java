@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.data.StoreEventDispatcher;
+import org.commonjava.indy.flat.data.DataFileStoreDataManager;
+import org.commonjava.indy.mem.data.MemoryStoreDataManager;
+import org.commonjava.indy.model.core.io.IndyObjectMapper;
+import org.commonjava.indy.subsys.datafile.DataFileManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Default;
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Produces the {@link StoreDataManager} for the booted server, selected by {@link StorageType#STORAGE_SYSPROP}. Like
+ * the functional tests' provider, the instance is constructed by hand, so the async 'affected-by' runner it would
+ * normally get injected is handed over here.
+ */
+@ApplicationScoped
+public class LoadTestStoreDataProvider
+{
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    @Inject
+    private StoreEventDispatcher dispatcher;
+
+    @Inject
+    private DataFileManager dataFileManager;
+
+    @Inject
+    private IndyObjectMapper objectMapper;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = "loadtest-affected-by-runner", priority = 4, threads = 8 )
+    private ExecutorService affectedByRunner;
+
+    private StoreDataManager storeDataManager;
+
+    @PostConstruct
+    public void start()
+    {
+        final StorageType storage = StorageType.current();
+        logger.info( "Load test store definitions are kept in: {}", storage );
+
+        switch ( storage )
+        {
+            case flat:
+            {
+                storeDataManager = new DataFileStoreDataManager( dataFileManager, objectMapper, dispatcher )
+                {
+                    {
+                        affectedByAsyncRunner = affectedByRunner;
+                    }
+                };
+                break;
+            }
+            default:
+            {
+                storeDataManager = new MemoryStoreDataManager( dispatcher )
+                {
+                    {
+                        affectedByAsyncRunner = affectedByRunner;
+                    }
+                };
+            }
+        }
+    }
+
+    @Produces
+    @Default
+    public StoreDataManager getStoreDataManager()
+    {
+        return storeDataManager;
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+import java.util.Map;
+
+/**
+ * Outcome of one pass over a build trace: request outcomes, latency distribution (milliseconds), throughput
+ * (requests per second), the requests the synthetic upstream received, and the GC activity during the pass.
+ */
+public class PhaseResult
+{
+    private String phase;
+
+    private long requests;
+
+    private long ok;
+
+    private long notFound;
+
+    private long serverErrors;
+
+    private long otherStatus;
+
+    private long failures;
+
+    private long bytes;
+
+    private long elapsedMillis;
+
+    private double throughput;
+
+    private double meanMillis;
+
+    private double p50Millis;
+
+    private double p90Millis;
+
+    private double p99Millis;
+
+    private double maxMillis;
+
+    private Map<String, Long> upstream;
+
+    private long gcCount;
+
+    private long gcMillis;
+
+    public String getPhase()
+    {
+        return phase;
+    }
+
+    public void setPhase( final String phase )
+    {
+        this.phase = phase;
+    }
+
+    public long getRequests()
+    {
+        return requests;
+    }
+
+    public void setRequests( final long requests )
+    {
+        this.requests = requests;
+    }
+
+    public long getOk()
+    {
+        return ok;
+    }
+
+    public void setOk( final long ok )
+    {
+        this.ok = ok;
+    }
+
+    public long getNotFound()
+    {
+        return notFound;
+    }
+
+    public void setNotFound( final long notFound )
+    {
+        this.notFound = notFound;
+    }
+
+    public long getServerErrors()
+    {
+        return serverErrors;
+    }
+
+    public void setServerErrors( final long serverErrors )
+    {
+        this.serverErrors = serverErrors;
+    }
+
+    public long getOtherStatus()
+    {
+        return otherStatus;
+    }
+
+    public void setOtherStatus( final long otherStatus )
+    {
+        this.otherStatus = otherStatus;
+    }
+
+    public long getFailures()
+    {
+        return failures;
+    }
+
+    public void setFailures( final long failures )
+    {
+        this.failures = failures;
+    }
+
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    public void setBytes( final long bytes )
+    {
+        this.bytes = bytes;
+    }
+
+    public long getElapsedMillis()
+    {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis( final long elapsedMillis )
+    {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getThroughput()
+    {
+        return throughput;
+    }
+
+    public void setThroughput( final double throughput )
+    {
+        this.throughput = throughput;
+    }
+
+    public double getMeanMillis()
+    {
+        return meanMillis;
+    }
+
+    public void setMeanMillis( final double meanMillis )
+    {
+        this.meanMillis = meanMillis;
+    }
+
+    public double getP50Millis()
+    {
+        return p50Millis;
+    }
+
+    public void setP50Millis( final double p50Millis )
+    {
+        this.p50Millis = p50Millis;
+    }
+
+    public double getP90Millis()
+    {
+        return p90Millis;
+    }
+
+    public void setP90Millis( final double p90Millis )
+    {
+        this.p90Millis = p90Millis;
+    }
+
+    public double getP99Millis()
+    {
+        return p99Millis;
+    }
+
+    public void setP99Millis( final double p99Millis )
+    {
+        this.p99Millis = p99Millis;
+    }
+
+    public double getMaxMillis()
+    {
+        return maxMillis;
+    }
+
+    public void setMaxMillis( final double maxMillis )
+    {
+        this.maxMillis = maxMillis;
+    }
+
+    public Map<String, Long> getUpstream()
+    {
+        return upstream;
+    }
+
+    public void setUpstream( final Map<String, Long> upstream )
+    {
+        this.upstream = upstream;
+    }
+
+    public long getGcCount()
+    {
+        return gcCount;
+    }
+
+    public void setGcCount( final long gcCount )
+    {
+        this.gcCount = gcCount;
+    }
+
+    public long getGcMillis()
+    {
+        return gcMillis;
+    }
+
+    public void setGcMillis( final long gcMillis )
+    {
+        this.gcMillis = gcMillis;
+    }
+}
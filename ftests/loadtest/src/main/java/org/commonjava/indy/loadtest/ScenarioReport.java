@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of one scenario run, written as JSON so runs can be compared, and rendered as a table for the log.
+ */
+public class ScenarioReport
+{
+    private String scenario;
+
+    private StorageType storage;
+
+    private String trace;
+
+    private int traceSize;
+
+    private int concurrency;
+
+    private String upstream;
+
+    private List<PhaseResult> phases = new ArrayList<>();
+
+    public ScenarioReport()
+    {
+    }
+
+    public ScenarioReport( final LoadScenario scenario, final StorageType storage )
+    {
+        this.scenario = scenario.getName();
+        this.storage = storage;
+        this.trace = scenario.getTrace().getName();
+        this.traceSize = scenario.getTrace().size();
+        this.concurrency = scenario.getConcurrency();
+        this.upstream = scenario.getUpstreamProfile().toString();
+    }
+
+    public void addPhase( final PhaseResult phase )
+    {
+        phases.add( phase );
+    }
+
+    /**
+     * Write the report to <tt>{dir}/{scenario}-{storage}.json</tt>.
+     */
+    public File write( final File dir )
+            throws IOException
+    {
+        dir.mkdirs();
+        final File file = new File( dir, scenario + "-" + storage + ".json" );
+        new ObjectMapper().enable( SerializationFeature.INDENT_OUTPUT ).writeValue( file, this );
+        return file;
+    }
+
+    public String toTable()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append( String.format( "%nScenario: %s, storage: %s, trace: %s (%d requests), concurrency: %d%n%s%n%n",
+                                  scenario, storage, trace, traceSize, concurrency, upstream ) );
+        sb.append( String.format( "%-8s %8s %6s %6s %6s %6s %9s %8s %8s %8s %8s %9s %6s %8s%n", "phase", "requests",
+                                  "ok", "404", "5xx", "fail", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms",
+                                  "upstream", "gc", "gc ms" ) );
+        for ( final PhaseResult p : phases )
+        {
+            final Long upstreamTotal = p.getUpstream() == null ? null : p.getUpstream().get( "total" );
+            sb.append( String.format( "%-8s %8d %6d %6d %6d %6d %9.1f %8.2f %8.2f %8.2f %8.2f %9d %6d %8d%n",
+                                      p.getPhase(), p.getRequests(), p.getOk(), p.getNotFound(),
+                                      p.getServerErrors(), p.getFailures(), p.getThroughput(), p.getP50Millis(),
+                                      p.getP90Millis(), p.getP99Millis(), p.getMaxMillis(),
+                                      upstreamTotal == null ? 0 : upstreamTotal, p.getGcCount(),
+                                      p.getGcMillis() ) );
+        }
+
+        return sb.toString();
+    }
+
+    public String getScenario()
+    {
+        return scenario;
+    }
+
+    public void setScenario( final String scenario )
+    {
+        this.scenario = scenario;
+    }
+
+    public StorageType getStorage()
+    {
+        return storage;
+    }
+
+    public void setStorage( final StorageType storage )
+    {
+        this.storage = storage;
+    }
+
+    public String getTrace()
+    {
+        return trace;
+    }
+
+    public void setTrace( final String trace )
+    {
+        this.trace = trace;
+    }
+
+    public int getTraceSize()
+    {
+        return traceSize;
+    }
+
+    public void setTraceSize( final int traceSize )
+    {
+        this.traceSize = traceSize;
+    }
+
+    public int getConcurrency()
+    {
+        return concurrency;
+    }
+
+    public void setConcurrency( final int concurrency )
+    {
+        this.concurrency = concurrency;
+    }
+
+    public String getUpstream()
+    {
+        return upstream;
+    }
+
+    public void setUpstream( final String upstream )
+    {
+        this.upstream = upstream;
+    }
+
+    public List<PhaseResult> getPhases()
+    {
+        return phases;
+    }
+
+    public void setPhases( final List<PhaseResult> phases )
+    {
+        this.phases = phases;
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+/**
+ * Store definition backends a scenario can run against. Content storage is the same (standalone, local files) for
+ * both; only the {@link org.commonjava.indy.data.StoreDataManager} differs.
+ */
+public enum StorageType
+{
+    memory, flat;
+
+    public static final String STORAGE_SYSPROP = "indy.loadtest.storage";
+
+    public static StorageType current()
+    {
+        return valueOf( System.getProperty( STORAGE_SYSPROP, memory.name() ) );
+    }
+}
@@ -0,0 +1,452 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
+import static org.apache.commons.codec.digest.DigestUtils.sha1Hex;
+import static org.apache.commons.codec.digest.DigestUtils.sha256Hex;
+import static org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor.MAVEN_PKG_KEY;
+import static org.commonjava.indy.pkg.npm.model.NPMPackageTypeDescriptor.NPM_PKG_KEY;
+
+/**
+ * An in-process Maven / NPM upstream that plays a number of remote repositories at once, under
+ * <tt>/{remote-index}/{maven|npm}/{path}</tt>. Nothing is stored: every response is generated from its path, so the
+ * same path always yields the same bytes and checksums stay consistent across remotes and runs.
+ * <p>
+ * Artifacts, POMs and tarballs belong to exactly one remote (chosen by hashing the version directory or package
+ * name), and the others answer 404, as they would for a group of real upstreams. Metadata documents are served by
+ * every remote with partly overlapping version lists, so group-level merging is exercised. Requests are delayed and
+ * failed according to the {@link UpstreamProfile}, and counted per {@link Kind}.
+ */
+public final class SyntheticUpstream
+        implements HttpHandler, Closeable
+{
+    public enum Kind
+    {
+        METADATA, POM, ARTIFACT, CHECKSUM, NPM_METADATA, TARBALL
+    }
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final UpstreamProfile profile;
+
+    private final int remotes;
+
+    private final Map<Kind, LongAdder> served = new EnumMap<>( Kind.class );
+
+    private final LongAdder notFound = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private Undertow server;
+
+    private String baseUrl;
+
+    public SyntheticUpstream( final UpstreamProfile profile, final int remotes )
+    {
+        if ( remotes < 1 )
+        {
+            throw new IllegalArgumentException( "At least one upstream remote is required" );
+        }
+
+        this.profile = profile;
+        this.remotes = remotes;
+        for ( final Kind kind : Kind.values() )
+        {
+            served.put( kind, new LongAdder() );
+        }
+    }
+
+    public SyntheticUpstream start()
+    {
+        server = Undertow.builder().addHttpListener( 0, "127.0.0.1" ).setHandler( this ).build();
+        server.start();
+
+        final InetSocketAddress address = (InetSocketAddress) server.getListenerInfo().get( 0 ).getAddress();
+        baseUrl = String.format( "http://127.0.0.1:%d", address.getPort() );
+        logger.info( "Synthetic upstream with {} remotes listening on {} ({})", remotes, baseUrl, profile );
+
+        return this;
+    }
+
+    @Override
+    public void close()
+    {
+        if ( server != null )
+        {
+            server.stop();
+            server = null;
+        }
+    }
+
+    public int getRemoteCount()
+    {
+        return remotes;
+    }
+
+    /**
+     * URL to use for the remote repository with the given index and package type.
+     */
+    public String getUrl( final int remote, final String packageType )
+    {
+        return String.format( "%s/%d/%s/", baseUrl, remote, packageType );
+    }
+
+    /**
+     * Requests answered since the last {@link #reset()}, per {@link Kind}, plus 'not-found' and 'errors' (injected
+     * 503s).
+     */
+    public Map<String, Long> snapshot()
+    {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        long total = 0;
+        for ( final Map.Entry<Kind, LongAdder> e : served.entrySet() )
+        {
+            final long count = e.getValue().sum();
+            result.put( e.getKey().name().toLowerCase(), count );
+            total += count;
+        }
+
+        final long missing = notFound.sum();
+        final long failed = errors.sum();
+        result.put( "not-found", missing );
+        result.put( "errors", failed );
+        result.put( "total", total + missing + failed );
+
+        return result;
+    }
+
+    public void reset()
+    {
+        served.values().forEach( LongAdder::reset );
+        notFound.reset();
+        errors.reset();
+    }
+
+    @Override
+    public void handleRequest( final HttpServerExchange exchange )
+            throws Exception
+    {
+        if ( exchange.isInIoThread() )
+        {
+            // we sleep to simulate latency, which must not happen on an IO thread
+            exchange.dispatch( this );
+            return;
+        }
+
+        delay();
+
+        final String[] parts = exchange.getRelativePath().replaceFirst( "^/+", "" ).split( "/", 3 );
+        final int remote = parts.length == 3 ? parseRemote( parts[0] ) : -1;
+        if ( remote < 0 || remote >= remotes )
+        {
+            respond( exchange, 404, null, null );
+            notFound.increment();
+            return;
+        }
+
+        if ( profile.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < profile.getErrorRate() )
+        {
+            respond( exchange, 503, null, null );
+            errors.increment();
+            return;
+        }
+
+        final String packageType = parts[1];
+        final String path = parts[2];
+
+        final Response response;
+        if ( MAVEN_PKG_KEY.equals( packageType ) )
+        {
+            response = maven( remote, path );
+        }
+        else if ( NPM_PKG_KEY.equals( packageType ) )
+        {
+            response = npm( remote, path );
+        }
+        else
+        {
+            response = null;
+        }
+
+        if ( response == null )
+        {
+            respond( exchange, 404, null, null );
+            notFound.increment();
+        }
+        else
+        {
+            respond( exchange, 200, response.contentType, response.content );
+            served.get( response.kind ).increment();
+        }
+    }
+
+    Response maven( final int remote, final String path )
+    {
+        for ( final String ext : new String[] { ".sha1", ".md5", ".sha256" } )
+        {
+            if ( path.endsWith( ext ) )
+            {
+                final Response target = maven( remote, path.substring( 0, path.length() - ext.length() ) );
+                if ( target == null )
+                {
+                    return null;
+                }
+
+                final String digest = ".sha1".equals( ext ) ?
+                        sha1Hex( target.content ) :
+                        ".md5".equals( ext ) ? md5Hex( target.content ) : sha256Hex( target.content );
+                return new Response( Kind.CHECKSUM, "text/plain", digest.getBytes( StandardCharsets.UTF_8 ) );
+            }
+        }
+
+        final int lastSlash = path.lastIndexOf( '/' );
+        if ( lastSlash < 1 )
+        {
+            return null;
+        }
+
+        final String dir = path.substring( 0, lastSlash );
+        final String file = path.substring( lastSlash + 1 );
+        if ( "maven-metadata.xml".equals( file ) )
+        {
+            return new Response( Kind.METADATA, "application/xml", mavenMetadata( remote, dir ) );
+        }
+
+        if ( !isOwner( remote, dir ) )
+        {
+            return null;
+        }
+
+        if ( file.endsWith( ".pom" ) )
+        {
+            return new Response( Kind.POM, "application/xml", pom( dir ) );
+        }
+
+        return new Response( Kind.ARTIFACT, "application/octet-stream", binary( path ) );
+    }
+
+    Response npm( final int remote, final String path )
+    {
+        final int tarballSep = path.indexOf( "/-/" );
+        if ( tarballSep > 0 )
+        {
+            if ( !isOwner( remote, path.substring( 0, tarballSep ) ) )
+            {
+                return null;
+            }
+
+            return new Response( Kind.TARBALL, "application/octet-stream", binary( path ) );
+        }
+
+        final String name = path.endsWith( "/package.json" ) ?
+                path.substring( 0, path.length() - "/package.json".length() ) :
+                path;
+        if ( name.isEmpty() || name.endsWith( "/" ) )
+        {
+            return null;
+        }
+
+        return new Response( Kind.NPM_METADATA, "application/json", npmMetadata( remote, name ) );
+    }
+
+    private boolean isOwner( final int remote, final String ownerKey )
+    {
+        return Math.floorMod( ownerKey.hashCode(), remotes ) == remote;
+    }
+
+    /**
+     * Remote <i>n</i> lists versions starting at <i>n * versions / 2</i>, so neighbouring remotes overlap by half.
+     */
+    private int firstVersion( final int remote )
+    {
+        return remote * profile.getMetadataVersions() / 2;
+    }
+
+    private static String version( final int v )
+    {
+        return ( v / 100 + 1 ) + "." + ( v / 10 % 10 ) + "." + ( v % 10 );
+    }
+
+    private byte[] mavenMetadata( final int remote, final String gaDir )
+    {
+        final int sep = gaDir.lastIndexOf( '/' );
+        final String groupId = sep < 0 ? gaDir : gaDir.substring( 0, sep ).replace( '/', '.' );
+        final String artifactId = gaDir.substring( sep + 1 );
+
+        final int first = firstVersion( remote );
+        final int last = first + profile.getMetadataVersions() - 1;
+
+        final StringBuilder sb = new StringBuilder( 256 + profile.getMetadataVersions() * 32 );
+        sb.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<metadata>\n" );
+        sb.append( "  <groupId>" ).append( groupId ).append( "</groupId>\n" );
+        sb.append( "  <artifactId>" ).append( artifactId ).append( "</artifactId>\n" );
+        sb.append( "  <versioning>\n" );
+        sb.append( "    <latest>" ).append( version( last ) ).append( "</latest>\n" );
+        sb.append( "    <release>" ).append( version( last ) ).append( "</release>\n" );
+        sb.append( "    <versions>\n" );
+        for ( int v = first; v <= last; v++ )
+        {
+            sb.append( "      <version>" ).append( version( v ) ).append( "</version>\n" );
+        }
+        sb.append( "    </versions>\n" );
+        sb.append( "    <lastUpdated>20200101000000</lastUpdated>\n" );
+        sb.append( "  </versioning>\n</metadata>\n" );
+
+        return sb.toString().getBytes( StandardCharsets.UTF_8 );
+    }
+
+    private byte[] pom( final String versionDir )
+    {
+        final String[] segments = versionDir.split( "/" );
+        final int len = segments.length;
+        final String version = segments[len - 1];
+        final String artifactId = len > 1 ? segments[len - 2] : "unknown";
+        final String groupId = len > 2 ? String.join( ".", Arrays.copyOf( segments, len - 2 ) ) : "unknown";
+
+        final String pom = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>" + groupId + "</groupId>\n" + "  <artifactId>" + artifactId + "</artifactId>\n"
+                + "  <version>" + version + "</version>\n" + "  <packaging>jar</packaging>\n" + "</project>\n";
+
+        return pom.getBytes( StandardCharsets.UTF_8 );
+    }
+
+    private byte[] npmMetadata( final int remote, final String name )
+    {
+        final String basename = name.substring( name.lastIndexOf( '/' ) + 1 );
+        final int first = firstVersion( remote );
+        final int last = first + profile.getMetadataVersions() - 1;
+
+        final StringBuilder sb = new StringBuilder( 256 + profile.getMetadataVersions() * 256 );
+        sb.append( "{\"name\":\"" ).append( name ).append( "\",\"versions\":{" );
+        for ( int v = first; v <= last; v++ )
+        {
+            final String version = version( v );
+            if ( v > first )
+            {
+                sb.append( ',' );
+            }
+            sb.append( '"' ).append( version ).append( "\":{\"name\":\"" ).append( name );
+            sb.append( "\",\"version\":\"" ).append( version ).append( "\",\"dist\":{\"tarball\":\"" );
+            sb.append( getUrl( remote, NPM_PKG_KEY ) ).append( name ).append( "/-/" ).append( basename );
+            sb.append( '-' ).append( version ).append( ".tgz\"}}" );
+        }
+        sb.append( "},\"dist-tags\":{\"latest\":\"" ).append( version( last ) ).append( "\"}}" );
+
+        return sb.toString().getBytes( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Pseudo-random content seeded by the path, with a size in the configured range.
+     */
+    private byte[] binary( final String path )
+    {
+        final Random random = new Random( path.hashCode() );
+        final int span = profile.getMaxArtifactSize() - profile.getMinArtifactSize();
+        final byte[] content = new byte[profile.getMinArtifactSize() + ( span > 0 ? random.nextInt( span + 1 ) : 0 )];
+        random.nextBytes( content );
+
+        return content;
+    }
+
+    private void delay()
+            throws InterruptedException
+    {
+        long millis = profile.getLatencyMillis();
+        if ( profile.getJitterMillis() > 0 )
+        {
+            millis += ThreadLocalRandom.current().nextLong( profile.getJitterMillis() + 1 );
+        }
+
+        if ( millis > 0 )
+        {
+            TimeUnit.MILLISECONDS.sleep( millis );
+        }
+    }
+
+    private static int parseRemote( final String part )
+    {
+        try
+        {
+            return Integer.parseInt( part );
+        }
+        catch ( final NumberFormatException e )
+        {
+            return -1;
+        }
+    }
+
+    private static void respond( final HttpServerExchange exchange, final int status, final String contentType,
+                                 final byte[] content )
+    {
+        exchange.setStatusCode( status );
+        if ( content == null )
+        {
+            exchange.getResponseHeaders().put( Headers.CONTENT_LENGTH, 0 );
+            exchange.endExchange();
+            return;
+        }
+
+        exchange.getResponseHeaders().put( Headers.CONTENT_TYPE, contentType );
+        exchange.getResponseHeaders().put( Headers.CONTENT_LENGTH, content.length );
+        if ( Methods.HEAD.equals( exchange.getRequestMethod() ) )
+        {
+            exchange.endExchange();
+        }
+        else
+        {
+            exchange.getResponseSender().send( ByteBuffer.wrap( content ) );
+        }
+    }
+
+    static final class Response
+    {
+        final Kind kind;
+
+        final String contentType;
+
+        final byte[] content;
+
+        Response( final Kind kind, final String contentType, final byte[] content )
+        {
+            this.kind = kind;
+            this.contentType = contentType;
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.loadtest;
+
+/**
+ * How the synthetic upstream behaves: per-request latency (a fixed part plus uniform jitter), the share of requests
+ * answered with a 503, the size range of generated artifacts / tarballs, and how many versions each metadata
+ * document lists.
+ */
+public final class UpstreamProfile
+{
+    private final long latencyMillis;
+
+    private final long jitterMillis;
+
+    private final double errorRate;
+
+    private final int minArtifactSize;
+
+    private final int maxArtifactSize;
+
+    private final int metadataVersions;
+
+    public UpstreamProfile( final long latencyMillis, final long jitterMillis, final double errorRate,
+                            final int minArtifactSize, final int maxArtifactSize, final int metadataVersions )
+    {
+        if ( errorRate < 0 || errorRate > 1 )
+        {
+            throw new IllegalArgumentException( "Upstream error rate must be between 0 and 1, was: " + errorRate );
+        }
+        if ( minArtifactSize < 0 || maxArtifactSize < minArtifactSize )
+        {
+            throw new IllegalArgumentException(
+                    String.format( "Invalid artifact size range: %d - %d", minArtifactSize, maxArtifactSize ) );
+        }
+
+        this.latencyMillis = Math.max( 0, latencyMillis );
+        this.jitterMillis = Math.max( 0, jitterMillis );
+        this.errorRate = errorRate;
+        this.minArtifactSize = minArtifactSize;
+        this.maxArtifactSize = maxArtifactSize;
+        this.metadataVersions = Math.max( 1, metadataVersions );
+    }
+
+    public long getLatencyMillis()
+    {
+        return latencyMillis;
+    }
+
+    public long getJitterMillis()
+    {
+        return jitterMillis;
+    }
+
+    public double getErrorRate()
+    {
+        return errorRate;
+    }
+
+    public int getMinArtifactSize()
+    {
+        return minArtifactSize;
+    }
+
+    public int getMaxArtifactSize()
+    {
+        return maxArtifactSize;
+    }
+
+    public int getMetadataVersions()
+    {
+        return metadataVersions;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "UpstreamProfile [latency=%dms +/- %dms, errorRate=%s, artifactSize=%d-%d, versions=%d]",
+                              latencyMillis, jitterMillis, errorRate, minArtifactSize, maxArtifactSize,
+                              metadataVersions );
+    }
+}
@@ -91,6 +91,13 @@ public class MockDownloadManager implements DownloadManager
         return null;
     }
 
+    @Override
+    public Transfer adopt( ArtifactStore store, String path, Transfer source, EventMetadata eventMetadata )
+            throws IndyWorkflowException
+    {
+        return null;
+    }
+
     @Override
     public Transfer store( List<? extends ArtifactStore> stores, String path, InputStream stream, TransferOperation op )
             throws IndyWorkflowException
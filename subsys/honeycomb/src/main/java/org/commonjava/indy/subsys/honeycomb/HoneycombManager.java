@@ -15,6 +15,7 @@
  */
 package org.commonjava.indy.subsys.honeycomb;
 
+import com.codahale.metrics.Gauge;
 import io.honeycomb.beeline.tracing.Beeline;
 import io.honeycomb.beeline.tracing.Span;
 import io.honeycomb.beeline.tracing.SpanBuilderFactory;
@@ -23,11 +24,13 @@ import io.honeycomb.beeline.tracing.Tracer;
 import io.honeycomb.beeline.tracing.Tracing;
 import io.honeycomb.beeline.tracing.propagation.PropagationContext;
 import io.honeycomb.beeline.tracing.sampling.Sampling;
+import io.honeycomb.libhoney.Event;
 import io.honeycomb.libhoney.HoneyClient;
 import io.honeycomb.libhoney.LibHoney;
 import io.honeycomb.libhoney.responses.ResponseObservable;
 import io.honeycomb.libhoney.transport.impl.ConsoleTransport;
 import org.commonjava.cdi.util.weft.ThreadContext;
+import org.commonjava.indy.metrics.IndyMetricsManager;
 import org.commonjava.indy.metrics.RequestContextHelper;
 import org.commonjava.indy.subsys.honeycomb.config.HoneycombConfiguration;
 import org.slf4j.Logger;
@@ -37,7 +40,9 @@ import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.commonjava.indy.metrics.RequestContextHelper.CUMULATIVE_COUNTS;
 import static org.commonjava.indy.metrics.RequestContextHelper.CUMULATIVE_TIMINGS;
@@ -54,6 +59,8 @@ public class HoneycombManager
 
     private Beeline beeline;
 
+    private TailSamplingBuffer<Event> tailSamplingBuffer;
+
     @Inject
     private HoneycombContextualizer honeycombContextualizer;
 
@@ -69,6 +76,9 @@ public class HoneycombManager
     @Inject
     private IndyEventPostProcessor eventPostProcessor;
 
+    @Inject
+    private IndyMetricsManager metricsManager;
+
     public HoneycombManager()
     {
     }
@@ -86,7 +96,22 @@ public class HoneycombManager
                                               .setEventPostProcessor( eventPostProcessor ).build() ); //, new ConsoleTransport( new ResponseObservable() ) );
             LibHoney.setDefault( client );
 
-            SpanPostProcessor postProcessor = Tracing.createSpanProcessor( client, Sampling.alwaysSampler() );
+            SpanPostProcessor postProcessor;
+            if ( configuration.isTailSamplingEnabled() )
+            {
+                tailSamplingBuffer = new TailSamplingBuffer<>( configuration.getTailSamplingLatencyThresholdMillis(),
+                                                               configuration.getTailSamplingBufferSpans(),
+                                                               TimeUnit.SECONDS.toMillis(
+                                                                       configuration.getTailSamplingTraceTimeoutSeconds() ),
+                                                               traceSampler::isHeadSampled, Event::sendPresampled );
+                postProcessor = new TailSamplingSpanPostProcessor( client, tailSamplingBuffer );
+                registerTailSamplingGauges();
+            }
+            else
+            {
+                postProcessor = Tracing.createSpanProcessor( client, Sampling.alwaysSampler() );
+            }
+
             SpanBuilderFactory factory = Tracing.createSpanBuilderFactory( postProcessor, traceSampler );
 
             Tracer tracer = Tracing.createTracer( factory, tracingContext );
@@ -94,6 +119,23 @@ public class HoneycombManager
         }
     }
 
+    private void registerTailSamplingGauges()
+    {
+        if ( metricsManager != null )
+        {
+            Map<String, Gauge<Long>> gauges = new HashMap<>();
+            gauges.put( "bufferedSpans", () -> (long) tailSamplingBuffer.getBufferedSpans() );
+            gauges.put( "bufferedTraces", () -> (long) tailSamplingBuffer.getBufferedTraces() );
+            gauges.put( "kept", tailSamplingBuffer::getKept );
+            gauges.put( "keptSlow", tailSamplingBuffer::getKeptSlow );
+            gauges.put( "keptError", tailSamplingBuffer::getKeptError );
+            gauges.put( "discarded", tailSamplingBuffer::getDiscarded );
+            gauges.put( "dropped", tailSamplingBuffer::getDropped );
+            gauges.put( "expired", tailSamplingBuffer::getExpired );
+            metricsManager.addGauges( getClass(), "tailSampling", gauges );
+        }
+    }
+
     public HoneyClient getClient()
     {
         return client;
@@ -141,6 +183,10 @@ public class HoneycombManager
             }
 
             span = beeline.getTracer().startTrace( span );
+            if ( tailSamplingBuffer != null && !span.isNoop() )
+            {
+                tailSamplingBuffer.startTrace( span.getTraceId(), span.getSpanId() );
+            }
 
             logger.debug( "Started root span: {} (ID: {}, trace ID: {} and parent: {}, thread: {})", span,
                           span.getSpanId(), span.getTraceId(), span.getParentSpanId(),
@@ -26,17 +26,29 @@ import org.slf4j.LoggerFactory;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.Random;
 
 import static org.commonjava.indy.subsys.honeycomb.interceptor.HoneycombInterceptorUtils.SAMPLE_OVERRIDE;
 
+/**
+ * Head sampler for Indy traces. The keep / skip decision is a hash of the trace ID, using the same scheme as Honeycomb's
+ * DeterministicTraceSampler (first four bytes of the SHA-1, compared against MAX_UINT / rate), so every service that
+ * sees a trace ID at the same rate makes the same decision, and no state is shared between request threads.
+ * <p>
+ * When tail sampling is enabled, traces that fail the head decision are still started, so that
+ * {@link TailSamplingSpanPostProcessor} can keep the slow or failed ones once their root span ends.
+ */
 @ApplicationScoped
 public class IndyTraceSampler
         implements TraceSampler<String>
 {
-    private final Random random = new Random();
+    private static final ThreadLocal<TraceIdHasher> HASHERS = ThreadLocal.withInitial( TraceIdHasher::new );
 
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
@@ -46,20 +58,49 @@ public class IndyTraceSampler
     @Inject
     private HoneycombConfiguration configuration;
 
+    public IndyTraceSampler()
+    {
+    }
+
+    public IndyTraceSampler( final TrafficClassifier classifier, final HoneycombConfiguration configuration )
+    {
+        this.classifier = classifier;
+        this.configuration = configuration;
+    }
+
     @Override
     public int sample( final String input )
+    {
+        if ( isHeadSampled( input ) )
+        {
+            return 1;
+        }
+
+        if ( configuration.isTailSamplingEnabled() && ThreadContext.getContext( false ) != null )
+        {
+            logger.debug( "Deferring span to tail sampling (span: {})", input );
+            return 1;
+        }
+
+        return 0;
+    }
+
+    /**
+     * The head sampling decision for a trace, without the tail sampling fallback.
+     */
+    public boolean isHeadSampled( final String input )
     {
         ThreadContext ctx = ThreadContext.getContext( false );
         if ( ctx == null )
         {
             logger.debug( "No ThreadContext for functional diagnosis; skipping span: {}", input );
-            return 0;
+            return false;
         }
 
         if ( ctx.get( SAMPLE_OVERRIDE ) != null )
         {
             logger.debug( "Including span via override (span: {})", input );
-            return 1;
+            return true;
         }
 
         List<String> functionClassifiers = classifier.getCachedFunctionClassifiers();
@@ -81,13 +122,96 @@ public class IndyTraceSampler
             }
         }
 
-        if ( rate == 1 || Math.abs( random.nextInt() ) % rate == 0 )
+        if ( isSampled( input, rate ) )
         {
             logger.debug( "Including span due to sampling rate: {} (span: {})", rate, input );
-            return 1;
+            return true;
         }
 
         logger.debug( "Skipping span due to sampling rate: {} (span: {})", rate, input );
-        return 0;
+        return false;
+    }
+
+    /**
+     * Deterministic decision for one trace ID at the given rate (keep 1 in rate). Rates of 1 or less always keep.
+     */
+    public static boolean isSampled( final String traceId, final int rate )
+    {
+        if ( rate <= 1 )
+        {
+            return true;
+        }
+        if ( traceId == null )
+        {
+            return false;
+        }
+
+        int upperBound = Integer.divideUnsigned( -1, rate );
+        return Integer.compareUnsigned( HASHERS.get().hash( traceId ), upperBound ) <= 0;
+    }
+
+    /**
+     * Per-thread SHA-1 state with reusable buffers, so hashing a trace ID doesn't allocate.
+     */
+    private static final class TraceIdHasher
+    {
+        private final MessageDigest sha;
+
+        private final byte[] digest = new byte[20];
+
+        private byte[] buf = new byte[64];
+
+        private TraceIdHasher()
+        {
+            try
+            {
+                sha = MessageDigest.getInstance( "SHA-1" );
+            }
+            catch ( NoSuchAlgorithmException e )
+            {
+                throw new IllegalStateException( "Failed to load SHA-1 algorithm", e );
+            }
+        }
+
+        private int hash( final String traceId )
+        {
+            int len = 0;
+            final int chars = traceId.length();
+            for ( int i = 0; i < chars; i++ )
+            {
+                char c = traceId.charAt( i );
+                if ( c >= 0x80 )
+                {
+                    // trace IDs are hex or UUIDs; anything else takes the slow path
+                    byte[] bytes = traceId.getBytes( StandardCharsets.UTF_8 );
+                    sha.update( bytes );
+                    return finish();
+                }
+
+                if ( len == buf.length )
+                {
+                    buf = Arrays.copyOf( buf, buf.length * 2 );
+                }
+                buf[len++] = (byte) c;
+            }
+
+            sha.update( buf, 0, len );
+            return finish();
+        }
+
+        private int finish()
+        {
+            try
+            {
+                sha.digest( digest, 0, digest.length );
+            }
+            catch ( DigestException e )
+            {
+                throw new IllegalStateException( "Failed to hash trace ID", e );
+            }
+
+            return ( ( digest[0] & 0xff ) << 24 ) | ( ( digest[1] & 0xff ) << 16 ) | ( ( digest[2] & 0xff ) << 8 ) | (
+                    digest[3] & 0xff );
+        }
     }
 }
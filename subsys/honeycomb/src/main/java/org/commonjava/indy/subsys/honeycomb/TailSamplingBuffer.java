@@ -0,0 +1,323 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.subsys.honeycomb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Holds the finished span events of each trace until its root span ends, then decides whether to send the whole trace.
+ * A trace is kept if it passed head sampling, if its root span took at least the latency threshold, or if it returned
+ * a 5xx status. The buffer is bounded by a total span count; spans that don't fit are dropped and counted, and traces
+ * whose root span never ends are evicted after the trace timeout, when the buffer is full or at the latest by a
+ * sweep as new traces start.
+ *
+ * @param <E> the span event type; libhoney events in production, anything in tests
+ */
+public class TailSamplingBuffer<E>
+{
+    @FunctionalInterface
+    public interface EventSink<E>
+    {
+        void send( E event );
+    }
+
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final long latencyThresholdMillis;
+
+    private final int maxBufferedSpans;
+
+    private final long traceTimeoutMillis;
+
+    private final Predicate<String> headSampler;
+
+    private final EventSink<E> sink;
+
+    private final Map<String, TraceBuffer<E>> traces = new ConcurrentHashMap<>();
+
+    private final AtomicInteger buffered = new AtomicInteger();
+
+    private final AtomicLong kept = new AtomicLong();
+
+    private final AtomicLong keptSlow = new AtomicLong();
+
+    private final AtomicLong keptError = new AtomicLong();
+
+    private final AtomicLong discarded = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong expired = new AtomicLong();
+
+    private final long sweepIntervalMillis;
+
+    private final AtomicLong nextSweep;
+
+    public TailSamplingBuffer( final long latencyThresholdMillis, final int maxBufferedSpans,
+                               final long traceTimeoutMillis, final Predicate<String> headSampler,
+                               final EventSink<E> sink )
+    {
+        this.latencyThresholdMillis = latencyThresholdMillis;
+        this.maxBufferedSpans = maxBufferedSpans;
+        this.traceTimeoutMillis = traceTimeoutMillis;
+        this.headSampler = headSampler;
+        this.sink = sink;
+        this.sweepIntervalMillis = Math.max( 1, Math.min( traceTimeoutMillis, MAX_SWEEP_INTERVAL_MILLIS ) );
+        this.nextSweep = new AtomicLong( System.currentTimeMillis() + sweepIntervalMillis );
+    }
+
+    /**
+     * Register the root span of a new trace. Spans of traces that were never started here are sent straight through.
+     */
+    public void startTrace( final String traceId, final String rootSpanId )
+    {
+        final long now = System.currentTimeMillis();
+        traces.putIfAbsent( traceId, new TraceBuffer<>( rootSpanId, now ) );
+
+        // traces whose root span is never offered hold no spans, so a full buffer would never evict them
+        final long sweep = nextSweep.get();
+        if ( now >= sweep && nextSweep.compareAndSet( sweep, now + sweepIntervalMillis ) )
+        {
+            evictExpired();
+        }
+    }
+
+    /**
+     * Offer a finished span. Non-root spans are buffered with their trace; the root span decides the trace.
+     *
+     * @param elapsedMillis duration of the span; only used for the root span
+     * @param status HTTP status recorded on the span, if any; only used for the root span
+     */
+    public void offer( final String traceId, final String spanId, final E event, final double elapsedMillis,
+                       final Object status )
+    {
+        TraceBuffer<E> trace = traceId == null ? null : traces.get( traceId );
+        if ( trace == null )
+        {
+            sink.send( event );
+            return;
+        }
+
+        if ( trace.rootSpanId.equals( spanId ) )
+        {
+            traces.remove( traceId, trace );
+            complete( traceId, trace, event, elapsedMillis, status );
+            return;
+        }
+
+        if ( !reserve() )
+        {
+            dropped.incrementAndGet();
+            logger.debug( "Tail sampling buffer is full; dropping span: {} of trace: {}", spanId, traceId );
+            return;
+        }
+
+        boolean added;
+        synchronized ( trace )
+        {
+            added = !trace.closed && trace.events.add( event );
+        }
+
+        if ( !added )
+        {
+            // the root ended while we were reserving space; the trace decision has been made already
+            buffered.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+    }
+
+    public int getBufferedSpans()
+    {
+        return buffered.get();
+    }
+
+    public int getBufferedTraces()
+    {
+        return traces.size();
+    }
+
+    public long getKept()
+    {
+        return kept.get();
+    }
+
+    public long getKeptSlow()
+    {
+        return keptSlow.get();
+    }
+
+    public long getKeptError()
+    {
+        return keptError.get();
+    }
+
+    public long getDiscarded()
+    {
+        return discarded.get();
+    }
+
+    public long getDropped()
+    {
+        return dropped.get();
+    }
+
+    public long getExpired()
+    {
+        return expired.get();
+    }
+
+    private void complete( final String traceId, final TraceBuffer<E> trace, final E rootEvent,
+                           final double elapsedMillis, final Object status )
+    {
+        List<E> events;
+        synchronized ( trace )
+        {
+            trace.closed = true;
+            events = trace.events;
+        }
+        buffered.addAndGet( -events.size() );
+
+        boolean keep;
+        if ( headSampler.test( traceId ) )
+        {
+            keep = true;
+        }
+        else if ( isServerError( status ) )
+        {
+            keep = true;
+            keptError.incrementAndGet();
+        }
+        else if ( elapsedMillis >= latencyThresholdMillis )
+        {
+            keep = true;
+            keptSlow.incrementAndGet();
+        }
+        else
+        {
+            keep = false;
+        }
+
+        if ( keep )
+        {
+            kept.incrementAndGet();
+            events.forEach( sink::send );
+            sink.send( rootEvent );
+        }
+        else
+        {
+            discarded.incrementAndGet();
+        }
+    }
+
+    private boolean reserve()
+    {
+        if ( buffered.incrementAndGet() <= maxBufferedSpans )
+        {
+            return true;
+        }
+
+        buffered.decrementAndGet();
+        evictExpired();
+
+        if ( buffered.incrementAndGet() <= maxBufferedSpans )
+        {
+            return true;
+        }
+
+        buffered.decrementAndGet();
+        return false;
+    }
+
+    private void evictExpired()
+    {
+        final long cutoff = System.currentTimeMillis() - traceTimeoutMillis;
+        Iterator<Map.Entry<String, TraceBuffer<E>>> it = traces.entrySet().iterator();
+        while ( it.hasNext() )
+        {
+            Map.Entry<String, TraceBuffer<E>> entry = it.next();
+            TraceBuffer<E> trace = entry.getValue();
+            if ( trace.started < cutoff && traces.remove( entry.getKey(), trace ) )
+            {
+                int size;
+                synchronized ( trace )
+                {
+                    trace.closed = true;
+                    size = trace.events.size();
+                }
+                buffered.addAndGet( -size );
+                expired.incrementAndGet();
+                logger.debug( "Evicted tail sampling buffer for trace: {} after {}s without its root span ending",
+                              entry.getKey(), TimeUnit.MILLISECONDS.toSeconds( traceTimeoutMillis ) );
+            }
+        }
+    }
+
+    private static boolean isServerError( final Object status )
+    {
+        if ( status == null )
+        {
+            return false;
+        }
+
+        int code;
+        if ( status instanceof Number )
+        {
+            code = ( (Number) status ).intValue();
+        }
+        else
+        {
+            try
+            {
+                code = Integer.parseInt( status.toString().trim() );
+            }
+            catch ( NumberFormatException e )
+            {
+                return false;
+            }
+        }
+        return code >= 500;
+    }
+
+    private static final class TraceBuffer<E>
+    {
+        private final String rootSpanId;
+
+        private final long started;
+
+        private final List<E> events = new ArrayList<>();
+
+        private boolean closed;
+
+        private TraceBuffer( final String rootSpanId, final long started )
+        {
+            this.rootSpanId = rootSpanId;
+            this.started = started;
+        }
+    }
+}
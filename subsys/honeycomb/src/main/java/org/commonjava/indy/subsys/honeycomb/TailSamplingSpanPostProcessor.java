@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.subsys.honeycomb;
+
+import io.honeycomb.beeline.tracing.Span;
+import io.honeycomb.beeline.tracing.SpanPostProcessor;
+import io.honeycomb.beeline.tracing.sampling.Sampling;
+import io.honeycomb.libhoney.Event;
+import io.honeycomb.libhoney.HoneyClient;
+
+import static org.commonjava.indy.metrics.RequestContextHelper.HTTP_STATUS;
+import static org.commonjava.indy.metrics.RequestContextHelper.getContext;
+
+/**
+ * Span processor that hands finished spans to a {@link TailSamplingBuffer} instead of sending them. Beeline sends the
+ * event itself whenever the sampler hook returns a positive rate, so this always returns 0 and lets the buffer's sink
+ * send the retained events.
+ */
+public class TailSamplingSpanPostProcessor
+        extends SpanPostProcessor
+{
+    private final TailSamplingBuffer<Event> buffer;
+
+    public TailSamplingSpanPostProcessor( final HoneyClient client, final TailSamplingBuffer<Event> buffer )
+    {
+        super( client, Sampling.alwaysSampler() );
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int runSamplerHook( final Span span )
+    {
+        int rate = super.runSamplerHook( span );
+        if ( rate > 0 )
+        {
+            Event event = generateEvent( span );
+            event.setSampleRate( rate );
+
+            Object status = span.getFields().get( HTTP_STATUS );
+            if ( status == null )
+            {
+                status = getContext( HTTP_STATUS );
+            }
+
+            buffer.offer( span.getTraceId(), span.getSpanId(), event, span.elapsedTimeMs(), status );
+        }
+
+        return 0;
+    }
+}
@@ -64,8 +64,22 @@ public class HoneycombConfiguration
 
     private static final String SAMPLE_PREFIX = "sample.";
 
+    private static final String TAIL_SAMPLING_ENABLED = "tail.sampling.enabled";
+
+    private static final String TAIL_SAMPLING_LATENCY_THRESHOLD_MILLIS = "tail.sampling.latency.threshold.millis";
+
+    private static final String TAIL_SAMPLING_BUFFER_SPANS = "tail.sampling.buffer.spans";
+
+    private static final String TAIL_SAMPLING_TRACE_TIMEOUT_SECONDS = "tail.sampling.trace.timeout.seconds";
+
     private static final Integer DEFAULT_BASE_SAMPLE_RATE = 100;
 
+    private static final long DEFAULT_TAIL_SAMPLING_LATENCY_THRESHOLD_MILLIS = 5000;
+
+    private static final int DEFAULT_TAIL_SAMPLING_BUFFER_SPANS = 10000;
+
+    private static final long DEFAULT_TAIL_SAMPLING_TRACE_TIMEOUT_SECONDS = 300;
+
     private boolean enabled;
 
     private String writeKey;
@@ -82,6 +96,14 @@ public class HoneycombConfiguration
 
     private Set<String> fields;
 
+    private boolean tailSamplingEnabled;
+
+    private Long tailSamplingLatencyThresholdMillis;
+
+    private Integer tailSamplingBufferSpans;
+
+    private Long tailSamplingTraceTimeoutSeconds;
+
     public HoneycombConfiguration()
     {
     }
@@ -120,6 +142,18 @@ public class HoneycombConfiguration
                 this.fields = Collections.unmodifiableSet(
                         new HashSet<>( Arrays.asList( value.trim().split( "\\s*,\\s*" ) ) ) );
                 break;
+            case TAIL_SAMPLING_ENABLED:
+                this.tailSamplingEnabled = Boolean.parseBoolean( value.trim() );
+                break;
+            case TAIL_SAMPLING_LATENCY_THRESHOLD_MILLIS:
+                this.tailSamplingLatencyThresholdMillis = Long.parseLong( value.trim() );
+                break;
+            case TAIL_SAMPLING_BUFFER_SPANS:
+                this.tailSamplingBufferSpans = Integer.parseInt( value.trim() );
+                break;
+            case TAIL_SAMPLING_TRACE_TIMEOUT_SECONDS:
+                this.tailSamplingTraceTimeoutSeconds = Long.parseLong( value.trim() );
+                break;
             default:
                 if ( name.startsWith( SAMPLE_PREFIX ) && name.length() > SAMPLE_PREFIX.length() )
                 {
@@ -183,6 +217,34 @@ public class HoneycombConfiguration
         return getBaseSampleRate();
     }
 
+    /**
+     * When enabled, traces that miss the head sampling rate are buffered until their root span ends, and kept anyway
+     * if the request was slow or failed with a 5xx.
+     */
+    public boolean isTailSamplingEnabled()
+    {
+        return tailSamplingEnabled;
+    }
+
+    public long getTailSamplingLatencyThresholdMillis()
+    {
+        return tailSamplingLatencyThresholdMillis == null ?
+                DEFAULT_TAIL_SAMPLING_LATENCY_THRESHOLD_MILLIS :
+                tailSamplingLatencyThresholdMillis;
+    }
+
+    public int getTailSamplingBufferSpans()
+    {
+        return tailSamplingBufferSpans == null ? DEFAULT_TAIL_SAMPLING_BUFFER_SPANS : tailSamplingBufferSpans;
+    }
+
+    public long getTailSamplingTraceTimeoutSeconds()
+    {
+        return tailSamplingTraceTimeoutSeconds == null ?
+                DEFAULT_TAIL_SAMPLING_TRACE_TIMEOUT_SECONDS :
+                tailSamplingTraceTimeoutSeconds;
+    }
+
     public Set<String> getFieldSet()
     {
         return fields == null ? DEFAULT_FIELDS : fields;
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.subsys.honeycomb;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class IndyTraceSamplerTest
+{
+    @Test
+    public void deterministicSamplingAgreesAcrossCalls()
+    {
+        int kept = 0;
+        for ( int i = 0; i < 10000; i++ )
+        {
+            String traceId = "trace-" + i;
+            boolean sampled = IndyTraceSampler.isSampled( traceId, 10 );
+            assertThat( IndyTraceSampler.isSampled( traceId, 10 ), equalTo( sampled ) );
+            if ( sampled )
+            {
+                kept++;
+            }
+        }
+
+        assertThat( kept > 800 && kept < 1200, equalTo( true ) );
+        assertThat( IndyTraceSampler.isSampled( "anything", 1 ), equalTo( true ) );
+    }
+}
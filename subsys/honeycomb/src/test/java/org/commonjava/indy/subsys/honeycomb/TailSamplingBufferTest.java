@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.subsys.honeycomb;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class TailSamplingBufferTest
+{
+    private final List<String> sent = new ArrayList<>();
+
+    @Test
+    public void fastTraceNotHeadSampledIsDiscarded()
+    {
+        TailSamplingBuffer<String> buffer = newBuffer( 100, false );
+
+        buffer.startTrace( "trace", "root" );
+        buffer.offer( "trace", "child", "child-event", 10, null );
+        buffer.offer( "trace", "root", "root-event", 20, "200" );
+
+        assertThat( sent.isEmpty(), equalTo( true ) );
+        assertThat( buffer.getDiscarded(), equalTo( 1L ) );
+        assertThat( buffer.getBufferedSpans(), equalTo( 0 ) );
+        assertThat( buffer.getBufferedTraces(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void slowTraceIsKeptWithAllSpans()
+    {
+        TailSamplingBuffer<String> buffer = newBuffer( 100, false );
+
+        buffer.startTrace( "trace", "root" );
+        buffer.offer( "trace", "child-1", "child-1-event", 40, null );
+        buffer.offer( "trace", "child-2", "child-2-event", 90, null );
+        buffer.offer( "trace", "root", "root-event", 150, "200" );
+
+        assertThat( sent, equalTo( Arrays.asList( "child-1-event", "child-2-event", "root-event" ) ) );
+        assertThat( buffer.getKeptSlow(), equalTo( 1L ) );
+        assertThat( buffer.getBufferedSpans(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void serverErrorTraceIsKept()
+    {
+        TailSamplingBuffer<String> buffer = newBuffer( 100, false );
+
+        buffer.startTrace( "trace", "root" );
+        buffer.offer( "trace", "child", "child-event", 5, null );
+        buffer.offer( "trace", "root", "root-event", 10, 502 );
+
+        assertThat( sent, equalTo( Arrays.asList( "child-event", "root-event" ) ) );
+        assertThat( buffer.getKeptError(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void headSampledTraceIsKept()
+    {
+        TailSamplingBuffer<String> buffer = newBuffer( 100, true );
+
+        buffer.startTrace( "trace", "root" );
+        buffer.offer( "trace", "root", "root-event", 10, "404" );
+
+        assertThat( sent, equalTo( Arrays.asList( "root-event" ) ) );
+        assertThat( buffer.getKept(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void spansOfUnknownTracesPassThrough()
+    {
+        TailSamplingBuffer<String> buffer = newBuffer( 100, false );
+
+        buffer.offer( "other", "span", "event", 1, null );
+
+        assertThat( sent, equalTo( Arrays.asList( "event" ) ) );
+    }
+
+    @Test
+    public void spansBeyondCapacityAreDropped()
+    {
+        TailSamplingBuffer<String> buffer = new TailSamplingBuffer<>( 100, 2, 60000, id -> false, sent::add );
+
+        buffer.startTrace( "trace", "root" );
+        buffer.offer( "trace", "a", "a-event", 1, null );
+        buffer.offer( "trace", "b", "b-event", 1, null );
+        buffer.offer( "trace", "c", "c-event", 1, null );
+
+        assertThat( buffer.getBufferedSpans(), equalTo( 2 ) );
+        assertThat( buffer.getDropped(), equalTo( 1L ) );
+
+        buffer.offer( "trace", "root", "root-event", 500, null );
+
+        assertThat( sent, equalTo( Arrays.asList( "a-event", "b-event", "root-event" ) ) );
+        assertThat( buffer.getBufferedSpans(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void expiredTracesAreEvictedToMakeRoom()
+            throws Exception
+    {
+        TailSamplingBuffer<String> buffer = new TailSamplingBuffer<>( 100, 1, 50, id -> false, sent::add );
+
+        buffer.startTrace( "abandoned", "root-1" );
+        buffer.offer( "abandoned", "a", "a-event", 1, null );
+
+        Thread.sleep( 100 );
+
+        buffer.startTrace( "trace", "root-2" );
+        buffer.offer( "trace", "b", "b-event", 1, null );
+
+        assertThat( buffer.getExpired(), equalTo( 1L ) );
+        assertThat( buffer.getDropped(), equalTo( 0L ) );
+        assertThat( buffer.getBufferedSpans(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void tracesWithoutRootSpanAreEvictedAsNewTracesStart()
+            throws Exception
+    {
+        TailSamplingBuffer<String> buffer = new TailSamplingBuffer<>( 100, 100, 50, id -> false, sent::add );
+
+        buffer.startTrace( "abandoned-1", "root-1" );
+        buffer.startTrace( "abandoned-2", "root-2" );
+
+        Thread.sleep( 100 );
+
+        buffer.startTrace( "trace", "root-3" );
+
+        assertThat( buffer.getExpired(), equalTo( 2L ) );
+        assertThat( buffer.getBufferedTraces(), equalTo( 1 ) );
+    }
+
+    private TailSamplingBuffer<String> newBuffer( final long thresholdMillis, final boolean headSampled )
+    {
+        return new TailSamplingBuffer<>( thresholdMillis, 100, 60000, id -> headSampled, sent::add );
+    }
+}
@@ -20,6 +20,12 @@ import org.infinispan.commons.api.BasicCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -36,6 +42,9 @@ public class BasicCacheHandle<K,V>
 
     private String metricPrefix;
 
+    // metric names are fixed per handle and operation, so build them (and their suppliers) once
+    private final Map<String, Supplier<String>> metricNames = new ConcurrentHashMap<>();
+
     public String getMetricPrefix()
     {
         return metricPrefix;
@@ -80,12 +89,44 @@ public class BasicCacheHandle<K,V>
         Supplier<R> execution = executionFor ( operation);
         if ( metricsManager != null )
         {
-            return metricsManager.wrapWithStandardMetrics( execution, () -> getMetricName( metricName ) );
+            return metricsManager.wrapWithStandardMetrics( execution, metricNameSupplier( metricName ) );
         }
 
         return execution.get();
     }
 
+    /**
+     * Run an asynchronous operation. These are not timed, since the operation completes after this returns.
+     */
+    protected <R> CompletableFuture<R> doExecuteAsync( String metricName,
+                                                       Function<BasicCache<K, V>, CompletableFuture<R>> operation )
+    {
+        Logger logger = LoggerFactory.getLogger( getClass() );
+        if ( stopped )
+        {
+            logger.error( "Cannot complete {}. Cache {} is shutting down.", metricName, name );
+            return CompletableFuture.completedFuture( null );
+        }
+
+        try
+        {
+            return operation.apply( cache );
+        }
+        catch ( RuntimeException e )
+        {
+            logger.error( "Failed to start operation: " + e.getMessage(), e );
+            return CompletableFuture.completedFuture( null );
+        }
+    }
+
+    protected Supplier<String> metricNameSupplier( String opName )
+    {
+        return metricNames.computeIfAbsent( opName, op -> {
+            String metricName = getMetricName( op );
+            return () -> metricName;
+        } );
+    }
+
     private <R> Supplier<R> executionFor(Function<BasicCache<K,V>,R> operation)
     {
         return () -> {
@@ -133,6 +174,65 @@ public class BasicCacheHandle<K,V>
         return doExecute( "put-with-expiration", cache -> cache.put( key, value, expiration, timeUnit ) );
     }
 
+    public void putAll( Map<? extends K, ? extends V> entries )
+    {
+        doExecute( "putAll", cache -> {
+            cache.putAll( entries );
+            return null;
+        } );
+    }
+
+    /**
+     * Get the entries of all the given keys which are present.
+     */
+    public Map<K, V> getAll( Set<? extends K> keys )
+    {
+        return doExecute( "getAll", cache -> {
+            Map<K, V> result = new HashMap<>( keys.size() );
+            keys.forEach( key -> {
+                V value = cache.get( key );
+                if ( value != null )
+                {
+                    result.put( key, value );
+                }
+            } );
+            return result;
+        } );
+    }
+
+    /**
+     * Remove all the given keys, issuing the removals concurrently and waiting for them all.
+     */
+    public void removeAll( Collection<? extends K> keys )
+    {
+        doExecute( "removeAll", cache -> {
+            CompletableFuture<?>[] removals =
+                    keys.stream().map( cache::removeAsync ).toArray( CompletableFuture[]::new );
+            CompletableFuture.allOf( removals ).join();
+            return null;
+        } );
+    }
+
+    public CompletableFuture<V> getAsync( K key )
+    {
+        return doExecuteAsync( "getAsync", cache -> cache.getAsync( key ) );
+    }
+
+    public CompletableFuture<V> putAsync( K key, V value )
+    {
+        return doExecuteAsync( "putAsync", cache -> cache.putAsync( key, value ) );
+    }
+
+    public CompletableFuture<Void> putAllAsync( Map<? extends K, ? extends V> entries )
+    {
+        return doExecuteAsync( "putAllAsync", cache -> cache.putAllAsync( entries ) );
+    }
+
+    public CompletableFuture<V> removeAsync( K key )
+    {
+        return doExecuteAsync( "removeAsync", cache -> cache.removeAsync( key ) );
+    }
+
     public V putIfAbsent( K key, V value )
     {
         return doExecute( "putIfAbsent", ( c ) -> c.putIfAbsent( key, value ) );
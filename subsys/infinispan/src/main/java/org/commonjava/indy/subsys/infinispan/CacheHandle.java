@@ -26,6 +26,8 @@ import javax.transaction.HeuristicRollbackException;
 import javax.transaction.NotSupportedException;
 import javax.transaction.RollbackException;
 import javax.transaction.SystemException;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -56,6 +58,12 @@ public class CacheHandle<K,V> extends BasicCacheHandle<K,V>
         return (Cache) this.cache;
     }
 
+    @Override
+    public Map<K, V> getAll( Set<? extends K> keys )
+    {
+        return doExecuteCache( "getAll", c -> c.getAdvancedCache().getAll( keys ) );
+    }
+
     public <R> R executeCache( Function<Cache<K, V>, R> operation )
     {
         return doExecuteCache( "execute", operation );
@@ -76,7 +84,7 @@ public class CacheHandle<K,V> extends BasicCacheHandle<K,V>
         Supplier<R> execution = executionFor( operation );
         if ( metricsManager != null )
         {
-            return metricsManager.wrapWithStandardMetrics( execution, () -> getMetricName( metricName ) );
+            return metricsManager.wrapWithStandardMetrics( execution, metricNameSupplier( metricName ) );
         }
 
         return execution.get();
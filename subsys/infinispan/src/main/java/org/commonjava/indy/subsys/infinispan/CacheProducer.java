@@ -31,6 +31,8 @@ import org.infinispan.Cache;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.client.hotrod.RemoteCacheManager;
 import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.client.hotrod.configuration.NearCacheConfigurationBuilder;
+import org.infinispan.client.hotrod.configuration.NearCacheMode;
 import org.infinispan.commons.marshall.MarshallableTypeHints;
 import org.infinispan.configuration.ConfigurationManager;
 import org.infinispan.configuration.cache.Configuration;
@@ -57,6 +59,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.commonjava.indy.metrics.IndyMetricsConstants.getSupername;
 import static org.commonjava.indy.subsys.infinispan.metrics.IspnCheckRegistrySet.INDY_METRIC_ISPN;
 
@@ -124,6 +127,19 @@ public class CacheProducer
 
         ConfigurationBuilder builder = new ConfigurationBuilder();
         builder.addServer().host( remoteConfiguration.getRemoteServer() ).port( remoteConfiguration.getHotrodPort() );
+        if ( remoteConfiguration.getNearCacheMaxEntries() > 0 )
+        {
+            // entries are invalidated by the server when changed elsewhere, so reads can be served locally
+            NearCacheConfigurationBuilder nearCache = builder.nearCache()
+                                                             .mode( NearCacheMode.INVALIDATED )
+                                                             .maxEntries( remoteConfiguration.getNearCacheMaxEntries() );
+            if ( isNotBlank( remoteConfiguration.getNearCachePattern() ) )
+            {
+                nearCache.cacheNamePattern( remoteConfiguration.getNearCachePattern() );
+            }
+            logger.info( "Infinispan remote near cache enabled, max entries: {}, pattern: {}",
+                         remoteConfiguration.getNearCacheMaxEntries(), remoteConfiguration.getNearCachePattern() );
+        }
         remoteCacheManager = new RemoteCacheManager( builder.build() );
         logger.info( "Infinispan remote cache manager started." );
     }
@@ -18,6 +18,9 @@ package org.commonjava.indy.subsys.infinispan;
 import org.commonjava.indy.metrics.IndyMetricsManager;
 import org.infinispan.client.hotrod.RemoteCache;
 
+import java.util.Map;
+import java.util.Set;
+
 import static com.codahale.metrics.MetricRegistry.name;
 
 public class RemoteCacheHandle<K,V> extends BasicCacheHandle<K, V>
@@ -33,6 +36,12 @@ public class RemoteCacheHandle<K,V> extends BasicCacheHandle<K, V>
         this( named, cache, null, null );
     }
 
+    @Override
+    public Map<K, V> getAll( Set<? extends K> keys )
+    {
+        return doExecute( "getAll", c -> ( (RemoteCache<K, V>) c ).getAll( keys ) );
+    }
+
     @Override
     protected String getMetricName( String opName )
     {
@@ -43,6 +43,10 @@ public class ISPNRemoteConfiguration
 
     private String remotePatterns;
 
+    private Integer nearCacheMaxEntries;
+
+    private String nearCachePattern;
+
     public ISPNRemoteConfiguration()
     {
     }
@@ -91,6 +95,35 @@ public class ISPNRemoteConfiguration
         this.remotePatterns = remotePatterns;
     }
 
+    /**
+     * Entries of each remote cache kept in a client-side near cache, which the server invalidates on changes. 0 (the
+     * default) disables the near cache.
+     */
+    public int getNearCacheMaxEntries()
+    {
+        return nearCacheMaxEntries == null ? 0 : nearCacheMaxEntries;
+    }
+
+    @ConfigName( "near.cache.max.entries" )
+    public void setNearCacheMaxEntries( Integer nearCacheMaxEntries )
+    {
+        this.nearCacheMaxEntries = nearCacheMaxEntries;
+    }
+
+    /**
+     * Regex of the remote cache names to near-cache; all remote caches if not set.
+     */
+    public String getNearCachePattern()
+    {
+        return nearCachePattern;
+    }
+
+    @ConfigName( "near.cache.pattern" )
+    public void setNearCachePattern( String nearCachePattern )
+    {
+        this.nearCachePattern = nearCachePattern;
+    }
+
     // utils
 
     public boolean isRemoteCache( String cacheName )
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.subsys.infinispan;
+
+import org.infinispan.Cache;
+import org.infinispan.commons.api.BasicCache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class BasicCacheHandleTest
+{
+    private DefaultCacheManager cacheManager;
+
+    private Cache<String, String> cache;
+
+    @Before
+    public void setup()
+    {
+        cacheManager = new DefaultCacheManager( new ConfigurationBuilder().simpleCache( true ).build() );
+        cache = cacheManager.getCache( "test", true );
+    }
+
+    @After
+    public void teardown()
+    {
+        cacheManager.stop();
+    }
+
+    @Test
+    public void bulkOperationsOnEmbeddedCache()
+    {
+        CacheHandle<String, String> handle = new CacheHandle<>( "test", cache );
+        handle.putAll( entries( "a", "b", "c" ) );
+
+        assertThat( handle.getAll( new HashSet<>( Arrays.asList( "a", "c", "missing" ) ) ),
+                    equalTo( entries( "a", "c" ) ) );
+
+        handle.removeAll( Arrays.asList( "a", "b", "missing" ) );
+        assertThat( new HashSet<>( cache.keySet() ), equalTo( new HashSet<>( Arrays.asList( "c" ) ) ) );
+    }
+
+    @Test
+    public void bulkOperationsThroughBasicCache()
+    {
+        BasicCacheHandle<String, String> handle = new BasicCacheHandle<>( "test", cache );
+        handle.putAll( entries( "a", "b", "c" ) );
+
+        assertThat( handle.getAll( new HashSet<>( Arrays.asList( "b", "missing" ) ) ), equalTo( entries( "b" ) ) );
+
+        handle.removeAll( Arrays.asList( "a", "b", "c" ) );
+        assertThat( cache.isEmpty(), equalTo( true ) );
+    }
+
+    @Test
+    public void asyncOperationsComplete()
+            throws Exception
+    {
+        BasicCacheHandle<String, String> handle = new BasicCacheHandle<>( "test", cache );
+
+        handle.putAsync( "a", "value-a" ).get( 5, TimeUnit.SECONDS );
+        handle.putAllAsync( entries( "b" ) ).get( 5, TimeUnit.SECONDS );
+        assertThat( handle.getAsync( "a" ).get( 5, TimeUnit.SECONDS ), equalTo( "value-a" ) );
+        assertThat( handle.removeAsync( "b" ).get( 5, TimeUnit.SECONDS ), equalTo( "value-b" ) );
+        assertThat( new HashSet<>( cache.keySet() ), equalTo( new HashSet<>( Arrays.asList( "a" ) ) ) );
+    }
+
+    @Test
+    public void failedRemovalDoesNotStopTheOthers()
+    {
+        cache.putAll( entries( "a", "poison", "c" ) );
+        BasicCacheHandle<String, String> handle = new BasicCacheHandle<>( "test", failingRemovalOf( "poison" ) );
+
+        // the failure is logged, as for all handle operations
+        handle.removeAll( Arrays.asList( "a", "poison", "c" ) );
+
+        assertThat( new HashSet<>( cache.keySet() ), equalTo( new HashSet<>( Arrays.asList( "poison" ) ) ) );
+    }
+
+    @Test
+    public void stoppedHandleSkipsOperations()
+            throws Exception
+    {
+        cache.putAll( entries( "a" ) );
+        BasicCacheHandle<String, String> handle = new BasicCacheHandle<>( "test", cache );
+        handle.stop();
+
+        assertThat( handle.getAsync( "a" ).get( 5, TimeUnit.SECONDS ), nullValue() );
+        assertThat( handle.getAll( new HashSet<>( Arrays.asList( "a" ) ) ), nullValue() );
+        handle.removeAll( Arrays.asList( "a" ) );
+        assertThat( cache.containsKey( "a" ), equalTo( true ) );
+    }
+
+    private static Map<String, String> entries( final String... keys )
+    {
+        Map<String, String> entries = new HashMap<>();
+        for ( String key : keys )
+        {
+            entries.put( key, "value-" + key );
+        }
+
+        return entries;
+    }
+
+    /**
+     * The test cache, except that asynchronous removal of the given key fails.
+     */
+    @SuppressWarnings( "unchecked" )
+    private BasicCache<String, String> failingRemovalOf( final String poison )
+    {
+        return (BasicCache<String, String>) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] { BasicCache.class }, ( proxy, method, args ) -> {
+                    if ( "removeAsync".equals( method.getName() ) && args.length == 1 && poison.equals( args[0] ) )
+                    {
+                        CompletableFuture<String> failed = new CompletableFuture<>();
+                        failed.completeExceptionally( new IllegalStateException( "Cannot remove: " + poison ) );
+                        return failed;
+                    }
+
+                    try
+                    {
+                        return method.invoke( cache, args );
+                    }
+                    catch ( InvocationTargetException e )
+                    {
+                        throw e.getCause();
+                    }
+                } );
+    }
+}
@@ -15,9 +15,13 @@
  */
 package org.commonjava.indy.subsys.kafka;
 
-import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
-import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.commonjava.cdi.util.weft.ExecutorConfig;
+import org.commonjava.cdi.util.weft.NamedThreadFactory;
+import org.commonjava.cdi.util.weft.WeftManaged;
+import org.commonjava.indy.metrics.IndyMetricsManager;
 import org.commonjava.indy.subsys.kafka.conf.KafkaConfig;
 import org.commonjava.indy.subsys.kafka.util.LogbackFormatter;
 import org.slf4j.Logger;
@@ -30,39 +34,55 @@ import javax.inject.Inject;
 import java.io.IOException;
 import java.util.Properties;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.function.Consumer;
 
+/**
+ * Publishes messages to Kafka through a bounded {@link KafkaPublishPipeline}, so request threads never wait on the
+ * broker unless they ask to. Queue size, overflow policy and batching come from the publisher.* keys of
+ * {@link KafkaConfig}.
+ */
 @ApplicationScoped
 public class IndyKafkaProducer
 {
+    private static final String PUBLISHER_POOL = "kafka-publisher";
+
     private final Logger logger = LoggerFactory.getLogger( this.getClass() );
 
     @Inject
     private KafkaConfig config;
 
-    private KafkaProducer kafkaProducer;
+    @Inject
+    private IndyMetricsManager metricsManager;
+
+    @Inject
+    @WeftManaged
+    @ExecutorConfig( named = PUBLISHER_POOL, threads = 1, priority = 6, daemon = true )
+    private ExecutorService publisherExecutor;
+
+    private boolean ownsPublisherExecutor;
 
-    private final Consumer<Exception> exceptionHandler = ( e ) -> logger.error( "Send to Kafka failed", e );
+    private KafkaPublishPipeline pipeline;
 
-    private final Callback callback = ( metadata, exception ) ->
+    public IndyKafkaProducer()
     {
-        if ( exception != null )
-        {
-            exceptionHandler.accept( exception );
-        }
-        else
-        {
-            logger.trace( "Message sent to Kafka. Partition:{}, timestamp {}.", metadata.partition(),
-                          metadata.timestamp() );
-        }
-    };
+    }
 
     public IndyKafkaProducer( Properties properties )
     {
-        this.kafkaProducer = new KafkaProducer<>( properties );
+        this( new KafkaProducer<>( properties ), new KafkaConfig() );
+    }
+
+    public IndyKafkaProducer( Producer<String, String> producer, KafkaConfig config )
+    {
+        this.config = config;
+        this.publisherExecutor = Executors.newSingleThreadExecutor(
+                new NamedThreadFactory( PUBLISHER_POOL, true, Thread.NORM_PRIORITY ) );
+        this.ownsPublisherExecutor = true;
+        startPipeline( producer );
     }
 
     @PostConstruct
@@ -70,15 +90,23 @@ public class IndyKafkaProducer
     {
         if ( config.isEnabled() )
         {
-            Properties props = new Properties();
-            props.putAll( config.getConfiguration() );
-            kafkaProducer = new KafkaProducer<>( props );
+            startPipeline( new KafkaProducer<>( config.getProducerProperties() ) );
         }
     }
 
+    private void startPipeline( Producer<String, String> producer )
+    {
+        pipeline = new KafkaPublishPipeline( producer, config.getPublisherQueueSize(), config.getPublisherOverflow(),
+                                             config.getPublisherBlockTimeoutMillis(),
+                                             config.getPublisherBatchSize(), config.getPublisherLingerMillis(),
+                                             config.getPublisherSpillDir(), metricsManager, publisherExecutor );
+        pipeline.start();
+    }
+
     /**
-     * Non-blocking send. The message will not be really available to consumers until flush()
-     * or close() is called, or until another blocking send is called.
+     * Non-blocking send. The message is queued for the publisher thread; if the queue is full, the configured
+     * overflow policy applies. The message will not be really available to consumers until it is sent in a batch,
+     * or until flush() or close() is called.
      */
     public void send( String topic, String message ) throws IOException
     {
@@ -90,12 +118,15 @@ public class IndyKafkaProducer
      */
     public void send( String topic, String message, LogbackFormatter formatter ) throws IOException
     {
-        doKafkaSend( topic, message, formatter );
+        if ( pipeline != null )
+        {
+            pipeline.publish( topic, format( message, formatter ) );
+        }
     }
 
     /**
      * Blocking send. The message will be available to consumers immediately. Wait for at most the given time
-     * for the operation to complete.
+     * for the operation to complete, including any wait for room in the publish queue.
      */
     public void send( String topic, String message, long timeoutMillis )
                     throws IOException, InterruptedException, ExecutionException, TimeoutException
@@ -109,24 +140,19 @@ public class IndyKafkaProducer
     public void send( String topic, String message, LogbackFormatter formatter, long timeoutMillis )
                     throws IOException, InterruptedException, ExecutionException, TimeoutException
     {
-        Future future = doKafkaSend( topic, message, formatter );
-        if ( future != null )
+        if ( pipeline != null )
         {
-            future.get( timeoutMillis, TimeUnit.MILLISECONDS );
+            long start = System.nanoTime();
+            Future<RecordMetadata> future = pipeline.publish( topic, format( message, formatter ), timeoutMillis );
+
+            long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+            future.get( Math.max( timeoutMillis - elapsed, 0 ), TimeUnit.MILLISECONDS );
         }
     }
 
-    //
-    private Future doKafkaSend( String topic, String message, LogbackFormatter formatter ) throws IOException
+    private String format( String message, LogbackFormatter formatter ) throws IOException
     {
-        if ( kafkaProducer != null )
-        {
-            ProducerRecord<String, String> producerRecord =
-                            new ProducerRecord<>( topic, formatter != null ? formatter.format( message ) : message );
-
-            return kafkaProducer.send( producerRecord, callback );
-        }
-        return null;
+        return formatter != null ? formatter.format( message ) : message;
     }
 
     /**
@@ -134,19 +160,31 @@ public class IndyKafkaProducer
      */
     public void flush()
     {
-        if ( kafkaProducer != null )
+        if ( pipeline != null )
         {
-            kafkaProducer.flush();
+            try
+            {
+                pipeline.flush();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
     @PreDestroy
     public void close() throws IOException
     {
-        if ( kafkaProducer != null )
+        if ( pipeline != null )
         {
             logger.info( "Closing {}", this.getClass() );
-            kafkaProducer.close();
+            pipeline.close();
+        }
+
+        if ( ownsPublisherExecutor )
+        {
+            publisherExecutor.shutdown();
         }
     }
 
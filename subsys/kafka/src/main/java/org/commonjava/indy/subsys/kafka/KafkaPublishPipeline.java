@@ -0,0 +1,745 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.subsys.kafka;
+
+import com.codahale.metrics.Gauge;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.commonjava.indy.metrics.IndyMetricsManager;
+import org.commonjava.indy.subsys.kafka.conf.KafkaConfig.OverflowPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Bounded, asynchronous front end for a Kafka {@link Producer}. Callers append to a fixed-size queue and return; a
+ * single publisher task, running on the given executor for the life of the pipeline, drains it in batches of up to batchSize messages, waiting up to the linger time for a batch
+ * to fill, and hands each batch to the producer. When the queue is full, the {@link OverflowPolicy} decides whether a
+ * caller waits, evicts the oldest message, or spills the message to a local file that is replayed once the queue has
+ * drained. Spilled messages may therefore be published after newer ones; spill files left at shutdown are replayed on
+ * the next start.
+ */
+public class KafkaPublishPipeline
+{
+    private static final String SPILL_FILE = "kafka-spill.dat";
+
+    private static final String REPLAY_SUFFIX = ".replay";
+
+    private static final long IDLE_CHECK_MILLIS = 100;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Producer<String, String> producer;
+
+    private final int capacity;
+
+    private final OverflowPolicy overflow;
+
+    private final long blockTimeoutMillis;
+
+    private final int batchSize;
+
+    private final long lingerNanos;
+
+    private final File spillDir;
+
+    private final IndyMetricsManager metricsManager;
+
+    private final ArrayDeque<PendingRecord> queue;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Condition idle = lock.newCondition();
+
+    private boolean sending;
+
+    private volatile boolean running;
+
+    private volatile boolean spillPending;
+
+    private final ExecutorService publisherExecutor;
+
+    private Future<?> publisher;
+
+    private final Object spillLock = new Object();
+
+    private DataOutputStream spillOut;
+
+    private final Map<String, TopicStats> topics = new ConcurrentHashMap<>();
+
+    private final AtomicLong spilledPending = new AtomicLong();
+
+    private final AtomicLong batches = new AtomicLong();
+
+    private final AtomicLong batchedRecords = new AtomicLong();
+
+    private final AtomicLong lastBatchSize = new AtomicLong();
+
+    public KafkaPublishPipeline( final Producer<String, String> producer, final int capacity,
+                                 final OverflowPolicy overflow, final long blockTimeoutMillis, final int batchSize,
+                                 final long lingerMillis, final File spillDir,
+                                 final IndyMetricsManager metricsManager, final ExecutorService publisherExecutor )
+    {
+        this.producer = producer;
+        this.capacity = Math.max( capacity, 1 );
+        this.overflow = overflow;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.batchSize = Math.max( batchSize, 1 );
+        this.lingerNanos = MILLISECONDS.toNanos( lingerMillis );
+        this.spillDir = spillDir;
+        this.metricsManager = metricsManager;
+        this.publisherExecutor = publisherExecutor;
+        this.queue = new ArrayDeque<>( this.capacity );
+    }
+
+    public synchronized void start()
+    {
+        if ( running )
+        {
+            return;
+        }
+
+        if ( spillDir != null && spillDir.isDirectory() )
+        {
+            String[] leftover = spillDir.list( ( dir, name ) -> name.startsWith( SPILL_FILE ) );
+            if ( leftover != null && leftover.length > 0 )
+            {
+                logger.info( "Found {} Kafka spill file(s) in: {}; they will be replayed", leftover.length,
+                             spillDir );
+                spillPending = true;
+            }
+        }
+
+        if ( metricsManager != null )
+        {
+            Map<String, Gauge<Long>> gauges = new HashMap<>();
+            gauges.put( "queueDepth", () -> (long) getQueueDepth() );
+            gauges.put( "spilledPending", spilledPending::get );
+            gauges.put( "batches", batches::get );
+            gauges.put( "lastBatchSize", lastBatchSize::get );
+            gauges.put( "meanBatchSize", () -> {
+                long b = batches.get();
+                return b == 0 ? 0 : batchedRecords.get() / b;
+            } );
+            metricsManager.addGauges( getClass(), "publisher", gauges );
+        }
+
+        running = true;
+        publisher = publisherExecutor.submit( this::drain );
+    }
+
+    /**
+     * Queue a message without waiting for it to be sent. If the queue is full, the overflow policy applies.
+     *
+     * @return false if the message was dropped
+     */
+    public boolean publish( final String topic, final String message )
+    {
+        try
+        {
+            return enqueue( new PendingRecord( topic, message, null ), overflow, blockTimeoutMillis );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            stats( topic ).dropped.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Queue a message, waiting up to the given time for room in the queue whatever the overflow policy is.
+     *
+     * @return a future that completes when Kafka acknowledges the message
+     * @throws TimeoutException if the queue stayed full for the whole timeout
+     */
+    public Future<RecordMetadata> publish( final String topic, final String message, final long timeoutMillis )
+            throws InterruptedException, TimeoutException
+    {
+        PendingRecord record = new PendingRecord( topic, message, new CompletableFuture<>() );
+        if ( !enqueue( record, OverflowPolicy.block, timeoutMillis ) )
+        {
+            throw new TimeoutException( "Kafka publish queue stayed full for " + timeoutMillis + "ms" );
+        }
+        return record.ack;
+    }
+
+    /**
+     * Wait until everything queued or spilled so far has been handed to the producer, then flush the producer.
+     */
+    public void flush()
+            throws InterruptedException
+    {
+        lock.lock();
+        try
+        {
+            while ( ( sending || !queue.isEmpty() || spillPending ) && running )
+            {
+                idle.await( IDLE_CHECK_MILLIS, MILLISECONDS );
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        producer.flush();
+    }
+
+    /**
+     * Stop the publisher loop once it has sent whatever is still queued, and close the producer. Spill files that
+     * weren't replayed yet stay on disk for the next start.
+     */
+    public void close()
+    {
+        synchronized ( this )
+        {
+            running = false;
+        }
+
+        lock.lock();
+        try
+        {
+            notEmpty.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        if ( publisher != null )
+        {
+            try
+            {
+                publisher.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch ( ExecutionException e )
+            {
+                logger.error( "Kafka publisher failed", e.getCause() );
+            }
+        }
+
+        synchronized ( spillLock )
+        {
+            closeSpill();
+        }
+
+        producer.flush();
+        producer.close();
+    }
+
+    public int getQueueDepth()
+    {
+        lock.lock();
+        try
+        {
+            return queue.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public long getBatches()
+    {
+        return batches.get();
+    }
+
+    public long getSpilledPending()
+    {
+        return spilledPending.get();
+    }
+
+    public long getSent( final String topic )
+    {
+        TopicStats stats = topics.get( topic );
+        return stats == null ? 0 : stats.sent.get();
+    }
+
+    public long getDropped( final String topic )
+    {
+        TopicStats stats = topics.get( topic );
+        return stats == null ? 0 : stats.dropped.get();
+    }
+
+    public long getSpilled( final String topic )
+    {
+        TopicStats stats = topics.get( topic );
+        return stats == null ? 0 : stats.spilled.get();
+    }
+
+    public long getFailed( final String topic )
+    {
+        TopicStats stats = topics.get( topic );
+        return stats == null ? 0 : stats.failed.get();
+    }
+
+    private boolean enqueue( final PendingRecord record, final OverflowPolicy policy, final long timeoutMillis )
+            throws InterruptedException
+    {
+        TopicStats stats = stats( record.topic );
+        PendingRecord evicted = null;
+        boolean spill = false;
+
+        lock.lock();
+        try
+        {
+            long nanos = MILLISECONDS.toNanos( timeoutMillis );
+            while ( queue.size() >= capacity )
+            {
+                if ( policy == OverflowPolicy.drop_oldest )
+                {
+                    evicted = queue.pollFirst();
+                    break;
+                }
+                else if ( policy == OverflowPolicy.spill && spillDir != null )
+                {
+                    spill = true;
+                    break;
+                }
+                else if ( nanos <= 0 )
+                {
+                    stats.dropped.incrementAndGet();
+                    logger.debug( "Kafka publish queue is full; dropping message for topic: {}", record.topic );
+                    return false;
+                }
+
+                nanos = notFull.awaitNanos( nanos );
+            }
+
+            if ( !spill )
+            {
+                queue.addLast( record );
+                stats.enqueued.incrementAndGet();
+
+                int size = queue.size();
+                if ( size == 1 || size >= batchSize )
+                {
+                    notEmpty.signal();
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        if ( evicted != null )
+        {
+            stats( evicted.topic ).dropped.incrementAndGet();
+            if ( evicted.ack != null )
+            {
+                evicted.ack.completeExceptionally(
+                        new IOException( "Evicted from full Kafka publish queue before it was sent" ) );
+            }
+        }
+
+        return !spill || spill( record, stats );
+    }
+
+    private boolean spill( final PendingRecord record, final TopicStats stats )
+    {
+        synchronized ( spillLock )
+        {
+            try
+            {
+                if ( spillOut == null )
+                {
+                    spillDir.mkdirs();
+                    spillOut = new DataOutputStream( new BufferedOutputStream(
+                            new FileOutputStream( new File( spillDir, SPILL_FILE ), true ) ) );
+                }
+
+                byte[] data = record.message.getBytes( UTF_8 );
+                spillOut.writeUTF( record.topic );
+                spillOut.writeInt( data.length );
+                spillOut.write( data );
+                spillOut.flush();
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Failed to spill Kafka message for topic: {} to: {}. Dropping it. Reason: {}",
+                             record.topic, spillDir, e.getMessage() );
+                stats.dropped.incrementAndGet();
+                return false;
+            }
+
+            spillPending = true;
+        }
+
+        stats.spilled.incrementAndGet();
+        spilledPending.incrementAndGet();
+
+        // the publisher may have drained the queue and gone idle before spillPending was set
+        lock.lock();
+        try
+        {
+            notEmpty.signal();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    private void drain()
+    {
+        List<PendingRecord> batch = new ArrayList<>( batchSize );
+        boolean more = true;
+        while ( more )
+        {
+            try
+            {
+                more = takeBatch( batch );
+            }
+            catch ( InterruptedException e )
+            {
+                logger.warn( "Kafka publisher interrupted; {} message(s) still queued", getQueueDepth() );
+                more = false;
+            }
+
+            try
+            {
+                if ( !batch.isEmpty() )
+                {
+                    sendBatch( batch );
+                    batch.clear();
+                }
+                else if ( more && spillPending )
+                {
+                    replaySpill();
+                }
+            }
+            catch ( RuntimeException e )
+            {
+                logger.error( "Kafka publisher failed to send a batch", e );
+            }
+            finally
+            {
+                finishBatch();
+            }
+        }
+
+        logger.debug( "Kafka publisher stopped" );
+    }
+
+    /**
+     * Wait for the first queued message, then up to the linger time for a full batch. Returns with an empty batch when
+     * the queue is empty but spilled messages are waiting, and false when the pipeline is stopped and fully drained.
+     */
+    private boolean takeBatch( final List<PendingRecord> batch )
+            throws InterruptedException
+    {
+        lock.lock();
+        try
+        {
+            while ( queue.isEmpty() )
+            {
+                if ( !running )
+                {
+                    return false;
+                }
+
+                if ( spillPending )
+                {
+                    sending = true;
+                    return true;
+                }
+
+                notEmpty.await();
+            }
+
+            long nanos = lingerNanos;
+            while ( queue.size() < batchSize && nanos > 0 && running )
+            {
+                nanos = notEmpty.awaitNanos( nanos );
+            }
+
+            while ( batch.size() < batchSize && !queue.isEmpty() )
+            {
+                batch.add( queue.pollFirst() );
+            }
+
+            sending = true;
+            notFull.signalAll();
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void finishBatch()
+    {
+        lock.lock();
+        try
+        {
+            sending = false;
+            if ( queue.isEmpty() && !spillPending )
+            {
+                idle.signalAll();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void sendBatch( final List<PendingRecord> batch )
+    {
+        for ( PendingRecord record : batch )
+        {
+            try
+            {
+                producer.send( new ProducerRecord<>( record.topic, record.message ),
+                               ( metadata, exception ) -> complete( record, metadata, exception ) );
+            }
+            catch ( RuntimeException e )
+            {
+                complete( record, null, e );
+            }
+        }
+
+        batches.incrementAndGet();
+        batchedRecords.addAndGet( batch.size() );
+        lastBatchSize.set( batch.size() );
+    }
+
+    private void complete( final PendingRecord record, final RecordMetadata metadata, final Exception exception )
+    {
+        TopicStats stats = stats( record.topic );
+        if ( exception != null )
+        {
+            stats.failed.incrementAndGet();
+            logger.error( "Send to Kafka failed", exception );
+            if ( record.ack != null )
+            {
+                record.ack.completeExceptionally( exception );
+            }
+        }
+        else
+        {
+            stats.sent.incrementAndGet();
+            stats.latencyNanos.addAndGet( System.nanoTime() - record.enqueuedNanos );
+            logger.trace( "Message sent to Kafka. Partition:{}, timestamp {}.", metadata.partition(),
+                          metadata.timestamp() );
+            if ( record.ack != null )
+            {
+                record.ack.complete( metadata );
+            }
+        }
+    }
+
+    private void replaySpill()
+    {
+        File[] files;
+        synchronized ( spillLock )
+        {
+            closeSpill();
+
+            File spill = new File( spillDir, SPILL_FILE );
+            if ( spill.exists() && !spill.renameTo(
+                    new File( spillDir, SPILL_FILE + "." + System.currentTimeMillis() + REPLAY_SUFFIX ) ) )
+            {
+                logger.warn( "Failed to rotate Kafka spill file: {}; it will be replayed on the next start", spill );
+            }
+
+            spillPending = false;
+            files = spillDir.listFiles( ( dir, name ) -> name.endsWith( REPLAY_SUFFIX ) );
+        }
+
+        if ( files == null )
+        {
+            return;
+        }
+
+        Arrays.sort( files, Comparator.comparing( File::getName ) );
+        List<PendingRecord> batch = new ArrayList<>( batchSize );
+        for ( File file : files )
+        {
+            try (DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) ))
+            {
+                while ( true )
+                {
+                    String topic;
+                    try
+                    {
+                        topic = in.readUTF();
+                    }
+                    catch ( EOFException e )
+                    {
+                        break;
+                    }
+
+                    byte[] data = new byte[in.readInt()];
+                    in.readFully( data );
+                    batch.add( new PendingRecord( topic, new String( data, UTF_8 ), null ) );
+                    if ( batch.size() >= batchSize )
+                    {
+                        replayBatch( batch );
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Failed to read Kafka spill file: {}; replayed what could be read. Reason: {}", file,
+                             e.getMessage() );
+            }
+
+            replayBatch( batch );
+            if ( !file.delete() )
+            {
+                logger.warn( "Failed to delete replayed Kafka spill file: {}", file );
+            }
+        }
+    }
+
+    private void replayBatch( final List<PendingRecord> batch )
+    {
+        if ( !batch.isEmpty() )
+        {
+            sendBatch( batch );
+            spilledPending.updateAndGet( v -> Math.max( v - batch.size(), 0 ) );
+            batch.clear();
+        }
+    }
+
+    private void closeSpill()
+    {
+        if ( spillOut != null )
+        {
+            try
+            {
+                spillOut.close();
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Failed to close Kafka spill file in: {}. Reason: {}", spillDir, e.getMessage() );
+            }
+            spillOut = null;
+        }
+    }
+
+    private TopicStats stats( final String topic )
+    {
+        TopicStats stats = topics.get( topic );
+        if ( stats == null )
+        {
+            TopicStats created = new TopicStats();
+            stats = topics.putIfAbsent( topic, created );
+            if ( stats == null )
+            {
+                stats = created;
+                registerTopicGauges( topic, created );
+            }
+        }
+        return stats;
+    }
+
+    private void registerTopicGauges( final String topic, final TopicStats stats )
+    {
+        if ( metricsManager != null )
+        {
+            Map<String, Gauge<Long>> gauges = new HashMap<>();
+            gauges.put( "enqueued", stats.enqueued::get );
+            gauges.put( "sent", stats.sent::get );
+            gauges.put( "failed", stats.failed::get );
+            gauges.put( "dropped", stats.dropped::get );
+            gauges.put( "spilled", stats.spilled::get );
+            gauges.put( "meanSendLatencyMillis", () -> {
+                long sent = stats.sent.get();
+                return sent == 0 ? 0 : NANOSECONDS.toMillis( stats.latencyNanos.get() / sent );
+            } );
+            metricsManager.addGauges( getClass(), "publisher." + topic, gauges );
+        }
+    }
+
+    private static final class PendingRecord
+    {
+        private final String topic;
+
+        private final String message;
+
+        private final CompletableFuture<RecordMetadata> ack;
+
+        private final long enqueuedNanos = System.nanoTime();
+
+        private PendingRecord( final String topic, final String message,
+                               final CompletableFuture<RecordMetadata> ack )
+        {
+            this.topic = topic;
+            this.message = message;
+            this.ack = ack;
+        }
+    }
+
+    private static final class TopicStats
+    {
+        private final AtomicLong enqueued = new AtomicLong();
+
+        private final AtomicLong sent = new AtomicLong();
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private final AtomicLong dropped = new AtomicLong();
+
+        private final AtomicLong spilled = new AtomicLong();
+
+        private final AtomicLong latencyNanos = new AtomicLong();
+    }
+}
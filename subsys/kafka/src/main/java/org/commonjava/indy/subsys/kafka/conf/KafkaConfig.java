@@ -23,6 +23,8 @@ import org.commonjava.propulsor.config.section.MapSectionListener;
 import javax.enterprise.context.ApplicationScoped;
 import java.io.File;
 import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
 
 @SectionName( "kafka" )
 @ApplicationScoped
@@ -30,10 +32,61 @@ public class KafkaConfig extends MapSectionListener
         implements IndyConfigInfo
 {
 
+    private static final String ENABLED = "enabled";
+
+    private static final String PUBLISHER_PREFIX = "publisher.";
+
+    private static final String PUBLISHER_QUEUE_SIZE = PUBLISHER_PREFIX + "queue.size";
+
+    private static final String PUBLISHER_OVERFLOW = PUBLISHER_PREFIX + "overflow";
+
+    private static final String PUBLISHER_BLOCK_TIMEOUT_MILLIS = PUBLISHER_PREFIX + "block.timeout.millis";
+
+    private static final String PUBLISHER_BATCH_SIZE = PUBLISHER_PREFIX + "batch.size";
+
+    private static final String PUBLISHER_LINGER_MILLIS = PUBLISHER_PREFIX + "linger.millis";
+
+    private static final String PUBLISHER_SPILL_DIR = PUBLISHER_PREFIX + "spill.dir";
+
     private static final boolean DEFAULT_ENABLED = false;
 
+    public static final int DEFAULT_PUBLISHER_QUEUE_SIZE = 10000;
+
+    public static final OverflowPolicy DEFAULT_PUBLISHER_OVERFLOW = OverflowPolicy.block;
+
+    public static final long DEFAULT_PUBLISHER_BLOCK_TIMEOUT_MILLIS = 1000;
+
+    public static final int DEFAULT_PUBLISHER_BATCH_SIZE = 500;
+
+    public static final long DEFAULT_PUBLISHER_LINGER_MILLIS = 20;
+
+    /**
+     * What the publisher does with a non-blocking send when its queue is full.
+     */
+    public enum OverflowPolicy
+    {
+        /** wait up to publisher.block.timeout.millis for room, then drop the message */
+        block,
+        /** evict the oldest queued message to make room */
+        drop_oldest,
+        /** append the message to a file under publisher.spill.dir, to be sent once the queue drains */
+        spill
+    }
+
     private Boolean enabled;
 
+    private Integer publisherQueueSize;
+
+    private OverflowPolicy publisherOverflow;
+
+    private Long publisherBlockTimeoutMillis;
+
+    private Integer publisherBatchSize;
+
+    private Long publisherLingerMillis;
+
+    private File publisherSpillDir;
+
     public KafkaConfig()
     {
     }
@@ -43,14 +96,109 @@ public class KafkaConfig extends MapSectionListener
         return enabled == null ? DEFAULT_ENABLED : enabled;
     }
 
+    public int getPublisherQueueSize()
+    {
+        return publisherQueueSize == null ? DEFAULT_PUBLISHER_QUEUE_SIZE : publisherQueueSize;
+    }
+
+    public OverflowPolicy getPublisherOverflow()
+    {
+        return publisherOverflow == null ? DEFAULT_PUBLISHER_OVERFLOW : publisherOverflow;
+    }
+
+    public long getPublisherBlockTimeoutMillis()
+    {
+        return publisherBlockTimeoutMillis == null ?
+                DEFAULT_PUBLISHER_BLOCK_TIMEOUT_MILLIS :
+                publisherBlockTimeoutMillis;
+    }
+
+    public int getPublisherBatchSize()
+    {
+        return publisherBatchSize == null ? DEFAULT_PUBLISHER_BATCH_SIZE : publisherBatchSize;
+    }
+
+    public long getPublisherLingerMillis()
+    {
+        return publisherLingerMillis == null ? DEFAULT_PUBLISHER_LINGER_MILLIS : publisherLingerMillis;
+    }
+
+    public File getPublisherSpillDir()
+    {
+        return publisherSpillDir == null ?
+                new File( System.getProperty( "java.io.tmpdir" ), "indy-kafka-spill" ) :
+                publisherSpillDir;
+    }
+
+    /**
+     * The Kafka producer properties from this section, without Indy's own enabled / publisher.* keys.
+     */
+    public Properties getProducerProperties()
+    {
+        Properties props = new Properties();
+        for ( Map.Entry<String, String> e : getConfiguration().entrySet() )
+        {
+            if ( !ENABLED.equals( e.getKey() ) && !e.getKey().startsWith( PUBLISHER_PREFIX ) )
+            {
+                props.put( e.getKey(), e.getValue() );
+            }
+        }
+        return props;
+    }
+
     @Override
     public void sectionComplete(String name) throws ConfigurationException
     {
-        String s = getConfiguration().get( "enabled" );
+        Map<String, String> conf = getConfiguration();
+        String s = conf.get( ENABLED );
         if ( s != null)
         {
             this.enabled = Boolean.parseBoolean( s );
         }
+
+        try
+        {
+            s = conf.get( PUBLISHER_QUEUE_SIZE );
+            if ( s != null )
+            {
+                this.publisherQueueSize = Integer.parseInt( s.trim() );
+            }
+
+            s = conf.get( PUBLISHER_OVERFLOW );
+            if ( s != null )
+            {
+                this.publisherOverflow = OverflowPolicy.valueOf( s.trim().toLowerCase().replace( '-', '_' ) );
+            }
+
+            s = conf.get( PUBLISHER_BLOCK_TIMEOUT_MILLIS );
+            if ( s != null )
+            {
+                this.publisherBlockTimeoutMillis = Long.parseLong( s.trim() );
+            }
+
+            s = conf.get( PUBLISHER_BATCH_SIZE );
+            if ( s != null )
+            {
+                this.publisherBatchSize = Integer.parseInt( s.trim() );
+            }
+
+            s = conf.get( PUBLISHER_LINGER_MILLIS );
+            if ( s != null )
+            {
+                this.publisherLingerMillis = Long.parseLong( s.trim() );
+            }
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new ConfigurationException( "Invalid Kafka publisher setting in section: '{}'. Reason: {}", name,
+                                              e.getMessage() );
+        }
+
+        s = conf.get( PUBLISHER_SPILL_DIR );
+        if ( s != null && !s.trim().isEmpty() )
+        {
+            this.publisherSpillDir = new File( s.trim() );
+        }
     }
 
     @Override
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.subsys.kafka;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.commonjava.indy.subsys.kafka.conf.KafkaConfig.OverflowPolicy;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class KafkaPublishPipelineTest
+{
+    private static final String TOPIC = "test";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final MockProducer<String, String> producer =
+            new MockProducer<>( true, new StringSerializer(), new StringSerializer() );
+
+    private final ExecutorService publisherExecutor = Executors.newSingleThreadExecutor();
+
+    private KafkaPublishPipeline pipeline;
+
+    @After
+    public void stop()
+    {
+        if ( pipeline != null )
+        {
+            pipeline.close();
+        }
+        publisherExecutor.shutdownNow();
+    }
+
+    @Test
+    public void messagesAreSentInBatches()
+            throws Exception
+    {
+        pipeline = newPipeline( 100, OverflowPolicy.block, 5, null );
+        for ( int i = 0; i < 10; i++ )
+        {
+            pipeline.publish( TOPIC, "msg-" + i );
+        }
+
+        pipeline.start();
+        pipeline.flush();
+
+        assertThat( sentValues().size(), equalTo( 10 ) );
+        assertThat( sentValues().get( 0 ), equalTo( "msg-0" ) );
+        assertThat( pipeline.getBatches(), equalTo( 2L ) );
+        assertThat( pipeline.getSent( TOPIC ), equalTo( 10L ) );
+    }
+
+    @Test
+    public void dropOldestKeepsNewestMessages()
+            throws Exception
+    {
+        pipeline = newPipeline( 3, OverflowPolicy.drop_oldest, 10, null );
+        for ( int i = 0; i < 5; i++ )
+        {
+            pipeline.publish( TOPIC, "msg-" + i );
+        }
+
+        pipeline.start();
+        pipeline.flush();
+
+        assertThat( sentValues(), equalTo( Arrays.asList( "msg-2", "msg-3", "msg-4" ) ) );
+        assertThat( pipeline.getDropped( TOPIC ), equalTo( 2L ) );
+    }
+
+    @Test
+    public void spilledMessagesAreReplayedOnceQueueDrains()
+            throws Exception
+    {
+        File spillDir = temp.newFolder( "spill" );
+        pipeline = newPipeline( 2, OverflowPolicy.spill, 10, spillDir );
+        for ( int i = 0; i < 5; i++ )
+        {
+            pipeline.publish( TOPIC, "msg-" + i );
+        }
+
+        assertThat( pipeline.getSpilled( TOPIC ), equalTo( 3L ) );
+
+        pipeline.start();
+        pipeline.flush();
+
+        assertThat( sentValues(), equalTo( Arrays.asList( "msg-0", "msg-1", "msg-2", "msg-3", "msg-4" ) ) );
+        assertThat( pipeline.getSpilledPending(), equalTo( 0L ) );
+        assertThat( spillDir.list().length, equalTo( 0 ) );
+    }
+
+    @Test
+    public void spillLeftByPreviousRunIsReplayedOnStart()
+            throws Exception
+    {
+        File spillDir = temp.newFolder( "spill" );
+        KafkaPublishPipeline previous = newPipeline( 1, OverflowPolicy.spill, 10, spillDir );
+        previous.publish( TOPIC, "queued" );
+        previous.publish( TOPIC, "spilled" );
+
+        // the previous pipeline is never started or closed, as if the JVM had died
+        pipeline = newPipeline( 10, OverflowPolicy.spill, 10, spillDir );
+        pipeline.start();
+        pipeline.flush();
+
+        assertThat( sentValues(), equalTo( Arrays.asList( "spilled" ) ) );
+    }
+
+    @Test
+    public void blockingPublishTimesOutWhenQueueStaysFull()
+            throws Exception
+    {
+        pipeline = newPipeline( 1, OverflowPolicy.drop_oldest, 10, null );
+        pipeline.publish( TOPIC, "first" );
+
+        try
+        {
+            pipeline.publish( TOPIC, "second", 50 );
+            fail( "Expected the publish to time out" );
+        }
+        catch ( TimeoutException e )
+        {
+            assertThat( pipeline.getDropped( TOPIC ), equalTo( 1L ) );
+        }
+
+        pipeline.start();
+        pipeline.flush();
+
+        assertThat( sentValues(), equalTo( Arrays.asList( "first" ) ) );
+    }
+
+    private KafkaPublishPipeline newPipeline( final int capacity, final OverflowPolicy overflow, final int batchSize,
+                                              final File spillDir )
+    {
+        return new KafkaPublishPipeline( producer, capacity, overflow, 10, batchSize, 20, spillDir, null,
+                                         publisherExecutor );
+    }
+
+    private List<String> sentValues()
+    {
+        return producer.history().stream().map( ProducerRecord::value ).collect( Collectors.toList() );
+    }
+}
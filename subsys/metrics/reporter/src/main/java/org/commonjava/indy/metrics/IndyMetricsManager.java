@@ -370,7 +370,7 @@ public class IndyMetricsManager
         } );
     }
 
-    public void addGauges( Class<?> className, String method, Map<String, Gauge<Integer>> gauges )
+    public void addGauges( Class<?> className, String method, Map<String, ? extends Gauge<?>> gauges )
     {
         String defaultName = getDefaultName( className, method );
         gauges.forEach( ( k, v ) -> {
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.metrics.jvm;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
+import org.commonjava.indy.conf.ExecutionModeConfig;
+import org.commonjava.indy.metrics.MetricSetProvider;
+import org.commonjava.indy.metrics.conf.IndyMetricsConfig;
+import org.commonjava.indy.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Virtual thread metrics for [execution] mode=virtual. 'pinned' times the JFR jdk.VirtualThreadPinned events, i.e.
+ * virtual threads that blocked while pinned to their carrier thread (inside synchronized blocks or native frames) for
+ * at least pinning.threshold.millis; while pinned, they hold a carrier thread the same way a platform thread would.
+ * The JFR stream is opened through reflection, since Indy is built for Java 8.
+ */
+@ApplicationScoped
+public class VirtualThreadMetricSetProvider
+        implements MetricSetProvider
+{
+    private static final String VIRTUAL_THREADS = "jvm.virtual-threads";
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final Timer pinned = new Timer();
+
+    @Inject
+    private ExecutionModeConfig executionConfig;
+
+    @Inject
+    private IndyMetricsConfig metricsConfig;
+
+    private AutoCloseable pinningStream;
+
+    @Override
+    public void registerMetricSet( final MetricRegistry registry )
+    {
+        final boolean enabled = executionConfig.isVirtualThreads();
+        registry.register( name( metricsConfig.getNodePrefix(), VIRTUAL_THREADS ), (MetricSet) () -> {
+            final Map<String, Metric> metrics = new HashMap<>();
+            metrics.put( "supported", (Gauge<Integer>) () -> VirtualThreads.isSupported() ? 1 : 0 );
+            metrics.put( "enabled", (Gauge<Integer>) () -> enabled ? 1 : 0 );
+            metrics.put( "pinned", pinned );
+            return metrics;
+        } );
+
+        if ( enabled )
+        {
+            pinningStream = startPinningStream( Duration.ofMillis( executionConfig.getPinningThresholdMillis() ) );
+        }
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        if ( pinningStream != null )
+        {
+            try
+            {
+                pinningStream.close();
+            }
+            catch ( Exception e )
+            {
+                logger.debug( "Failed to close JFR stream: " + e.getMessage(), e );
+            }
+        }
+    }
+
+    private AutoCloseable startPinningStream( final Duration threshold )
+    {
+        try
+        {
+            final Class<?> streamClass = Class.forName( "jdk.jfr.consumer.RecordingStream" );
+            final Class<?> settingsClass = Class.forName( "jdk.jfr.EventSettings" );
+            final Method getDuration =
+                    Class.forName( "jdk.jfr.consumer.RecordedEvent" ).getMethod( "getDuration" );
+
+            final Object stream = streamClass.getConstructor().newInstance();
+            final Object settings = streamClass.getMethod( "enable", String.class ).invoke( stream, PINNED_EVENT );
+            settingsClass.getMethod( "withThreshold", Duration.class ).invoke( settings, threshold );
+            settingsClass.getMethod( "withStackTrace" ).invoke( settings );
+
+            final Consumer<Object> onPinned = event -> {
+                try
+                {
+                    final Duration duration = (Duration) getDuration.invoke( event );
+                    pinned.update( duration.toNanos(), TimeUnit.NANOSECONDS );
+                    logger.debug( "Virtual thread pinned for {}ms: {}", duration.toMillis(), event );
+                }
+                catch ( IllegalAccessException | InvocationTargetException e )
+                {
+                    logger.debug( "Cannot read pinning event: " + e.getMessage(), e );
+                }
+            };
+            streamClass.getMethod( "onEvent", String.class, Consumer.class ).invoke( stream, PINNED_EVENT, onPinned );
+            streamClass.getMethod( "startAsync" ).invoke( stream );
+
+            logger.info( "Recording virtual thread pinning of {}ms or longer", threshold.toMillis() );
+            return (AutoCloseable) stream;
+        }
+        catch ( ReflectiveOperationException | RuntimeException e )
+        {
+            logger.warn( "Cannot record virtual thread pinning (JFR streaming unavailable): {}", e.toString() );
+            return null;
+        }
+    }
+}
@@ -15,13 +15,15 @@
  */
 package org.commonjava.indy.subsys.prefetch;
 
+import com.codahale.metrics.Gauge;
 import org.apache.commons.lang.StringUtils;
-import org.commonjava.cdi.util.weft.Locker;
 import org.commonjava.indy.audit.ChangeSummary;
 import org.commonjava.indy.content.StoreResource;
 import org.commonjava.indy.data.IndyDataException;
 import org.commonjava.indy.data.StoreDataManager;
+import org.commonjava.indy.metrics.IndyMetricsManager;
 import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.model.core.StoreKey;
 import org.commonjava.indy.subsys.infinispan.CacheHandle;
 import org.commonjava.indy.subsys.prefetch.conf.PrefetchConfig;
 import org.commonjava.indy.subsys.prefetch.models.RescanablePath;
@@ -32,17 +34,35 @@ import org.commonjava.maven.galley.model.ConcreteResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.commonjava.indy.subsys.prefetch.RescanTimeUtils.*;
 
+/**
+ * Holds the remote repositories waiting for prefetch, and hands their paths out to the prefetch workers.
+ * <p>
+ * Repositories are indexed by {@link StoreKey} for de-duplication, and ordered in a priority heap by the round they
+ * were last served in, then by {@link PrefetchRepoComparator}. Each {@link #remove(int)} call serves the head of the
+ * heap a quantum of paths (its prefetch priority) and pushes it to the next round, so repositories are drained
+ * round-robin and weighted by priority instead of one at a time. Path lists are guarded per repository; only the heap
+ * itself is guarded by a short, shared lock. When {@link PrefetchConfig#getHostMaxConcurrent()} is set, repositories
+ * whose host already has that many paths in flight are skipped until the workers {@link #release(RemoteRepository)}
+ * them.
+ */
 @ApplicationScoped
 public class PrefetchFrontier
 {
@@ -58,177 +78,303 @@ public class PrefetchFrontier
     @Inject
     private StoreDataManager storeDataManager;
 
-    private final List<RemoteRepository> repoQueue = new ArrayList<>();
+    @Inject
+    private IndyMetricsManager metricsManager;
+
+    private final Map<StoreKey, RepoEntry> repoIndex = new ConcurrentHashMap<>();
+
+    private final PrefetchRepoComparator repoComparator = new PrefetchRepoComparator();
+
+    private final TreeSet<RepoEntry> repoHeap = new TreeSet<>( this::compareEntries );
+
+    private final ReentrantLock heapLock = new ReentrantLock();
+
+    private final Map<String, AtomicInteger> hostInFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong entryIds = new AtomicLong();
+
+    private long currentRound;
 
     private volatile boolean shouldSchedule = true;
 
-    // Use this volatile to avoid lock on hasMore calling
-    private volatile boolean hasMore = false;
+    // Counts the paths waiting in the frontier so that hasMore() never needs a lock
+    private final AtomicLong pendingPaths = new AtomicLong();
 
-    private final PrefetchRepoComparator repoComparator = new PrefetchRepoComparator();
+    private final AtomicLong scheduledPaths = new AtomicLong();
+
+    private final AtomicLong dequeuedPaths = new AtomicLong();
 
-    private final Locker<String> mutex = new Locker<>();
+    private final AtomicLong hostCapDeferrals = new AtomicLong();
 
-    private static final String MUTEX_KEY = "mutex";
+    private final AtomicLong heapLockWaitNanos = new AtomicLong();
 
     @Inject
     private Instance<ContentListBuilder> listBuilders;
 
+    protected PrefetchFrontier()
+    {
+    }
+
+    public PrefetchFrontier( final CacheHandle<RemoteRepository, List> resourceCache, final PrefetchConfig config,
+                             final StoreDataManager storeDataManager )
+    {
+        this.resourceCache = resourceCache;
+        this.config = config;
+        this.storeDataManager = storeDataManager;
+    }
+
+    @PostConstruct
+    public void registerMetrics()
+    {
+        if ( metricsManager != null )
+        {
+            Map<String, Gauge<Long>> gauges = new HashMap<>();
+            gauges.put( "scheduled", scheduledPaths::get );
+            gauges.put( "dequeued", dequeuedPaths::get );
+            gauges.put( "pending", pendingPaths::get );
+            gauges.put( "repos", () -> (long) repoIndex.size() );
+            gauges.put( "hostCapDeferrals", hostCapDeferrals::get );
+            gauges.put( "lockWaitMillis", () -> TimeUnit.NANOSECONDS.toMillis( heapLockWaitNanos.get() ) );
+            metricsManager.addGauges( getClass(), "frontier", gauges );
+        }
+    }
+
     void initRepoCache()
     {
-        lockAnd( t -> {
-            if ( !resourceCache.isEmpty() )
+        if ( !resourceCache.isEmpty() )
+        {
+            for ( RemoteRepository repo : resourceCache.execute( c -> new ArrayList<>( c.keySet() ) ) )
             {
-                for ( RemoteRepository repo : resourceCache.execute( c -> c.keySet() ) )
+                final RepoEntry entry = repoIndex.computeIfAbsent( repo.getKey(), k -> new RepoEntry( repo ) );
+                synchronized ( entry )
                 {
-                    if ( !repoQueue.contains( repo ) )
+                    List<RescanablePath> paths = resourceCache.get( repo );
+                    if ( paths != null && !paths.isEmpty() )
                     {
-                        repoQueue.add( repo );
+                        pendingPaths.addAndGet( paths.size() );
                     }
                 }
-                sortRepoQueue();
+                enqueue( entry, repo, false );
             }
-            hasMore = !repoQueue.isEmpty() && !resourceCache.isEmpty();
-            return null;
-        } );
+        }
     }
 
     public void scheduleRepo( final RemoteRepository repo, final List<RescanablePath> paths )
     {
-        if ( shouldSchedule )
+        if ( !shouldSchedule )
         {
-            lockAnd( t -> {
-                if ( !repoQueue.contains( repo ) )
+            return;
+        }
+
+        RepoEntry entry;
+        while ( true )
+        {
+            entry = repoIndex.computeIfAbsent( repo.getKey(), k -> new RepoEntry( repo ) );
+            synchronized ( entry )
+            {
+                if ( entry.retired )
                 {
-                    repoQueue.add( repo );
-                    sortRepoQueue();
+                    // removed from the index after we looked it up; schedule against a fresh entry
+                    continue;
                 }
 
+                entry.repo = repo;
                 List<RescanablePath> repoPaths = resourceCache.get( repo );
-
                 if ( repoPaths == null )
                 {
                     repoPaths = new ArrayList<>( paths.size() );
+                    repoPaths.addAll( paths );
                     resourceCache.put( repo, repoPaths );
                 }
-                repoPaths.addAll( paths );
-                hasMore = !repoQueue.isEmpty() && !resourceCache.isEmpty();
-                return null;
-            } );
+                else
+                {
+                    repoPaths.addAll( paths );
+                }
+                pendingPaths.addAndGet( paths.size() );
+                scheduledPaths.addAndGet( paths.size() );
+                break;
+            }
         }
+
+        enqueue( entry, repo, false );
     }
 
     public void rescheduleForRescan()
     {
-        if ( shouldSchedule && !hasMore )
+        if ( shouldSchedule && !hasMore() )
         {
-            lockAnd( t -> {
-                for ( RemoteRepository repo : repoQueue )
+            final List<RemoteRepository> repos = new ArrayList<>( repoIndex.size() );
+            repoIndex.values().forEach( e -> repos.add( e.repo ) );
+            repos.sort( repoComparator );
+
+            for ( RemoteRepository repo : repos )
+            {
+                if ( repo.isPrefetchRescan() )
                 {
-                    if ( repo.isPrefetchRescan() )
+                    String rescanTime = repo.getPrefetchRescanTimestamp();
+                    logger.trace( "repo's current rescan time: {}", rescanTime );
+                    if ( StringUtils.isBlank( rescanTime ) || isNowAfter( rescanTime ) )
                     {
-                        String rescanTime = repo.getPrefetchRescanTimestamp();
-                        logger.trace( "repo's current rescan time: {}", rescanTime );
-                        if ( StringUtils.isBlank( rescanTime ) || isNowAfter( rescanTime ) )
+                        repo.setPrefetchRescanTimestamp(
+                                getNextRescanTimeFromNow( config.getRescanIntervalSeconds() ) );
+                        try
                         {
-                            repo.setPrefetchRescanTimestamp(
-                                    getNextRescanTimeFromNow( config.getRescanIntervalSeconds() ) );
-                            try
-                            {
-                                // Will not send store update event to avoid recursive rescheduling
-                                storeDataManager.storeArtifactStore( repo, new ChangeSummary( ChangeSummary.SYSTEM_USER,
-                                                                                              "Update store for prefetch rescan update" ),
-                                                                     false, false, new EventMetadata() );
-                            }
-                            catch ( IndyDataException e )
-                            {
-                                logger.error( String.format( "Can not update store in prefetching rescan for repo: %s",
-                                                             repo ), e );
-                            }
-                            logger.trace( "Rescan time set. Repo's next rescan time: {}", repo.getPrefetchRescanTimestamp() );
-                            final boolean isScheduledRescan =
-                                    StringUtils.isNotBlank( rescanTime ) && isNowAfter( rescanTime );
-                            if ( isScheduledRescan )
-                            {
-                                List<RescanablePath> rootPaths = buildPaths( repo, true );
-                                logger.trace( "Schedule rescan enabled resources: repo: {}, paths {}", repo,
-                                              rootPaths );
-                                scheduleRepo( repo, rootPaths );
-                            }
+                            // Will not send store update event to avoid recursive rescheduling
+                            storeDataManager.storeArtifactStore( repo, new ChangeSummary( ChangeSummary.SYSTEM_USER,
+                                                                                          "Update store for prefetch rescan update" ),
+                                                                 false, false, new EventMetadata() );
+                        }
+                        catch ( IndyDataException e )
+                        {
+                            logger.error( String.format( "Can not update store in prefetching rescan for repo: %s",
+                                                         repo ), e );
+                        }
+                        logger.trace( "Rescan time set. Repo's next rescan time: {}", repo.getPrefetchRescanTimestamp() );
+                        final boolean isScheduledRescan =
+                                StringUtils.isNotBlank( rescanTime ) && isNowAfter( rescanTime );
+                        if ( isScheduledRescan )
+                        {
+                            List<RescanablePath> rootPaths = buildPaths( repo, true );
+                            logger.trace( "Schedule rescan enabled resources: repo: {}, paths {}", repo,
+                                          rootPaths );
+                            scheduleRepo( repo, rootPaths );
                         }
-                        break;
                     }
+                    break;
                 }
-
-                return null;
-            } );
+            }
         }
     }
 
+    /**
+     * Take up to size paths from the frontier, round-robin across the repositories in priority order. Every path
+     * returned here must be handed back with {@link #release(RemoteRepository)} once it has been processed.
+     */
     public Map<RemoteRepository, List<RescanableResourceWrapper>> remove( final int size )
     {
-        return lockAnd( t -> {
-            Map<RemoteRepository, List<RescanableResourceWrapper>> resources = new HashMap<>( 2 );
-            int removedSize = 0;
-            final List<RemoteRepository> repoQueueCopy = new ArrayList<>( repoQueue );
-            for ( RemoteRepository repo : repoQueueCopy )
+        final Map<RemoteRepository, List<RescanableResourceWrapper>> resources = new LinkedHashMap<>( 2 );
+        final List<RepoEntry> deferred = new ArrayList<>();
+        final int hostMax = config.getHostMaxConcurrent();
+        int removedSize = 0;
+
+        try
+        {
+            while ( removedSize < size )
             {
-                List<RescanablePath> paths = resourceCache.get( repo );
-                if ( paths != null )
+                final RepoEntry entry = poll();
+                if ( entry == null )
                 {
-                    List<RescanableResourceWrapper> res = new ArrayList<>( size );
-                    List<RescanablePath> pathsRemoved = new ArrayList<>( size );
-                    for ( RescanablePath path : paths )
+                    break;
+                }
+
+                final RemoteRepository repo;
+                boolean hasRemaining = false;
+                synchronized ( entry )
+                {
+                    repo = entry.repo;
+                    final List<RescanablePath> paths = resourceCache.get( repo );
+                    if ( paths == null || paths.isEmpty() )
+                    {
+                        retireIfIdle( entry );
+                        continue;
+                    }
+
+                    final Integer priority = repo.getPrefetchPriority();
+                    int quantum = Math.min( priority == null ? 1 : Math.max( 1, priority ), size - removedSize );
+                    quantum = Math.min( quantum, paths.size() );
+
+                    final AtomicInteger inFlight = hostMax > 0 ? hostCounter( repo ) : null;
+                    if ( inFlight != null )
+                    {
+                        final int available = hostMax - inFlight.get();
+                        if ( available <= 0 )
+                        {
+                            hostCapDeferrals.incrementAndGet();
+                            deferred.add( entry );
+                            continue;
+                        }
+                        quantum = Math.min( quantum, available );
+                    }
+
+                    final List<RescanablePath> head = paths.subList( 0, quantum );
+                    final List<RescanableResourceWrapper> res =
+                            resources.computeIfAbsent( repo, r -> new ArrayList<>( size ) );
+                    for ( RescanablePath path : head )
                     {
                         res.add( new RescanableResourceWrapper(
                                 new StoreResource( LocationUtils.toLocation( repo ), path.getPath() ),
                                 path.isRescan() ) );
-                        pathsRemoved.add( path );
-                        if ( ++removedSize >= size )
-                        {
-                            break;
-                        }
                     }
-                    resources.put( repo, res );
+                    head.clear();
 
-                    paths.removeAll( pathsRemoved );
+                    if ( inFlight != null )
+                    {
+                        inFlight.addAndGet( quantum );
+                    }
+                    pendingPaths.addAndGet( -quantum );
+                    dequeuedPaths.addAndGet( quantum );
+                    removedSize += quantum;
 
                     if ( paths.isEmpty() )
                     {
                         resourceCache.remove( repo );
-                        if ( !repo.isPrefetchRescan() )
-                        {
-                            repoQueue.remove( repo );
-                            sortRepoQueue();
-                        }
-                        hasMore = !repoQueue.isEmpty() && !resourceCache.isEmpty();
+                        retireIfIdle( entry );
                     }
-
-                    if ( removedSize >= size )
+                    else
                     {
-                        return resources;
+                        hasRemaining = true;
                     }
                 }
-                else
+
+                if ( hasRemaining )
                 {
-                    if ( !repo.isPrefetchRescan() )
-                    {
-                        repoQueue.remove( repo );
-                        sortRepoQueue();
-                    }
+                    enqueue( entry, null, true );
                 }
             }
-            return resources;
-        } );
+        }
+        finally
+        {
+            deferred.forEach( e -> enqueue( e, null, false ) );
+        }
+
+        return resources;
+    }
+
+    /**
+     * Release the host concurrency slot held by one path handed out through {@link #remove(int)}.
+     */
+    public void release( final RemoteRepository repo )
+    {
+        if ( config.getHostMaxConcurrent() > 0 )
+        {
+            AtomicInteger inFlight = hostCounter( repo );
+            if ( inFlight.decrementAndGet() < 0 )
+            {
+                inFlight.set( 0 );
+            }
+        }
     }
 
     public Map<RemoteRepository, List<ConcreteResource>> get( final int size )
     {
-        return lockAnd( t -> {
-            Map<RemoteRepository, List<ConcreteResource>> resources = new HashMap<>( 2 );
-            int removedSize = 0;
-            for ( RemoteRepository repo : repoQueue )
+        final List<RepoEntry> entries;
+        lockHeap();
+        try
+        {
+            entries = new ArrayList<>( repoHeap );
+        }
+        finally
+        {
+            heapLock.unlock();
+        }
+
+        Map<RemoteRepository, List<ConcreteResource>> resources = new HashMap<>( 2 );
+        int removedSize = 0;
+        for ( RepoEntry entry : entries )
+        {
+            synchronized ( entry )
             {
+                final RemoteRepository repo = entry.repo;
                 List<RescanablePath> paths = resourceCache.get( repo );
                 if ( paths != null && !paths.isEmpty() )
                 {
@@ -244,26 +390,101 @@ public class PrefetchFrontier
                     }
                 }
             }
-            return resources;
-        } );
+        }
+        return resources;
     }
 
     public boolean hasMore()
     {
-        return hasMore;
+        return pendingPaths.get() > 0;
     }
 
-    private void sortRepoQueue()
+    /**
+     * Put entry (back) into the heap. When repo is given it replaces the snapshot the heap orders the entry by; when
+     * served is set the entry moves on to the next round so the other repositories get their turn first.
+     */
+    private void enqueue( final RepoEntry entry, final RemoteRepository repo, final boolean served )
     {
-        if ( repoQueue.size() > 1 )
+        final RemoteRepository orderKey = repo == null ? null : repo.copyOf();
+        lockHeap();
+        try
         {
-            repoQueue.sort( repoComparator );
+            repoHeap.remove( entry );
+            if ( orderKey != null )
+            {
+                entry.orderKey = orderKey;
+            }
+            if ( served )
+            {
+                entry.round++;
+            }
+            entry.round = Math.max( entry.round, currentRound );
+            repoHeap.add( entry );
+        }
+        finally
+        {
+            heapLock.unlock();
         }
     }
 
-    private <T> T lockAnd( Function<String, T> function )
+    private RepoEntry poll()
     {
-        return mutex.lockAnd( MUTEX_KEY, Integer.MAX_VALUE, function, ( k, lock ) -> true );
+        lockHeap();
+        try
+        {
+            final RepoEntry entry = repoHeap.pollFirst();
+            if ( entry != null )
+            {
+                currentRound = entry.round;
+            }
+            return entry;
+        }
+        finally
+        {
+            heapLock.unlock();
+        }
+    }
+
+    private void lockHeap()
+    {
+        if ( !heapLock.tryLock() )
+        {
+            final long start = System.nanoTime();
+            heapLock.lock();
+            heapLockWaitNanos.addAndGet( System.nanoTime() - start );
+        }
+    }
+
+    // Rescan-enabled repos stay indexed even when drained, so that rescheduleForRescan() can find them again.
+    private void retireIfIdle( final RepoEntry entry )
+    {
+        if ( !entry.repo.isPrefetchRescan() )
+        {
+            entry.retired = true;
+            repoIndex.remove( entry.repo.getKey(), entry );
+        }
+    }
+
+    private AtomicInteger hostCounter( final RemoteRepository repo )
+    {
+        final String host = repo.getHost() == null ? repo.getUrl() : repo.getHost();
+        return hostInFlight.computeIfAbsent( host, h -> new AtomicInteger() );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private int compareEntries( final RepoEntry e1, final RepoEntry e2 )
+    {
+        if ( e1 == e2 )
+        {
+            return 0;
+        }
+
+        int result = Long.compare( e1.round, e2.round );
+        if ( result == 0 )
+        {
+            result = repoComparator.compare( e1.orderKey, e2.orderKey );
+        }
+        return result == 0 ? Long.compare( e1.id, e2.id ) : result;
     }
 
     List<RescanablePath> buildPaths( final RemoteRepository repository, final boolean isRescan )
@@ -291,4 +512,25 @@ public class PrefetchFrontier
         resourceCache.stop();
     }
 
+    private final class RepoEntry
+    {
+        private final long id = entryIds.incrementAndGet();
+
+        // guarded by the entry monitor
+        private RemoteRepository repo;
+
+        private boolean retired;
+
+        // guarded by heapLock
+        private RemoteRepository orderKey;
+
+        private long round;
+
+        private RepoEntry( final RemoteRepository repo )
+        {
+            this.repo = repo;
+            this.orderKey = repo;
+        }
+    }
+
 }
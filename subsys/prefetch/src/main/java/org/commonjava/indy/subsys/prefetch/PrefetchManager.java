@@ -140,6 +140,11 @@ public class PrefetchManager
         while ( frontier.hasMore() )
         {
             Map<RemoteRepository, List<RescanableResourceWrapper>> resources = frontier.remove( config.getBatchSize() );
+            if ( resources.isEmpty() )
+            {
+                // everything left is waiting on a host limit; the workers holding those slots will trigger again
+                break;
+            }
             logger.trace( "Start to trigger threads to download {}", resources );
             prefetchExecutor.execute( new PrefetchWorker( transfers, frontier, resources, PrefetchManager.this,
                                                               specialPathManager ) );
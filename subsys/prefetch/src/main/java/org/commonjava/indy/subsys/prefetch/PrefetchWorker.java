@@ -128,10 +128,15 @@ public class PrefetchWorker
                             "Download failed during prefetch because of transfer getting failed for {}, Reason: {}", r,
                             e.getMessage() );
                 }
+                finally
+                {
+                    frontier.release( repo );
+                }
             } );
         }
 
-        if ( scheduled.get() )
+        // Paths held back by the per-host limit can go out now that this batch has released its slots
+        if ( scheduled.get() || frontier.hasMore() )
         {
             prefetchManager.triggerWorkers();
         }
@@ -35,6 +35,8 @@ public class PrefetchConfig
 
     private static final String INDY_PREFETCH_RESCAN_SCHEDULE_SECONDS = "prefetch.rescan.schedule.seconds";
 
+    private static final String INDY_PREFETCH_HOST_MAX_CONCURRENT = "prefetch.host.max.concurrent";
+
     private static final boolean DEFAULT_ENABLED = false;
 
     private static final int DEFAULT_BATCH_SIZE = 5;
@@ -43,6 +45,8 @@ public class PrefetchConfig
 
     private static final int DEFAULT_SCHEDULE_SECONDS = 1;
 
+    private static final int DEFAULT_HOST_MAX_CONCURRENT = 0;
+
     private Boolean enabled;
 
     private Integer batchSize;
@@ -51,6 +55,8 @@ public class PrefetchConfig
 
     private Integer rescanScheduleSeconds;
 
+    private Integer hostMaxConcurrent;
+
     public PrefetchConfig()
     {
     }
@@ -103,6 +109,20 @@ public class PrefetchConfig
         this.rescanScheduleSeconds = rescanScheduleSeconds;
     }
 
+    /**
+     * Maximum number of prefetch paths in flight against a single remote host. 0 or less means no limit.
+     */
+    public int getHostMaxConcurrent()
+    {
+        return hostMaxConcurrent == null ? DEFAULT_HOST_MAX_CONCURRENT : hostMaxConcurrent;
+    }
+
+    @ConfigName( INDY_PREFETCH_HOST_MAX_CONCURRENT )
+    public void setHostMaxConcurrent( Integer hostMaxConcurrent )
+    {
+        this.hostMaxConcurrent = hostMaxConcurrent;
+    }
+
     @Override
     public String getDefaultConfigFileName()
     {
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2011-2020 Red Hat, Inc. (https://github.com/Commonjava/indy)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.indy.subsys.prefetch;
+
+import org.commonjava.indy.model.core.RemoteRepository;
+import org.commonjava.indy.pkg.maven.model.MavenPackageTypeDescriptor;
+import org.commonjava.indy.subsys.infinispan.CacheHandle;
+import org.commonjava.indy.subsys.prefetch.conf.PrefetchConfig;
+import org.commonjava.indy.subsys.prefetch.models.RescanablePath;
+import org.commonjava.indy.subsys.prefetch.models.RescanableResourceWrapper;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class PrefetchFrontierTest
+{
+    private DefaultCacheManager cacheManager;
+
+    private PrefetchConfig config;
+
+    private PrefetchFrontier frontier;
+
+    @Before
+    public void setup()
+    {
+        cacheManager = new DefaultCacheManager( new ConfigurationBuilder().simpleCache( true ).build() );
+        config = new PrefetchConfig();
+        CacheHandle<RemoteRepository, List> cache =
+                new CacheHandle<>( "prefetch-cache", cacheManager.getCache( "prefetch-cache", true ) );
+        frontier = new PrefetchFrontier( cache, config, null );
+    }
+
+    @After
+    public void teardown()
+    {
+        cacheManager.stop();
+    }
+
+    @Test
+    public void drainReposRoundRobin()
+    {
+        RemoteRepository repo1 = repo( "repo1", "http://host1/repo", 1 );
+        RemoteRepository repo2 = repo( "repo2", "http://host2/repo", 1 );
+        RemoteRepository repo3 = repo( "repo3", "http://host3/repo", 1 );
+
+        frontier.scheduleRepo( repo1, paths( 4 ) );
+        frontier.scheduleRepo( repo2, paths( 4 ) );
+        frontier.scheduleRepo( repo3, paths( 4 ) );
+
+        // re-scheduling a known repo must not add it to the frontier twice
+        frontier.scheduleRepo( repo1, paths( 0 ) );
+
+        Map<RemoteRepository, List<RescanableResourceWrapper>> batch = frontier.remove( 3 );
+        assertThat( batch.size(), equalTo( 3 ) );
+        batch.values().forEach( res -> assertThat( res.size(), equalTo( 1 ) ) );
+
+        int total = 3;
+        while ( frontier.hasMore() )
+        {
+            total += frontier.remove( 5 ).values().stream().mapToInt( List::size ).sum();
+        }
+        assertThat( total, equalTo( 12 ) );
+    }
+
+    @Test
+    public void higherPriorityGetsLargerShare()
+    {
+        RemoteRepository low = repo( "low", "http://host1/repo", 1 );
+        RemoteRepository high = repo( "high", "http://host2/repo", 3 );
+
+        frontier.scheduleRepo( low, paths( 10 ) );
+        frontier.scheduleRepo( high, paths( 10 ) );
+
+        Map<RemoteRepository, List<RescanableResourceWrapper>> batch = frontier.remove( 8 );
+        assertThat( batch.get( high ).size(), equalTo( 6 ) );
+        assertThat( batch.get( low ).size(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void hostConcurrencyIsCapped()
+    {
+        config.setHostMaxConcurrent( 2 );
+
+        RemoteRepository repo1 = repo( "repo1", "http://shared/one", 5 );
+        RemoteRepository repo2 = repo( "repo2", "http://shared/two", 5 );
+
+        frontier.scheduleRepo( repo1, paths( 5 ) );
+        frontier.scheduleRepo( repo2, paths( 5 ) );
+
+        Map<RemoteRepository, List<RescanableResourceWrapper>> batch = frontier.remove( 10 );
+        assertThat( batch.values().stream().mapToInt( List::size ).sum(), equalTo( 2 ) );
+        assertThat( frontier.remove( 10 ).isEmpty(), equalTo( true ) );
+
+        batch.forEach( ( repo, res ) -> res.forEach( r -> frontier.release( repo ) ) );
+
+        batch = frontier.remove( 10 );
+        assertThat( batch.values().stream().mapToInt( List::size ).sum(), equalTo( 2 ) );
+        assertThat( frontier.hasMore(), equalTo( true ) );
+    }
+
+    private RemoteRepository repo( final String name, final String url, final int priority )
+    {
+        RemoteRepository repo = new RemoteRepository( MavenPackageTypeDescriptor.MAVEN_PKG_KEY, name, url );
+        repo.setPrefetchPriority( priority );
+        return repo;
+    }
+
+    private List<RescanablePath> paths( final int count )
+    {
+        List<RescanablePath> paths = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            paths.add( new RescanablePath( "org/foo/bar/" + i + "/bar-" + i + ".jar", false ) );
+        }
+        return paths;
+    }
+}